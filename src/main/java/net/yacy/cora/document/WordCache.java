@@ -34,6 +34,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -52,7 +53,7 @@ public class WordCache {
     // common word cache
     private static final int commonWordsMaxSize = 20000;  // maximum size of common word cache
     private static final int commonWordsMinLength = 5;    // words must have that length at minimum
-    private static OrderedScoreMap<StringBuilder> commonWords = new OrderedScoreMap<StringBuilder>(StringBuilderComparator.CASE_INSENSITIVE_ORDER);
+    private final OrderedScoreMap<StringBuilder> commonWords;
 
     // dictionaries
     private final File dictionaryPath;
@@ -200,27 +201,28 @@ public class WordCache {
     public WordCache(final File dictionaryPath) {
         this.dictionaryPath = dictionaryPath;
         this.dictionaries = new ConcurrentHashMap<String, Dictionary>();
+        this.commonWords = new OrderedScoreMap<StringBuilder>(StringBuilderComparator.CASE_INSENSITIVE_ORDER);
         reload();
     }
 
     /**
-     * add a word to the generic dictionary
+     * add a word to the generic dictionary of this word cache
      * @param word
      */
-    public static void learn(final StringBuilder word) {
+    public void learn(final StringBuilder word) {
         if (word == null) {
             return;
         }
         if (word.length() < commonWordsMinLength) {
             return;
         }
-        commonWords.inc(word);
-        if (!(commonWords.sizeSmaller(commonWordsMaxSize))) {
-            commonWords.shrinkToMaxSize(commonWordsMaxSize / 2);
+        this.commonWords.inc(word);
+        if (!(this.commonWords.sizeSmaller(commonWordsMaxSize))) {
+            this.commonWords.shrinkToMaxSize(commonWordsMaxSize / 2);
         }
     }
 
-    public static void learn(Collection<String> wordset) {
+    public void learn(Collection<String> wordset) {
         for (String s: wordset) {
             learn(new StringBuilder(s));
         }
@@ -265,7 +267,7 @@ public class WordCache {
         for (Dictionary dict: this.dictionaries.values()) {
             ret.addAll(dict.recommend(string));
         }
-        final SortedMap<StringBuilder, AtomicInteger> u = commonWords.tailMap(string);
+        final SortedMap<StringBuilder, AtomicInteger> u = this.commonWords.tailMap(string);
         StringBuilder vv;
         try {
             for (final Map.Entry<StringBuilder, AtomicInteger> v: u.entrySet()) {
@@ -324,12 +326,32 @@ public class WordCache {
         return size;
     }
 
-    public static int sizeCommonWords() {
-        return commonWords.size();
+    /**
+     * a hash of the words of all dictionaries; the stamp changes when a dictionary file is added,
+     * removed or has other words, but not when only the file date changes
+     * @return the stamp of the dictionaries
+     */
+    public long stamp() {
+        final TreeMap<String, Dictionary> sorted = new TreeMap<String, Dictionary>(this.dictionaries);
+        long h = 0;
+        for (Map.Entry<String, Dictionary> entry: sorted.entrySet()) {
+            h = 31 * h + entry.getKey().hashCode();
+            for (StringBuilder word: entry.getValue().getWords()) {
+                for (int i = 0; i < word.length(); i++) {
+                    h = 31 * h + word.charAt(i);
+                }
+                h = 31 * h + '\n';
+            }
+        }
+        return h;
+    }
+
+    public int sizeCommonWords() {
+        return this.commonWords.size();
     }
 
-    public static void clearCommonWords() {
-        commonWords.clear();
+    public void clearCommonWords() {
+        this.commonWords.clear();
     }
 
     /**
@@ -0,0 +1,149 @@
+/**
+ *  MappingPlan
+ *  Copyright 2026 by the YaCy Grid contributors
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.federate.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import net.yacy.grid.io.index.WebMapping;
+import net.yacy.grid.tools.Logger;
+
+/**
+ * The mapping plan of a crawl: the web index fields which are written for each document and the compiled
+ * collection patterns. A plan is computed once for each collection configuration and shared by all documents
+ * of that crawl, so WebConfiguration.yacy2solr does not look up the configuration for each document and
+ * does not compute fields which are disabled. Disabled fields which are cheap to compute are skipped when
+ * they are written into the WebDocument.
+ */
+public class MappingPlan {
+
+    private static final int MAX_PLANS = 100; // the plan cache is cleared when it reaches this size
+
+    private static volatile boolean enableLdO = false;
+    private static volatile Set<String> disabledFields = Collections.emptySet();
+    private static final Map<String, MappingPlan> plans = new ConcurrentHashMap<>();
+    private static volatile MappingPlan defaultPlan = new MappingPlan(null);
+
+    private final boolean[] enabled; // by ordinal of the WebMapping field
+    private final String[] names;    // collection names
+    private final Pattern[] patterns; // collection patterns, null for patterns which match every url
+
+    /**
+     * set the fields which are written for all documents
+     * @param ld_o true if the ld_o field shall be written (not recommended, this creates many object indexes)
+     * @param disabled names of fields which shall not be written
+     */
+    public static void configure(final boolean ld_o, final Collection<String> disabled) {
+        final Set<String> d = new HashSet<>();
+        for (final String s: disabled) {
+            final String name = s.trim();
+            if (name.isEmpty()) continue;
+            try {
+                WebMapping.valueOf(name);
+                d.add(name);
+            } catch (final IllegalArgumentException e) {
+                Logger.warn("MappingPlan: unknown field " + name);
+            }
+        }
+        enableLdO = ld_o;
+        disabledFields = d;
+        plans.clear();
+        defaultPlan = new MappingPlan(null);
+    }
+
+    /**
+     * @return the plan for documents without collections
+     */
+    public static MappingPlan getDefault() {
+        return defaultPlan;
+    }
+
+    /**
+     * get the plan for a collection configuration
+     * @param collection the collection configuration of a crawl, as parsed by WebMapping.collectionParser; may be null
+     * @return the plan
+     */
+    public static MappingPlan get(final String collection) {
+        if (collection == null || collection.isEmpty()) return defaultPlan;
+        MappingPlan plan = plans.get(collection);
+        if (plan == null) {
+            plan = new MappingPlan(WebMapping.collectionParser(collection));
+            if (plans.size() >= MAX_PLANS) plans.clear();
+            plans.put(collection, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * get a plan for collection patterns; the plan is not cached
+     * @param collections collection patterns, may be null
+     * @return the plan
+     */
+    public static MappingPlan get(final Map<String, Pattern> collections) {
+        return collections == null || collections.isEmpty() ? defaultPlan : new MappingPlan(collections);
+    }
+
+    private MappingPlan(final Map<String, Pattern> collections) {
+        final WebMapping[] fields = WebMapping.values();
+        this.enabled = new boolean[fields.length];
+        final Set<String> disabled = disabledFields;
+        for (final WebMapping field: fields) this.enabled[field.ordinal()] = !disabled.contains(field.name());
+        if (!enableLdO) this.enabled[WebMapping.ld_o.ordinal()] = false;
+        if (collections == null || collections.isEmpty()) this.enabled[WebMapping.collection_sxt.ordinal()] = false;
+
+        final int size = collections == null ? 0 : collections.size();
+        this.names = new String[size];
+        this.patterns = new Pattern[size];
+        int i = 0;
+        if (collections != null) for (final Map.Entry<String, Pattern> e: collections.entrySet()) {
+            this.names[i] = e.getKey();
+            this.patterns[i] = ".*".equals(e.getValue().pattern()) ? null : e.getValue(); // urls do not contain line terminators
+            i++;
+        }
+    }
+
+    /**
+     * @param field a web index field
+     * @return true if the field is written
+     */
+    public boolean enabled(final WebMapping field) {
+        return this.enabled[field.ordinal()];
+    }
+
+    /**
+     * @param url the normalized url of a document
+     * @return the names of the collections of the document, in the order of the collection configuration
+     */
+    public List<String> collections(final String url) {
+        final List<String> cs = new ArrayList<>(this.names.length);
+        for (int i = 0; i < this.names.length; i++) {
+            if (this.patterns[i] == null || this.patterns[i].matcher(url).matches()) cs.add(this.names[i]);
+        }
+        return cs;
+    }
+
+}
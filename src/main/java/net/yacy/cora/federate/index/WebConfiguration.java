@@ -29,6 +29,7 @@ import java.lang.reflect.Array;
 import java.net.InetAddress;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Iterator;
@@ -37,9 +38,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
 
-import org.json.JSONArray;
 import org.json.JSONObject;
 
 import net.yacy.cora.protocol.Domains;
@@ -48,11 +47,11 @@ import net.yacy.cora.protocol.ResponseHeader;
 import net.yacy.document.DateDetection;
 import net.yacy.document.Document;
 import net.yacy.document.SentenceReader;
+import net.yacy.document.TextContent;
 import net.yacy.document.parser.htmlParser;
 import net.yacy.document.parser.html.ImageEntry;
 import net.yacy.document.parser.html.Scraper;
 import net.yacy.grid.io.index.WebMapping;
-import net.yacy.grid.mcp.Service;
 import net.yacy.grid.tools.AnchorURL;
 import net.yacy.grid.tools.Classification.ContentDomain;
 import net.yacy.grid.tools.CommonPattern;
@@ -67,46 +66,43 @@ public class WebConfiguration implements Serializable {
     public static boolean UNIQUE_HEURISTIC_PREFER_HTTPS = false;
     public static boolean UNIQUE_HEURISTIC_PREFER_WWWPREFIX = true;
 
-    private static void add(final JSONObject json, final WebMapping field, final String value) {
-        json.put(field.getMapping().name(), value);
+    private static void add(final WebDocument json, final WebMapping field, final String value) {
+        json.put(field, value);
     }
-    private static void add(final JSONObject json, final WebMapping field, final int value) {
-        json.put(field.getMapping().name(), (long) value);
+    private static void add(final WebDocument json, final WebMapping field, final TextContent value) {
+        json.put(field, value);
     }
-    private static void add(final JSONObject json, final WebMapping field, final double value) {
-        json.put(field.getMapping().name(), value);
+    private static void add(final WebDocument json, final WebMapping field, final int value) {
+        json.put(field, (long) value);
     }
-    private static void add(final JSONObject json, final WebMapping field, final boolean value) {
-        json.put(field.getMapping().name(), value);
+    private static void add(final WebDocument json, final WebMapping field, final double value) {
+        json.put(field, value);
     }
-    private static void add(final JSONObject json, final WebMapping field, final Date value) {
-        json.put(field.getMapping().name(), DateParser.iso8601MillisFormat.format(value));
+    private static void add(final WebDocument json, final WebMapping field, final boolean value) {
+        json.put(field, value);
     }
-    private static void add(final JSONObject json, final WebMapping field, final String[] values) {
-        final JSONArray a = new JSONArray();
-        for (final String s: values) a.put(s);
-        json.put(field.getMapping().name(), a);
+    private static void add(final WebDocument json, final WebMapping field, final Date value) {
+        json.put(field, DateParser.iso8601MillisFormat.format(value));
     }
-    private static void add(final JSONObject json, final WebMapping field, final Integer[] values) {
-        final JSONArray a = new JSONArray();
-        for (final Integer s: values) a.put((long) s);
-        json.put(field.getMapping().name(), a);
+    private static void add(final WebDocument json, final WebMapping field, final String[] values) {
+        json.put(field, Arrays.asList(values));
     }
-    private static void add(final JSONObject json, final WebMapping field, final Date[] values) {
-        final JSONArray a = new JSONArray();
-        for (final Date s: values) a.put(DateParser.iso8601MillisFormat.format(s));
-        json.put(field.getMapping().name(), a);
+    private static void add(final WebDocument json, final WebMapping field, final int[] values) {
+        json.put(field, values);
     }
-    private static void add(final JSONObject json, final WebMapping field, final Collection<?> values) {
-        final JSONArray a = new JSONArray();
-        for (final Object s: values) {
-            if (s instanceof Date) a.put(DateParser.iso8601MillisFormat.format((Date) s));
-            else a.put(s);
-        }
-        json.put(field.getMapping().name(), a);
+    private static void add(final WebDocument json, final WebMapping field, final Integer[] values) {
+        json.put(field, Arrays.asList(values));
+    }
+    private static void add(final WebDocument json, final WebMapping field, final Date[] values) {
+        final List<String> a = new ArrayList<>(values.length);
+        for (final Date s: values) a.add(DateParser.iso8601MillisFormat.format(s));
+        json.put(field, a);
     }
-    private static void add(final JSONObject json, final WebMapping field, final JSONObject object) {
-        json.put(field.getMapping().name(), object);
+    private static void add(final WebDocument json, final WebMapping field, final Collection<?> values) {
+        json.put(field, values);
+    }
+    private static void add(final WebDocument json, final WebMapping field, final JSONObject object) {
+        json.put(field, object);
     }
 
     public static class Subgraph {
@@ -146,7 +142,7 @@ public class WebConfiguration implements Serializable {
      * @param MultiProtocolURL used to calc. the document.id and the doc.sku=(in index stored url)
      * @return the normalized url
      */
-    public static String addURIAttributes(final JSONObject doc, final MultiProtocolURL MultiProtocolURL) {
+    public static String addURIAttributes(final WebDocument doc, final MultiProtocolURL MultiProtocolURL) {
         final String us = MultiProtocolURL.toNormalform(true);
         add(doc, WebMapping.url_s, us);
         final InetAddress address = MultiProtocolURL.getInetAddress();
@@ -196,13 +192,32 @@ public class WebConfiguration implements Serializable {
         return us;
     }
 
-    public static JSONObject yacy2solr(
-            final Map<String, Pattern> collections, final ResponseHeader responseHeader,
+    /**
+     * number of words in a text, the same as the length of CommonPattern.SPACES.split(s)
+     */
+    private static int wordCount(final String s) {
+        if (s.isEmpty()) return 1;
+        int c = 0;
+        boolean inWord = false;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == ' ') {
+                inWord = false;
+            } else if (!inWord) {
+                c++;
+                inWord = true;
+            }
+        }
+        if (c > 0 && s.charAt(0) == ' ') c++; // split produces an empty first word
+        return c;
+    }
+
+    public static WebDocument yacy2solr(
+            final MappingPlan plan, final ResponseHeader responseHeader,
             final Document document, final MultiProtocolURL referrerURL, final String language, final boolean setUnique,
             final int timezoneOffset) {
         // we use the SolrCell design as index schema
         final MultiProtocolURL digestURL = document.dc_source();
-        final JSONObject doc = new JSONObject(true);
+        final WebDocument doc = new WebDocument(plan);
         final String url = addURIAttributes(doc, digestURL);
         add(doc, WebMapping.content_type, new String[]{document.dc_format()}); // content_type (mime) is defined a schema field and we rely on it in some queries like imagequery (makes it mandatory, no need to check)
 
@@ -211,36 +226,40 @@ public class WebConfiguration implements Serializable {
         final int crawldepth = document.getDepth();
         add(doc, WebMapping.crawldepth_i, crawldepth);
 
-        if (collections != null && collections.size() > 0) {
-            final List<String> cs = new ArrayList<String>();
-            for (final Map.Entry<String, Pattern> e: collections.entrySet()) {
-                if (e.getValue().matcher(url).matches()) cs.add(e.getKey());
-            }
-            add(doc, WebMapping.collection_sxt, cs);
+        if (plan.enabled(WebMapping.collection_sxt)) {
+            add(doc, WebMapping.collection_sxt, plan.collections(url));
         }
 
         final List<String> titles = document.titles();
         add(doc, WebMapping.title, titles);
         add(doc, WebMapping.title_count_i, titles.size());
-        ArrayList<Integer> cv = new ArrayList<Integer>(titles.size());
-        for (final String s: titles) cv.add(Integer.valueOf(s.length()));
-        add(doc, WebMapping.title_chars_val, cv);
-
-        cv = new ArrayList<Integer>(titles.size());
-        for (final String s: titles) cv.add(Integer.valueOf(CommonPattern.SPACES.split(s).length));
-        add(doc, WebMapping.title_words_val, cv);
+        int[] cv;
+        int i;
+        if (plan.enabled(WebMapping.title_chars_val)) {
+            cv = new int[titles.size()]; i = 0;
+            for (final String s: titles) cv[i++] = s.length();
+            add(doc, WebMapping.title_chars_val, cv);
+        }
+        if (plan.enabled(WebMapping.title_words_val)) {
+            cv = new int[titles.size()]; i = 0;
+            for (final String s: titles) cv[i++] = wordCount(s);
+            add(doc, WebMapping.title_words_val, cv);
+        }
 
         final String[] descriptions = document.dc_description();
         add(doc, WebMapping.description_txt, descriptions);
 
         add(doc, WebMapping.description_count_i, descriptions.length);
-        cv = new ArrayList<Integer>(descriptions.length);
-        for (final String s: descriptions) cv.add(Integer.valueOf(s.length()));
-        add(doc, WebMapping.description_chars_val, cv);
-
-        cv = new ArrayList<Integer>(descriptions.length);
-        for (final String s: descriptions) cv.add(Integer.valueOf(CommonPattern.SPACES.split(s).length));
-        add(doc, WebMapping.description_words_val, cv);
+        if (plan.enabled(WebMapping.description_chars_val)) {
+            cv = new int[descriptions.length]; i = 0;
+            for (final String s: descriptions) cv[i++] = s.length();
+            add(doc, WebMapping.description_chars_val, cv);
+        }
+        if (plan.enabled(WebMapping.description_words_val)) {
+            cv = new int[descriptions.length]; i = 0;
+            for (final String s: descriptions) cv[i++] = wordCount(s);
+            add(doc, WebMapping.description_words_val, cv);
+        }
 
         String author = document.dc_creator();
         if (author == null || author.length() == 0) author = document.dc_publisher();
@@ -254,13 +273,17 @@ public class WebConfiguration implements Serializable {
         if (document.getLastModified().before(lastModified)) lastModified = document.getLastModified();
         add(doc, WebMapping.last_modified, lastModified);
 
-        String content = document.getTextString();
+        final TextContent text = document.getText();
+        String content = null; // the text as String is only computed if a field needs it
 
-        final LinkedHashSet<Date> dates_in_content = DateDetection.parse(content, timezoneOffset);
+        if (plan.enabled(WebMapping.dates_in_content_count_i) || plan.enabled(WebMapping.dates_in_content_dts)) {
+            content = text.toString();
+            final LinkedHashSet<Date> dates_in_content = DateDetection.parse(content, timezoneOffset);
 
-        add(doc, WebMapping.dates_in_content_count_i, dates_in_content.size());
+            add(doc, WebMapping.dates_in_content_count_i, dates_in_content.size());
 
-        add(doc, WebMapping.dates_in_content_dts, dates_in_content.toArray(new Date[dates_in_content.size()]));
+            add(doc, WebMapping.dates_in_content_dts, dates_in_content.toArray(new Date[dates_in_content.size()]));
+        }
 
         final String keywords = document.dc_subject(' ');
         add(doc, WebMapping.keywords, keywords);
@@ -510,7 +533,8 @@ public class WebConfiguration implements Serializable {
 
             // generic evaluation pattern
             for (final String model: html.getEvaluationModelNames()) {
-            final String[] scorenames = html.getEvaluationModelScoreNames(model);
+                if (!plan.enabled(WebMapping.valueOf("ext_" + model + "_txt")) && !plan.enabled(WebMapping.valueOf("ext_" + model + "_val"))) continue;
+                final String[] scorenames = html.getEvaluationModelScoreNames(model);
                 if (scorenames.length > 0) {
                     add(doc, WebMapping.valueOf("ext_" + model + "_txt"), scorenames);
                     add(doc, WebMapping.valueOf("ext_" + model + "_val"), html.getEvaluationModelScoreCounts(model, scorenames));
@@ -551,6 +575,7 @@ public class WebConfiguration implements Serializable {
         }
 
         // handle image source meta data
+        TextContent textContent = text;
         if (document.getContentDomain() == ContentDomain.IMAGE) {
             // add image pixel size if known
             final Iterator<ImageEntry> imgit = document.getImages().values().iterator();
@@ -572,19 +597,16 @@ public class WebConfiguration implements Serializable {
                 add(doc, WebMapping.images_pixel_val, pixels);
             }
 
-            add(doc, WebMapping.images_text_t, content); // the content may contain the exif data from the image parser
-            content = digestURL.toTokens(); // remove all other entry but the url tokens
+            if (plan.enabled(WebMapping.images_text_t)) {
+                add(doc, WebMapping.images_text_t, content == null ? text.toString() : content); // the content may contain the exif data from the image parser
+            }
+            textContent = TextContent.of(digestURL.toTokens()); // remove all other entry but the url tokens
         }
 
         // content (must be written after special parser data, since this can influence the content)
-        add(doc, WebMapping.text_t, content);
-        if (content.length() == 0) {
-            add(doc, WebMapping.wordcount_i, 0);
-        } else {
-            int contentwc = 1;
-            for (int i = content.length() - 1; i >= 0; i--) if (content.charAt(i) == ' ') contentwc++;
-            add(doc, WebMapping.wordcount_i, contentwc);
-        }
+        // the text is written into the json from its UTF-8 form, the content string is not kept
+        add(doc, WebMapping.text_t, textContent);
+        add(doc, WebMapping.wordcount_i, textContent.wordCount());
 
         // statistics about the links
         add(doc, WebMapping.linkscount_i, inboundLinks.size() + outboundLinks.size());
@@ -595,16 +617,19 @@ public class WebConfiguration implements Serializable {
         add(doc, WebMapping.outboundlinksnofollowcount_i, document.outboundLinkNofollowCount());
 
         // create a subgraph
-        final Subgraph subgraph = new Subgraph(inboundLinks.size(), outboundLinks.size());
-        for (final AnchorURL target_url: document.getHyperlinks().keySet()) {
-            enrichSubgraph(subgraph, digestURL, target_url);
-        }
+        if (plan.enabled(WebMapping.inboundlinks_sxt) || plan.enabled(WebMapping.inboundlinks_anchortext_txt) ||
+            plan.enabled(WebMapping.outboundlinks_sxt) || plan.enabled(WebMapping.outboundlinks_anchortext_txt)) {
+            final Subgraph subgraph = new Subgraph(inboundLinks.size(), outboundLinks.size());
+            for (final AnchorURL target_url: document.getHyperlinks().keySet()) {
+                enrichSubgraph(subgraph, digestURL, target_url);
+            }
 
-        // attach the subgraph content
-        add(doc, WebMapping.inboundlinks_sxt, subgraph.urls[0]);
-        add(doc, WebMapping.inboundlinks_anchortext_txt, subgraph.urlAnchorTexts[0]);
-        add(doc, WebMapping.outboundlinks_sxt, subgraph.urls[1]);
-        add(doc, WebMapping.outboundlinks_anchortext_txt, subgraph.urlAnchorTexts[1]);
+            // attach the subgraph content
+            add(doc, WebMapping.inboundlinks_sxt, subgraph.urls[0]);
+            add(doc, WebMapping.inboundlinks_anchortext_txt, subgraph.urlAnchorTexts[0]);
+            add(doc, WebMapping.outboundlinks_sxt, subgraph.urls[1]);
+            add(doc, WebMapping.outboundlinks_anchortext_txt, subgraph.urlAnchorTexts[1]);
+        }
 
         // charset
         add(doc, WebMapping.charset_s, document.getCharset());
@@ -635,11 +660,16 @@ public class WebConfiguration implements Serializable {
         // LSON-LD object
         final JSONObject ld = document.ld();
         //System.out.println("**** LD for " + digestURL.toNormalform(true) + "\n" + ld.toString(2) + "\n"); // debug
-        if (Service.instance.config.properties.getOrDefault("parser.html.enable_ld_o", "false").equals("true")) add(doc, WebMapping.ld_o, ld);
-        final String lds = ld.toString(0);
-        add(doc, WebMapping.ld_s, lds);
-        final Collection<String> context = htmlParser.getLdContext(ld);
-        add(doc, WebMapping.ld_context_sxt, context);
+        if (plan.enabled(WebMapping.ld_o)) add(doc, WebMapping.ld_o, ld);
+        if (plan.enabled(WebMapping.ld_s)) {
+            final String lds = document.ldString();
+            add(doc, WebMapping.ld_s, lds);
+        }
+        if (plan.enabled(WebMapping.ld_context_sxt)) {
+            final Collection<String> context = htmlParser.getLdContext(ld);
+            add(doc, WebMapping.ld_context_sxt, context);
+        }
+
         return doc;
     }
 
@@ -652,7 +682,7 @@ public class WebConfiguration implements Serializable {
      * @param outboundLinks all document outbound links
      * @param images document images
      */
-    private static void processImages(final JSONObject doc, final LinkedHashMap<MultiProtocolURL, String> inboundLinks,
+    private static void processImages(final WebDocument doc, final LinkedHashMap<MultiProtocolURL, String> inboundLinks,
             final LinkedHashMap<MultiProtocolURL, String> outboundLinks, final List<ImageEntry> images) {
         final ArrayList<String> imgurls = new ArrayList<String>(images.size());
         final Integer[] imgheights = new Integer[images.size()];
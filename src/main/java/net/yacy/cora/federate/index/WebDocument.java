@@ -0,0 +1,315 @@
+/**
+ *  WebDocument
+ *  Copyright 2026 by the YaCy Grid contributors
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.federate.index;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONString;
+
+import net.yacy.document.TextContent;
+import net.yacy.grid.io.index.WebMapping;
+import net.yacy.grid.tools.DateParser;
+
+/**
+ * A web index document which is written as json while the fields are computed. The fields are serialized
+ * directly into a UTF-8 buffer; fields of the graph projection are written into a second buffer in the same
+ * pass, so neither the document nor the graph is built as JSONObject. Fields which are disabled in the
+ * mapping plan are not written. Each field is written only once, later values of the same field are ignored.
+ */
+public class WebDocument {
+
+    /**
+     * the fields of the graph projection of a document
+     */
+    public final static WebMapping[] GRAPH_ATTRIBUTES = new WebMapping[]{
+        WebMapping.url_s,
+        WebMapping.url_protocol_s,
+        WebMapping.url_file_name_s,
+        WebMapping.url_file_ext_s,
+        WebMapping.inboundlinkscount_i,
+        WebMapping.inboundlinks_sxt,
+        WebMapping.inboundlinks_anchortext_txt,
+        WebMapping.inboundlinksnofollowcount_i,
+        WebMapping.outboundlinkscount_i,
+        WebMapping.outboundlinks_sxt,
+        WebMapping.outboundlinks_anchortext_txt,
+        WebMapping.outboundlinksnofollowcount_i,
+        WebMapping.imagescount_i,
+        WebMapping.images_sxt,
+        WebMapping.images_text_t,
+        WebMapping.images_alt_sxt,
+        WebMapping.images_height_val,
+        WebMapping.images_width_val,
+        WebMapping.images_pixel_val,
+        WebMapping.canonical_s,
+        WebMapping.frames_sxt,
+        WebMapping.framesscount_i,
+        WebMapping.iframes_sxt,
+        WebMapping.iframesscount_i
+    };
+
+    private final static boolean[] graph = new boolean[WebMapping.values().length];
+    static {
+        for (final WebMapping field: GRAPH_ATTRIBUTES) graph[field.ordinal()] = true;
+    }
+
+    // fields which are read by the receivers of the documents
+    private final static WebMapping[] KEPT = new WebMapping[]{WebMapping.url_s, WebMapping.canonical_s, WebMapping.title};
+
+    private final MappingPlan plan;
+    private final boolean[] written;
+    private final Map<WebMapping, Object> kept;
+    private final ByteArrayOutputStream docBytes, graphBytes;
+    private final Writer doc, graphDoc;
+    private boolean docEmpty, graphEmpty, closed;
+
+    /**
+     * @param plan the mapping plan which decides about the written fields
+     */
+    public WebDocument(final MappingPlan plan) {
+        this.plan = plan;
+        this.written = new boolean[WebMapping.values().length];
+        this.kept = new EnumMap<>(WebMapping.class);
+        this.docBytes = new ByteArrayOutputStream(8192);
+        this.graphBytes = new ByteArrayOutputStream(2048);
+        this.doc = new OutputStreamWriter(this.docBytes, StandardCharsets.UTF_8);
+        this.graphDoc = new OutputStreamWriter(this.graphBytes, StandardCharsets.UTF_8);
+        this.docEmpty = true;
+        this.graphEmpty = true;
+        this.closed = false;
+        try {
+            this.doc.write('{');
+            this.graphDoc.write('{');
+        } catch (final IOException e) {
+            // a ByteArrayOutputStream does not throw
+        }
+    }
+
+    /**
+     * write a field with a string value; a null value is not written
+     */
+    public void put(final WebMapping field, final String value) {
+        if (value != null) putValue(field, value);
+    }
+
+    /**
+     * write a field with a text which is serialized from its UTF-8 form
+     */
+    public void put(final WebMapping field, final TextContent value) {
+        if (value != null) putValue(field, value);
+    }
+
+    public void put(final WebMapping field, final long value) {
+        putValue(field, value);
+    }
+
+    public void put(final WebMapping field, final double value) {
+        if (!Double.isInfinite(value) && !Double.isNaN(value)) putValue(field, value);
+    }
+
+    public void put(final WebMapping field, final boolean value) {
+        putValue(field, value);
+    }
+
+    /**
+     * write a field with an array value
+     */
+    public void put(final WebMapping field, final Iterable<?> values) {
+        putValue(field, values);
+    }
+
+    public void put(final WebMapping field, final int[] values) {
+        putValue(field, values);
+    }
+
+    public void put(final WebMapping field, final JSONObject value) {
+        if (value != null) putValue(field, value);
+    }
+
+    private void putValue(final WebMapping field, final Object value) {
+        final int o = field.ordinal();
+        if (this.closed || this.written[o]) return;
+        // the kept fields are read by the receivers of the document (i.e. url_s for the document id), also if they are disabled
+        for (final WebMapping k: KEPT) if (k == field) this.kept.putIfAbsent(field, value);
+        if (!this.plan.enabled(field)) return;
+        this.written[o] = true;
+        final String key = field.getMapping().name();
+        try {
+            if (!this.docEmpty) this.doc.write(',');
+            this.docEmpty = false;
+            writeField(this.doc, key, value);
+            if (graph[o]) {
+                if (!this.graphEmpty) this.graphDoc.write(',');
+                this.graphEmpty = false;
+                writeField(this.graphDoc, key, value);
+            }
+        } catch (final IOException e) {
+            // a ByteArrayOutputStream does not throw
+        }
+    }
+
+    private static void writeField(final Writer w, final String key, final Object value) throws IOException {
+        TextContent.quote(key, w);
+        w.write(':');
+        writeValue(w, value);
+    }
+
+    private static void writeValue(final Writer w, final Object value) throws IOException {
+        if (value == null) {
+            w.write("null");
+        } else if (value instanceof String) {
+            TextContent.quote((String) value, w);
+        } else if (value instanceof TextContent) {
+            ((TextContent) value).writeJSON(w);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            w.write(Long.toString(((Number) value).longValue()));
+        } else if (value instanceof Number) {
+            w.write(JSONObject.numberToString((Number) value));
+        } else if (value instanceof Boolean) {
+            w.write(value.toString());
+        } else if (value instanceof Date) {
+            TextContent.quote(DateParser.iso8601MillisFormat.format((Date) value), w);
+        } else if (value instanceof int[]) {
+            w.write('[');
+            final int[] a = (int[]) value;
+            for (int i = 0; i < a.length; i++) {
+                if (i > 0) w.write(',');
+                w.write(Integer.toString(a[i]));
+            }
+            w.write(']');
+        } else if (value instanceof Iterable) {
+            w.write('[');
+            boolean first = true;
+            for (final Object v: (Iterable<?>) value) {
+                if (!first) w.write(',');
+                first = false;
+                writeValue(w, v);
+            }
+            w.write(']');
+        } else if (value instanceof JSONObject || value instanceof JSONArray) {
+            w.write(value.toString());
+        } else if (value instanceof JSONString) {
+            w.write(((JSONString) value).toJSONString());
+        } else {
+            TextContent.quote(value.toString(), w);
+        }
+    }
+
+    private synchronized void close() {
+        if (this.closed) return;
+        this.closed = true;
+        try {
+            this.doc.write('}');
+            this.doc.close();
+            this.graphDoc.write('}');
+            this.graphDoc.close();
+        } catch (final IOException e) {
+            // a ByteArrayOutputStream does not throw
+        }
+    }
+
+    /**
+     * get the value of a field like JSONObject.optString; this is available for the fields url_s, canonical_s and title,
+     * also if they are disabled in the mapping plan
+     * @param field the field
+     * @return the value as string, arrays as json; the empty string if the field was not given
+     */
+    public String optString(final WebMapping field) {
+        final Object value = this.kept.get(field);
+        if (value == null) return "";
+        if (value instanceof String) return (String) value;
+        final StringWriter w = new StringWriter();
+        try {
+            writeValue(w, value);
+        } catch (final IOException e) {
+            // a StringWriter does not throw
+        }
+        return w.toString();
+    }
+
+    /**
+     * write the document as one json line, without line terminator; no more fields can be written afterwards
+     * @param os the target
+     * @throws IOException
+     */
+    public void writeDocument(final OutputStream os) throws IOException {
+        close();
+        this.docBytes.writeTo(os);
+    }
+
+    /**
+     * write the graph projection of the document as one json line, without line terminator
+     * @param os the target
+     * @throws IOException
+     */
+    public void writeGraph(final OutputStream os) throws IOException {
+        close();
+        this.graphBytes.writeTo(os);
+    }
+
+    /**
+     * @return the document as UTF-8 json
+     */
+    public byte[] getDocument() {
+        close();
+        return this.docBytes.toByteArray();
+    }
+
+    /**
+     * @return the graph projection of the document as UTF-8 json
+     */
+    public byte[] getGraph() {
+        close();
+        return this.graphBytes.toByteArray();
+    }
+
+    /**
+     * parse the document into a JSONObject, for receivers which need the document as object
+     * @return the document
+     */
+    public JSONObject toJSON() {
+        return new JSONObject(new String(getDocument(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * parse the graph projection into a JSONObject
+     * @return the graph projection
+     */
+    public JSONObject graphToJSON() {
+        return new JSONObject(new String(getGraph(), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String toString() {
+        return new String(getDocument(), StandardCharsets.UTF_8);
+    }
+
+}
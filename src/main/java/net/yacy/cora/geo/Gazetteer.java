@@ -0,0 +1,429 @@
+/**
+ *  Gazetteer
+ *  Copyright 2026 by the YaCy Grid contributors
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.geo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import net.yacy.grid.tools.Logger;
+
+/**
+ * A compact gazetteer: the locations of a geo database dump in primitive columns (latitude, longitude,
+ * population, name) and one or more sorted dictionaries from keys (i.e. location names) to locations.
+ * The gazetteer is built once from the dump and written to a binary file, which is memory-mapped on the next
+ * start; lookups are done with a binary search in the mapped file and the locations are created on demand.
+ *
+ * The file has the following layout, all numbers are big-endian:
+ * <pre>
+ * int magic, long stamp, int locations, int dictionaries, int[dictionaries] keys
+ * float[locations] latitude, float[locations] longitude, int[locations] population, int[locations] name
+ * for each dictionary: (keys + 1) times (int key, int first posting), the last entry ends the postings;
+ *   then int[] postings, the location numbers of the keys
+ * the strings: unsigned short length and UTF-8 bytes; names and keys are positions of strings
+ * </pre>
+ */
+public class Gazetteer {
+
+    private static final int MAGIC = 0x59474731; // YGG1
+    private static final int NO_NAME = -1;
+    private static final int MAX_STRING = 0xFFFF;
+
+    /**
+     * fills a builder with the content of a geo database dump
+     */
+    public interface Loader {
+        public void load(Builder builder) throws IOException;
+    }
+
+    private final ByteBuffer buffer; // read with absolute positions only, so it can be shared by threads
+    private final boolean[] ignoreCase;
+    private final int locations;
+    private final int[] keys;
+    private final int[] keyTable;
+    private final int latPos, lonPos, populationPos, namePos;
+
+    private Gazetteer(final ByteBuffer buffer, final long stamp, final boolean[] ignoreCase) throws IOException {
+        this.buffer = buffer;
+        this.ignoreCase = ignoreCase;
+        if (buffer.capacity() < 20 || buffer.getInt(0) != MAGIC) throw new IOException("not a gazetteer");
+        if (buffer.getLong(4) != stamp) throw new IOException("gazetteer is outdated");
+        this.locations = buffer.getInt(12);
+        if (buffer.getInt(16) != ignoreCase.length) throw new IOException("gazetteer has wrong dictionaries");
+        int p = 20;
+        this.keys = new int[ignoreCase.length];
+        for (int d = 0; d < this.keys.length; d++) {this.keys[d] = buffer.getInt(p); p += 4;}
+        this.latPos = p; p += 4 * this.locations;
+        this.lonPos = p; p += 4 * this.locations;
+        this.populationPos = p; p += 4 * this.locations;
+        this.namePos = p; p += 4 * this.locations;
+        this.keyTable = new int[this.keys.length];
+        for (int d = 0; d < this.keys.length; d++) {
+            if (p + 8 * (this.keys[d] + 1) > buffer.capacity()) throw new IOException("gazetteer is truncated");
+            this.keyTable[d] = p;
+            p += 8 * (this.keys[d] + 1);
+            p += 4 * buffer.getInt(p - 4); // the postings of the dictionary
+        }
+        if (p > buffer.capacity()) throw new IOException("gazetteer is truncated");
+    }
+
+    /**
+     * compute a stamp which identifies a version of a dump; a gazetteer is built again when the stamp changes
+     * @param source the dump
+     * @param parameters the parameters which were used to build the gazetteer
+     * @return the stamp
+     */
+    public static long stamp(final File source, final long... parameters) {
+        long h = source.length();
+        h = 31 * h + source.lastModified();
+        for (final long p: parameters) h = 31 * h + p;
+        return h;
+    }
+
+    /**
+     * get the gazetteer of a dump: the gazetteer file is mapped if it exists and has the same stamp,
+     * otherwise the gazetteer is built with the loader and written to the gazetteer file
+     * @param target the gazetteer file
+     * @param stamp the stamp of the dump
+     * @param loader the loader of the dump
+     * @param ignoreCase for each dictionary: true if the keys are compared case-insensitive
+     * @return the gazetteer
+     * @throws IOException if the dump cannot be loaded
+     */
+    public static Gazetteer load(final File target, final long stamp, final Loader loader, final boolean... ignoreCase) throws IOException {
+        final long start = System.currentTimeMillis();
+        if (target.exists()) {
+            try {
+                final Gazetteer g = new Gazetteer(map(target), stamp, ignoreCase);
+                Logger.info("Gazetteer: mapped " + g.size() + " locations from " + target + " in " + (System.currentTimeMillis() - start) + " ms");
+                return g;
+            } catch (final IOException e) {
+                Logger.info("Gazetteer: building " + target + " again: " + e.getMessage());
+            }
+        }
+        final Builder builder = new Builder(ignoreCase);
+        loader.load(builder);
+        final ByteBuffer b = builder.build(stamp);
+        try {
+            final File tmp = new File(target.getPath() + ".tmp");
+            try (FileOutputStream os = new FileOutputStream(tmp)) {
+                os.write(b.array(), 0, b.limit());
+            }
+            if (!tmp.renameTo(target)) {
+                target.delete();
+                if (!tmp.renameTo(target)) throw new IOException("cannot rename " + tmp);
+            }
+            final Gazetteer g = new Gazetteer(map(target), stamp, ignoreCase);
+            Logger.info("Gazetteer: built " + g.size() + " locations into " + target + " in " + (System.currentTimeMillis() - start) + " ms");
+            return g;
+        } catch (final IOException e) {
+            Logger.warn("Gazetteer: cannot write " + target + ", the gazetteer is kept in memory: " + e.getMessage());
+            return new Gazetteer(b, stamp, ignoreCase);
+        }
+    }
+
+    /**
+     * @param ignoreCase for each dictionary: true if the keys are compared case-insensitive
+     * @return a gazetteer without locations
+     */
+    public static Gazetteer empty(final boolean... ignoreCase) {
+        try {
+            return new Gazetteer(new Builder(ignoreCase).build(0), 0, ignoreCase);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e); // an empty gazetteer is always valid
+        }
+    }
+
+    private static ByteBuffer map(final File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            final FileChannel channel = raf.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("gazetteer is too large");
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // the mapping stays valid after close
+        }
+    }
+
+    /**
+     * @return the number of locations
+     */
+    public int size() {
+        return this.locations;
+    }
+
+    /**
+     * @param i the number of a location
+     * @return the location
+     */
+    public GeoLocation location(final int i) {
+        final float lat = this.buffer.getFloat(this.latPos + 4 * i);
+        final float lon = this.buffer.getFloat(this.lonPos + 4 * i);
+        final int name = this.buffer.getInt(this.namePos + 4 * i);
+        final GeoLocation location = name == NO_NAME ? new GeoLocation(lat, lon) : new GeoLocation(lat, lon, string(name));
+        location.setPopulation(this.buffer.getInt(this.populationPos + 4 * i));
+        return location;
+    }
+
+    /**
+     * @param d the dictionary
+     * @return the number of keys in the dictionary
+     */
+    public int keys(final int d) {
+        return this.keys[d];
+    }
+
+    /**
+     * @param d the dictionary
+     * @param k the number of a key, the keys are sorted
+     * @return the key
+     */
+    public String key(final int d, final int k) {
+        return string(this.buffer.getInt(this.keyTable[d] + 8 * k));
+    }
+
+    /**
+     * @param d the dictionary
+     * @param k the number of a key
+     * @return the numbers of the locations of the key
+     */
+    public int[] locations(final int d, final int k) {
+        final int p = this.keyTable[d] + 8 * k;
+        final int first = this.buffer.getInt(p + 4);
+        final int end = this.buffer.getInt(p + 12);
+        final int postings = this.keyTable[d] + 8 * (this.keys[d] + 1); // the postings of the dictionary follow its key table
+        final int[] l = new int[end - first];
+        for (int i = 0; i < l.length; i++) l[i] = this.buffer.getInt(postings + 4 * (first + i));
+        return l;
+    }
+
+    /**
+     * @param d the dictionary
+     * @param key a key
+     * @return the number of the first key which is not smaller than the given key, or keys(d)
+     */
+    public int lowerBound(final int d, final String key) {
+        int low = 0, high = this.keys[d];
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (compare(d, key(d, mid), key) < 0) low = mid + 1; else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * @param d the dictionary
+     * @param key a key
+     * @return the number of the key or -1 if the key is not in the dictionary
+     */
+    public int indexOf(final int d, final String key) {
+        final int k = lowerBound(d, key);
+        return k < this.keys[d] && compare(d, key(d, k), key) == 0 ? k : -1;
+    }
+
+    private int compare(final int d, final String a, final String b) {
+        return this.ignoreCase[d] ? String.CASE_INSENSITIVE_ORDER.compare(a, b) : a.compareTo(b);
+    }
+
+    private String string(final int p) {
+        final int length = this.buffer.getShort(p) & 0xFFFF;
+        final byte[] b = new byte[length];
+        final ByteBuffer view = this.buffer.duplicate();
+        view.position(p + 2);
+        view.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Collects the locations and keys of a dump. Locations and keys are given with the ids of the dump;
+     * keys of ids which have no location are kept, but without that location.
+     */
+    public static class Builder {
+
+        private final boolean[] ignoreCase;
+        private final Map<Integer, Integer> index; // from the id in the dump to the number of the location
+        private final List<TreeMap<String, IntList>> dictionaries;
+        private float[] lat, lon;
+        private int[] population;
+        private String[] name;
+        private int size;
+
+        private Builder(final boolean[] ignoreCase) {
+            this.ignoreCase = ignoreCase;
+            this.index = new HashMap<>();
+            this.dictionaries = new ArrayList<>(ignoreCase.length);
+            for (final boolean ic: ignoreCase) this.dictionaries.add(ic ? new TreeMap<String, IntList>(String.CASE_INSENSITIVE_ORDER) : new TreeMap<String, IntList>());
+            this.lat = new float[1024];
+            this.lon = new float[1024];
+            this.population = new int[1024];
+            this.name = new String[1024];
+            this.size = 0;
+        }
+
+        /**
+         * add a location; a location with the same id is replaced
+         * @param id the id of the location in the dump
+         * @param lat latitude
+         * @param lon longitude
+         * @param name the name or null
+         * @param population the population
+         */
+        public void addLocation(final int id, final float lat, final float lon, final String name, final int population) {
+            Integer i = this.index.get(id);
+            if (i == null) {
+                if (this.size == this.lat.length) {
+                    final int capacity = this.size * 2;
+                    this.lat = Arrays.copyOf(this.lat, capacity);
+                    this.lon = Arrays.copyOf(this.lon, capacity);
+                    this.population = Arrays.copyOf(this.population, capacity);
+                    this.name = Arrays.copyOf(this.name, capacity);
+                }
+                i = this.size++;
+                this.index.put(id, i);
+            }
+            this.lat[i] = lat;
+            this.lon[i] = lon;
+            this.name[i] = name;
+            this.population[i] = population;
+        }
+
+        /**
+         * set the name of a location, if the location exists
+         * @param id the id of the location in the dump
+         * @param name the name
+         */
+        public void setName(final int id, final String name) {
+            final Integer i = this.index.get(id);
+            if (i != null) this.name[i] = name;
+        }
+
+        /**
+         * add a location to a key
+         * @param d the dictionary
+         * @param key the key
+         * @param id the id of the location in the dump
+         */
+        public void addKey(final int d, final String key, final int id) {
+            IntList l = this.dictionaries.get(d).get(key);
+            if (l == null) {
+                l = new IntList();
+                this.dictionaries.get(d).put(key, l);
+            }
+            l.add(id);
+        }
+
+        /**
+         * set the only location of a key
+         * @param d the dictionary
+         * @param key the key
+         * @param id the id of the location in the dump
+         */
+        public void putKey(final int d, final String key, final int id) {
+            final IntList l = new IntList();
+            l.add(id);
+            this.dictionaries.get(d).put(key, l);
+        }
+
+        private ByteBuffer build(final long stamp) throws IOException {
+            final ByteArrayOutputStream strings = new ByteArrayOutputStream();
+            final Map<String, Integer> stringIndex = new HashMap<>();
+            final int[] names = new int[this.size];
+            for (int i = 0; i < this.size; i++) names[i] = this.name[i] == null ? NO_NAME : string(this.name[i], strings, stringIndex);
+            final List<int[]> keyStrings = new ArrayList<>();
+            final List<int[]> postings = new ArrayList<>();
+            long length = 20 + 4 * this.dictionaries.size() + 16L * this.size;
+            for (final TreeMap<String, IntList> dictionary: this.dictionaries) {
+                final int[] ks = new int[dictionary.size()];
+                final IntList ps = new IntList();
+                final int[] starts = new int[dictionary.size() + 1];
+                int k = 0;
+                for (final Map.Entry<String, IntList> e: dictionary.entrySet()) {
+                    final byte[] b = e.getKey().getBytes(StandardCharsets.UTF_8);
+                    if (b.length > MAX_STRING) continue; // not a name
+                    ks[k] = string(e.getKey(), strings, stringIndex);
+                    starts[k] = ps.size;
+                    for (int j = 0; j < e.getValue().size; j++) {
+                        final Integer i = this.index.get(e.getValue().a[j]);
+                        if (i != null) ps.add(i);
+                    }
+                    k++;
+                }
+                starts[k] = ps.size;
+                keyStrings.add(Arrays.copyOf(ks, k));
+                postings.add(Arrays.copyOf(starts, k + 1));
+                postings.add(Arrays.copyOf(ps.a, ps.size));
+                length += 8L * (k + 1) + 4L * ps.size;
+            }
+            final int stringsPos = (int) Math.min(length, Integer.MAX_VALUE);
+            length += strings.size();
+            if (length > Integer.MAX_VALUE) throw new IOException("gazetteer is too large");
+
+            final ByteBuffer b = ByteBuffer.allocate((int) length);
+            b.putInt(MAGIC).putLong(stamp).putInt(this.size).putInt(this.dictionaries.size());
+            for (final int[] ks: keyStrings) b.putInt(ks.length);
+            for (int i = 0; i < this.size; i++) b.putFloat(this.lat[i]);
+            for (int i = 0; i < this.size; i++) b.putFloat(this.lon[i]);
+            for (int i = 0; i < this.size; i++) b.putInt(this.population[i]);
+            for (int i = 0; i < this.size; i++) b.putInt(names[i] == NO_NAME ? NO_NAME : stringsPos + names[i]);
+            for (int d = 0; d < keyStrings.size(); d++) {
+                final int[] ks = keyStrings.get(d);
+                final int[] starts = postings.get(2 * d);
+                for (int k = 0; k < ks.length; k++) b.putInt(stringsPos + ks[k]).putInt(starts[k]);
+                b.putInt(stringsPos).putInt(starts[ks.length]);
+                for (final int p: postings.get(2 * d + 1)) b.putInt(p);
+            }
+            b.put(strings.toByteArray());
+            b.flip();
+            return b;
+        }
+
+        private static int string(final String s, final ByteArrayOutputStream strings, final Map<String, Integer> stringIndex) {
+            Integer p = stringIndex.get(s);
+            if (p == null) {
+                byte[] b = s.getBytes(StandardCharsets.UTF_8);
+                if (b.length > MAX_STRING) b = Arrays.copyOf(b, MAX_STRING);
+                p = strings.size();
+                strings.write(b.length >>> 8);
+                strings.write(b.length);
+                strings.write(b, 0, b.length);
+                stringIndex.put(s, p);
+            }
+            return p;
+        }
+    }
+
+    private static final class IntList {
+        private int[] a = new int[1];
+        private int size = 0;
+        private void add(final int i) {
+            if (this.size == this.a.length) this.a = Arrays.copyOf(this.a, this.size * 2);
+            this.a[this.size++] = i;
+        }
+    }
+
+}
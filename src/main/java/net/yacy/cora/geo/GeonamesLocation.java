@@ -28,14 +28,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.SortedMap;
-import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -67,31 +61,45 @@ import net.yacy.grid.tools.Logger;
  * <li>timezone          : the timezone id (see file timeZone.txt)</li>
  * <li>modification date : date of last modification in yyyy-MM-dd format</li>
  * </ul>
+ * The locations are held in a memory-mapped {@link Gazetteer} which is built from the zip file once and
+ * stored as file.gazetteer beside the zip file.
 */
 public class GeonamesLocation implements Locations {
 
-    private final Map<Integer, GeoLocation> id2loc;
-    private final TreeMap<String, List<Integer>> name2ids;
+    private static final int NAMES = 0; // the dictionary of location names in the gazetteer
+
+    private final Gazetteer gazetteer;
     private final File file;
     public GeonamesLocation(final File file, final WordCache dymLib, final long minPopulation) {
         // this is a processing of the cities1000.zip file from http://download.geonames.org/export/dump/
 
         this.file = file;
-        this.id2loc = new HashMap<Integer, GeoLocation>();
-        this.name2ids =
-            new TreeMap<String, List<Integer>>(String.CASE_INSENSITIVE_ORDER);
 
         if ( file == null || !file.exists() ) {
+            this.gazetteer = Gazetteer.empty(true);
             return;
         }
-        BufferedReader reader;
+        Gazetteer g;
         try {
-            final ZipFile zf = new ZipFile(file);
+            g = Gazetteer.load(
+                    new File(file.getPath() + ".gazetteer"),
+                    Gazetteer.stamp(file, minPopulation, dymLib == null ? 0 : dymLib.stamp()),
+                    builder -> load(file, dymLib, minPopulation, builder),
+                    true);
+        } catch (final IOException e ) {
+            Logger.warn(this.getClass(), e);
+            g = Gazetteer.empty(true);
+        }
+        this.gazetteer = g;
+    }
+
+    private static void load(final File file, final WordCache dymLib, final long minPopulation, final Gazetteer.Builder builder) throws IOException {
+        try (final ZipFile zf = new ZipFile(file)) {
             String entryName = file.getName();
             entryName = entryName.substring(0, entryName.length() - 3) + "txt";
             final ZipEntry ze = zf.getEntry(entryName);
             final InputStream is = zf.getInputStream(ze);
-            reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
 
             // read the zip content
             String line;
@@ -104,32 +112,20 @@ public class GeonamesLocation implements Locations {
                 fields = CommonPattern.TAB.split(line);
                 final long population = Long.parseLong(fields[14]);
                 if (minPopulation > 0 && population < minPopulation) continue;
-                final Integer geonameid = Integer.valueOf(fields[0]);
+                final int geonameid = Integer.parseInt(fields[0]);
                 locnames = new HashSet<String>();
                 locnames.add(fields[1]);
                 locnames.add(fields[2]);
                 for ( final String s : CommonPattern.COMMA.split(fields[3]) ) {
                     locnames.add(s);
                 }
-                final GeoLocation c =
-                    new GeoLocation(Float.parseFloat(fields[4]), Float.parseFloat(fields[5]), fields[1]);
-                c.setPopulation((int) Long.parseLong(fields[14]));
-                this.id2loc.put(geonameid, c);
+                builder.addLocation(geonameid, Float.parseFloat(fields[4]), Float.parseFloat(fields[5]), fields[1], (int) population);
                 for ( final String name : locnames ) {
                     if (dymLib != null && dymLib.contains(new StringBuilder(name))) continue;
                     if (name.length() < OverarchingLocation.MINIMUM_NAME_LENGTH) continue;
-                    List<Integer> locs = this.name2ids.get(name);
-                    if ( locs == null ) {
-                        locs = new ArrayList<Integer>(1);
-                    }
-                    locs.add(geonameid);
-                    this.name2ids.put(name, locs);
+                    builder.addKey(NAMES, name, geonameid);
                 }
             }
-            zf.close();
-        } catch (final IOException e ) {
-            Logger.warn(this.getClass(), e);
-            return;
         }
 
         // when an error occurs after this line, just accept it and work on
@@ -160,12 +156,12 @@ public class GeonamesLocation implements Locations {
 
     @Override
     public int size() {
-        return this.id2loc.size();
+        return this.gazetteer.size();
     }
 
 	@Override
 	public boolean isEmpty() {
-		return this.id2loc.isEmpty();
+		return this.gazetteer.size() == 0;
 	}
 
 	/**
@@ -185,17 +181,15 @@ public class GeonamesLocation implements Locations {
     @Override
     public TreeSet<GeoLocation> find(final String anyname, final boolean locationexact) {
         final Set<Integer> r = new HashSet<Integer>();
-        List<Integer> c;
         if ( locationexact ) {
-            c = this.name2ids.get(anyname);
-            if ( c != null ) {
-                r.addAll(c);
+            final int k = this.gazetteer.indexOf(NAMES, anyname);
+            if ( k >= 0 ) {
+                for (final int i: this.gazetteer.locations(NAMES, k)) r.add(i);
             }
         } else {
-            final SortedMap<String, List<Integer>> cities = this.name2ids.tailMap(anyname);
-            for ( final Map.Entry<String, List<Integer>> e : cities.entrySet() ) {
-                if (this.caseIncensitiveStartsWith(e.getKey(), anyname) ) {
-                    r.addAll(e.getValue());
+            for (int k = this.gazetteer.lowerBound(NAMES, anyname); k < this.gazetteer.keys(NAMES); k++) {
+                if (this.caseIncensitiveStartsWith(this.gazetteer.key(NAMES, k), anyname) ) {
+                    for (final int i: this.gazetteer.locations(NAMES, k)) r.add(i);
                 } else {
                     break;
                 }
@@ -203,10 +197,7 @@ public class GeonamesLocation implements Locations {
         }
         final TreeSet<GeoLocation> a = new TreeSet<GeoLocation>();
         for ( final Integer e : r ) {
-            final GeoLocation w = this.id2loc.get(e);
-            if ( w != null ) {
-                a.add(w);
-            }
+            a.add(this.gazetteer.location(e));
         }
         return a;
     }
@@ -218,7 +209,7 @@ public class GeonamesLocation implements Locations {
     @Override
     public Set<String> locationNames() {
         final Set<String> locations = new HashSet<String>();
-        locations.addAll(this.name2ids.keySet());
+        for (int k = 0; k < this.gazetteer.keys(NAMES); k++) locations.add(this.gazetteer.key(NAMES, k));
         return locations;
     }
 
@@ -228,8 +219,8 @@ public class GeonamesLocation implements Locations {
         if ( s.isEmpty() ) {
             return a;
         }
-        final SortedMap<String, List<Integer>> tail = this.name2ids.tailMap(s);
-        for ( final String name : tail.keySet() ) {
+        for (int k = this.gazetteer.lowerBound(NAMES, s); k < this.gazetteer.keys(NAMES); k++) {
+            final String name = this.gazetteer.key(NAMES, k);
             if (this.caseIncensitiveStartsWith(name, s) ) {
                 a.add(name);
             } else {
@@ -246,8 +237,8 @@ public class GeonamesLocation implements Locations {
             return a;
         }
         final String sString = s.toString();
-        final SortedMap<String, List<Integer>> tail = this.name2ids.tailMap(sString);
-        for ( final String name : tail.keySet() ) {
+        for (int k = this.gazetteer.lowerBound(NAMES, sString); k < this.gazetteer.keys(NAMES); k++) {
+            final String name = this.gazetteer.key(NAMES, k);
             if (this.caseIncensitiveStartsWith(name, sString) ) {
                 a.add(new StringBuilder(name));
             } else {
@@ -29,62 +29,64 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.SortedMap;
-import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.zip.GZIPInputStream;
 
 import net.yacy.cora.document.WordCache;
-import net.yacy.cora.util.StringBuilderComparator;
 import net.yacy.grid.tools.CommonPattern;
 import net.yacy.grid.tools.Logger;
 
 /**
  * this class loads and parses database dumps from the OpenGeoDB project files can be loaded from
  * http://sourceforge.net/projects/opengeodb/files/ this class is used by the LibraryProvider, which expects
- * input files inside DATA\DICTIONARIES\source ATTENTION: if this class is used, expect an extra memory usage
- * of more than 100MB! This class will provide a super-fast access to the OpenGeoDB, since all request are
- * evaluated using data in the RAM.
+ * input files inside DATA\DICTIONARIES\source. The dump is parsed once into a {@link Gazetteer} which is
+ * stored as file.gazetteer beside the dump and memory-mapped, so all requests are evaluated without
+ * holding the OpenGeoDB on the heap.
  */
 public class OpenGeoDBLocation implements Locations {
 
-    private final Map<Integer, GeoLocation> id2loc;
-    private final TreeMap<StringBuilder, List<Integer>> name2ids;
-    private final TreeMap<StringBuilder, List<Integer>> kfz2ids;
-    private final Map<String, List<Integer>> predial2ids;
-    private final Map<String, Integer> zip2id;
+    // the dictionaries of the gazetteer
+    private static final int NAMES = 0, KFZ = 1, PREDIAL = 2, ZIP = 3;
+    private static final boolean[] IGNORE_CASE = new boolean[]{true, true, false, false};
+
+    private final Gazetteer gazetteer;
     private final File file;
 
     public OpenGeoDBLocation(final File file, final WordCache dymLib) {
 
         this.file = file;
-        this.id2loc = new HashMap<Integer, GeoLocation>();
-        this.name2ids = new TreeMap<StringBuilder, List<Integer>>(StringBuilderComparator.CASE_INSENSITIVE_ORDER);
-        this.kfz2ids = new TreeMap<StringBuilder, List<Integer>>(StringBuilderComparator.CASE_INSENSITIVE_ORDER);
-        this.predial2ids = new HashMap<String, List<Integer>>();
-        this.zip2id = new HashMap<String, Integer>();
 
         if ( file == null || !file.exists() ) {
+            this.gazetteer = Gazetteer.empty(IGNORE_CASE);
             return;
         }
-        BufferedReader reader = null;
+        Gazetteer g;
         try {
-            InputStream is = new FileInputStream(file);
-            if ( file.getName().endsWith(".gz") ) {
-                is = new GZIPInputStream(is);
-            }
-            reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+            g = Gazetteer.load(
+                    new File(file.getPath() + ".gazetteer"),
+                    Gazetteer.stamp(file, dymLib == null ? 0 : dymLib.stamp()),
+                    builder -> load(file, dymLib, builder),
+                    IGNORE_CASE);
+        } catch (final IOException e ) {
+            Logger.warn(this.getClass(), e);
+            g = Gazetteer.empty(IGNORE_CASE);
+        }
+        this.gazetteer = g;
+    }
+
+    private static void load(final File file, final WordCache dymLib, final Gazetteer.Builder builder) throws IOException {
+        InputStream is = new FileInputStream(file);
+        if ( file.getName().endsWith(".gz") ) {
+            is = new GZIPInputStream(is);
+        }
+        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
             String line;
 
             // read lines
             String[] v;
-            Integer id;
+            int id;
             String h;
             float lon, lat;
             while ( (line = reader.readLine()) != null ) {
@@ -102,7 +104,7 @@ public class OpenGeoDBLocation implements Locations {
                     v = CommonPattern.COMMA.split(line);
                     lat = Float.parseFloat(v[2]);
                     lon = Float.parseFloat(v[3]);
-                    this.id2loc.put(Integer.parseInt(v[0]), new GeoLocation(lat, lon));
+                    builder.addLocation(Integer.parseInt(v[0]), lat, lon, null, 0);
                 }
                 if ( line.startsWith("geodb_textdata ") ) {
                     line = line.substring(15 + 7);
@@ -116,25 +118,12 @@ public class OpenGeoDBLocation implements Locations {
                         h = removeQuotes(v[2]);
                         if (h.length() < OverarchingLocation.MINIMUM_NAME_LENGTH) continue;
                         if (dymLib != null && dymLib.contains(new StringBuilder(h))) continue;
-                        List<Integer> l = this.name2ids.get(new StringBuilder(h));
-                        if ( l == null ) {
-                            l = new ArrayList<Integer>(1);
-                        }
-                        l.add(id);
-                        this.name2ids.put(new StringBuilder(h), l);
-                        final GeoLocation loc = this.id2loc.get(id);
-                        if ( loc != null ) {
-                            loc.setName(h);
-                        }
+                        builder.addKey(NAMES, h, id);
+                        builder.setName(id, h);
                     } else if ( v[1].equals("500400000") ) { // Vorwahl
                         id = Integer.parseInt(v[0]);
                         h = removeQuotes(v[2]);
-                        List<Integer> l = this.predial2ids.get(h);
-                        if ( l == null ) {
-                            l = new ArrayList<Integer>(1);
-                        }
-                        l.add(id);
-                        this.predial2ids.put(h, l);
+                        builder.addKey(PREDIAL, h, id);
                     } else if ( v[1].equals("400300000") ) { // Ortstyp
                         id = Integer.parseInt(v[0]);
                         h = removeQuotes(v[2]);
@@ -147,30 +136,15 @@ public class OpenGeoDBLocation implements Locations {
                         this.id2locTypeHash.put(id, hc);
                         */
                     } else if ( v[1].equals("500300000") ) { // PLZ
-                        this.zip2id.put(removeQuotes(v[2]), Integer.parseInt(v[0]));
+                        builder.putKey(ZIP, removeQuotes(v[2]), Integer.parseInt(v[0]));
                     } else if ( v[1].equals("500500000") ) { // KFZ-Kennzeichen
                         id = Integer.parseInt(v[0]);
                         h = removeQuotes(v[2]);
-                        List<Integer> l = this.kfz2ids.get(new StringBuilder(h));
-                        if ( l == null ) {
-                            l = new ArrayList<Integer>(1);
-                        }
-                        l.add(id);
-                        this.kfz2ids.put(new StringBuilder(h), l);
+                        builder.addKey(KFZ, h, id);
                     }
                 }
                 continue;
             }
-            reader.close();
-        } catch (final IOException e ) {
-            Logger.warn(this.getClass(), e);
-        } finally {
-            if ( reader != null ) {
-                try {
-                    reader.close();
-                } catch (final Exception e ) {
-                }
-            }
         }
     }
 
@@ -186,12 +160,12 @@ public class OpenGeoDBLocation implements Locations {
 
     @Override
     public int size() {
-        return this.id2loc.size();
+        return this.gazetteer.size();
     }
 
 	@Override
 	public boolean isEmpty() {
-		return this.id2loc.isEmpty();
+		return this.gazetteer.size() == 0;
 	}
 
     /**
@@ -204,45 +178,38 @@ public class OpenGeoDBLocation implements Locations {
     @Override
     public TreeSet<GeoLocation> find(final String anyname, final boolean locationexact) {
         final HashSet<Integer> r = new HashSet<Integer>();
-        List<Integer> c;
-        final StringBuilder an = new StringBuilder(anyname);
         if ( locationexact ) {
-            c = this.name2ids.get(an);
-            if ( c != null ) {
-                r.addAll(c);
-            }
+            addLocations(r, NAMES, anyname);
         } else {
-            final SortedMap<StringBuilder, List<Integer>> cities = this.name2ids.tailMap(an);
-            for ( final Map.Entry<StringBuilder, List<Integer>> e : cities.entrySet() ) {
-                if ( StringBuilderComparator.CASE_INSENSITIVE_ORDER.startsWith(e.getKey(), an) ) {
-                    r.addAll(e.getValue());
+            for (int k = this.gazetteer.lowerBound(NAMES, anyname); k < this.gazetteer.keys(NAMES); k++) {
+                if ( startsWithIgnoreCase(this.gazetteer.key(NAMES, k), anyname) ) {
+                    for (final int i: this.gazetteer.locations(NAMES, k)) r.add(i);
                 } else {
                     break;
                 }
             }
-            c = this.kfz2ids.get(an);
-            if ( c != null ) {
-                r.addAll(c);
-            }
-            c = this.predial2ids.get(anyname);
-            if ( c != null ) {
-                r.addAll(c);
-            }
-            final Integer i = this.zip2id.get(anyname);
-            if ( i != null ) {
-                r.add(i);
-            }
+            addLocations(r, KFZ, anyname);
+            addLocations(r, PREDIAL, anyname);
+            addLocations(r, ZIP, anyname);
         }
         final TreeSet<GeoLocation> a = new TreeSet<GeoLocation>();
         for ( final Integer e : r ) {
-            final GeoLocation w = this.id2loc.get(e);
-            if ( w != null ) {
-                a.add(w);
-            }
+            a.add(this.gazetteer.location(e));
         }
         return a;
     }
 
+    private void addLocations(final Set<Integer> r, final int d, final String key) {
+        final int k = this.gazetteer.indexOf(d, key);
+        if ( k >= 0 ) {
+            for (final int i: this.gazetteer.locations(d, k)) r.add(i);
+        }
+    }
+
+    private static boolean startsWithIgnoreCase(final String s, final String prefix) {
+        return s.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
     /**
      * produce a set of location names
      * @return a set of names
@@ -250,9 +217,8 @@ public class OpenGeoDBLocation implements Locations {
     @Override
     public Set<String> locationNames() {
         final Set<String> locations = new HashSet<String>();
-        final Set<StringBuilder> l = this.name2ids.keySet();
-        for (final StringBuilder s: l) {
-            locations.add(s.toString());
+        for (int k = 0; k < this.gazetteer.keys(NAMES); k++) {
+            locations.add(this.gazetteer.key(NAMES, k));
         }
         return locations;
     }
@@ -266,14 +232,13 @@ public class OpenGeoDBLocation implements Locations {
     @Override
     public Set<String> recommend(final String s) {
         final Set<String> a = new HashSet<String>();
-        final StringBuilder an = new StringBuilder(s);
         if ( s.isEmpty() ) {
             return a;
         }
-        final SortedMap<StringBuilder, List<Integer>> t = this.name2ids.tailMap(an);
-        for ( final StringBuilder r : t.keySet() ) {
-            if ( StringBuilderComparator.CASE_INSENSITIVE_ORDER.startsWith(r, an) ) {
-                a.add(r.toString());
+        for (int k = this.gazetteer.lowerBound(NAMES, s); k < this.gazetteer.keys(NAMES); k++) {
+            final String r = this.gazetteer.key(NAMES, k);
+            if ( startsWithIgnoreCase(r, s) ) {
+                a.add(r);
             } else {
                 break;
             }
@@ -287,10 +252,11 @@ public class OpenGeoDBLocation implements Locations {
         if ( s.length() == 0 ) {
             return a;
         }
-        final SortedMap<StringBuilder, List<Integer>> t = this.name2ids.tailMap(s);
-        for ( final StringBuilder r : t.keySet() ) {
-            if ( StringBuilderComparator.CASE_INSENSITIVE_ORDER.startsWith(r, s) ) {
-                a.add(r);
+        final String sString = s.toString();
+        for (int k = this.gazetteer.lowerBound(NAMES, sString); k < this.gazetteer.keys(NAMES); k++) {
+            final String r = this.gazetteer.key(NAMES, k);
+            if ( startsWithIgnoreCase(r, sString) ) {
+                a.add(new StringBuilder(r));
             } else {
                 break;
             }
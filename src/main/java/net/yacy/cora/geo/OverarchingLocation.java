@@ -40,6 +40,15 @@ public class OverarchingLocation implements Locations {
         this.services = new HashMap<String, Locations>();
     }
 
+    /**
+     * create a copy of an overarching localization object; services which are activated in the copy
+     * are not visible in the original
+     * @param locations the original
+     */
+    public OverarchingLocation(final OverarchingLocation locations) {
+        this.services = new HashMap<String, Locations>(locations.services);
+    }
+
     /**
      * add a localization service
      * @param nickname the nickname of the service
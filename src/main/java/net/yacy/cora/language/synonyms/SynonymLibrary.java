@@ -42,11 +42,15 @@ import net.yacy.grid.tools.Logger;
  */
 public class SynonymLibrary {
 
-    private final static Map<String, List<Set<String>>> lib = new HashMap<String, List<Set<String>>>();
+    private final Map<String, List<Set<String>>> lib;
 
-    public static void init(final File path) {
-        lib.clear();
-        if (!path.exists() || !path.isDirectory()) return;
+    /**
+     * read all stemming files of a directory; the library is not changed afterwards
+     * @param path the directory of the stemming files or null for an empty library
+     */
+    public SynonymLibrary(final File path) {
+        this.lib = new HashMap<String, List<Set<String>>>();
+        if (path == null || !path.exists() || !path.isDirectory()) return;
         final String[] files = path.list();
         /* Global map of all known distinct words : thus enable reuse of the same word String instance
          * appearing multiple times in different synonyms sets */
@@ -80,10 +84,10 @@ public class SynonymLibrary {
                         keys.add(lowCaseWord.substring(0, 2));
                     }
                     for (String key: keys) {
-                        List<Set<String>> symsetlist = lib.get(key);
+                        List<Set<String>> symsetlist = this.lib.get(key);
                         if (symsetlist == null) {
                             symsetlist = new ArrayList<Set<String>>();
-                            lib.put(key, symsetlist);
+                            this.lib.put(key, symsetlist);
                         }
                         symsetlist.add(synonyms);
                     }
@@ -94,8 +98,8 @@ public class SynonymLibrary {
         }
     }
 
-    public static int size() {
-        return lib.size();
+    public int size() {
+        return this.lib.size();
     }
 
     /**
@@ -103,12 +107,12 @@ public class SynonymLibrary {
      * @param word
      * @return a list of synonyms but without the requested word
      */
-    public static Set<String> getSynonyms(String word) {
+    public Set<String> getSynonyms(String word) {
         if (word == null) return null;
         word = word.toLowerCase().trim();
         if (word.length() < 2) return null;
         String key = word.substring(0, 2);
-        List<Set<String>> symsetlist = lib.get(key);
+        List<Set<String>> symsetlist = this.lib.get(key);
         if (symsetlist == null) return null;
         for (Set<String> symset: symsetlist) {
             if (symset.contains(word)) {
@@ -0,0 +1,174 @@
+/**
+ *  AhoCorasick
+ *  Copyright 2026 by the YaCy Grid contributors
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An Aho-Corasick automaton which finds all occurrences of a set of words within a text in one pass.
+ * The automaton is immutable after construction and can be used by several threads concurrently.
+ */
+public class AhoCorasick {
+
+    /**
+     * receives the occurrences of words in a text
+     */
+    public interface Hit {
+        /**
+         * @param word the index of the word in the word list of the automaton
+         * @param start the position of the first char of the word in the text
+         * @param end the position after the last char of the word in the text
+         * @return false to stop the search
+         */
+        public boolean found(int word, int start, int end);
+    }
+
+    private final boolean ignoreCase;
+    private final int[] wordLength;
+    private final char[][] keys;     // for each state the sorted chars of the transitions
+    private final int[][] targets;   // for each state the target states of the transitions
+    private final int[][] words;     // for each state the words which end in that state, or null
+    private final int[] fail;        // for each state the state of the longest proper suffix
+    private final int[] output;      // for each state the next state on the fail chain which has words, or 0
+
+    /**
+     * @param words the words which shall be found; empty words are ignored
+     * @param ignoreCase if true, the words are matched case-insensitive
+     */
+    public AhoCorasick(final String[] words, final boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+        this.wordLength = new int[words.length];
+
+        // build the trie
+        final List<StringBuilder> edgeKeys = new ArrayList<>();
+        final List<List<Integer>> edgeTargets = new ArrayList<>();
+        final List<List<Integer>> stateWords = new ArrayList<>();
+        edgeKeys.add(new StringBuilder()); edgeTargets.add(new ArrayList<Integer>()); stateWords.add(null);
+        for (int w = 0; w < words.length; w++) {
+            final String word = words[w];
+            this.wordLength[w] = word.length();
+            if (word.isEmpty()) continue;
+            int state = 0;
+            for (int i = 0; i < word.length(); i++) {
+                final char c = this.normalize(word.charAt(i));
+                final int p = edgeKeys.get(state).indexOf(String.valueOf(c));
+                if (p >= 0) {
+                    state = edgeTargets.get(state).get(p);
+                } else {
+                    final int next = edgeKeys.size();
+                    edgeKeys.add(new StringBuilder()); edgeTargets.add(new ArrayList<Integer>()); stateWords.add(null);
+                    edgeKeys.get(state).append(c);
+                    edgeTargets.get(state).add(next);
+                    state = next;
+                }
+            }
+            List<Integer> sw = stateWords.get(state);
+            if (sw == null) {sw = new ArrayList<>(1); stateWords.set(state, sw);}
+            sw.add(w);
+        }
+
+        // compile the transitions into sorted arrays
+        final int states = edgeKeys.size();
+        this.keys = new char[states][];
+        this.targets = new int[states][];
+        this.words = new int[states][];
+        for (int s = 0; s < states; s++) {
+            final char[] k = edgeKeys.get(s).toString().toCharArray();
+            final List<Integer> t = edgeTargets.get(s);
+            final long[] sorted = new long[k.length];
+            for (int i = 0; i < k.length; i++) sorted[i] = ((long) k[i] << 32) | t.get(i);
+            Arrays.sort(sorted);
+            this.keys[s] = new char[k.length];
+            this.targets[s] = new int[k.length];
+            for (int i = 0; i < k.length; i++) {
+                this.keys[s][i] = (char) (sorted[i] >>> 32);
+                this.targets[s][i] = (int) sorted[i];
+            }
+            final List<Integer> sw = stateWords.get(s);
+            if (sw != null) {
+                this.words[s] = new int[sw.size()];
+                for (int i = 0; i < sw.size(); i++) this.words[s][i] = sw.get(i);
+            }
+        }
+
+        // compute the fail and output links in breadth-first order
+        this.fail = new int[states];
+        this.output = new int[states];
+        final int[] queue = new int[states];
+        int head = 0, tail = 0;
+        for (final int t: this.targets[0]) queue[tail++] = t;
+        while (head < tail) {
+            final int s = queue[head++];
+            for (int i = 0; i < this.keys[s].length; i++) {
+                final char c = this.keys[s][i];
+                final int t = this.targets[s][i];
+                int f = this.fail[s];
+                int g;
+                while ((g = this.next(f, c)) < 0 && f != 0) f = this.fail[f];
+                this.fail[t] = g < 0 ? 0 : g;
+                this.output[t] = this.words[this.fail[t]] != null ? this.fail[t] : this.output[this.fail[t]];
+                queue[tail++] = t;
+            }
+        }
+    }
+
+    private char normalize(final char c) {
+        return this.ignoreCase ? Character.toLowerCase(c) : c;
+    }
+
+    private int next(final int state, final char c) {
+        final int p = Arrays.binarySearch(this.keys[state], c);
+        return p < 0 ? -1 : this.targets[state][p];
+    }
+
+    /**
+     * find all occurrences of all words in a text, including overlapping occurrences
+     * @param text the text
+     * @param hit the receiver of the occurrences
+     */
+    public void find(final CharSequence text, final Hit hit) {
+        find(text, 0, text.length(), hit);
+    }
+
+    /**
+     * find all occurrences of all words in a part of a text, including overlapping occurrences
+     * @param text the text
+     * @param from the first position which is searched
+     * @param to the position after the last position which is searched
+     * @param hit the receiver of the occurrences
+     */
+    public void find(final CharSequence text, final int from, final int to, final Hit hit) {
+        int state = 0;
+        for (int i = from; i < to; i++) {
+            final char c = this.normalize(text.charAt(i));
+            int g;
+            while ((g = this.next(state, c)) < 0 && state != 0) state = this.fail[state];
+            state = g < 0 ? 0 : g;
+            for (int s = this.words[state] != null ? state : this.output[state]; s != 0; s = this.output[s]) {
+                for (final int w: this.words[s]) {
+                    if (!hit.found(w, i + 1 - this.wordLength[w], i + 1)) return;
+                }
+            }
+        }
+    }
+
+}
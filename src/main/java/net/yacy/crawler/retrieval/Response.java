@@ -54,6 +54,7 @@ public class Response {
     private final  RequestHeader      requestHeader;
     private final  ResponseHeader     responseHeader;
     private        byte[]             content;
+    private        int                contentLength;   // number of valid bytes in content, the array may be larger
     private        int                status;          // tracker indexing status, see status defs below
     private final  boolean            fromCache;
     
@@ -176,15 +177,30 @@ public class Response {
             final ResponseHeader responseHeader,
             final boolean fromCache,
             final byte[] content) {
+        this(request, requestHeader, responseHeader, fromCache, content, content == null ? 0 : content.length);
+    }
+
+    /**
+     * create a response where only the first contentLength bytes of the content array are valid.
+     * This is used to hand over pooled buffers without copying the payload into an array of exact size.
+     */
+    public Response(
+            final Request request,
+            final RequestHeader requestHeader,
+            final ResponseHeader responseHeader,
+            final boolean fromCache,
+            final byte[] content,
+            final int contentLength) {
         this.request = request;
         // request and response headers may be zero in case that we process surrogates
         this.requestHeader = requestHeader;
         this.responseHeader = responseHeader;
         this.status = QUEUE_STATE_FRESH;
         this.content = content;
+        this.contentLength = contentLength;
         this.fromCache = fromCache;
-        if (this.responseHeader != null && content != null && Integer.parseInt(this.responseHeader.get(HeaderFramework.CONTENT_LENGTH, "0")) <= content.length) {
-            this.responseHeader.put(HeaderFramework.CONTENT_LENGTH, Integer.toString(content.length)); // repair length 
+        if (this.responseHeader != null && content != null && Integer.parseInt(this.responseHeader.get(HeaderFramework.CONTENT_LENGTH, "0")) <= contentLength) {
+            this.responseHeader.put(HeaderFramework.CONTENT_LENGTH, Integer.toString(contentLength)); // repair length 
         }
     }
 
@@ -202,6 +218,7 @@ public class Response {
         this.responseHeader.put(HeaderFramework.CONTENT_TYPE, Classification.ext2mime(MultiProtocolURL.getFileExtension(request.url().getFileName()), "text/plain")); // tell parser how to handle the content
         this.status = QUEUE_STATE_FRESH;
         this.content = request.name().length() > 0 ? UTF8.getBytes(request.name()) : UTF8.getBytes(request.url().toTokens());
+        this.contentLength = this.content.length;
         this.fromCache = true;
         if (this.responseHeader != null) this.responseHeader.put(HeaderFramework.CONTENT_LENGTH, "0"); // 'virtual' length, shows that the resource was not loaded
     }
@@ -273,7 +290,7 @@ public class Response {
             // take the size from the response header
             return this.responseHeader.getContentLengthLong();
         }
-        if (this.content != null) return this.content.length;
+        if (this.content != null) return this.contentLength;
         // the size is unknown
         return -1;
     }
@@ -284,15 +301,24 @@ public class Response {
 
     public void setContent(final byte[] data) {
         this.content = data;
+        this.contentLength = data == null ? 0 : data.length;
         if (this.responseHeader != null && this.content != null && Integer.parseInt(this.responseHeader.get(HeaderFramework.CONTENT_LENGTH, "0")) <= content.length) {
             this.responseHeader.put(HeaderFramework.CONTENT_LENGTH, Integer.toString(content.length)); // repair length 
         }
     }
 
+    /**
+     * get the content array; only the first getContentLength() bytes are valid
+     * @return the content buffer
+     */
     public byte[] getContent() {
         return this.content;
     }
 
+    public int getContentLength() {
+        return this.contentLength;
+    }
+
     /**
      * Get Mime type from http header or null if unknown (not included in response header)
      * @return mime (trimmed and lowercase) or null
@@ -0,0 +1,247 @@
+/**
+ *  ArchiveEntries
+ *  Copyright 2026 by the YaCy Grid contributors
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.yacy.grid.tools.Logger;
+import net.yacy.grid.tools.MultiProtocolURL;
+import net.yacy.kelondro.util.FileUtils;
+
+/**
+ * Parsing of the entries of archives and compressed files. An entry is read into a memory buffer and
+ * parsed from there; only entries which are larger than the memory limit are written to a temporary file.
+ * The entries of one archive can be parsed concurrently: they are offered to a task queue (the parser pool)
+ * and the archive parser collects the documents in the order of the entries. Entries which were not taken
+ * by the queue are parsed by the archive parser itself, so an archive never waits for a free parser thread.
+ */
+public class ArchiveEntries {
+
+    private static final int DEPTH = 999; // the depth which is given to the documents of entries
+
+    private static volatile TaskQueue queue = null;
+    private static volatile int memoryLimit = 16 * 1024 * 1024;
+
+    /**
+     * @param taskQueue the queue for entries which are parsed concurrently, null to parse entries one after another
+     * @param memory the maximum size of an entry which is parsed from memory
+     */
+    public static void configure(final TaskQueue taskQueue, final int memory) {
+        queue = taskQueue;
+        memoryLimit = Math.max(0, memory);
+    }
+
+    /**
+     * parse the content of a compressed file, i.e. the single file within a gzip file
+     * @param url the url of the content
+     * @param mime the mime type of the content
+     * @param scraper the vocabulary scraper
+     * @param timezoneOffset the time zone offset
+     * @param source the uncompressed content
+     * @return the documents of the content
+     * @throws IOException if the content cannot be read
+     * @throws Parser.Failure
+     * @throws InterruptedException
+     */
+    public static Document[] parse(
+            final MultiProtocolURL url, final String mime, final VocabularyScraper scraper, final int timezoneOffset,
+            final InputStream source) throws IOException, Parser.Failure, InterruptedException {
+        final Entry entry = new Entry(url, mime, scraper, timezoneOffset, null, source, -1);
+        entry.run();
+        return entry.get();
+    }
+
+    /**
+     * The entries of one archive. Entries are added in the order of the archive; the documents of all
+     * entries are added to the document of the archive when all entries are parsed.
+     */
+    public static class Batch {
+
+        private final VocabularyScraper scraper;
+        private final int timezoneOffset;
+        private final List<Entry> entries;
+        private final AtomicLong waiting; // the bytes of the entries in memory which are not started yet
+
+        public Batch(final VocabularyScraper scraper, final int timezoneOffset) {
+            this.scraper = scraper;
+            this.timezoneOffset = timezoneOffset;
+            this.entries = new ArrayList<>();
+            this.waiting = new AtomicLong(0);
+        }
+
+        /**
+         * read an entry of the archive and start parsing it
+         * @param url the virtual url of the entry
+         * @param mime the mime type of the entry
+         * @param source the content of the entry, it is read until its end
+         * @param size the size of the entry if known, otherwise -1
+         * @throws IOException if the entry cannot be read
+         */
+        public void add(final MultiProtocolURL url, final String mime, final InputStream source, final long size) throws IOException {
+            final Entry entry = new Entry(url, mime, this.scraper, this.timezoneOffset, this.waiting, source, size);
+            this.entries.add(entry);
+            final TaskQueue q = queue;
+            // the entries which are waiting in memory are limited to a few times the memory limit
+            final long w = this.waiting.addAndGet(entry.length);
+            if (q == null || w > 4L * Math.max(memoryLimit, 1024 * 1024) || !q.offer(ParseBudget.inherit(entry))) entry.run();
+        }
+
+        /**
+         * wait until all entries are parsed and add their documents to the document of the archive.
+         * Entries which could not be parsed are logged and skipped.
+         * @param maindoc the document of the archive
+         * @throws IOException
+         * @throws Parser.Timeout if the parse budget was exceeded
+         * @throws InterruptedException
+         */
+        public void addTo(final Document maindoc) throws IOException, Parser.Timeout, InterruptedException {
+            Parser.Timeout timeout = null;
+            for (final Entry entry: this.entries) {
+                entry.run(); // the entry is parsed here if the queue did not start it yet
+                try {
+                    final Document[] docs = entry.get();
+                    if (docs != null && timeout == null) maindoc.addSubDocuments(docs);
+                } catch (final Parser.Timeout e) {
+                    timeout = e;
+                } catch (final Parser.Failure e) {
+                    Logger.warn("archive entry " + entry.url.toNormalform(true) + ": " + e.getMessage());
+                }
+            }
+            this.entries.clear();
+            if (timeout != null) throw timeout;
+        }
+    }
+
+    private static final class Entry implements Runnable {
+
+        private final MultiProtocolURL url;
+        private final String mime;
+        private final VocabularyScraper scraper;
+        private final int timezoneOffset;
+        private final AtomicBoolean started;
+        private final AtomicLong waiting; // the waiting bytes of the batch, null if the entry is not part of a batch
+        private byte[] content; // the entry if it is kept in memory
+        private int length;
+        private File file; // the entry if it was too large for memory
+        private Document[] docs; // guarded by this
+        private Exception failure; // guarded by this
+        private boolean done; // guarded by this
+
+        private Entry(
+                final MultiProtocolURL url, final String mime, final VocabularyScraper scraper, final int timezoneOffset,
+                final AtomicLong waiting, final InputStream source, final long size) throws IOException {
+            this.url = url;
+            this.mime = mime;
+            this.scraper = scraper;
+            this.timezoneOffset = timezoneOffset;
+            this.started = new AtomicBoolean(false);
+            this.waiting = waiting;
+            this.docs = null;
+            this.failure = null;
+            this.done = false;
+            read(source, size);
+        }
+
+        private void read(final InputStream source, final long size) throws IOException {
+            final int limit = memoryLimit;
+            if (size > limit) {
+                this.file = FileUtils.createTempFile(ArchiveEntries.class, this.url.getFileName());
+                FileUtils.copy(source, this.file, size);
+                return;
+            }
+            byte[] b = new byte[size >= 0 ? (int) size : Math.min(8192, Math.max(limit, 1))];
+            int n = 0, r;
+            while (true) {
+                if (n == b.length) {
+                    if (size >= 0) break; // the entry is complete
+                    if (n >= limit) {
+                        // spill the entry to a temporary file
+                        this.file = FileUtils.createTempFile(ArchiveEntries.class, this.url.getFileName());
+                        try (OutputStream os = new FileOutputStream(this.file)) {
+                            os.write(b, 0, n);
+                            FileUtils.copy(source, os);
+                        }
+                        return;
+                    }
+                    final byte[] g = new byte[(int) Math.min(limit, 2L * b.length)];
+                    System.arraycopy(b, 0, g, 0, n);
+                    b = g;
+                }
+                r = source.read(b, n, b.length - n);
+                if (r < 0) break;
+                n += r;
+            }
+            this.content = b;
+            this.length = n;
+        }
+
+        /**
+         * parse the entry; this does nothing if the entry was already started in another thread
+         */
+        @Override
+        public void run() {
+            if (!this.started.compareAndSet(false, true)) return;
+            if (this.waiting != null) this.waiting.addAndGet(-this.length);
+            Document[] d = null;
+            Exception f = null;
+            try {
+                if (this.content != null) {
+                    if (this.length > 0) d = TextParser.parseSource(this.url, this.mime, null, this.scraper, this.timezoneOffset, DEPTH, this.content, this.length);
+                } else {
+                    d = TextParser.parseSource(this.url, this.mime, null, this.scraper, this.timezoneOffset, DEPTH, this.file);
+                }
+            } catch (final Parser.Failure | InterruptedException e) {
+                f = e;
+            } catch (final Throwable e) {
+                f = new Parser.Failure("archive entry failed: " + e.getMessage(), this.url, e);
+            } finally {
+                this.content = null;
+                if (this.file != null) FileUtils.deletedelete(this.file);
+                this.file = null;
+                synchronized (this) {
+                    this.docs = d;
+                    this.failure = f;
+                    this.done = true;
+                    this.notifyAll();
+                }
+            }
+        }
+
+        /**
+         * wait for the documents of the entry
+         * @return the documents or null if the entry is empty
+         */
+        private synchronized Document[] get() throws Parser.Failure, InterruptedException {
+            while (!this.done) this.wait();
+            if (this.failure instanceof Parser.Failure) throw (Parser.Failure) this.failure;
+            if (this.failure instanceof InterruptedException) throw (InterruptedException) this.failure;
+            return this.docs;
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+/**
+ *  ContentSniffer
+ *  Copyright 2026 by the YaCy Grid contributors
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Detects the type of a document from its first bytes (magic numbers and, for html, the first markup).
+ * Each type has the mime types of all formats which are stored in that type; i.e. an office document
+ * with the mime type application/vnd.openxmlformats-officedocument.wordprocessingml.document is a zip file.
+ */
+public class ContentSniffer {
+
+    private static final int HTML_PREFIX = 4096; // number of bytes which are searched for html markup
+
+    public enum Type {
+        PDF("application/pdf",
+                "application/x-pdf", "application/acrobat", "applications/vnd.pdf", "text/pdf", "text/x-pdf"),
+        POSTSCRIPT("application/postscript",
+                "application/ps", "application/x-postscript", "application/x-ps"),
+        RTF("text/rtf",
+                "text/richtext", "application/rtf", "application/x-rtf", "application/msword", "application/x-soffice"),
+        ZIP("application/zip",
+                "application/x-zip", "application/x-compress", "multipart/x-zip", "application/java-archive", "application/vnd.android.package-archive",
+                "application/vnd.openxmlformats-officedocument.", "application/vnd.oasis.opendocument.", "application/vnd.sun.xml.",
+                "application/epub+zip", "application/msword", "application/vnd.ms-", "application/vnd.visio"),
+        OLE2("application/msword",
+                "application/doc", "application/vnd.ms", "application/vnd.visio", "application/winword", "application/word",
+                "application/x-ms", "application/x-visio", "appl/text"),
+        GZIP("application/x-gzip",
+                "application/gzip", "application/x-gunzip", "application/gzipped", "application/gzip-compressed", "gzip/document",
+                "application/x-compress", "application/x-tar", "application/tar", "application/x-gtar", "multipart/x-tar"),
+        BZIP2("application/x-bzip2",
+                "application/bzip2", "application/x-bz2", "application/x-bzip", "application/x-stuffit"),
+        PNG("image/png"),
+        JPEG("image/jpeg",
+                "image/jpg", "image/pjpeg"),
+        GIF("image/gif"),
+        HTML("text/html",
+                "application/xhtml", "text/xhtml");
+
+        public final String mime;
+        private final String[] family; // prefixes of mime types which are compatible with this type
+
+        private Type(final String mime, final String... family) {
+            this.mime = mime;
+            this.family = family;
+        }
+
+        /**
+         * check if a given mime type describes content of this type
+         * @param mimeType a normalized mime type or null
+         * @return true if the mime type fits to this type
+         */
+        public boolean matches(final String mimeType) {
+            if (mimeType == null) return false;
+            if (mimeType.startsWith(this.mime)) return true;
+            for (final String m: this.family) if (mimeType.startsWith(m)) return true;
+            return false;
+        }
+    }
+
+    /**
+     * detect the type of a document
+     * @param b the document content
+     * @param length the number of valid bytes in b
+     * @return the type or null if the type is not known
+     */
+    public static Type sniff(final byte[] b, final int length) {
+        if (length < 4) return null;
+        final int b0 = b[0] & 0xff, b1 = b[1] & 0xff, b2 = b[2] & 0xff, b3 = b[3] & 0xff;
+        if (b0 == '%' && b1 == 'P' && b2 == 'D' && b3 == 'F') return Type.PDF;
+        if (b0 == '%' && b1 == '!' && b2 == 'P' && b3 == 'S') return Type.POSTSCRIPT;
+        if (b0 == '{' && b1 == '\\' && b2 == 'r' && b3 == 't') return Type.RTF;
+        if (b0 == 'P' && b1 == 'K' && ((b2 == 3 && b3 == 4) || (b2 == 5 && b3 == 6))) return Type.ZIP;
+        if (b0 == 0xd0 && b1 == 0xcf && b2 == 0x11 && b3 == 0xe0) return Type.OLE2;
+        if (b0 == 0x1f && b1 == 0x8b && b2 == 8) return Type.GZIP;
+        if (b0 == 'B' && b1 == 'Z' && b2 == 'h' && b3 >= '1' && b3 <= '9') return Type.BZIP2;
+        if (b0 == 0x89 && b1 == 'P' && b2 == 'N' && b3 == 'G') return Type.PNG;
+        if (b0 == 0xff && b1 == 0xd8 && b2 == 0xff) return Type.JPEG;
+        if (b0 == 'G' && b1 == 'I' && b2 == 'F' && b3 == '8') return Type.GIF;
+        if (isHtml(b, length)) return Type.HTML;
+        return null;
+    }
+
+    /**
+     * html is detected if the document starts with a html doctype or a html, head or body tag,
+     * only preceded by a byte order mark, white space, comments or an xml declaration
+     */
+    private static boolean isHtml(final byte[] b, final int length) {
+        final int end = Math.min(length, HTML_PREFIX);
+        int p = 0;
+        if (end >= 3 && (b[0] & 0xff) == 0xef && (b[1] & 0xff) == 0xbb && (b[2] & 0xff) == 0xbf) p = 3; // UTF-8 BOM
+        while (p < end) {
+            final byte c = b[p];
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f') {p++; continue;}
+            if (c != '<') return false;
+            if (startsWithIgnoreCase(b, p, end, "<!--")) {
+                p = indexOf(b, p + 4, end, "-->");
+                if (p < 0) return false;
+                p += 3;
+                continue;
+            }
+            if (startsWithIgnoreCase(b, p, end, "<?xml")) {
+                p = indexOf(b, p + 5, end, "?>");
+                if (p < 0) return false;
+                p += 2;
+                continue;
+            }
+            return startsWithIgnoreCase(b, p, end, "<!doctype html") || isTag(b, p, end, "<html") || isTag(b, p, end, "<head") || isTag(b, p, end, "<body");
+        }
+        return false;
+    }
+
+    private static boolean isTag(final byte[] b, final int p, final int end, final String tag) {
+        if (!startsWithIgnoreCase(b, p, end, tag)) return false;
+        final int q = p + tag.length();
+        return q < end && (b[q] == '>' || b[q] == ' ' || b[q] == '\t' || b[q] == '\n' || b[q] == '\r' || b[q] == '/');
+    }
+
+    private static boolean startsWithIgnoreCase(final byte[] b, final int p, final int end, final String s) {
+        if (p + s.length() > end) return false;
+        for (int i = 0; i < s.length(); i++) {
+            final int c = b[p + i];
+            if ((c >= 'A' && c <= 'Z' ? c + 32 : c) != s.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static int indexOf(final byte[] b, final int from, final int end, final String s) {
+        final byte[] pattern = s.getBytes(StandardCharsets.US_ASCII);
+        outer: for (int i = from; i <= end - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) if (b[i + j] != pattern[j]) continue outer;
+            return i;
+        }
+        return -1;
+    }
+
+}
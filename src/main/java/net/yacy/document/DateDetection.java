@@ -25,13 +25,18 @@ import com.ibm.icu.util.EasterHoliday;
 import com.ibm.icu.util.SimpleDateRule;
 
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
@@ -42,6 +47,7 @@ import java.util.regex.Pattern;
 
 import net.yacy.cora.date.AbstractFormatter;
 import net.yacy.cora.date.GenericFormatter;
+import net.yacy.cora.util.AhoCorasick;
 
 /**
  * The purpose of this class exceeds the demands on simple date parsing using a SimpleDateFormat
@@ -55,7 +61,7 @@ public class DateDetection {
 
     private static final TimeZone TZ_GMT = TimeZone.getTimeZone("GMT");
     private static final String CONPATT  = "yyyy/MM/dd";
-    private static final SimpleDateFormat CONFORM = new SimpleDateFormat(CONPATT, Locale.US);
+    private static final DateTimeFormatter CONFORM = DateTimeFormatter.ofPattern(CONPATT, Locale.US); // immutable and thread-safe
     private static final LinkedHashMap<Language, String[]> Weekdays = new LinkedHashMap<>();
     private static final LinkedHashMap<Language, String[]> Months = new LinkedHashMap<>();
     private static final int[] MaxDaysInMonth = new int[]{31,29,31,30,31,30,31,31,30,31,30,31};
@@ -66,7 +72,6 @@ public class DateDetection {
     }
     
     static {
-        CONFORM.setTimeZone(TZ_GMT);
         // all names must be lowercase because compared strings are made to lowercase as well
         Weekdays.put(Language.GERMAN,  new String[]{"montag", "dienstag", "mittwoch", "donnerstag", "freitag", "samstag" /*oder: "sonnabend"*/, "sonntag"});
         Weekdays.put(Language.ENGLISH, new String[]{"monday", "tuesday", "wednesday", "thursday", "friday", "saturday", "sunday"});
@@ -125,7 +130,7 @@ public class DateDetection {
     }
 
     private final static Date TODAY = new Date();
-    private final static int CURRENT_YEAR  = Integer.parseInt(CONFORM.format(TODAY).substring(0, 4)); // we need that to parse dates without given years, see the ShortStyle class
+    private final static int CURRENT_YEAR  = TODAY.toInstant().atZone(ZoneOffset.UTC).getYear(); // we need that to parse dates without given years, see the ShortStyle class
 
     private final static String BODNCG = "(?:\\s|^)"; // begin of date non-capturing group
     private final static String EODNCG = "(?:[).:;! ]|$)"; // end of date non-capturing group
@@ -142,7 +147,9 @@ public class DateDetection {
     }
 
     public static HolidayMap Holidays = new HolidayMap();
-    public static Map<Pattern, Date[]> HolidayPattern = new HashMap<>();
+    private static final String[] HolidayNames;
+    private static final Date[][] HolidayDates;
+    private static final AhoCorasick HolidayMatcher; // finds all holiday names in one pass
     
     static {
         try {
@@ -150,27 +157,27 @@ public class DateDetection {
             Holidays.put("Neujahr",                   sameDayEveryYear(Calendar.JANUARY, 1));
             Holidays.put("Heilige Drei Könige",       sameDayEveryYear(Calendar.JANUARY, 6));
             Holidays.put("Valentinstag",              sameDayEveryYear(Calendar.FEBRUARY, 14));
-            Holidays.put("Weiberfastnacht",           new Date[]{CONFORM.parse("2014/02/27"), CONFORM.parse("2015/02/12"), CONFORM.parse("2016/02/04")});
+            Holidays.put("Weiberfastnacht",           new Date[]{conform("2014/02/27"), conform("2015/02/12"), conform("2016/02/04")});
             Holidays.put("Weiberfasching",            Holidays.get("Weiberfastnacht"));
-            Holidays.put("Rosenmontag",               new Date[]{CONFORM.parse("2014/03/03"), CONFORM.parse("2015/03/16"), CONFORM.parse("2016/02/08")});
-            Holidays.put("Faschingsdienstag",         holiDayEventRule(EasterHoliday.SHROVE_TUESDAY.getRule()));// new Date[]{CONFORM.parse("2014/03/04"), CONFORM.parse("2015/03/17"), CONFORM.parse("2016/02/09")});
-            Holidays.put("Fastnacht",                 Holidays.get("Faschingsdienstag")); // new Date[]{CONFORM.parse("2014/03/04"), CONFORM.parse("2015/03/17"), CONFORM.parse("2016/02/09")});
-            Holidays.put("Aschermittwoch",            holiDayEventRule(EasterHoliday.ASH_WEDNESDAY.getRule()));// new Date[]{CONFORM.parse("2014/03/05"), CONFORM.parse("2015/03/18"), CONFORM.parse("2016/02/10")});
-            Holidays.put("Palmsonntag",               holiDayEventRule(EasterHoliday.PALM_SUNDAY.getRule()));// new Date[]{CONFORM.parse("2014/04/13"), CONFORM.parse("2015/03/29"), CONFORM.parse("2016/04/20")});
-            Holidays.put("Gründonnerstag",            holiDayEventRule(EasterHoliday.MAUNDY_THURSDAY.getRule()));// new Date[]{CONFORM.parse("2014/04/17"), CONFORM.parse("2015/04/02"), CONFORM.parse("2016/04/24")});
-            Holidays.put("Karfreitag",                holiDayEventRule(EasterHoliday.GOOD_FRIDAY.getRule()));// new Date[]{CONFORM.parse("2014/04/18"), CONFORM.parse("2015/04/03"), CONFORM.parse("2016/04/25")});
-            Holidays.put("Karsamstag",                new Date[]{CONFORM.parse("2014/04/19"), CONFORM.parse("2015/04/04"), CONFORM.parse("2016/04/26")});
-            Holidays.put("Ostersonntag",              holiDayEventRule(EasterHoliday.EASTER_SUNDAY.getRule()));// new Date[]{CONFORM.parse("2014/04/20"), CONFORM.parse("2015/04/05"), CONFORM.parse("2016/04/27")});
-            Holidays.put("Ostermontag",               holiDayEventRule(EasterHoliday.EASTER_MONDAY.getRule()));// new Date[]{CONFORM.parse("2014/04/21"), CONFORM.parse("2015/04/06"), CONFORM.parse("2016/04/28")});
-            Holidays.put("Ostern",                    new Date[]{CONFORM.parse("2014/04/20"), CONFORM.parse("2015/04/05"), CONFORM.parse("2016/04/27"),
-                                                                 CONFORM.parse("2014/04/21"), CONFORM.parse("2015/04/06"), CONFORM.parse("2016/04/28")});
+            Holidays.put("Rosenmontag",               new Date[]{conform("2014/03/03"), conform("2015/03/16"), conform("2016/02/08")});
+            Holidays.put("Faschingsdienstag",         holiDayEventRule(EasterHoliday.SHROVE_TUESDAY.getRule()));// new Date[]{conform("2014/03/04"), conform("2015/03/17"), conform("2016/02/09")});
+            Holidays.put("Fastnacht",                 Holidays.get("Faschingsdienstag")); // new Date[]{conform("2014/03/04"), conform("2015/03/17"), conform("2016/02/09")});
+            Holidays.put("Aschermittwoch",            holiDayEventRule(EasterHoliday.ASH_WEDNESDAY.getRule()));// new Date[]{conform("2014/03/05"), conform("2015/03/18"), conform("2016/02/10")});
+            Holidays.put("Palmsonntag",               holiDayEventRule(EasterHoliday.PALM_SUNDAY.getRule()));// new Date[]{conform("2014/04/13"), conform("2015/03/29"), conform("2016/04/20")});
+            Holidays.put("Gründonnerstag",            holiDayEventRule(EasterHoliday.MAUNDY_THURSDAY.getRule()));// new Date[]{conform("2014/04/17"), conform("2015/04/02"), conform("2016/04/24")});
+            Holidays.put("Karfreitag",                holiDayEventRule(EasterHoliday.GOOD_FRIDAY.getRule()));// new Date[]{conform("2014/04/18"), conform("2015/04/03"), conform("2016/04/25")});
+            Holidays.put("Karsamstag",                new Date[]{conform("2014/04/19"), conform("2015/04/04"), conform("2016/04/26")});
+            Holidays.put("Ostersonntag",              holiDayEventRule(EasterHoliday.EASTER_SUNDAY.getRule()));// new Date[]{conform("2014/04/20"), conform("2015/04/05"), conform("2016/04/27")});
+            Holidays.put("Ostermontag",               holiDayEventRule(EasterHoliday.EASTER_MONDAY.getRule()));// new Date[]{conform("2014/04/21"), conform("2015/04/06"), conform("2016/04/28")});
+            Holidays.put("Ostern",                    new Date[]{conform("2014/04/20"), conform("2015/04/05"), conform("2016/04/27"),
+                                                                 conform("2014/04/21"), conform("2015/04/06"), conform("2016/04/28")});
             Holidays.put("Walpurgisnacht",            sameDayEveryYear(Calendar.APRIL, 30));
             Holidays.put("Tag der Arbeit",            sameDayEveryYear(Calendar.MAY, 1));
-            Holidays.put("Muttertag",                 new Date[]{CONFORM.parse("2014/05/11"), CONFORM.parse("2015/05/10"), CONFORM.parse("2016/05/08")});
-            Holidays.put("Christi Himmelfahrt",       holiDayEventRule(EasterHoliday.ASCENSION.getRule()));// new Date[]{CONFORM.parse("2014/05/29"), CONFORM.parse("2015/05/14"), CONFORM.parse("2016/05/05")});
-            Holidays.put("Pfingstsonntag",            holiDayEventRule(EasterHoliday.WHIT_SUNDAY.getRule()));// new Date[]{CONFORM.parse("2014/06/08"), CONFORM.parse("2015/05/24"), CONFORM.parse("2016/05/15")});
-            Holidays.put("Pfingstmontag",             holiDayEventRule(EasterHoliday.WHIT_MONDAY.getRule()));// new Date[]{CONFORM.parse("2014/06/09"), CONFORM.parse("2015/05/25"), CONFORM.parse("2016/05/16")});
-            Holidays.put("Fronleichnam",              holiDayEventRule(EasterHoliday.CORPUS_CHRISTI.getRule()));// new Date[]{CONFORM.parse("2014/06/19"), CONFORM.parse("2015/06/04"), CONFORM.parse("2016/05/25")});
+            Holidays.put("Muttertag",                 new Date[]{conform("2014/05/11"), conform("2015/05/10"), conform("2016/05/08")});
+            Holidays.put("Christi Himmelfahrt",       holiDayEventRule(EasterHoliday.ASCENSION.getRule()));// new Date[]{conform("2014/05/29"), conform("2015/05/14"), conform("2016/05/05")});
+            Holidays.put("Pfingstsonntag",            holiDayEventRule(EasterHoliday.WHIT_SUNDAY.getRule()));// new Date[]{conform("2014/06/08"), conform("2015/05/24"), conform("2016/05/15")});
+            Holidays.put("Pfingstmontag",             holiDayEventRule(EasterHoliday.WHIT_MONDAY.getRule()));// new Date[]{conform("2014/06/09"), conform("2015/05/25"), conform("2016/05/16")});
+            Holidays.put("Fronleichnam",              holiDayEventRule(EasterHoliday.CORPUS_CHRISTI.getRule()));// new Date[]{conform("2014/06/19"), conform("2015/06/04"), conform("2016/05/25")});
             Holidays.put("Mariä Himmelfahrt",         sameDayEveryYear(Calendar.AUGUST, 15));
             Holidays.put("Tag der Deutschen Einheit", sameDayEveryYear(Calendar.OCTOBER, 3));
             Holidays.put("Reformationstag",           sameDayEveryYear(Calendar.OCTOBER, 31));
@@ -178,17 +185,17 @@ public class DateDetection {
             Holidays.put("Allerseelen",               sameDayEveryYear(Calendar.NOVEMBER, 2));
             Holidays.put("Martinstag",                sameDayEveryYear(Calendar.NOVEMBER, 11));
             Holidays.put("St. Martin",                Holidays.get("Martinstag"));
-            Holidays.put("Volkstrauertag",            new Date[]{CONFORM.parse("2014/11/16"), CONFORM.parse("2015/11/15"), CONFORM.parse("2016/11/13")});
-            Holidays.put("Buß- und Bettag",           holiDayEventRule(new SimpleDateRule(Calendar.NOVEMBER, 22, Calendar.WEDNESDAY, true))); // new Date[]{CONFORM.parse("2014/11/19"), CONFORM.parse("2015/11/18"), CONFORM.parse("2016/11/16")});
-            Holidays.put("Totensonntag",              new Date[]{CONFORM.parse("2014/11/23"), CONFORM.parse("2015/11/22"), CONFORM.parse("2016/11/20")});
+            Holidays.put("Volkstrauertag",            new Date[]{conform("2014/11/16"), conform("2015/11/15"), conform("2016/11/13")});
+            Holidays.put("Buß- und Bettag",           holiDayEventRule(new SimpleDateRule(Calendar.NOVEMBER, 22, Calendar.WEDNESDAY, true))); // new Date[]{conform("2014/11/19"), conform("2015/11/18"), conform("2016/11/16")});
+            Holidays.put("Totensonntag",              new Date[]{conform("2014/11/23"), conform("2015/11/22"), conform("2016/11/20")});
             Holidays.put("Nikolaus",                  sameDayEveryYear(Calendar.DECEMBER, 6));
             Holidays.put("Heiligabend",               sameDayEveryYear(Calendar.DECEMBER, 24));
             Holidays.put("1. Weihnachtsfeiertag",     sameDayEveryYear(Calendar.DECEMBER, 25));
             Holidays.put("2. Weihnachtsfeiertag",     sameDayEveryYear(Calendar.DECEMBER, 26));
-            Holidays.put("1. Advent",                 new Date[]{CONFORM.parse("2014/11/30"), CONFORM.parse("2015/11/29"), CONFORM.parse("2016/11/27")});
-            Holidays.put("2. Advent",                 new Date[]{CONFORM.parse("2014/12/07"), CONFORM.parse("2015/12/06"), CONFORM.parse("2016/12/04")});
-            Holidays.put("3. Advent",                 new Date[]{CONFORM.parse("2014/12/14"), CONFORM.parse("2015/12/13"), CONFORM.parse("2016/12/11")});
-            Holidays.put("4. Advent",                 new Date[]{CONFORM.parse("2014/12/21"), CONFORM.parse("2015/12/20"), CONFORM.parse("2016/12/18")});
+            Holidays.put("1. Advent",                 new Date[]{conform("2014/11/30"), conform("2015/11/29"), conform("2016/11/27")});
+            Holidays.put("2. Advent",                 new Date[]{conform("2014/12/07"), conform("2015/12/06"), conform("2016/12/04")});
+            Holidays.put("3. Advent",                 new Date[]{conform("2014/12/14"), conform("2015/12/13"), conform("2016/12/11")});
+            Holidays.put("4. Advent",                 new Date[]{conform("2014/12/21"), conform("2015/12/20"), conform("2016/12/18")});
             Holidays.put("Silvester",                 sameDayEveryYear(Calendar.DECEMBER, 31));
             
             // English
@@ -209,12 +216,36 @@ public class DateDetection {
             Holidays.put("New Year's Eve",            Holidays.get("Silvester"));
         } catch (ParseException e) {}
         
-        
-        for (Map.Entry<String, Date[]> holiday: Holidays.entrySet()) {
-            HolidayPattern.put(Pattern.compile(BODNCG + holiday.getKey() + EODNCG), holiday.getValue());
+        HolidayNames = Holidays.keySet().toArray(new String[Holidays.size()]);
+        HolidayDates = new Date[HolidayNames.length][];
+        for (int i = 0; i < HolidayNames.length; i++) HolidayDates[i] = Holidays.get(HolidayNames[i]);
+        HolidayMatcher = new AhoCorasick(HolidayNames, false);
+    }
+
+    /**
+     * parse a date in the form yyyy/MM/dd
+     * @param s the date
+     * @return the date at 00:00 GMT
+     * @throws ParseException
+     */
+    private static Date conform(final String s) throws ParseException {
+        try {
+            return new Date(LocalDate.parse(s, CONFORM).toEpochDay() * AbstractFormatter.dayMillis);
+        } catch (final DateTimeParseException e) {
+            throw new ParseException(e.getMessage(), e.getErrorIndex());
         }
     }
 
+    /**
+     * @param year the year
+     * @param month the month, 1 to 12
+     * @param day the day of the month; days after the end of the month roll over into the next month
+     * @return the date at 00:00 GMT
+     */
+    private static Date date(final int year, final int month, final int day) {
+        return new Date(LocalDate.of(year, month, 1).plusDays(day - 1).toEpochDay() * AbstractFormatter.dayMillis);
+    }
+
     /**
      * @param month value of month (Calendar.month is 0 based)
      * @param day
@@ -222,7 +253,7 @@ public class DateDetection {
      */
     private static Date[] sameDayEveryYear(int month, int day) {
         Date[] r = new Date[4];
-        Calendar cal = CONFORM.getCalendar();
+        Calendar cal = Calendar.getInstance(TZ_GMT, Locale.US);
         cal.clear();
         cal.set(CURRENT_YEAR - 1, month, day); // set start in previous year
         r[0] = cal.getTime();
@@ -239,7 +270,8 @@ public class DateDetection {
      */
     private static Date[] holiDayEventRule(DateRule holidayrule) {
         Date[] r = new Date[3];
-        Calendar cal = CONFORM.getCalendar();
+        Calendar cal = Calendar.getInstance(TZ_GMT, Locale.US);
+        cal.clear();
         cal.set(CURRENT_YEAR - 1, 1, 1); // set previous year as start year
         r[0] = holidayrule.firstAfter(cal.getTime());
         for (int y = 1; y < 3; y++) {
@@ -378,6 +410,19 @@ public class DateDetection {
          * @return a set of dates, ordered by occurrence.
          */
         public LinkedHashSet<Date> parse(String text);
+
+        /**
+         * @return the pattern of a date in this style
+         */
+        public Pattern pattern();
+
+        /**
+         * add the dates of a match of the pattern
+         * @param matcher a matcher of the pattern after a successful match
+         * @param dates the set of dates
+         * @return true if the match was a valid date
+         */
+        public boolean addDates(Matcher matcher, LinkedHashSet<Date> dates);
     }
     
     /**
@@ -420,30 +465,37 @@ public class DateDetection {
             LinkedHashSet<Date> dates = new LinkedHashSet<>();
             Matcher matcher = this.pattern.matcher(text);
             while (matcher.find()) {
-                if (!(matcher.groupCount() == 3)) continue;
-                String entity1 = matcher.group(1); if (entity1 == null) continue;
-                String entity2 = matcher.group(2); if (entity2 == null) continue;
-                String entity3 = matcher.group(3); if (entity3 == null) continue;
-                //System.out.println("FRAGMENTS: entity1=" + entity1 + ", entity2=" + entity2 + ", entity3=" + entity3); // DEBUG
-                int i1 = languageParser.parseEntity(this.firstEntity, entity1);
-                if (i1 < 0) continue;
-                int i2 = languageParser.parseEntity(this.secondEntity, entity2);
-                if (i2 < 0) continue;
-                int i3 = languageParser.parseEntity(this.thirdEntity, entity3);
-                if (i3 < 0) continue;
-                int day = this.firstEntity == EntityType.DAY ? i1 : this.secondEntity == EntityType.DAY ? i2 : i3;
-                int month = this.firstEntity == EntityType.MONTH ? i1 : this.secondEntity == EntityType.MONTH ? i2 : i3;
-                if (day > MaxDaysInMonth[month - 1]) continue; // validity check of the day number
-                int year = this.firstEntity == EntityType.YEAR ? i1 : this.secondEntity == EntityType.YEAR ? i2 : i3;
-                synchronized (CONFORM) {try {
-                    dates.add(CONFORM.parse(year + "/" + (month < 10 ? "0" : "") + month + "/" + (day < 10 ? "0" : "") + day));
-                } catch (ParseException e) {
-                    continue;
-                }}
+                if (!addDates(matcher, dates)) continue;
                 if (dates.size() > 100) {dates.clear(); break;} // that does not make sense
             }
             return dates;
         }
+
+        @Override
+        public Pattern pattern() {
+            return this.pattern;
+        }
+
+        @Override
+        public boolean addDates(final Matcher matcher, final LinkedHashSet<Date> dates) {
+            if (!(matcher.groupCount() == 3)) return false;
+            String entity1 = matcher.group(1); if (entity1 == null) return false;
+            String entity2 = matcher.group(2); if (entity2 == null) return false;
+            String entity3 = matcher.group(3); if (entity3 == null) return false;
+            //System.out.println("FRAGMENTS: entity1=" + entity1 + ", entity2=" + entity2 + ", entity3=" + entity3); // DEBUG
+            int i1 = languageParser.parseEntity(this.firstEntity, entity1);
+            if (i1 < 0) return false;
+            int i2 = languageParser.parseEntity(this.secondEntity, entity2);
+            if (i2 < 0) return false;
+            int i3 = languageParser.parseEntity(this.thirdEntity, entity3);
+            if (i3 < 0) return false;
+            int day = this.firstEntity == EntityType.DAY ? i1 : this.secondEntity == EntityType.DAY ? i2 : i3;
+            int month = this.firstEntity == EntityType.MONTH ? i1 : this.secondEntity == EntityType.MONTH ? i2 : i3;
+            if (day > MaxDaysInMonth[month - 1]) return false; // validity check of the day number
+            int year = this.firstEntity == EntityType.YEAR ? i1 : this.secondEntity == EntityType.YEAR ? i2 : i3;
+            dates.add(date(year, month, day));
+            return true;
+        }
         
     }
     
@@ -489,33 +541,35 @@ public class DateDetection {
             Matcher matcher = this.pattern.matcher(text);
             //Logger.info("DateDetection", "applying matcher: " + matcher.toString());
             while (matcher.find()) {
-                if (!(matcher.groupCount() == 2)) continue;
-                String entity1 = matcher.group(1); if (entity1 == null) continue;
-                String entity2 = matcher.group(2); if (entity2 == null) continue;
-                //System.out.println("FRAGMENTS: entity1=" + entity1 + ", entity2=" + entity2 + ", entity3=" + entity3); // DEBUG
-                int i1 = languageParser.parseEntity(this.firstEntity, entity1);
-                if (i1 < 0) continue;
-                int i2 = languageParser.parseEntity(this.secondEntity, entity2);
-                if (i2 < 0) continue;
-                int day = this.firstEntity == EntityType.DAY ? i1 : i2;
-                int month = this.firstEntity == EntityType.MONTH ? i1 :  i2;
-                if (day > MaxDaysInMonth[month - 1]) continue; // validity check of the day number
-                int thisyear = CURRENT_YEAR;
-                int nextyear = CURRENT_YEAR + 1;
-                synchronized (CONFORM) {try {
-                    String datestub = "/" + (month < 10 ? "0" : "") + month + "/" + (day < 10 ? "0" : "") + day;
-                    Date atThisYear = CONFORM.parse(thisyear + datestub);
-                    Date atNextYear = CONFORM.parse(nextyear + datestub);
-                    dates.add(atThisYear);
-                    dates.add(atNextYear);
-                    //dates.add(atThisYear.after(TODAY) ? atThisYear : atNextYear); // we consider these kind of dates as given for the future
-                } catch (ParseException e) {
-                    continue;
-                }}
+                if (!addDates(matcher, dates)) continue;
                 if (dates.size() > 100) {dates.clear(); break;} // that does not make sense
             }
             return dates;
         }
+
+        @Override
+        public Pattern pattern() {
+            return this.pattern;
+        }
+
+        @Override
+        public boolean addDates(final Matcher matcher, final LinkedHashSet<Date> dates) {
+            if (!(matcher.groupCount() == 2)) return false;
+            String entity1 = matcher.group(1); if (entity1 == null) return false;
+            String entity2 = matcher.group(2); if (entity2 == null) return false;
+            //System.out.println("FRAGMENTS: entity1=" + entity1 + ", entity2=" + entity2 + ", entity3=" + entity3); // DEBUG
+            int i1 = languageParser.parseEntity(this.firstEntity, entity1);
+            if (i1 < 0) return false;
+            int i2 = languageParser.parseEntity(this.secondEntity, entity2);
+            if (i2 < 0) return false;
+            int day = this.firstEntity == EntityType.DAY ? i1 : i2;
+            int month = this.firstEntity == EntityType.MONTH ? i1 :  i2;
+            if (day > MaxDaysInMonth[month - 1]) return false; // validity check of the day number
+            dates.add(date(CURRENT_YEAR, month, day));
+            dates.add(date(CURRENT_YEAR + 1, month, day));
+            //dates.add(atThisYear.after(TODAY) ? atThisYear : atNextYear); // we consider these kind of dates as given for the future
+            return true;
+        }
         
     }
     
@@ -536,14 +590,29 @@ public class DateDetection {
 
         LinkedHashSet<Date> dates = parseRawDate(text);
         
-        for (Map.Entry<Pattern, Date[]> entry: HolidayPattern.entrySet()) {
-            if (entry.getKey().matcher(text).find()) {
-                for (Date d: entry.getValue()) dates.add(d);
-            }
-        }
+        // a holiday name must be preceded by a white space or the start of the text and
+        // followed by one of the chars in EODNCG or the end of the text
+        final boolean[] found = new boolean[HolidayNames.length];
+        final List<Date[]> holidays = new ArrayList<>();
+        HolidayMatcher.find(text, (word, start, end) -> {
+            if (found[word]) return true;
+            if (start > 0 && !isSpace(text.charAt(start - 1))) return true;
+            if (end < text.length() && ").:;! ".indexOf(text.charAt(end)) < 0) return true;
+            found[word] = true;
+            holidays.add(HolidayDates[word]);
+            return true;
+        });
+        for (Date[] holiday: holidays) for (Date d: holiday) dates.add(d);
         return dates;
     }
 
+    /**
+     * @return true if the char is a white space as matched by \s
+     */
+    private static boolean isSpace(final char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
     /**
      * Parse a line expected to contain one date expression only.
      * This is used by the query parser for query date modifier on:, from: or to:
@@ -555,7 +624,7 @@ public class DateDetection {
     public static Date parseLine(final String text, final int timezoneOffset) {
         Date d = null;
         // check standard date formats
-        try {d = CONFORM.parse(text);} catch (ParseException e) {}
+        try {d = conform(text);} catch (ParseException e) {}
         //if (d == null) try {d = GenericFormatter.FORMAT_SHORT_DAY.parse(text);} catch (ParseException e) {} // did not work well and fired for wrong formats; do not use
         if (d == null) try {d = GenericFormatter.FORMAT_RFC1123_SHORT.parse(text);} catch (ParseException e) {}
         if (d == null) try {d = GenericFormatter.FORMAT_ANSIC.parse(text);} catch (ParseException e) {}
@@ -588,22 +657,90 @@ public class DateDetection {
         return d;
     }
     
+    /**
+     * The matches of one date style in a text. The style is only tried at positions where a date of that style can start.
+     */
+    private static final class StyleMatches {
+        private final StyleParser style;
+        private final Matcher matcher;
+        private final LinkedHashSet<Date> dates;
+        private int from; // the end of the last match; matches do not overlap
+        private boolean full;
+        private StyleMatches(final StyleParser style, final String text) {
+            this.style = style;
+            this.matcher = style.pattern().matcher(text);
+            this.matcher.useAnchoringBounds(false); // '^' only matches at the start of the text
+            this.matcher.useTransparentBounds(true);
+            this.dates = new LinkedHashSet<>();
+            this.from = 0;
+            this.full = false;
+        }
+        private void matchAt(final int p, final int end) {
+            if (this.full || p < this.from) return;
+            this.matcher.region(p, end);
+            if (!this.matcher.lookingAt()) return;
+            this.from = this.matcher.end();
+            if (!this.style.addDates(this.matcher, this.dates)) return;
+            if (this.dates.size() > 100) {this.dates.clear(); this.full = true;} // that does not make sense
+        }
+    }
+
     private static LinkedHashSet<Date> parseRawDate(String text) {
+        // all date styles are matched in one pass over the text: a date starts at the beginning of the text or
+        // with a white space; the styles are only tried where the following chars can start a date of that style
+        final int length = text.length();
+        final StyleMatches dmy = new StyleMatches(EndianStyle.DMY, text);
+        final StyleMatches mdy = new StyleMatches(EndianStyle.MDY, text);
+        final StyleMatches ymd = new StyleMatches(EndianStyle.YMD, text);
+        final StyleMatches md_english = new StyleMatches(ShortStyle.MD_ENGLISH, text);
+        final StyleMatches dm_german = new StyleMatches(ShortStyle.DM_GERMAN, text);
+        final StyleMatches dm_french = new StyleMatches(ShortStyle.DM_FRENCH, text);
+        final StyleMatches dm_italian = new StyleMatches(ShortStyle.DM_ITALIAN, text);
+        final StyleMatches dm_spanish = new StyleMatches(ShortStyle.DM_SPANISH, text);
+        for (int p = 0; p < length; p++) {
+            final int q; // the first char of the date
+            if (isSpace(text.charAt(p))) q = p + 1; else if (p == 0) q = 0; else continue;
+            if (q >= length) break;
+            final char c = text.charAt(q);
+            if (c >= '0' && c <= '9') {
+                dmy.matchAt(p, length);
+                mdy.matchAt(p, length);
+                ymd.matchAt(p, length);
+            } else if (Character.isLetter(c)) {
+                int r = q + 1;
+                while (r < length && Character.isLetter(text.charAt(r))) r++;
+                if (r - q >= 3) {
+                    // a month name must be followed by a separator and a day number
+                    for (int i = r + 1; i <= r + 3 && i < length; i++) {
+                        final char d = text.charAt(i);
+                        if (d >= '0' && d <= '9') {mdy.matchAt(p, length); break;}
+                    }
+                } else if (r - q == 2 && r < length && text.charAt(r) == ' ') {
+                    final char c1 = text.charAt(q + 1);
+                    if (c == 'o' && c1 == 'n') md_english.matchAt(p, length);
+                    else if (c == 'a' && c1 == 'm') dm_german.matchAt(p, length);
+                    else if (c == 'l' && c1 == 'e') dm_french.matchAt(p, length);
+                    else if (c == 'i' && c1 == 'l') dm_italian.matchAt(p, length);
+                    else if (c == 'e' && c1 == 'l') dm_spanish.matchAt(p, length);
+                }
+            }
+        }
+
         // get parse alternatives for different date styles; we consider that one document uses only one style
-        LinkedHashSet<Date> DMYDates = EndianStyle.DMY.parse(text);
-        ShortStyle[] shortStyleCheck = new ShortStyle[]{ShortStyle.DM_GERMAN, ShortStyle.DM_FRENCH, ShortStyle.DM_ITALIAN, ShortStyle.DM_SPANISH};
+        LinkedHashSet<Date> DMYDates = dmy.dates;
         LinkedHashSet<Date>  DMDates = new LinkedHashSet<>();
-        for (ShortStyle shortStyle: shortStyleCheck) {
-            DMDates.addAll(shortStyle.parse(text));
+        for (StyleMatches shortStyle: new StyleMatches[]{dm_german, dm_french, dm_italian, dm_spanish}) {
+            DMDates.addAll(shortStyle.dates);
             if (DMDates.size() > 0) break;
         }
         DMYDates.addAll(DMDates);
         
-        LinkedHashSet<Date> MDYDates = DMYDates.size() == 0 ? EndianStyle.MDY.parse(text) : new LinkedHashSet<Date>(0);
-        LinkedHashSet<Date>  MDDates = DMYDates.size() == 0 ? ShortStyle.MD_ENGLISH.parse(text) : new LinkedHashSet<Date>(0);
+        LinkedHashSet<Date> MDYDates = DMYDates.size() == 0 ? mdy.dates : new LinkedHashSet<Date>(0);
+        LinkedHashSet<Date>  MDDates = DMYDates.size() == 0 ? md_english.dates : new LinkedHashSet<Date>(0);
         MDYDates.addAll(MDDates);
         
-        LinkedHashSet<Date> YMDDates = DMYDates.size() == 0 && MDYDates.size() == 0 ? EndianStyle.YMD.parse(text) : new LinkedHashSet<Date>(0);
+        LinkedHashSet<Date> YMDDates = DMYDates.size() == 0 && MDYDates.size() == 0 ? ymd.dates : new LinkedHashSet<Date>(0);
+        if (YMDDates.size() == 0 && DMYDates.size() == 0 && MDYDates.size() == 0) return DMYDates;
         
         // if either one of them contains any and the other contain no date, chose that one (we don't want to mix them)
         if (YMDDates.size() > 0 && DMYDates.size() == 0 && MDYDates.size() == 0) return YMDDates;
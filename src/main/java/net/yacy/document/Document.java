@@ -100,6 +100,9 @@ public class Document {
     private final Date lastModified; // creation or last modification date of the source document
     private int crawldepth;
     private JSONObject ld;
+    private String ldString; // the serialization of ld, computed once
+    private boolean textFromSubDocuments; // true if the text was collected from sub-documents
+    private Map<AnchorURL, LinkClassifier.Link> linkClassification; // the classification of the anchors, if they had been classified by a scraper
 
     public Document(final MultiProtocolURL location,
                     final String mimeType,
@@ -157,12 +160,34 @@ public class Document {
         this.crawldepth = 999; // unknown yet
         this.scraperObject = null; // will be set by setScraperObject()
         this.ld = new JSONObject(true);
+        this.ldString = null;
+        this.linkClassification = null;
+        this.textFromSubDocuments = false;
     }
 
     public JSONObject ld() {
         return this.ld;
     }
 
+    /**
+     * set the linked data of the document
+     * @param ld a tree of linked data nodes
+     */
+    public void setLd(final JSONObject ld) {
+        this.ld = ld;
+        this.ldString = null;
+    }
+
+    /**
+     * the serialization of the linked data; it is computed only once, so the linked data must not be
+     * changed after this was called
+     * @return the linked data as compact json string
+     */
+    public String ldString() {
+        if (this.ldString == null) this.ldString = this.ld.toString(0);
+        return this.ldString;
+    }
+
     /**
      * Get the content domain of a document. This tries to get the content domain from the mime type
      * and if this fails it uses alternatively the content domain from the file extension.
@@ -312,8 +337,9 @@ dc_rights
      */
     public static Map<String, Set<String>> computeGenericFacets(Map<String, Set<Tagging.Metatag>> tags) {
         Map<String, Set<String>> gf = new HashMap<String, Set<String>>();
+        LibraryProvider.Libraries libraries = LibraryProvider.libraries();
         for (Map.Entry<String, Set<Tagging.Metatag>> e: tags.entrySet()) {
-            Tagging vocabulary = LibraryProvider.autotagging.getVocabulary(e.getKey());
+            Tagging vocabulary = libraries.autotagging.getVocabulary(e.getKey());
             if (vocabulary == null) continue;
             Set<String> objects = new HashSet<String>();
             for (Tagging.Metatag s: e.getValue()) {
@@ -400,70 +426,66 @@ dc_rights
         return this.sections.toArray(new String[this.sections.size()]);
     }
 
-    public InputStream getTextStream() {
+    /**
+     * get the text of the document. Text which was given as String, bytes, stream or buffer is converted into
+     * a compact UTF-8 representation at the first access and kept in that form.
+     * @return the text
+     */
+    public synchronized TextContent getText() {
+        if (this.text instanceof TextContent) return (TextContent) this.text;
+        TextContent t;
         try {
-            if (this.text == null) return new ByteArrayInputStream(UTF8.getBytes(""));
-            if (this.text instanceof String) {
-                //return new StreamReader((String) this.text);
-                return new ByteArrayInputStream(UTF8.getBytes(((String) this.text)));
-            } else if (this.text instanceof InputStream) {
-                return (InputStream) this.text;
-            } else if (this.text instanceof File) {
-                return new BufferedInputStream(new FileInputStream((File)this.text));
+            if (this.text == null) {
+                t = new TextContent();
+            } else if (this.text instanceof String) {
+                t = TextContent.of((String) this.text);
             } else if (this.text instanceof byte[]) {
-                return new ByteArrayInputStream((byte[]) this.text);
+                t = TextContent.wrap((byte[]) this.text);
             } else if (this.text instanceof ByteArrayOutputStream) {
-                return new ByteArrayInputStream(((ByteArrayOutputStream) this.text).toByteArray());
+                t = TextContent.wrap(((ByteArrayOutputStream) this.text).toByteArray());
+            } else if (this.text instanceof InputStream) {
+                t = new TextContent();
+                try (InputStream is = (InputStream) this.text) {
+                    t.append(is);
+                }
+            } else if (this.text instanceof File) {
+                final File f = (File) this.text;
+                t = TextContent.wrap(FileUtils.read(f));
+                FileUtils.deletedelete(f); // the temporary file is deleted in close() otherwise
+            } else {
+                assert false : this.text.getClass().toString();
+                t = new TextContent();
             }
-            assert false : this.text.getClass().toString();
-            return null;
         } catch (final Exception e) {
             Logger.warn(this.getClass(), e);
+            t = new TextContent();
         }
-        return new ByteArrayInputStream(UTF8.getBytes(""));
+        this.text = t;
+        return t;
     }
 
-    public String getTextString() {
+    public InputStream getTextStream() {
         try {
-            if (this.text == null) {
-                this.text = "";
-            } else if (this.text instanceof InputStream) {
-                this.text = UTF8.String(FileUtils.read((InputStream) this.text));
-            } else if (this.text instanceof File) {
-                this.text = UTF8.String(FileUtils.read((File) this.text));
-            } else if (this.text instanceof byte[]) {
-                this.text = UTF8.String((byte[]) this.text);
-            } else if (this.text instanceof ByteArrayOutputStream) {
-                this.text = UTF8.String(((ByteArrayOutputStream) this.text).toByteArray());
+            synchronized (this) {
+                if (this.text instanceof File) return new BufferedInputStream(new FileInputStream((File) this.text));
             }
-            assert this.text instanceof String : this.text.getClass().toString();
-            return (String) this.text;
+            return getText().getInputStream();
         } catch (final Exception e) {
             Logger.warn(this.getClass(), e);
         }
-        return "";
+        return new ByteArrayInputStream(UTF8.getBytes(""));
+    }
+
+    public String getTextString() {
+        return getText().toString();
     }
 
     public long getTextLength() {
-        try {
+        synchronized (this) {
             if (this.text == null) return -1;
-            if (this.text instanceof String) {
-                return ((String) this.text).length();
-            } else if (this.text instanceof InputStream) {
-                return ((InputStream) this.text).available();
-            } else if (this.text instanceof File) {
-                return ((File) this.text).length();
-            } else if (this.text instanceof byte[]) {
-                return ((byte[]) this.text).length;
-            } else if (this.text instanceof ByteArrayOutputStream) {
-                return ((ByteArrayOutputStream) this.text).size();
-            }
-            assert false : this.text.getClass().toString();
-            return -1;
-        } catch (final Exception e) {
-            Logger.warn(this.getClass(), e);
+            if (this.text instanceof File) return ((File) this.text).length();
         }
-        return -1;
+        return getText().length();
     }
 
     public List<StringBuilder> getSentences(final boolean pre) {
@@ -560,10 +582,9 @@ dc_rights
         synchronized (this) {
             if (this.resorted) return;
             // extract hyperlinks, medialinks and emaillinks from anchorlinks
-            String u;
-            int extpos, qpos;
-            String ext = null;
             final String thishost = this.source.getHost();
+            final String thisdomain = thishost != null && thishost.startsWith("www.") ? thishost.substring(4) : null;
+            final Map<String, Boolean> inboundHosts = new HashMap<String, Boolean>(); // the result of the host comparison for each host
             this.inboundlinks = new LinkedHashMap<MultiProtocolURL, String>();
             this.outboundlinks = new LinkedHashMap<MultiProtocolURL, String>();
             this.hyperlinks = new LinkedHashMap<AnchorURL, String>();
@@ -577,39 +598,38 @@ dc_rights
             }
             for (final AnchorURL url: this.anchors) {
                 if (url == null) continue;
-                u = url.toNormalform(true);
+                LinkClassifier.Link link = this.linkClassification == null ? null : this.linkClassification.get(url);
+                if (link == null) link = LinkClassifier.classify(url); // the anchor was not found by a scraper
                 final String name = url.getNameProperty();
                 // check mailto scheme first (not suppose to get into in/outboundlinks or hyperlinks -> crawler can't process)
-                if (url.getProtocol().equals("mailto")) {
+                if (link.mailto) {
                     this.emaillinks.add(url);
                     continue;
                 }
 
-                final boolean noindex = url.getRelProperty().toLowerCase().indexOf("noindex",0) >= 0;
-                final boolean nofollow = url.getRelProperty().toLowerCase().indexOf("nofollow",0) >= 0;
-                if ((thishost == null && url.getHost() == null) ||
-                    ((thishost != null && url.getHost() != null) &&
-                     (url.getHost().endsWith(thishost) ||
-                      (thishost.startsWith("www.") && url.getHost().endsWith(thishost.substring(4)))))) {
-                    this.inboundlinks.put(url, "anchor" + (noindex ? " noindex" : "") + (nofollow ? " nofollow" : ""));
+                final boolean inbound;
+                if (link.host == null || thishost == null) {
+                    inbound = link.host == null && thishost == null;
                 } else {
-                    this.outboundlinks.put(url, "anchor" + (noindex ? " noindex" : "") + (nofollow ? " nofollow" : ""));
-                }
-                extpos = u.lastIndexOf('.');
-                if (extpos > 0) {
-                    if (((qpos = u.indexOf('?')) >= 0) && (qpos > extpos)) {
-                        ext = u.substring(extpos + 1, qpos).toLowerCase();
-                    } else {
-                        ext = u.substring(extpos + 1).toLowerCase();
-                    }
-                    if (Classification.isMediaExtension(ext)) {
-                        // this is not a normal anchor, its a media link
-                        if (Classification.isImageExtension(ext)) { // TODO: guess on a-tag href extension (may not be correct)
-                            collectedImages.put(url, new ImageEntry(url, name, -1, -1, -1));
-                        } else if (Classification.isAudioExtension(ext)) this.audiolinks.put(url, name);
-                          else if (Classification.isVideoExtension(ext)) this.videolinks.put(url, name);
-                          else if (Classification.isApplicationExtension(ext)) this.applinks.put(url, name);
+                    Boolean i = inboundHosts.get(link.host);
+                    if (i == null) {
+                        i = link.host.endsWith(thishost) || (thisdomain != null && link.host.endsWith(thisdomain));
+                        inboundHosts.put(link.host, i);
                     }
+                    inbound = i.booleanValue();
+                }
+                if (inbound) {
+                    this.inboundlinks.put(url, link.description());
+                } else {
+                    this.outboundlinks.put(url, link.description());
+                }
+                // media links are not normal anchors
+                switch (link.type) {
+                    case LinkClassifier.TYPE_IMAGE: collectedImages.put(url, new ImageEntry(url, name, -1, -1, -1)); break; // TODO: guess on a-tag href extension (may not be correct)
+                    case LinkClassifier.TYPE_AUDIO: this.audiolinks.put(url, name); break;
+                    case LinkClassifier.TYPE_VIDEO: this.videolinks.put(url, name); break;
+                    case LinkClassifier.TYPE_APP: this.applinks.put(url, name); break;
+                    default: break;
                 }
                 // in any case we consider this as a link and let the parser decide if that link can be followed
                 this.hyperlinks.put(url, name);
@@ -699,62 +719,65 @@ dc_rights
      * @param links links is either a Set of AnchorURL, Strings (with urls) or htmlFilterImageEntries
      * @return map with contained urls as key and "ref" as value
      */
-    private static Map<AnchorURL, String> allReflinks(final Collection<?> links) {
+    private Map<AnchorURL, String> allReflinks(final Collection<?> links) {
         final Map<AnchorURL, String> v = new HashMap<AnchorURL, String>();
         final Iterator<?> i = links.iterator();
         Object o;
-        AnchorURL url = null;
+        MultiProtocolURL url = null;
         String u;
         int pos;
         loop: while (i.hasNext())
             try {
                 url = null;
+                u = null;
                 o = i.next();
-                if (o instanceof AnchorURL)
+                if (o instanceof AnchorURL) {
                     url = (AnchorURL) o;
-                else if (o instanceof String)
+                    final LinkClassifier.Link link = this.linkClassification == null ? null : this.linkClassification.get(o);
+                    if (link != null) u = link.normalform;
+                } else if (o instanceof String)
                     url = new AnchorURL((String) o);
                 else if (o instanceof ImageEntry)
-                    url = new AnchorURL(((ImageEntry) o).url());
+                    url = ((ImageEntry) o).url();
                 else if (o instanceof IconEntry)
-                    url = new AnchorURL(((IconEntry) o).getUrl());
+                    url = ((IconEntry) o).getUrl();
                 else {
                     assert false;
                     continue loop;
                 }
-                u = url.toNormalform(true);
+                if (u == null) u = url.toNormalform(true);
 
                 // find start of a referenced http url
-                if ((pos = u.toLowerCase().indexOf("http://", 7)) > 0) { // 7 = skip the protocol part of the source url
+                if ((pos = LinkClassifier.indexOfIgnoreCase(u, "http://", 7)) > 0) { // 7 = skip the protocol part of the source url
                     i.remove();
                     u = u.substring(pos);
-                    while ((pos = u.toLowerCase().indexOf("http://", 7)) > 0)
+                    while ((pos = LinkClassifier.indexOfIgnoreCase(u, "http://", 7)) > 0)
                         u = u.substring(pos);
-                    url = new AnchorURL(u);
-                    if (!(v.containsKey(url)))
-                        v.put(url, "ref");
+                    final AnchorURL addurl = new AnchorURL(u);
+                    if (!(v.containsKey(addurl)))
+                        v.put(addurl, "ref");
                     continue loop;
                 }
 
                 // find start of a referenced https url
-                if ((pos = u.toLowerCase().indexOf("https://", 7)) > 0) { // 7 = skip the protocol part of the source url
+                if ((pos = LinkClassifier.indexOfIgnoreCase(u, "https://", 7)) > 0) { // 7 = skip the protocol part of the source url
                     i.remove();
                     u = u.substring(pos);
-                    while ((pos = u.toLowerCase().indexOf("https://", 7)) > 0)
+                    while ((pos = LinkClassifier.indexOfIgnoreCase(u, "https://", 7)) > 0)
                         u = u.substring(pos);
-                    url = new AnchorURL(u);
-                    if (!(v.containsKey(url)))
-                        v.put(url, "ref");
+                    final AnchorURL addurl = new AnchorURL(u);
+                    if (!(v.containsKey(addurl)))
+                        v.put(addurl, "ref");
                     continue loop;
                 }
 
-                if ((pos = u.toLowerCase().indexOf("/www.", 11)) > 0) { // 11 = skip protocol part + www of source url "http://www."
+                if ((pos = LinkClassifier.indexOfIgnoreCase(u, "/www.", 11)) > 0) { // 11 = skip protocol part + www of source url "http://www."
                     i.remove();
                     u = url.getProtocol()+":/" + u.substring(pos);
-                    while ((pos = u.toLowerCase().indexOf("/www.", 11)) > 0)
+                    while ((pos = LinkClassifier.indexOfIgnoreCase(u, "/www.", 11)) > 0)
                         u = url.getProtocol()+":/" + u.substring(pos);
 
-                    AnchorURL addurl = new AnchorURL(u);
+                    final AnchorURL addurl = new AnchorURL(u);
                     if (!(v.containsKey(addurl)))
                         v.put(addurl, "ref");
                     continue loop;
@@ -784,10 +807,14 @@ dc_rights
             this.keywords.addAll(doc.dc_subject());
             for (String d: doc.dc_description()) this.descriptions.add(d);
 
-            if (!(this.text instanceof ByteArrayOutputStream)) {
-                this.text = new ByteArrayOutputStream();
+            if (!this.textFromSubDocuments) {
+                // the text of a container is replaced by the text of its sub-documents
+                this.text = new TextContent();
+                this.textFromSubDocuments = true;
+            }
+            try (InputStream is = doc.getTextStream()) {
+                getText().append(is);
             }
-            FileUtils.copy(doc.getTextStream(), (ByteArrayOutputStream) this.text);
 
             this.anchors.addAll(doc.getAnchors());
             this.rss.putAll(doc.getRSS());
@@ -815,6 +842,14 @@ dc_rights
     	}
 	}
 
+    /**
+     * Set the classification of the anchors which was computed when the anchors had been found
+     * @param linkClassification a map from anchor objects to their classification
+     */
+    public void setLinkClassification(final Map<AnchorURL, LinkClassifier.Link> linkClassification) {
+        this.linkClassification = linkClassification;
+    }
+
     public int inboundLinkNofollowCount() {
         if (this.inboundlinks == null) resortLinks();
         if (this.inboundlinks == null) return 0;
@@ -37,6 +37,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 
@@ -52,6 +54,13 @@ import net.yacy.grid.tools.Logger;
 import net.yacy.grid.tools.MultiProtocolURL;
 import net.yacy.kelondro.util.FileUtils;
 
+/**
+ * The dictionaries and vocabularies of the parser. The libraries are loaded by initialize, which is usually
+ * running in a background thread; until it is finished, the libraries are empty. The loaded libraries are
+ * published together in one {@link Libraries} object when all of them are complete, so a document which
+ * reads its libraries from one object never sees a half-loaded or a mixed set of libraries.
+ * Consumers which must not parse with empty libraries wait with awaitReady.
+ */
 public class LibraryProvider {
 
     public static final String path_to_source_dictionaries = "source";
@@ -62,12 +71,32 @@ public class LibraryProvider {
 
     public static final String disabledExtension = ".disabled";
 
-    public static WordCache dymLib = new WordCache(null);
-    public static AutotaggingLibrary autotagging = new AutotaggingLibrary(null); // initialize empty to prevent NPE during initialization
-    public static URLRewriterLibrary urlRewriter = null;
-    public static OverarchingLocation geoLoc = new OverarchingLocation();
-    private static File dictSource = null;
-    private static File dictRoot = null;
+    /**
+     * The libraries of the parser. A Libraries object and its libraries are not changed after it is published;
+     * a change of a library publishes a new Libraries object.
+     */
+    public static final class Libraries {
+        public final File root; // the parent path of the dictionaries, null if not initialized
+        public final WordCache dymLib;
+        public final AutotaggingLibrary autotagging;
+        public final URLRewriterLibrary urlRewriter;
+        public final OverarchingLocation geoLoc;
+        public final SynonymLibrary synonyms;
+
+        private Libraries(final File root, final WordCache dymLib, final AutotaggingLibrary autotagging,
+                final URLRewriterLibrary urlRewriter, final OverarchingLocation geoLoc, final SynonymLibrary synonyms) {
+            this.root = root;
+            this.dymLib = dymLib;
+            this.autotagging = autotagging;
+            this.urlRewriter = urlRewriter;
+            this.geoLoc = geoLoc;
+            this.synonyms = synonyms;
+        }
+    }
+
+    // initialize empty to prevent NPE during initialization
+    private static volatile Libraries libraries = new Libraries(null, new WordCache(null), new AutotaggingLibrary(null), null, new OverarchingLocation(), new SynonymLibrary(null));
+    private static final CountDownLatch ready = new CountDownLatch(1); // released when initialize is finished
 
     public static enum Dictionary {
         GEODB0( "geo0", "http://downloads.sourceforge.net/project/opengeodb/Data/0.2.5a/opengeodb-0.2.5a-UTF8-sql.gz" ),
@@ -91,11 +120,15 @@ public class LibraryProvider {
         }
 
         public File file() {
-            return new File(dictSource, this.filename);
+            return file(libraries.root);
         }
 
         public File fileDisabled() {
-            return new File(dictSource, this.filename + disabledExtension);
+            return new File(source(libraries.root), this.filename + disabledExtension);
+        }
+
+        private File file(final File rootPath) {
+            return new File(source(rootPath), this.filename);
         }
     }
 
@@ -107,108 +140,167 @@ public class LibraryProvider {
      * @param rootPath parent path of dictionaries
      */
     public static void initialize(final File rootPath) {
-        dictSource = new File(rootPath, path_to_source_dictionaries);
-        if ( !dictSource.exists() ) {
-            dictSource.mkdirs();
+        try {
+            final File dictSource = source(rootPath);
+            if ( !dictSource.exists() ) {
+                dictSource.mkdirs();
+            }
+
+            // load libraries into new objects; they are published when all of them are complete
+            final long start = System.currentTimeMillis();
+            final AutotaggingLibrary a = new AutotaggingLibrary(path(rootPath, path_to_autotagging_dictionaries));
+            activateDeReWo(rootPath);
+            final WordCache d = new WordCache(path(rootPath, path_to_did_you_mean_dictionaries));
+            final SynonymLibrary s = new SynonymLibrary(path(rootPath, path_to_synonym_dictionaries));
+            final URLRewriterLibrary u = new URLRewriterLibrary(path(rootPath, path_to_rewriter_dictionaries));
+            final OverarchingLocation g = new OverarchingLocation();
+            integrateOpenGeoDB(rootPath, g, d);
+            integrateGeonames(rootPath, g, d, Dictionary.GEON0, -1);
+            integrateGeonames(rootPath, g, d, Dictionary.GEON1, -1);
+            integrateGeonames(rootPath, g, d, Dictionary.GEON2, -1);
+            learnTags(d, a);
+            a.addPlaces(g);
+            //a.addDictionaries(d.getDictionaries()); // strange results with this: normal word lists are 'too full'
+
+            synchronized (LibraryProvider.class) {
+                libraries = new Libraries(rootPath, d, a, u, g, s);
+            }
+            Logger.info("LibraryProvider: libraries loaded in " + (System.currentTimeMillis() - start) + " ms");
+        } finally {
+            ready.countDown();
         }
-        dictRoot = rootPath;
-
-        // initialize libraries
-        initAutotagging();
-        activateDeReWo();
-        initDidYouMean();
-        initSynonyms();
-        initRewriter();
-        integrateOpenGeoDB();
-        integrateGeonames0(-1);
-        integrateGeonames1(-1);
-        integrateGeonames2(-1);
+    }
+
+    /**
+     * @return the libraries; all libraries which are used for one document should be taken from the same object
+     */
+    public static Libraries libraries() {
+        return libraries;
+    }
+
+    /**
+     * @return true if initialize is finished
+     */
+    public static boolean isReady() {
+        return ready.getCount() == 0;
+    }
+
+    /**
+     * wait until initialize is finished
+     * @param timeout the maximum time to wait in milliseconds
+     * @return true if the libraries are loaded, false if the time elapsed before
+     * @throws InterruptedException
+     */
+    public static boolean awaitReady(final long timeout) throws InterruptedException {
+        return ready.await(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    private static File source(final File rootPath) {
+        return new File(rootPath, path_to_source_dictionaries);
+    }
+
+    private static File path(final File rootPath, final String name) {
+        final File path = new File(rootPath, name);
+        if ( !path.exists() ) {
+            path.mkdirs();
+        }
+        return path;
+    }
+
+    private static void learnTags(final WordCache dym, final AutotaggingLibrary autotagging) {
         final Set<String> allTags = new HashSet<String>() ;
         allTags.addAll(autotagging.allTags()); // we must copy this into a clone to prevent circularity
-        autotagging.addPlaces(geoLoc);
-        //autotagging.addDictionaries(dymLib.getDictionaries()); // strange results with this: normal word lists are 'too full'
-        WordCache.learn(allTags);
+        dym.learn(allTags);
     }
 
-    public static void integrateOpenGeoDB() {
-        final File geo1 = Dictionary.GEODB1.file();
-        final File geo0 = Dictionary.GEODB0.file();
+    public static synchronized void integrateOpenGeoDB() {
+        final Libraries l = libraries;
+        final OverarchingLocation g = new OverarchingLocation(l.geoLoc);
+        integrateOpenGeoDB(l.root, g, l.dymLib);
+        libraries = new Libraries(l.root, l.dymLib, l.autotagging, l.urlRewriter, g, l.synonyms);
+    }
+
+    private static void integrateOpenGeoDB(final File rootPath, final OverarchingLocation locations, final WordCache dym) {
+        final File geo1 = Dictionary.GEODB1.file(rootPath);
+        final File geo0 = Dictionary.GEODB0.file(rootPath);
         if ( geo1.exists() ) {
             if ( geo0.exists() ) {
-                geo0.renameTo(Dictionary.GEODB0.fileDisabled());
+                geo0.renameTo(new File(source(rootPath), Dictionary.GEODB0.filename + disabledExtension));
             }
-            geoLoc.activateLocation(Dictionary.GEODB1.nickname, new OpenGeoDBLocation(geo1, dymLib));
+            locations.activateLocation(Dictionary.GEODB1.nickname, new OpenGeoDBLocation(geo1, dym));
             return;
         }
         if ( geo0.exists() ) {
-            geoLoc.activateLocation(Dictionary.GEODB0.nickname, new OpenGeoDBLocation(geo0, dymLib));
+            locations.activateLocation(Dictionary.GEODB0.nickname, new OpenGeoDBLocation(geo0, dym));
             return;
         }
     }
 
     public static void integrateGeonames0(final long minPopulation) {
-        final File geon = Dictionary.GEON0.file();
-        if ( geon.exists() ) {
-            geoLoc.activateLocation(Dictionary.GEON0.nickname, new GeonamesLocation(geon, dymLib, minPopulation));
-            return;
-        }
+        integrateGeonames(Dictionary.GEON0, minPopulation);
     }
 
     public static void integrateGeonames1(final long minPopulation) {
-        final File geon = Dictionary.GEON1.file();
-        if ( geon.exists() ) {
-            geoLoc.activateLocation(Dictionary.GEON1.nickname, new GeonamesLocation(geon, dymLib, minPopulation));
-            return;
-        }
+        integrateGeonames(Dictionary.GEON1, minPopulation);
     }
 
     public static void integrateGeonames2(final long minPopulation) {
-        final File geon = Dictionary.GEON2.file();
+        integrateGeonames(Dictionary.GEON2, minPopulation);
+    }
+
+    private static synchronized void integrateGeonames(final Dictionary dictionary, final long minPopulation) {
+        final Libraries l = libraries;
+        final OverarchingLocation g = new OverarchingLocation(l.geoLoc);
+        integrateGeonames(l.root, g, l.dymLib, dictionary, minPopulation);
+        libraries = new Libraries(l.root, l.dymLib, l.autotagging, l.urlRewriter, g, l.synonyms);
+    }
+
+    private static void integrateGeonames(final File rootPath, final OverarchingLocation locations, final WordCache dym, final Dictionary dictionary, final long minPopulation) {
+        final File geon = dictionary.file(rootPath);
         if ( geon.exists() ) {
-            geoLoc.activateLocation(Dictionary.GEON2.nickname, new GeonamesLocation(geon, dymLib, minPopulation));
-            return;
+            locations.activateLocation(dictionary.nickname, new GeonamesLocation(geon, dym, minPopulation));
         }
     }
 
-    public static void initDidYouMean() {
-        final File dymDict = new File(dictRoot, path_to_did_you_mean_dictionaries);
-        if ( !dymDict.exists() ) {
-            dymDict.mkdirs();
-        }
-        dymLib = new WordCache(dymDict);
+    public static synchronized void initDidYouMean() {
+        final Libraries l = libraries;
+        final WordCache d = new WordCache(path(l.root, path_to_did_you_mean_dictionaries));
+        learnTags(d, l.autotagging);
+        libraries = new Libraries(l.root, d, l.autotagging, l.urlRewriter, l.geoLoc, l.synonyms);
     }
 
-    public static void initAutotagging() {
-        final File autotaggingPath = new File(dictRoot, path_to_autotagging_dictionaries);
-        if ( !autotaggingPath.exists() ) {
-            autotaggingPath.mkdirs();
-        }
-        autotagging = new AutotaggingLibrary(autotaggingPath);
+    public static synchronized void initAutotagging() {
+        final Libraries l = libraries;
+        final AutotaggingLibrary a = new AutotaggingLibrary(path(l.root, path_to_autotagging_dictionaries));
+        libraries = new Libraries(l.root, l.dymLib, a, l.urlRewriter, l.geoLoc, l.synonyms);
     }
 
-    public static void initSynonyms() {
-        final File synonymPath = new File(dictRoot, path_to_synonym_dictionaries);
-        if ( !synonymPath.exists() ) {
-            synonymPath.mkdirs();
-        }
-        SynonymLibrary.init(synonymPath);
+    public static synchronized void initSynonyms() {
+        final Libraries l = libraries;
+        final SynonymLibrary s = new SynonymLibrary(path(l.root, path_to_synonym_dictionaries));
+        libraries = new Libraries(l.root, l.dymLib, l.autotagging, l.urlRewriter, l.geoLoc, s);
     }
 
-    public static void initRewriter() {
-        final File rewriterPath = new File(dictRoot, path_to_rewriter_dictionaries);
-        if ( !rewriterPath.exists() ) {
-            rewriterPath.mkdirs();
-        }
-        urlRewriter = new URLRewriterLibrary(rewriterPath);
+    public static synchronized void initRewriter() {
+        final Libraries l = libraries;
+        final URLRewriterLibrary u = new URLRewriterLibrary(path(l.root, path_to_rewriter_dictionaries));
+        libraries = new Libraries(l.root, l.dymLib, l.autotagging, u, l.geoLoc, l.synonyms);
     }
 
+    /**
+     * translate the DeReWo word list into a did-you-mean dictionary file; the file is read by the next initDidYouMean
+     */
     public static void activateDeReWo() {
+        activateDeReWo(libraries.root);
+    }
+
+    private static void activateDeReWo(final File rootPath) {
         // translate input files (once..)
-        final File dymDict = new File(dictRoot, path_to_did_you_mean_dictionaries);
+        final File dymDict = new File(rootPath, path_to_did_you_mean_dictionaries);
         if ( !dymDict.exists() ) {
             dymDict.mkdirs();
         }
-        final File derewoInput = LibraryProvider.Dictionary.DRW0.file();
+        final File derewoInput = LibraryProvider.Dictionary.DRW0.file(rootPath);
         final File derewoOutput = new File(dymDict, derewoInput.getName() + ".words");
         if ( !derewoOutput.exists() && derewoInput.exists() ) {
             // create the translation of the derewo file (which is easy in this case)
@@ -222,7 +314,7 @@ public class LibraryProvider {
     }
 
     public static void deactivateDeReWo() {
-        final File dymDict = new File(dictRoot, path_to_did_you_mean_dictionaries);
+        final File dymDict = new File(libraries.root, path_to_did_you_mean_dictionaries);
         final File derewoInput = LibraryProvider.Dictionary.DRW0.file();
         final File derewoOutput = new File(dymDict, derewoInput.getName() + ".words");
         FileUtils.deletedelete(derewoOutput);
@@ -313,12 +405,13 @@ public class LibraryProvider {
     public static void main(final String[] args) {
         final File here = new File("dummy").getParentFile();
         initialize(new File(here, "conf/libraries/"));
-        System.out.println("dymDict-size = " + dymLib.size());
-        final Set<StringBuilder> r = dymLib.recommend(new StringBuilder("da"));
+        final Libraries l = libraries();
+        System.out.println("dymDict-size = " + l.dymLib.size());
+        final Set<StringBuilder> r = l.dymLib.recommend(new StringBuilder("da"));
         for (final StringBuilder s: r) System.out.println("$ " + s);
         System.out.println("recommendations: " + r.size());
 
-        final TreeSet<GeoLocation> locations = geoLoc.find("Frankfurt am Main", true);
+        final TreeSet<GeoLocation> locations = l.geoLoc.find("Frankfurt am Main", true);
         for (final GeoLocation g: locations) System.out.println(g.toString());
     }
 }
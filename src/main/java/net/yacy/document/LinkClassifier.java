@@ -0,0 +1,200 @@
+/**
+ *  LinkClassifier
+ *  Copyright 2026 by the YaCy Grid contributors
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document;
+
+import net.yacy.grid.tools.AnchorURL;
+import net.yacy.grid.tools.Classification;
+
+/**
+ * Classification of links for the link collections of a document. A link is classified once, when it is
+ * found by the scraper: its normal form is computed, the rel property is checked for noindex and nofollow
+ * and the extension of the path is mapped to a media type. The media types of extensions are kept in a hash
+ * table which is looked up with the chars of the url, without extracting the extension as a string.
+ */
+public class LinkClassifier {
+
+    public static final byte TYPE_NONE = 0, TYPE_IMAGE = 1, TYPE_AUDIO = 2, TYPE_VIDEO = 3, TYPE_APP = 4, TYPE_MEDIA = 5;
+
+    private static final int MAX_EXTENSION = 16; // longer extensions are not stored in the table
+    private static final int MAX_ENTRIES = 4096; // the table stops growing when this number of extensions is stored
+
+    /**
+     * the classification of one link
+     */
+    public static final class Link {
+        public final String normalform;
+        public final String host; // the host or null
+        public final boolean mailto, noindex, nofollow;
+        public final byte type; // the media type of the extension, one of the TYPE_ constants
+
+        private Link(final AnchorURL url) {
+            this.normalform = url.toNormalform(true);
+            this.host = url.getHost();
+            this.mailto = "mailto".equals(url.getProtocol());
+            final String rel = url.getRelProperty();
+            this.noindex = rel != null && indexOfIgnoreCase(rel, "noindex", 0) >= 0;
+            this.nofollow = rel != null && indexOfIgnoreCase(rel, "nofollow", 0) >= 0;
+            this.type = extensionType(this.normalform);
+        }
+
+        /**
+         * @return the link description in the inbound/outbound link maps
+         */
+        public String description() {
+            return this.noindex ? (this.nofollow ? "anchor noindex nofollow" : "anchor noindex") : (this.nofollow ? "anchor nofollow" : "anchor");
+        }
+    }
+
+    /**
+     * classify a link
+     * @param url the link
+     * @return the classification
+     */
+    public static Link classify(final AnchorURL url) {
+        return new Link(url);
+    }
+
+    /**
+     * find a string within another string, ignoring the case of ASCII letters
+     * @param s the string which is searched
+     * @param lowercase the lower-case string which is searched for
+     * @param from the first position in s
+     * @return the position of the lowercase string in s or -1
+     */
+    public static int indexOfIgnoreCase(final String s, final String lowercase, final int from) {
+        final int last = s.length() - lowercase.length();
+        search: for (int i = Math.max(0, from); i <= last; i++) {
+            for (int j = 0; j < lowercase.length(); j++) {
+                char c = s.charAt(i + j);
+                if (c >= 'A' && c <= 'Z') c += 32;
+                if (c != lowercase.charAt(j)) continue search;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * get the media type of the extension of a url, the chars after the last dot of the last path element;
+     * dots in the host name and in the query are not considered
+     * @param u the normal form of a url
+     * @return the type, one of the TYPE_ constants
+     */
+    public static byte extensionType(final String u) {
+        final int qpos = u.indexOf('?');
+        final int end = qpos >= 0 ? qpos : u.length();
+        final int extpos = end == 0 ? -1 : u.lastIndexOf('.', end - 1);
+        if (extpos <= 0 || extpos < u.lastIndexOf('/', end - 1)) return TYPE_NONE;
+        final int start = extpos + 1;
+        // only plain extensions are stored in the table, so the table is not filled with parts of urls
+        if (end - start > MAX_EXTENSION || !isExtension(u, start, end)) return classifyExtension(u.substring(start, end).toLowerCase());
+
+        final Entry[] t = table;
+        final int hash = hash(u, start, end);
+        for (int i = hash & (t.length - 1);; i = (i + 1) & (t.length - 1)) {
+            final Entry e = t[i];
+            if (e == null) break;
+            if (e.hash == hash && e.matches(u, start, end)) return e.type;
+        }
+        final String ext = u.substring(start, end).toLowerCase();
+        final byte type = classifyExtension(ext);
+        put(ext, hash, type);
+        return type;
+    }
+
+    private static boolean isExtension(final String u, final int start, final int end) {
+        if (start >= end) return false;
+        for (int i = start; i < end; i++) {
+            final char c = u.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9'))) return false;
+        }
+        return true;
+    }
+
+    private static byte classifyExtension(final String ext) {
+        if (!Classification.isMediaExtension(ext)) return TYPE_NONE;
+        if (Classification.isImageExtension(ext)) return TYPE_IMAGE;
+        if (Classification.isAudioExtension(ext)) return TYPE_AUDIO;
+        if (Classification.isVideoExtension(ext)) return TYPE_VIDEO;
+        if (Classification.isApplicationExtension(ext)) return TYPE_APP;
+        return TYPE_MEDIA;
+    }
+
+    private static final class Entry {
+        private final char[] ext; // lower case
+        private final int hash;
+        private final byte type;
+        private Entry(final String ext, final int hash, final byte type) {
+            this.ext = ext.toCharArray();
+            this.hash = hash;
+            this.type = type;
+        }
+        private boolean matches(final String u, final int start, final int end) {
+            if (end - start != this.ext.length) return false;
+            for (int i = 0; i < this.ext.length; i++) {
+                if (Character.toLowerCase(u.charAt(start + i)) != this.ext[i]) return false;
+            }
+            return true;
+        }
+    }
+
+    // entries are inserted in place, so readers may miss an entry which is inserted concurrently and insert it again;
+    // the entries have only final fields and can be read without synchronization. The table is replaced with a larger
+    // copy when it is half full.
+    private static volatile Entry[] table = new Entry[256];
+    private static int entries = 0; // guarded by LinkClassifier.class
+
+    /**
+     * @return the number of extensions in the table
+     */
+    static synchronized int size() {
+        return entries;
+    }
+
+    private static int hash(final String u, final int start, final int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) h = 31 * h + Character.toLowerCase(u.charAt(i));
+        return h ^ (h >>> 16);
+    }
+
+    private static synchronized void put(final String ext, final int hash, final byte type) {
+        if (entries >= MAX_ENTRIES) return;
+        Entry[] t = table;
+        for (int i = hash & (t.length - 1); t[i] != null; i = (i + 1) & (t.length - 1)) {
+            if (t[i].hash == hash && t[i].matches(ext, 0, ext.length())) return; // inserted concurrently
+        }
+        if ((entries + 1) * 2 > t.length) {
+            final Entry[] larger = new Entry[t.length * 2];
+            for (final Entry e: t) if (e != null) insert(larger, e);
+            insert(larger, new Entry(ext, hash, type));
+            table = larger;
+        } else {
+            insert(t, new Entry(ext, hash, type));
+        }
+        entries++;
+    }
+
+    private static void insert(final Entry[] t, final Entry e) {
+        int i = e.hash & (t.length - 1);
+        while (t[i] != null) i = (i + 1) & (t.length - 1);
+        t[i] = e;
+    }
+
+}
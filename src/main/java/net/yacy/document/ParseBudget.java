@@ -0,0 +1,252 @@
+/**
+ *  ParseBudget
+ *  Copyright 2026 by the YaCy Grid contributors
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.yacy.grid.tools.Logger;
+import net.yacy.grid.tools.MultiProtocolURL;
+import net.yacy.kelondro.util.NamePrefixThreadFactory;
+
+/**
+ * The budget of parsing one document: a maximum wall-clock time and a maximum number of bytes which
+ * may be allocated by the parser. A document is parsed in the calling thread; one shared watchdog thread
+ * checks the budgets of all running parsers and interrupts a parser which exceeds its budget, then the
+ * caller gets a Parser.Timeout. Parsers which do not react on the interrupt are stopped cooperatively:
+ * streams given to the parser and nested parse calls (i.e. for entries of archives) fail as soon as the
+ * budget is exceeded. Because no extra thread is started, a parser which ignores the cancellation blocks
+ * only its own calling thread, so the number of such parsers is bounded by the number of parser threads.
+ */
+public class ParseBudget {
+
+    private static final long POLL_INTERVAL = 100; // milliseconds between two checks of the allocated bytes
+
+    private static long timeLimit = 0;
+    private static long allocationLimit = 0;
+
+    private static final ThreadLocal<ParseBudget> current = new ThreadLocal<>();
+    private static final AtomicInteger abandoned = new AtomicInteger(0);
+    private static final com.sun.management.ThreadMXBean threadBean = allocationBean();
+    private static final ScheduledThreadPoolExecutor watchdog;
+    static {
+        final ThreadFactory factory = new NamePrefixThreadFactory("ParseBudget");
+        watchdog = new ScheduledThreadPoolExecutor(1, r -> {
+            final Thread t = factory.newThread(r);
+            t.setDaemon(true);
+            return t;
+        });
+        watchdog.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * set the budget for each document
+     * @param time maximum parse time in milliseconds, 0 for no limit
+     * @param allocation maximum number of bytes which may be allocated while parsing, 0 for no limit
+     */
+    public static void configure(final long time, final long allocation) {
+        timeLimit = Math.max(0, time);
+        allocationLimit = threadBean == null ? 0 : Math.max(0, allocation);
+        if (allocation > 0 && threadBean == null) Logger.warn("ParseBudget: the JVM cannot measure thread allocation, the allocation budget is switched off");
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (!(bean instanceof com.sun.management.ThreadMXBean)) return null;
+            final com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (!sunBean.isThreadAllocatedMemorySupported()) return null;
+            if (!sunBean.isThreadAllocatedMemoryEnabled()) sunBean.setThreadAllocatedMemoryEnabled(true);
+            return sunBean;
+        } catch (final Throwable e) {
+            return null;
+        }
+    }
+
+    /**
+     * a parse process which is run within a budget
+     */
+    public interface Task {
+        public Document[] parse() throws Parser.Failure, InterruptedException;
+    }
+
+    /**
+     * run a parse process within the budget. The process is run in the current thread; a process which is started
+     * within another budgeted process (i.e. parsing the entries of an archive) counts to the outer budget.
+     * @param location the url of the document
+     * @param task the parse process
+     * @return the parsed documents
+     * @throws Parser.Timeout if the budget is exceeded
+     * @throws Parser.Failure if the parser fails
+     * @throws InterruptedException
+     */
+    public static Document[] run(final MultiProtocolURL location, final Task task) throws Parser.Failure, InterruptedException {
+        final ParseBudget outer = current.get();
+        if (outer != null) {
+            outer.checkCancelled(location);
+            return task.parse();
+        }
+        if (timeLimit == 0 && allocationLimit == 0) return task.parse();
+
+        final ParseBudget budget = new ParseBudget(Thread.currentThread(), location);
+        final ScheduledFuture<?> watch = allocationLimit == 0 ?
+                watchdog.schedule(budget::watch, timeLimit, TimeUnit.MILLISECONDS) :
+                watchdog.scheduleWithFixedDelay(budget::watch, POLL_INTERVAL, POLL_INTERVAL, TimeUnit.MILLISECONDS);
+        current.set(budget);
+        try {
+            final Document[] docs = task.parse();
+            budget.checkCancelled(location); // the documents of a cancelled parser may be incomplete
+            return docs;
+        } catch (final InterruptedException e) {
+            budget.checkCancelled(location); // the interrupt came from the watchdog
+            throw e;
+        } catch (final Parser.Failure e) {
+            budget.checkCancelled(location);
+            throw e;
+        } catch (final RuntimeException e) {
+            budget.checkCancelled(location);
+            throw new Parser.Failure("parser failed: " + e, location, e);
+        } finally {
+            watch.cancel(false);
+            current.remove();
+            budget.finish();
+        }
+    }
+
+    /**
+     * check if the budget of the current parse process is exceeded
+     * @param location the url of the document which is parsed
+     * @throws Parser.Timeout if the budget of the current thread is exceeded
+     */
+    public static void check(final MultiProtocolURL location) throws Parser.Timeout {
+        final ParseBudget budget = current.get();
+        if (budget != null) budget.checkCancelled(location);
+    }
+
+    /**
+     * bind a task to the budget of the current thread, so a part of a document (i.e. an entry of an archive)
+     * which is parsed in another thread counts to the budget of the document. The task is stopped when the
+     * budget is exceeded; the bytes which are allocated by the other thread are not measured.
+     * @param task the task
+     * @return the same task if the current thread has no budget, otherwise a task which runs within the budget
+     */
+    public static Runnable inherit(final Runnable task) {
+        final ParseBudget budget = current.get();
+        if (budget == null) return task;
+        return () -> {
+            final ParseBudget previous = current.get();
+            current.set(budget);
+            try {
+                task.run();
+            } finally {
+                if (previous == null) current.remove(); else current.set(previous);
+            }
+        };
+    }
+
+    /**
+     * wrap a stream which is given to a parser, so reading fails as soon as the budget of the current thread is exceeded
+     * @param source the stream
+     * @return the same stream if the current thread has no budget, otherwise a stream which observes the budget
+     */
+    public static InputStream observe(final InputStream source) {
+        final ParseBudget budget = current.get();
+        if (budget == null) return source;
+        return new FilterInputStream(source) {
+            @Override
+            public int read() throws IOException {
+                budget.checkCancelled();
+                return super.read();
+            }
+            @Override
+            public int read(final byte[] b, final int off, final int len) throws IOException {
+                budget.checkCancelled();
+                return super.read(b, off, len);
+            }
+            @Override
+            public long skip(final long n) throws IOException {
+                budget.checkCancelled();
+                return super.skip(n);
+            }
+        };
+    }
+
+    private final Thread thread;
+    private final MultiProtocolURL location;
+    private final long start, allocationStart;
+    private boolean finished; // guarded by this
+    private volatile boolean cancelled;
+
+    private ParseBudget(final Thread thread, final MultiProtocolURL location) {
+        this.thread = thread;
+        this.location = location;
+        this.start = System.currentTimeMillis();
+        this.allocationStart = threadBean == null ? 0 : threadBean.getThreadAllocatedBytes(thread.getId());
+        this.finished = false;
+        this.cancelled = false;
+    }
+
+    /**
+     * check the budget; this is called by the watchdog
+     */
+    private void watch() {
+        if (timeLimit > 0 && System.currentTimeMillis() - this.start >= timeLimit) {
+            cancel("time budget of " + timeLimit + " ms exceeded");
+        } else if (allocationLimit > 0 && threadBean != null && threadBean.getThreadAllocatedBytes(this.thread.getId()) - this.allocationStart > allocationLimit) {
+            cancel("allocation budget of " + allocationLimit + " bytes exceeded");
+        }
+    }
+
+    /**
+     * cancel the parser: interrupt the parsing thread and let all observed streams and nested parse calls fail
+     */
+    private synchronized void cancel(final String reason) {
+        if (this.finished || this.cancelled) return;
+        this.cancelled = true;
+        final int a = abandoned.incrementAndGet();
+        this.thread.interrupt();
+        Logger.warn("ParseBudget: " + reason + " for " + this.location.toNormalform(true) + ", parser cancelled; " + a + " cancelled parsers still running");
+    }
+
+    private synchronized void finish() {
+        this.finished = true;
+        if (this.cancelled) {
+            abandoned.decrementAndGet();
+            Thread.interrupted(); // the interrupt of the watchdog must not reach the next task of the thread
+        }
+    }
+
+    private void checkCancelled(final MultiProtocolURL location) throws Parser.Timeout {
+        if (this.cancelled) throw new Parser.Timeout("parse budget exceeded", location);
+    }
+
+    private void checkCancelled() throws InterruptedIOException {
+        if (this.cancelled) throw new InterruptedIOException("parse budget exceeded");
+    }
+
+}
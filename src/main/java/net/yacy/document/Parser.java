@@ -111,6 +111,18 @@ public interface Parser {
             return this.url;
         }
     }
+
+    /**
+     * a parser failure because the parse budget (time or memory) was exceeded
+     */
+    public class Timeout extends Failure {
+
+        private static final long serialVersionUID = -4178452372939281573L;
+
+        public Timeout(final String message, final MultiProtocolURL url) {
+            super(message, url);
+        }
+    }
 }
 
 
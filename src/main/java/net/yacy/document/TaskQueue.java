@@ -0,0 +1,35 @@
+/**
+ *  TaskQueue
+ *  Copyright 2026 by the YaCy Grid contributors
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document;
+
+/**
+ * A queue which runs tasks concurrently, i.e. a job of the parser pool. Parsers use it to hand parts
+ * of one document (archive entries, page ranges) to other threads; a parser must be able to do a task
+ * itself if the queue does not accept it, so parsers never wait for a free thread.
+ */
+public interface TaskQueue {
+
+    /**
+     * @param task a task
+     * @return true if the task was accepted, false if the queue is full
+     */
+    public boolean offer(Runnable task);
+
+}
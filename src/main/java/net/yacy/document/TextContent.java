@@ -0,0 +1,240 @@
+/**
+ *  TextContent
+ *  Copyright 2026 by the YaCy Grid contributors
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+import org.json.JSONString;
+
+/**
+ * The text of a document, stored as UTF-8 bytes. The text can be streamed, counted and written as json string
+ * without a conversion into a String; the number of chars and words is computed once.
+ * When this is put into a JSONObject, it is serialized directly from the bytes.
+ */
+public class TextContent implements JSONString {
+
+    private byte[] buf;
+    private int size;
+    private int length;    // number of chars, -1 if not yet computed
+    private int wordCount; // number of words, -1 if not yet computed
+
+    public TextContent() {
+        this(new byte[256], 0);
+    }
+
+    private TextContent(final byte[] buf, final int size) {
+        this.buf = buf;
+        this.size = size;
+        this.length = -1;
+        this.wordCount = -1;
+    }
+
+    /**
+     * @param s a text
+     * @return the text as UTF-8 text content
+     */
+    public static TextContent of(final String s) {
+        final byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        final TextContent t = new TextContent(b, b.length);
+        t.length = s.length();
+        return t;
+    }
+
+    /**
+     * use a UTF-8 byte array as text content; the array is not copied and must not be changed afterwards
+     * @param b UTF-8 bytes
+     * @return the text content
+     */
+    public static TextContent wrap(final byte[] b) {
+        return new TextContent(b, b.length);
+    }
+
+    /**
+     * append UTF-8 bytes to the text
+     */
+    public synchronized void append(final byte[] b, final int off, final int len) {
+        ensureCapacity(this.size + len);
+        System.arraycopy(b, off, this.buf, this.size, len);
+        this.size += len;
+        this.length = -1;
+        this.wordCount = -1;
+    }
+
+    /**
+     * append the UTF-8 content of a stream to the text
+     * @param is the stream; it is read to the end but not closed
+     * @throws IOException
+     */
+    public synchronized void append(final InputStream is) throws IOException {
+        int n;
+        while (true) {
+            ensureCapacity(this.size + 4096);
+            n = is.read(this.buf, this.size, this.buf.length - this.size);
+            if (n < 0) break;
+            this.size += n;
+        }
+        this.length = -1;
+        this.wordCount = -1;
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (capacity <= this.buf.length) return;
+        final byte[] b = new byte[Math.max(capacity, this.buf.length * 2)];
+        System.arraycopy(this.buf, 0, b, 0, this.size);
+        this.buf = b;
+    }
+
+    /**
+     * @return the number of UTF-8 bytes
+     */
+    public synchronized int size() {
+        return this.size;
+    }
+
+    /**
+     * @return the number of chars of the text, the same as the length of the text as String
+     */
+    public synchronized int length() {
+        if (this.length < 0) {
+            int l = 0;
+            for (int i = 0; i < this.size; i++) {
+                final int b = this.buf[i] & 0xff;
+                if ((b & 0xc0) != 0x80) l++; // count the first byte of each char
+                if (b >= 0xf0) l++; // chars outside of the basic multilingual plane are surrogate pairs
+            }
+            this.length = l;
+        }
+        return this.length;
+    }
+
+    /**
+     * @return the number of words, counted as the number of spaces plus one; 0 for an empty text
+     */
+    public synchronized int wordCount() {
+        if (this.wordCount < 0) {
+            int c = this.size == 0 ? 0 : 1;
+            for (int i = 0; i < this.size; i++) if (this.buf[i] == ' ') c++;
+            this.wordCount = c;
+        }
+        return this.wordCount;
+    }
+
+    /**
+     * @return a stream of the UTF-8 bytes, the bytes are not copied
+     */
+    public synchronized InputStream getInputStream() {
+        return new ByteArrayInputStream(this.buf, 0, this.size);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return new String(this.buf, 0, this.size, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * write the text as quoted json string, with the same escaping as JSONObject.quote
+     * @param w the target
+     * @throws IOException
+     */
+    public synchronized void writeJSON(final Writer w) throws IOException {
+        final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        final ByteBuffer in = ByteBuffer.wrap(this.buf, 0, this.size);
+        final CharBuffer out = CharBuffer.allocate(4096);
+        char b = 0;
+        w.write('"');
+        boolean endOfInput = false;
+        while (true) {
+            if (!endOfInput) {
+                decoder.decode(in, out, true);
+                if (!in.hasRemaining()) endOfInput = true;
+            } else {
+                if (decoder.flush(out).isUnderflow() && out.position() == 0) break;
+            }
+            out.flip();
+            while (out.hasRemaining()) b = escape(out.get(), b, w);
+            out.clear();
+        }
+        w.write('"');
+    }
+
+    /**
+     * write a string as quoted json string, with the same escaping as JSONObject.quote
+     * @param s the string
+     * @param w the target
+     * @throws IOException
+     */
+    public static void quote(final CharSequence s, final Writer w) throws IOException {
+        w.write('"');
+        char b = 0;
+        for (int i = 0; i < s.length(); i++) b = escape(s.charAt(i), b, w);
+        w.write('"');
+    }
+
+    private static char escape(final char c, final char b, final Writer w) throws IOException {
+        switch (c) {
+        case '\\':
+        case '"':
+            w.write('\\');
+            w.write(c);
+            break;
+        case '/':
+            if (b == '<') w.write('\\');
+            w.write(c);
+            break;
+        case '\b': w.write("\\b"); break;
+        case '\t': w.write("\\t"); break;
+        case '\n': w.write("\\n"); break;
+        case '\f': w.write("\\f"); break;
+        case '\r': w.write("\\r"); break;
+        default:
+            if (c < ' ' || (c >= '\u0080' && c < '\u00a0') || (c >= '\u2000' && c < '\u2100')) {
+                final String hex = Integer.toHexString(c);
+                w.write("\\u0000", 0, 6 - hex.length());
+                w.write(hex);
+            } else {
+                w.write(c);
+            }
+        }
+        return c;
+    }
+
+    @Override
+    public String toJSONString() {
+        final StringWriter w = new StringWriter(this.size() + 16);
+        try {
+            writeJSON(w);
+        } catch (final IOException e) {
+            // a StringWriter does not throw
+        }
+        return w.toString();
+    }
+
+}
@@ -26,12 +26,16 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import net.yacy.cora.document.encoding.UTF8;
 import net.yacy.document.parser.apkParser;
@@ -77,8 +81,11 @@ public final class TextParser {
     private static final Map<String, String> ext2mime = new ConcurrentHashMap<String, String>();
     private static final Map<String, Object> denyMime = new ConcurrentHashMap<String, Object>();
     private static final Map<String, Object> denyExtensionx = new ConcurrentHashMap<String, Object>();
+    private static final Map<String, AtomicLong> sniffDisagreements = new ConcurrentHashMap<String, AtomicLong>();
 
     public final static Parser htmlParserReference = new htmlParser();
+    private final static byte[] PLAIN_HTML_PREFIX = UTF8.getBytes("<html><head></head><body><h1>");
+    private final static byte[] PLAIN_HTML_SUFFIX = UTF8.getBytes("</h1></body><html>");
 
     static {
         initParser(new apkParser());
@@ -194,10 +201,28 @@ public final class TextParser {
             final int depth,
             final byte[] content
         ) throws Parser.Failure {
-        mimeType = normalizeMimeType(mimeType);
+        return parseSource(location, mimeType, charset, scraper, timezoneOffset, depth, content, content.length);
+    }
+
+    /**
+     * parse the first contentLength bytes of the content array. The array is read in place,
+     * so it may be a larger (pooled) buffer which is re-used after parsing.
+     */
+    public static Document[] parseSource(
+            final MultiProtocolURL location,
+            String mimeType,
+            final String charset,
+            final VocabularyScraper scraper,
+            final int timezoneOffset,
+            final int depth,
+            final byte[] content,
+            final int contentLength
+        ) throws Parser.Failure {
+        final String givenMimeType = normalizeMimeType(mimeType);
+        mimeType = sniffMimeType(location, givenMimeType, content, contentLength);
         Set<Parser> idioms = null;
         try {
-            idioms = parsers(location, mimeType);
+            idioms = mimeType.equals(givenMimeType) ? parsers(location, mimeType) : sniffedParsers(location, mimeType);
         } catch (final Parser.Failure e) {
             final String errorMsg = "TextParser.parseSource Parser Failure for extension '" + MultiProtocolURL.getFileExtension(location.getFileName()) + "' or mimetype '" + mimeType + "': " + e.getMessage();
             Logger.warn(errorMsg);
@@ -205,9 +230,9 @@ public final class TextParser {
         }
         assert !idioms.isEmpty() : "no parsers applied for url " + location.toNormalform(true);
 
-        Document[] docs = parseSource(location, mimeType, idioms, charset, scraper, timezoneOffset, depth, content);
-
-        return docs;
+        final String mime = mimeType;
+        final Set<Parser> parsers = idioms;
+        return withinBudget(location, () -> parseSource(location, mime, parsers, charset, scraper, timezoneOffset, depth, content, contentLength));
     }
 
     public static Document[] parseSource(
@@ -235,7 +260,9 @@ public final class TextParser {
         // then we use only one stream-oriented parser.
         if (idioms.size() == 1 || contentLength > Integer.MAX_VALUE) {
             // use a specific stream-oriented parser
-            return parseSource(location, mimeType, idioms.iterator().next(), charset, scraper, timezoneOffset, sourceStream);
+            final String mime = mimeType;
+            final Parser parser = idioms.iterator().next();
+            return withinBudget(location, () -> parseSource(location, mime, parser, charset, scraper, timezoneOffset, ParseBudget.observe(sourceStream)));
         }
 
         // in case that we know more parsers we first transform the content into a byte[] and use that as base
@@ -246,11 +273,53 @@ public final class TextParser {
         } catch (final IOException e) {
             throw new Parser.Failure(e.getMessage(), location);
         }
-        Document[] docs = parseSource(location, mimeType, idioms, charset, scraper, timezoneOffset, depth, b);
+        Document[] docs = parseSource(location, mimeType, charset, scraper, timezoneOffset, depth, b, b.length);
 
         return docs;
     }
 
+    /**
+     * check the given mime type against the type which is detected from the content. If the content has a known type
+     * which does not fit to the mime type or the file extension, the mime type of the content is used, so the matching
+     * parser is applied instead of trying all parsers of the wrong mime type. Disagreements of the content with a known
+     * mime type are counted and logged.
+     * @param location the document url
+     * @param mimeType the normalized mime type given for the document
+     * @param content the document
+     * @param contentLength the number of valid bytes in content
+     * @return the mime type which is used for parsing
+     */
+    static String sniffMimeType(final MultiProtocolURL location, final String mimeType, final byte[] content, final int contentLength) {
+        final ContentSniffer.Type type = ContentSniffer.sniff(content, contentLength);
+        if (type == null || type.matches(mimeType) || denyMime.containsKey(type.mime)) return mimeType;
+        final String ext = MultiProtocolURL.getFileExtension(location.getFileName());
+        if (ext != null && type.matches(ext2mime.get(ext.toLowerCase()))) return mimeType;
+        if (mime2parser.containsKey(mimeType)) {
+            // the content was labeled with a different, known type
+            final String key = mimeType + " -> " + type.mime;
+            AtomicLong count = sniffDisagreements.get(key);
+            if (count == null) {
+                sniffDisagreements.putIfAbsent(key, new AtomicLong());
+                count = sniffDisagreements.get(key);
+            }
+            final long c = count.incrementAndGet();
+            if (c == 1 || c == 10 || c == 100 || c % 1000 == 0) Logger.info("TextParser.sniffMimeType content with mime type " + key + " found " + c + " times, last: " + location.toNormalform(true));
+        }
+        return type.mime;
+    }
+
+    /**
+     * run a parse process within the parse budget of a document
+     */
+    private static Document[] withinBudget(final MultiProtocolURL location, final ParseBudget.Task task) throws Parser.Failure {
+        try {
+            return ParseBudget.run(location, task);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Parser.Failure("interrupted", location, e);
+        }
+    }
+
     private static Document[] parseSource(
             final MultiProtocolURL location,
             final String mimeType,
@@ -268,6 +337,8 @@ public final class TextParser {
         try {
             final Document[] docs = parser.parse(location, mimeType, documentCharset, scraper, timezoneOffset, sourceStream);
             return docs;
+        } catch (final Parser.Timeout e) {
+            throw e;
         } catch (final Exception e) {
             throw new Parser.Failure("parser failed: " + parser.getName(), location);
         }
@@ -281,7 +352,8 @@ public final class TextParser {
             final VocabularyScraper scraper,
             final int timezoneOffset,
             final int depth,
-            final byte[] sourceArray
+            final byte[] sourceArray,
+            final int sourceLength
         ) throws Parser.Failure {
         final String fileExt = MultiProtocolURL.getFileExtension(location.getFileName());
         Logger.debug("TextParser.parseSource Parsing " + location + " with mimeType '" + mimeType + "' and file extension '" + fileExt + "' from byte[]");
@@ -293,15 +365,25 @@ public final class TextParser {
         String origName = Thread.currentThread().getName();
         Thread.currentThread().setName("parsing + " + location.toString()); // set a name to get the address in Thread Dump
         for (final Parser parser: parsers) {
-            	ByteArrayInputStream bis;
+            	InputStream bis;
+            	byte[] replay = sourceArray; // the html parser reads the array again instead of buffering the stream
             	if (mimeType.equals("text/plain") && parser == htmlParserReference) {
+            	    replay = null;
             	    // a hack to simulate html files .. is needed for NOLOAD queues. This throws their data into virtual text/plain messages.
-            	    bis = new ByteArrayInputStream(UTF8.getBytes("<html><head></head><body><h1>" + UTF8.String(sourceArray) + "</h1></body><html>"));
+            	    bis = new SequenceInputStream(Collections.enumeration(Arrays.asList(
+            	            new ByteArrayInputStream(PLAIN_HTML_PREFIX), new ByteArrayInputStream(sourceArray, 0, sourceLength), new ByteArrayInputStream(PLAIN_HTML_SUFFIX))));
             	} else {
-            	    bis = new ByteArrayInputStream(sourceArray);
+            	    bis = new ByteArrayInputStream(sourceArray, 0, sourceLength);
             	}
+            	bis = ParseBudget.observe(bis);
                 try {
-                    docs = parser.parse(location, mimeType, documentCharset, scraper, timezoneOffset, bis);
+                    ParseBudget.check(location); // do not try other parsers if the budget is exceeded
+                    docs = parser instanceof htmlParser ?
+                            ((htmlParser) parser).parse(location, mimeType, documentCharset, scraper, timezoneOffset, bis, replay, sourceLength) :
+                            parser.parse(location, mimeType, documentCharset, scraper, timezoneOffset, bis);
+                } catch (final Parser.Timeout e) {
+                    Thread.currentThread().setName(origName);
+                    throw e;
                 } catch (final Parser.Failure e) {
                     failedParser.put(parser, e);
                     //log.logWarning("tried parser '" + parser.getName() + "' to parse " + location.toNormalform(true, false) + " but failed: " + e.getMessage(), e);
@@ -407,6 +489,26 @@ public final class TextParser {
         return idioms;
     }
 
+    /**
+     * find the parser for content with a type which was detected from the content and which does not fit to the given
+     * mime type or the url: only the parsers of the detected type are used and, as for all documents, the generic
+     * parser as backup. The parsers of the given mime type or the url extension are not tried because the content
+     * is known to have another type.
+     * @param url the given url
+     * @param sniffedMimeType the mime type which was detected from the content
+     * @return the parsers for the detected type
+     * @throws Parser.Failure
+     */
+    private static Set<Parser> sniffedParsers(final MultiProtocolURL url, final String sniffedMimeType) throws Parser.Failure {
+        final String ext = MultiProtocolURL.getFileExtension(url.getFileName());
+        if (ext != null && denyExtensionx.containsKey(ext)) throw new Parser.Failure("file extension '" + ext + "' is denied (1)", url);
+        final Set<Parser> idiom = mime2parser.get(sniffedMimeType);
+        if (idiom == null) return parsers(url, sniffedMimeType);
+        final Set<Parser> idioms = new LinkedHashSet<Parser>(idiom);
+        idioms.add(genericIdiom);
+        return idioms;
+    }
+
     /**
      * checks if the parser supports the given mime type. It is not only checked if the parser can parse such types,
      * it is also checked if the mime type is not included in the mimetype-deny list.
@@ -20,8 +20,7 @@
 
 package net.yacy.document.parser;
 
-import java.io.File;
-import java.io.FileOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
@@ -38,6 +37,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import net.yacy.document.AbstractParser;
 import net.yacy.document.Document;
@@ -46,6 +47,7 @@ import net.yacy.document.VocabularyScraper;
 import net.yacy.grid.tools.AnchorURL;
 import net.yacy.grid.tools.Logger;
 import net.yacy.grid.tools.MultiProtocolURL;
+import net.yacy.kelondro.util.FileUtils;
 
 public class apkParser extends AbstractParser implements Parser  {
 
@@ -73,51 +75,61 @@ public class apkParser extends AbstractParser implements Parser  {
          * - author (name of signer)
          * - strings from resources
          */
-        Document[] docs = null;
+        // the package is read as stream, only the manifest and the resources are kept in memory
+        final List<String> paths = new ArrayList<>();
+        byte[] xml = null;
+        byte[] arsc = null;
         try {
-            File tempFile = File.createTempFile("apk" + System.currentTimeMillis(), "jar");
-            final FileOutputStream out = new FileOutputStream(tempFile);
-            int read = 0;
-            final byte[] data = new byte[1024];
-            while((read = source.read(data, 0, 1024)) != -1) {
-                out.write(data, 0, read);
+            final ZipInputStream zis = new ZipInputStream(source);
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                final String path = entry.getName();
+                paths.add(path);
+                if ("AndroidManifest.xml".equals(path)) xml = FileUtils.read(zis);
+                else if ("resources.arsc".equals(path)) arsc = FileUtils.read(zis);
             }
-            out.close();
-            JarFile jf = new JarFile(tempFile);
-            docs = parse(location, mimeType, charset, jf);
-            tempFile.delete();
         } catch (IOException e) {
             Logger.error("Catched Exception", e);
+            return null;
         }
-        return docs;
+        return parse(location, mimeType, charset, paths, xml, arsc);
     }
 
     public Document[] parse(final MultiProtocolURL location, final String mimeType, final String charset, final JarFile jf) {
+        final List<String> paths = new ArrayList<>();
+        Enumeration<JarEntry> je = jf.entries();
+        while (je.hasMoreElements()) paths.add(je.nextElement().toString());
+        byte[] xml = null;
+        byte[] arsc = null;
+        try {
+            final JarEntry xmlEntry = jf.getJarEntry("AndroidManifest.xml");
+            if (xmlEntry != null) xml = FileUtils.read(jf.getInputStream(xmlEntry));
+            final JarEntry arscEntry = jf.getJarEntry("resources.arsc");
+            if (arscEntry != null) arsc = FileUtils.read(jf.getInputStream(arscEntry));
+        } catch (IOException e) {
+            Logger.error("Catched Exception", e);
+        }
+        return parse(location, mimeType, charset, paths, xml, arsc);
+    }
+
+    private Document[] parse(final MultiProtocolURL location, final String mimeType, final String charset, final List<String> paths, final byte[] xml, final byte[] arsc) {
         StringBuilder sb = new StringBuilder();
         String title = location.getFileName();
         AndroidManifestParser manifest = null;
-        try {
-            InputStream is = jf.getInputStream(jf.getEntry("AndroidManifest.xml"));
-            byte[] xml = new byte[is.available()];
-            is.read(xml);
+        if (xml != null) {
             manifest = new AndroidManifestParser(xml, true);
             title = location.getFileName() + " " + manifest.packageName + " " + manifest.versionName;
             sb.append(title).append(". ");
             for (String p: manifest.permissions) sb.append(p).append(". ");
-        } catch (IOException e) {
-            Logger.error("Catched Exception", e);
         }
 
-        Enumeration<JarEntry> je = jf.entries();
-        while (je.hasMoreElements()) {
-            String path = je.nextElement().toString();
+        for (String path: paths) {
             sb.append(path).append(". ");
         }
 
         final Collection<AnchorURL> links = new ArrayList<>();
-        try {
-            InputStream is = jf.getInputStream(jf.getEntry("resources.arsc"));
-            List<String> resources = resourcesArscParser(is);
+        if (arsc != null) try {
+            List<String> resources = resourcesArscParser(new ByteArrayInputStream(arsc));
             for (String s: resources) {
                 sb.append(s).append(". ");
                 int p = s.indexOf("http://");
@@ -27,18 +27,16 @@
 
 package net.yacy.document.parser;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.util.Date;
 
 import net.yacy.grid.tools.MultiProtocolURL;
 import net.yacy.document.AbstractParser;
+import net.yacy.document.ArchiveEntries;
 import net.yacy.document.Document;
 import net.yacy.document.Parser;
 import net.yacy.document.TextParser;
 import net.yacy.document.VocabularyScraper;
-import net.yacy.kelondro.util.FileUtils;
 
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
 import org.apache.commons.compress.compressors.bzip2.BZip2Utils;
@@ -71,25 +69,10 @@ public class bzipParser extends AbstractParser implements Parser {
             final InputStream source)
             throws Parser.Failure, InterruptedException {
 
-        File tempFile = null;
         Document maindoc = null;
         try {
-            int read = 0;
-            final byte[] data = new byte[1024];
             // BZip2CompressorInputStream checks filecontent (magic start-bytes "BZh") and throws ioexception if no match
             final BZip2CompressorInputStream zippedContent = new BZip2CompressorInputStream(source);
-
-            tempFile = File.createTempFile("bunzip","tmp");
-
-            // creating a temp file to store the uncompressed data
-            final FileOutputStream out = new FileOutputStream(tempFile);
-
-            // reading bzip file and store it uncompressed
-            while((read = zippedContent.read(data, 0, 1024)) != -1) {
-                out.write(data, 0, read);
-            }
-            zippedContent.close();
-            out.close();
             final String filename = location.getFileName();
              // create maindoc for this bzip container, register with supplied url & mime
             maindoc = new Document(
@@ -114,15 +97,15 @@ public class bzipParser extends AbstractParser implements Parser {
             // creating a new parser class to parse the unzipped content
             final String contentfilename = BZip2Utils.getUncompressedFilename(location.getFileName());
             final String mime = TextParser.mimeOf(MultiProtocolURL.getFileExtension(contentfilename));
-            final Document[] docs = TextParser.parseSource(location, mime, null, scraper, timezoneOffset, 999, tempFile);
+            // the uncompressed content is parsed from memory, only large content is written to a temporary file
+            final Document[] docs = ArchiveEntries.parse(location, mime, scraper, timezoneOffset, zippedContent);
+            zippedContent.close();
             if (docs != null) maindoc.addSubDocuments(docs);
         } catch (final Exception e) {
             if (e instanceof InterruptedException) throw (InterruptedException) e;
             if (e instanceof Parser.Failure) throw (Parser.Failure) e;
 
             throw new Parser.Failure("Unexpected error while parsing bzip file. " + e.getMessage(),location);
-        } finally {
-            if (tempFile != null) FileUtils.deletedelete(tempFile);
         }
         return maindoc == null ? null : new Document[]{maindoc};
     }
@@ -27,19 +27,17 @@
 
 package net.yacy.document.parser;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.util.Date;
 import java.util.zip.GZIPInputStream;
 
 import net.yacy.grid.tools.MultiProtocolURL;
 import net.yacy.document.AbstractParser;
+import net.yacy.document.ArchiveEntries;
 import net.yacy.document.Document;
 import net.yacy.document.Parser;
 import net.yacy.document.TextParser;
 import net.yacy.document.VocabularyScraper;
-import net.yacy.kelondro.util.FileUtils;
 import org.apache.commons.compress.compressors.gzip.GzipUtils;
 
 /**
@@ -69,25 +67,9 @@ public class gzipParser extends AbstractParser implements Parser {
             final int timezoneOffset,
             final InputStream source) throws Parser.Failure, InterruptedException {
 
-        File tempFile = null;
         Document maindoc = null;
         try {
-            int read = 0;
-            final byte[] data = new byte[1024];
-
             final GZIPInputStream zippedContent = new GZIPInputStream(source);
-
-            tempFile = File.createTempFile("gunzip","tmp");
-
-            // creating a temp file to store the uncompressed data
-            final FileOutputStream out = new FileOutputStream(tempFile);
-
-            // reading gzip file and store it uncompressed
-            while ((read = zippedContent.read(data, 0, 1024)) != -1) {
-                out.write(data, 0, read);
-            }
-            zippedContent.close();
-            out.close();
             final String filename = location.getFileName();
             // create maindoc for this gzip container, register with supplied url & mime
             maindoc = new Document(
@@ -112,15 +94,15 @@ public class gzipParser extends AbstractParser implements Parser {
             // creating a new parser class to parse the unzipped content
             final String contentfilename = GzipUtils.getUncompressedFilename(location.getFileName());
             final String mime = TextParser.mimeOf(MultiProtocolURL.getFileExtension(contentfilename));
-            Document[] docs = TextParser.parseSource(location, mime, null, scraper, timezoneOffset, 999, tempFile);
+            // the uncompressed content is parsed from memory, only large content is written to a temporary file
+            final Document[] docs = ArchiveEntries.parse(location, mime, scraper, timezoneOffset, zippedContent);
+            zippedContent.close();
             if (docs != null) maindoc.addSubDocuments(docs);
         } catch (final Exception e) {
             if (e instanceof InterruptedException) throw (InterruptedException) e;
             if (e instanceof Parser.Failure) throw (Parser.Failure) e;
 
             throw new Parser.Failure("Unexpected error while parsing gzip file. " + e.getMessage(),location);
-        } finally {
-            if (tempFile != null) FileUtils.deletedelete(tempFile);
         }
         return maindoc == null ? null : new Document[]{maindoc};
     }
@@ -29,6 +29,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -37,6 +38,7 @@ import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 import net.yacy.cora.sorting.ClusteredScoreMap;
+import net.yacy.cora.util.AhoCorasick;
 import net.yacy.grid.tools.Logger;
 
 /**
@@ -56,7 +58,8 @@ import net.yacy.grid.tools.Logger;
  */
 public class Evaluation {
 
-    private static List<Model> models = new ArrayList<Model>(); // the list of all models that shall be applied
+    private static volatile List<Model> models = new ArrayList<Model>(); // the list of all models that shall be applied
+    private static volatile Plan plan = null; // the compiled models, null if the models must be compiled again
 
     public static enum Element {
         text,
@@ -145,40 +148,226 @@ public class Evaluation {
             return this.modelName;
         }
 
-        /**
-         * match elementContents for a specific elementName
-         * @param element - the name of the element as Element enum type
-         * @param content - the content of the element
-         * @return a list of subject names that match with the element
-         */
-        public ClusteredScoreMap<String> match(final Element element, final CharSequence content) {
-            final ClusteredScoreMap<String> subjects = new ClusteredScoreMap<String>(false);
-            final List<Attribute> patterns = this.elementMatcher.get(element);
-            if (patterns == null) return subjects;
-            for (final Attribute attribute: patterns) {
-                if (attribute.pattern.matcher(content).matches()) {
-                    subjects.inc(attribute.subject);
+        @Override
+        public String toString() {
+            return this.modelName + ":" + this.elementMatcher.toString();
+        }
+
+    }
+
+    /**
+     * All models compiled into one matching plan: for each element the patterns of all models are tested
+     * together. A literal which must be contained in the content is extracted from each pattern where this is
+     * possible; all literals of an element are searched in one pass over the content and only those patterns
+     * are tested where a literal was found or where no literal could be extracted.
+     */
+    private static class Plan {
+
+        private final String[] modelNames;
+        private final String[][] subjects; // for each model the names of the subjects
+        private final ElementPlan[] elements; // indexed by element ordinal, null if no model has patterns for that element
+        private final int maxPatterns;
+
+        private Plan(final List<Model> models) {
+            this.modelNames = new String[models.size()];
+            this.subjects = new String[models.size()][];
+            final List<List<Pattern>> patterns = new ArrayList<>();
+            final List<List<int[]>> targets = new ArrayList<>(); // model and subject index for each pattern
+            for (int e = 0; e < Element.values().length; e++) {patterns.add(new ArrayList<Pattern>()); targets.add(new ArrayList<int[]>());}
+            for (int m = 0; m < models.size(); m++) {
+                final Model model = models.get(m);
+                this.modelNames[m] = model.getName();
+                final List<String> subjectNames = new ArrayList<>();
+                for (final Map.Entry<Element, List<Attribute>> entry: model.elementMatcher.entrySet()) {
+                    for (final Attribute attribute: entry.getValue()) {
+                        int subject = subjectNames.indexOf(attribute.subject);
+                        if (subject < 0) {subject = subjectNames.size(); subjectNames.add(attribute.subject);}
+                        patterns.get(entry.getKey().ordinal()).add(attribute.pattern);
+                        targets.get(entry.getKey().ordinal()).add(new int[]{m, subject});
+                    }
                 }
+                this.subjects[m] = subjectNames.toArray(new String[subjectNames.size()]);
             }
-            return subjects;
+            this.elements = new ElementPlan[Element.values().length];
+            int max = 0;
+            for (int e = 0; e < this.elements.length; e++) {
+                if (patterns.get(e).isEmpty()) continue;
+                this.elements[e] = new ElementPlan(patterns.get(e), targets.get(e));
+                max = Math.max(max, patterns.get(e).size());
+            }
+            this.maxPatterns = max;
         }
+    }
 
-        @Override
-        public String toString() {
-            return this.modelName + ":" + this.elementMatcher.toString();
+    private static class ElementPlan {
+
+        private final Pattern[] patterns;
+        private final int[] model, subject;
+        private final int[] unfiltered; // patterns which are tested always
+        private final AhoCorasick literals;
+        private final int[][] literalPatterns; // for each literal the patterns which require that literal
+
+        private ElementPlan(final List<Pattern> patterns, final List<int[]> targets) {
+            this.patterns = patterns.toArray(new Pattern[patterns.size()]);
+            this.model = new int[this.patterns.length];
+            this.subject = new int[this.patterns.length];
+            final List<Integer> unfilteredList = new ArrayList<>();
+            final List<String> literalList = new ArrayList<>();
+            final List<List<Integer>> literalPatternList = new ArrayList<>();
+            for (int p = 0; p < this.patterns.length; p++) {
+                this.model[p] = targets.get(p)[0];
+                this.subject[p] = targets.get(p)[1];
+                final List<String> required = requiredLiterals(this.patterns[p]);
+                if (required == null) {
+                    unfilteredList.add(p);
+                    continue;
+                }
+                for (final String literal: required) {
+                    int l = literalList.indexOf(literal);
+                    if (l < 0) {l = literalList.size(); literalList.add(literal); literalPatternList.add(new ArrayList<Integer>());}
+                    if (!literalPatternList.get(l).contains(p)) literalPatternList.get(l).add(p);
+                }
+            }
+            this.unfiltered = toArray(unfilteredList);
+            this.literals = literalList.isEmpty() ? null : new AhoCorasick(literalList.toArray(new String[literalList.size()]), false);
+            this.literalPatterns = new int[literalPatternList.size()][];
+            for (int l = 0; l < this.literalPatterns.length; l++) this.literalPatterns[l] = toArray(literalPatternList.get(l));
         }
 
+        private static int[] toArray(final List<Integer> list) {
+            final int[] a = new int[list.size()];
+            for (int i = 0; i < a.length; i++) a[i] = list.get(i);
+            return a;
+        }
     }
 
-    private final Map<String, ClusteredScoreMap<String>> modelMap; // a map from model names to attribute scores
+    /**
+     * extract literals from a pattern where at least one must be contained in every text which matches the pattern
+     * @param pattern
+     * @return one literal for each top-level alternative of the pattern, or null if no such literals can be extracted
+     */
+    static List<String> requiredLiterals(final Pattern pattern) {
+        if ((pattern.flags() & (Pattern.CASE_INSENSITIVE | Pattern.COMMENTS | Pattern.LITERAL | Pattern.CANON_EQ)) != 0) return null;
+        final String regex = pattern.pattern();
+        final List<String> literals = new ArrayList<>();
+        final StringBuilder run = new StringBuilder();
+        String best = "";
+        int depth = 0;
+        boolean inClass = false;
+        for (int i = 0; i < regex.length(); i++) {
+            final char c = regex.charAt(i);
+            if (inClass) {
+                if (c == '[' || (c == '&' && i + 1 < regex.length() && regex.charAt(i + 1) == '&')) return null; // nested classes and intersections are not analysed
+                if (c == '\\') i++; else if (c == ']') inClass = false;
+                continue;
+            }
+            if (c == '\\') {
+                if (++i >= regex.length()) return null;
+                final char d = regex.charAt(i);
+                if (Character.isLetterOrDigit(d)) {
+                    // a character class, boundary or control character; escapes with arguments (i.e. \x41, \0101, \cX,
+                    // \k<name>, \p{L}, unicode escapes, back references) and quoted sequences are not analysed
+                    if (SIMPLE_ESCAPES.indexOf(d) < 0) return null;
+                    best = longer(best, run);
+                } else if (depth == 0) {
+                    run.append(d);
+                }
+                continue;
+            }
+            if (c == '[') {
+                best = longer(best, run);
+                inClass = true;
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == '^') i++;
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == ']') i++;
+                continue;
+            }
+            if (c == '(') {
+                best = longer(best, run);
+                if (i + 2 < regex.length() && regex.charAt(i + 1) == '?' && ":=!<>".indexOf(regex.charAt(i + 2)) < 0) {
+                    // inline flags, either (?flags) or (?flags:group)
+                    int j = i + 2;
+                    while (j < regex.length() && regex.charAt(j) != ')' && regex.charAt(j) != ':') {
+                        if ("smd-".indexOf(regex.charAt(j)) < 0) return null; // flags which change the meaning of literals
+                        j++;
+                    }
+                    if (j >= regex.length()) return null;
+                    if (regex.charAt(j) == ')') {i = j; continue;}
+                }
+                depth++;
+                continue;
+            }
+            if (c == ')') {
+                depth--;
+                continue;
+            }
+            if (depth > 0) continue;
+            if (c == '|') {
+                best = longer(best, run);
+                if (best.isEmpty()) return null;
+                literals.add(best);
+                best = "";
+                continue;
+            }
+            if (c == '*' || c == '?' || c == '{') {
+                // the previous char is optional
+                if (run.length() > 0) run.setLength(run.length() - 1);
+                best = longer(best, run);
+                if (c == '{') {
+                    final int close = regex.indexOf('}', i);
+                    if (close < 0) return null;
+                    i = close;
+                }
+                continue;
+            }
+            if (c == '+' || c == '.' || c == '^' || c == '$') {
+                best = longer(best, run);
+                continue;
+            }
+            run.append(c);
+        }
+        best = longer(best, run);
+        if (best.isEmpty()) return null;
+        literals.add(best);
+        return literals;
+    }
+
+    private static final String SIMPLE_ESCAPES = "dDsSwWbBAzZGhHvVRXtnrfae"; // escapes which stand for one char or a position
+
+    private static String longer(final String best, final StringBuilder run) {
+        final String s = run.length() > best.length() ? run.toString() : best;
+        run.setLength(0);
+        return s;
+    }
+
+    private static Plan plan() {
+        Plan p = plan;
+        if (p == null) {
+            synchronized (Evaluation.class) {
+                p = plan;
+                if (p == null) {
+                    p = new Plan(models);
+                    plan = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    private Plan modelPlan; // the plan which was used for the counters, assigned at the first match
+    private int[][] counts; // for each model the count of each subject
+    private boolean[] candidate; // patterns which must be tested in the current match
 
     public Evaluation() {
-        this.modelMap = new HashMap<String, ClusteredScoreMap<String>>();
+        this.modelPlan = null;
+        this.counts = null;
+        this.candidate = null;
     }
 
     @Override
     public String toString() {
-        return this.modelMap.toString();
+        final Map<String, ClusteredScoreMap<String>> modelMap = new HashMap<String, ClusteredScoreMap<String>>();
+        for (final String modelName: getModelNames()) modelMap.put(modelName, getScores(modelName));
+        return modelMap.toString();
     }
 
     /**
@@ -186,7 +375,9 @@ public class Evaluation {
      * @return a set of model names
      */
     public Set<String> getModelNames() {
-        return this.modelMap.keySet();
+        final Set<String> names = new HashSet<String>();
+        if (this.modelPlan != null) for (final String modelName: this.modelPlan.modelNames) names.add(modelName);
+        return names;
     }
 
     /**
@@ -196,7 +387,16 @@ public class Evaluation {
      * @return the calculated scores
      */
     public ClusteredScoreMap<String> getScores(final String modelName) {
-        return this.modelMap.get(modelName);
+        if (this.modelPlan == null) return null;
+        for (int m = 0; m < this.modelPlan.modelNames.length; m++) {
+            if (!this.modelPlan.modelNames[m].equals(modelName)) continue;
+            final ClusteredScoreMap<String> scores = new ClusteredScoreMap<String>(false);
+            for (int s = 0; s < this.counts[m].length; s++) {
+                if (this.counts[m][s] > 0) scores.set(this.modelPlan.subjects[m][s], this.counts[m][s]);
+            }
+            return scores;
+        }
+        return null;
     }
 
     /**
@@ -204,9 +404,12 @@ public class Evaluation {
      * @param f
      * @throws IOException
      */
-    public static void add(final File f) throws IOException {
+    public static synchronized void add(final File f) throws IOException {
         final Model pattern = new Model(f);
-        models.add(pattern);
+        final List<Model> extended = new ArrayList<Model>(models);
+        extended.add(pattern);
+        models = extended;
+        plan = null; // compiled again at the next match
     }
 
     /**
@@ -217,16 +420,29 @@ public class Evaluation {
      */
     public void match(final Element element, final CharSequence content) {
         if (models.isEmpty()) return; // fast return if this feature is not used
-        ClusteredScoreMap<String> newScores, oldScores;
-        for (final Model pattern: models) {
-            newScores = pattern.match(element, content);
-            oldScores = getScores(pattern.getName());
-            if (oldScores == null) {
-                oldScores = new ClusteredScoreMap<String>(false);
-                this.modelMap.put(pattern.getName(), oldScores);
-            }
-            oldScores.inc(newScores);
+        if (this.modelPlan == null) {
+            this.modelPlan = plan();
+            this.counts = new int[this.modelPlan.subjects.length][];
+            for (int m = 0; m < this.counts.length; m++) this.counts[m] = new int[this.modelPlan.subjects[m].length];
+            this.candidate = new boolean[this.modelPlan.maxPatterns];
         }
+        final ElementPlan ep = this.modelPlan.elements[element.ordinal()];
+        if (ep == null) return;
+        for (final int p: ep.unfiltered) test(ep, p, content);
+        if (ep.literals == null) return;
+        ep.literals.find(content, (word, start, end) -> {
+            for (final int p: ep.literalPatterns[word]) this.candidate[p] = true;
+            return true;
+        });
+        for (int p = 0; p < ep.patterns.length; p++) {
+            if (!this.candidate[p]) continue;
+            this.candidate[p] = false;
+            test(ep, p, content);
+        }
+    }
+
+    private void test(final ElementPlan ep, final int p, final CharSequence content) {
+        if (ep.patterns[p].matcher(content).matches()) this.counts[ep.model[p]][ep.subject[p]]++;
     }
 
     public void match(final Element element, final char[] content) {
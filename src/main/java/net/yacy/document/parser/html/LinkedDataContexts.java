@@ -0,0 +1,396 @@
+/**
+ *  LinkedDataContexts
+ *  Copyright 2026 by the YaCy Grid contributors
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document.parser.html;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import com.github.jsonldjava.core.DocumentLoader;
+import com.github.jsonldjava.core.JsonLdError;
+import com.github.jsonldjava.core.JsonLdOptions;
+import com.github.jsonldjava.core.JsonLdProcessor;
+import com.github.jsonldjava.core.RemoteDocument;
+import com.github.jsonldjava.utils.JsonUtils;
+
+import net.yacy.grid.http.ClientConnection;
+import net.yacy.grid.tools.Logger;
+import net.yacy.kelondro.util.NamePrefixThreadFactory;
+
+/**
+ * A local store of JSON-LD contexts. Remote contexts which are referenced by url within a JSON-LD document
+ * are taken from the store, so JSON-LD processing never loads anything from the network while a document
+ * is parsed: the store is the document loader of jsonld-java in {@link #expand(String, String)}, JSON-LD
+ * scripts are resolved before a html document is given to Any23, and the html scraper reads the term
+ * definitions with {@link #terms(Object, Map)}. Contexts are taken from a bundle of common vocabularies,
+ * a bounded in-memory cache and an on-disk cache. Unknown contexts are replaced by an empty context; if a
+ * loader is set, the loader fetches them in the background into the caches for the next documents.
+ */
+public class LinkedDataContexts {
+
+    private static final int MAX_DEPTH = 4; // maximum nesting of contexts which reference other contexts
+    private static final JSONObject UNKNOWN = new JSONObject(); // marker for contexts which are not available
+    private static final Pattern LD_SCRIPT = Pattern.compile(
+            "(<script\\b[^>]*ld\\+json[^>]*>)(.*?)(</script)", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    /**
+     * a loader for contexts which are not in the store. A loader is called only in the background.
+     */
+    public interface Loader {
+        /**
+         * @param url the url of the context
+         * @return the context document, a json object with a @context property
+         * @throws IOException
+         */
+        public JSONObject load(String url) throws IOException;
+    }
+
+    /**
+     * a loader which fetches contexts with http
+     */
+    public static final Loader HTTP_LOADER = url -> {
+        final byte[] b = ClientConnection.load(url);
+        return new JSONObject(new JSONTokener(new String(b, StandardCharsets.UTF_8)));
+    };
+
+    private static final Map<String, Object> bundle = new HashMap<>();
+    private static volatile Map<String, Object> memory = lru(1000); // guarded by itself
+    private static volatile File cacheDir = null;
+    private static volatile Loader loader = null;
+    private static final Set<String> loading = ConcurrentHashMap.newKeySet();
+    private static final ExecutorService fetcher;
+    static {
+        final ThreadFactory factory = new NamePrefixThreadFactory("LinkedDataContexts");
+        fetcher = Executors.newSingleThreadExecutor(r -> {
+            final Thread t = factory.newThread(r);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private static Map<String, Object> lru(final int size) {
+        return new LinkedHashMap<String, Object>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Object> eldest) {
+                return this.size() > size;
+            }
+        };
+    }
+
+    /**
+     * initialize the store
+     * @param bundleFile a json file which maps context urls to contexts, or null
+     * @param cachePath a directory for cached contexts, or null for no disk cache
+     * @param memorySize the maximum number of contexts in the memory cache
+     * @param contextLoader a loader for unknown contexts or null to keep the store offline
+     */
+    public static void configure(final File bundleFile, final File cachePath, final int memorySize, final Loader contextLoader) {
+        synchronized (bundle) {
+            bundle.clear();
+            if (bundleFile != null && bundleFile.exists()) try {
+                final JSONObject b = new JSONObject(new String(Files.readAllBytes(bundleFile.toPath()), StandardCharsets.UTF_8));
+                for (final String url: b.keySet()) bundle.put(key(url), b.get(url));
+                Logger.info("LinkedDataContexts loaded " + bundle.size() + " contexts from " + bundleFile);
+            } catch (final IOException | JSONException e) {
+                Logger.warn("LinkedDataContexts cannot read " + bundleFile, e);
+            }
+        }
+        if (cachePath != null) cachePath.mkdirs();
+        cacheDir = cachePath != null && cachePath.isDirectory() ? cachePath : null;
+        memory = lru(Math.max(1, memorySize));
+        loader = contextLoader;
+        // all JSON-LD is resolved with the store before jsonld-java sees it; if a remote context is left anyway,
+        // the default document loader of jsonld-java fails on it instead of blocking a parser thread on the network
+        System.setProperty(DocumentLoader.DISALLOW_REMOTE_CONTEXT_LOADING, "true");
+    }
+
+    /**
+     * a document loader for jsonld-java which takes the contexts from the store; unknown contexts are empty
+     * @return the document loader
+     */
+    public static DocumentLoader documentLoader() {
+        return DOCUMENT_LOADER;
+    }
+
+    private static final DocumentLoader DOCUMENT_LOADER = new DocumentLoader() {
+        @Override
+        public RemoteDocument loadDocument(final String url) throws JsonLdError {
+            final Object context = get(url);
+            final JSONObject doc = new JSONObject();
+            doc.put("@context", context == null ? new JSONObject() : context);
+            try {
+                return new RemoteDocument(url, JsonUtils.fromString(doc.toString()));
+            } catch (final IOException e) {
+                throw new JsonLdError(JsonLdError.Error.LOADING_REMOTE_CONTEXT_FAILED, url + ": " + e.getMessage());
+            }
+        }
+    };
+
+    /**
+     * expand a JSON-LD document; remote contexts are loaded from the store
+     * @param url the base url of the document
+     * @param jsonld a JSON-LD document
+     * @return the expanded document, without any context
+     * @throws IOException if the document is not valid JSON-LD
+     */
+    public static String expand(final String url, final String jsonld) throws IOException {
+        final JsonLdOptions options = new JsonLdOptions(url);
+        options.setDocumentLoader(DOCUMENT_LOADER);
+        try {
+            return JsonUtils.toString(JsonLdProcessor.expand(JsonUtils.fromString(jsonld), options));
+        } catch (final JsonLdError e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * replace the remote contexts within the JSON-LD scripts of a html document by the contexts from the store
+     * @param html the html document
+     * @param charset the charset of the document
+     * @return the document with resolved scripts or the input if there was nothing to replace
+     */
+    public static byte[] resolveScripts(final byte[] html, final Charset charset) {
+        final String s = new String(html, charset);
+        if (s.indexOf("\"@context\"") < 0) return html;
+        final Matcher m = LD_SCRIPT.matcher(s);
+        final StringBuffer sb = new StringBuffer(s.length());
+        boolean changed = false;
+        while (m.find()) {
+            final String script = m.group(2);
+            final String resolved = resolve(script);
+            if (resolved == script) continue; // the matcher appends the unchanged script with the next replacement
+            changed = true;
+            m.appendReplacement(sb, Matcher.quoteReplacement(m.group(1) + resolved + m.group(3)));
+        }
+        if (!changed) return html;
+        m.appendTail(sb);
+        return sb.toString().getBytes(charset);
+    }
+
+    /**
+     * replace all remote contexts within a JSON-LD document by the contexts from the store
+     * @param jsonld a JSON-LD document
+     * @return the document without references to remote contexts
+     */
+    public static String resolve(final String jsonld) {
+        if (jsonld.indexOf("\"@context\"") < 0) return jsonld; // fast return for expanded documents
+        try {
+            final Object json = new JSONTokener(jsonld).nextValue();
+            final boolean[] changed = new boolean[]{false};
+            resolveContexts(json, 0, changed);
+            return changed[0] ? json.toString() : jsonld;
+        } catch (final JSONException e) {
+            return jsonld; // the JSON-LD processor reports the error
+        }
+    }
+
+    /**
+     * get a context from the store; this does not load anything from the network
+     * @param url the url of the context
+     * @return the context (the value of the @context property of the context document) or null if the context is not known
+     */
+    public static Object get(final String url) {
+        final String key = key(url);
+        Object context;
+        synchronized (bundle) {
+            context = bundle.get(key);
+        }
+        if (context != null) return context;
+        final Map<String, Object> m = memory;
+        synchronized (m) {
+            context = m.get(key);
+        }
+        if (context == null) {
+            context = readCache(key);
+            final boolean unknown = context == null;
+            if (unknown) context = UNKNOWN;
+            synchronized (m) {
+                m.put(key, context);
+            }
+            if (unknown) {
+                Logger.info("LinkedDataContexts: context " + url + " is not available, an empty context is used");
+                fetch(url, key); // the loaded context replaces the marker in the memory cache
+            }
+        }
+        return context == UNKNOWN ? null : context;
+    }
+
+    /**
+     * read the vocabulary and the term definitions of a context without a JSON-LD processor, as the html scraper does.
+     * Remote contexts are taken from the store; a context which is not in the store is taken as vocabulary,
+     * i.e. "https://schema.org".
+     * @param context the value of a @context property
+     * @param terms receives the IRIs of the terms which are defined in the context
+     * @return the vocabulary of the context or null if the context has none
+     */
+    public static String terms(final Object context, final Map<String, String> terms) {
+        final String vocab = terms(context, terms, null, 0);
+        // compact IRIs use prefixes which are defined as terms
+        for (final Map.Entry<String, String> t: terms.entrySet()) {
+            final String iri = t.getValue();
+            final int p = iri.indexOf(':');
+            if (p <= 0 || iri.startsWith("//", p + 1)) continue;
+            final String ns = terms.get(iri.substring(0, p));
+            if (ns != null) t.setValue(ns + iri.substring(p + 1));
+        }
+        return vocab;
+    }
+
+    private static String terms(final Object context, final Map<String, String> terms, String vocab, final int depth) {
+        if (context instanceof String) {
+            final Object c = depth < MAX_DEPTH ? get((String) context) : null;
+            return c == null ? (String) context : terms(c, terms, vocab, depth + 1);
+        }
+        if (context instanceof JSONArray) {
+            final JSONArray a = (JSONArray) context;
+            for (int i = 0; i < a.length(); i++) vocab = terms(a.get(i), terms, vocab, depth);
+        } else if (context instanceof JSONObject) {
+            final JSONObject o = (JSONObject) context;
+            final Object v = o.opt("@vocab");
+            if (v instanceof String && ((String) v).length() > 0) vocab = (String) v;
+            for (final String key: o.keySet()) {
+                if (key.length() == 0 || key.charAt(0) == '@') continue;
+                Object d = o.get(key);
+                if (d instanceof JSONObject) d = ((JSONObject) d).opt("@id");
+                if (d instanceof String && ((String) d).length() > 0 && ((String) d).charAt(0) != '@') terms.put(key, (String) d);
+            }
+        }
+        return vocab;
+    }
+
+    private static void resolveContexts(final Object json, final int depth, final boolean[] changed) {
+        if (json instanceof JSONArray) {
+            final JSONArray a = (JSONArray) json;
+            for (int i = 0; i < a.length(); i++) resolveContexts(a.get(i), depth, changed);
+        } else if (json instanceof JSONObject) {
+            final JSONObject o = (JSONObject) json;
+            for (final String k: o.keySet()) {
+                final Object v = o.get(k);
+                if ("@context".equals(k)) {
+                    final Object r = resolveContext(v, depth, changed);
+                    if (r != v) o.put(k, r);
+                } else {
+                    resolveContexts(v, depth, changed);
+                }
+            }
+        }
+    }
+
+    private static Object resolveContext(final Object context, final int depth, final boolean[] changed) {
+        if (context instanceof String) {
+            changed[0] = true;
+            final Object c = depth < MAX_DEPTH ? get((String) context) : null;
+            if (c == null) return new JSONObject();
+            return resolveContext(copy(c), depth + 1, changed);
+        }
+        if (context instanceof JSONArray) {
+            final JSONArray a = (JSONArray) context;
+            for (int i = 0; i < a.length(); i++) {
+                final Object c = a.get(i);
+                final Object r = resolveContext(c, depth, changed);
+                if (r != c) a.put(i, r);
+            }
+        } else if (context instanceof JSONObject) {
+            // scoped contexts within term definitions may reference remote contexts as well
+            resolveContexts(context, depth + 1, changed);
+        }
+        return context;
+    }
+
+    private static Object copy(final Object context) {
+        // contexts are modified when nested references are resolved, the store keeps the original
+        if (context instanceof JSONObject || context instanceof JSONArray) return new JSONTokener(context.toString()).nextValue();
+        return context;
+    }
+
+    static String key(final String url) {
+        String k = url.trim();
+        final int f = k.indexOf('#');
+        if (f >= 0) k = k.substring(0, f);
+        final int p = k.indexOf("://");
+        if (p > 0) k = k.substring(p + 3); // http and https contexts are the same
+        while (k.endsWith("/")) k = k.substring(0, k.length() - 1);
+        return k;
+    }
+
+    private static File cacheFile(final String key) {
+        return new File(cacheDir, key.replaceAll("[^A-Za-z0-9._-]", "_") + ".jsonld");
+    }
+
+    private static Object readCache(final String key) {
+        final File dir = cacheDir;
+        if (dir == null) return null;
+        final File f = cacheFile(key);
+        if (!f.exists()) return null;
+        try {
+            final JSONObject doc = new JSONObject(new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8));
+            return doc.opt("@context");
+        } catch (final IOException | JSONException e) {
+            Logger.warn("LinkedDataContexts cannot read cached context " + f, e);
+            return null;
+        }
+    }
+
+    private static void fetch(final String url, final String key) {
+        final Loader l = loader;
+        if (l == null || !loading.add(key)) return;
+        fetcher.execute(() -> {
+            try {
+                final JSONObject doc = l.load(url);
+                final Object context = doc.opt("@context");
+                if (context == null) {
+                    Logger.warn("LinkedDataContexts: " + url + " is not a context document");
+                    return;
+                }
+                if (cacheDir != null) {
+                    Files.write(cacheFile(key).toPath(), doc.toString().getBytes(StandardCharsets.UTF_8));
+                }
+                final Map<String, Object> m = memory;
+                synchronized (m) {
+                    m.put(key, context);
+                }
+                Logger.info("LinkedDataContexts loaded context " + url);
+            } catch (final Throwable e) {
+                Logger.warn("LinkedDataContexts cannot load context " + url + ": " + e.getMessage());
+            } finally {
+                loading.remove(key);
+            }
+        });
+    }
+
+}
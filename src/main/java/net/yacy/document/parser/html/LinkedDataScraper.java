@@ -0,0 +1,452 @@
+/**
+ *  LinkedDataScraper
+ *  Copyright 2026 by the YaCy Grid contributors
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document.parser.html;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import net.yacy.grid.tools.CommonPattern;
+
+/**
+ * The LinkedDataScraper builds a JSON-LD tree from the tag events which the Tokenizer
+ * produces anyway while it scrapes the html. It understands microdata (itemscope, itemtype, itemprop),
+ * RDFa lite (vocab, typeof, property, prefix) and embedded script blocks of type application/ld+json.
+ * The result has the same shape as the tree computed by htmlParser.compact2tree, so the expensive
+ * second parse of the document with Any23 is only required if this scraper could not handle the markup.
+ */
+public class LinkedDataScraper {
+
+    private static final String LDJSON_MIME = "application/ld+json";
+
+    // elements which never have a closing tag
+    private static final Set<String> voidElements = new HashSet<>(Arrays.asList(
+            "area", "base", "br", "col", "embed", "hr", "img", "input", "link", "meta", "param", "source", "track", "wbr"));
+
+    // the markup which is kept in values of RDFa properties, the same as in RDFaRefiner
+    private static final Set<String> safeTags = new HashSet<>(Arrays.asList(
+            "a", "b", "br", "em", "h1", "h2", "h3", "h4", "h5", "h6", "i", "li", "ol", "p", "strong", "sub", "sup", "ul"));
+    private static final Pattern safeHref = Pattern.compile("^(ftp|http|https|mailto):.*", Pattern.CASE_INSENSITIVE);
+
+    private static final Map<String, String> defaultPrefixes = new HashMap<>();
+    static {
+        defaultPrefixes.put("schema", "http://schema.org/");
+        defaultPrefixes.put("dc", "http://purl.org/dc/terms/");
+        defaultPrefixes.put("dcterms", "http://purl.org/dc/terms/");
+        defaultPrefixes.put("foaf", "http://xmlns.com/foaf/0.1/");
+        defaultPrefixes.put("og", "http://ogp.me/ns#");
+        defaultPrefixes.put("rdfs", "http://www.w3.org/2000/01/rdf-schema#");
+        defaultPrefixes.put("xsd", "http://www.w3.org/2001/XMLSchema#");
+    }
+
+    private static class Frame {
+        private final String name;
+        private final String vocab;
+        private final Map<String, String> prefixes;
+        private final String[] props;
+        private final String value;
+        private final JSONObject item;
+        private final StringBuilder text;
+        private final boolean rdfa;
+        private final boolean ldjson;
+        private boolean nested;
+
+        private Frame(final String name, final String vocab, final Map<String, String> prefixes,
+                final String[] props, final String value, final JSONObject item, final boolean collectText, final boolean rdfa, final boolean ldjson) {
+            this.name = name;
+            this.vocab = vocab;
+            this.prefixes = prefixes;
+            this.props = props;
+            this.value = value;
+            this.item = item;
+            this.text = collectText ? new StringBuilder() : null;
+            this.rdfa = rdfa;
+            this.ldjson = ldjson;
+            this.nested = false;
+        }
+    }
+
+    private final List<Frame> stack;
+    private final JSONArray graph;
+    private final Map<String, String> context;
+    private JSONObject subject;
+    private int collecting;
+    private int markers;
+    private boolean failed;
+
+    public LinkedDataScraper() {
+        this.stack = new ArrayList<>();
+        this.graph = new JSONArray();
+        this.context = new LinkedHashMap<>();
+        this.subject = null;
+        this.collecting = 0;
+        this.markers = 0;
+        this.failed = false;
+    }
+
+    /**
+     * called for every opening tag, including tags which are not scraped otherwise
+     * @param tagname the lowercase tag name
+     * @param opts the tag properties
+     * @param selfclosing true if the tag was written as a self-closing tag
+     */
+    public void open(final String tagname, final Properties opts, final boolean selfclosing) {
+        final boolean singleton = selfclosing || voidElements.contains(tagname) || (tagname.length() > 0 && tagname.charAt(0) == '!');
+        if (this.collecting > 0 && safeTags.contains(tagname)) {
+            final StringBuilder markup = new StringBuilder(tagname.length() + 2).append('<').append(tagname);
+            final String href = opts.getProperty("href");
+            if ("a".equals(tagname) && href != null && safeHref.matcher(href).matches()) {
+                markup.append(" href=\"").append(href).append('"');
+            }
+            markup.append('>');
+            for (final Frame frame: this.stack) {
+                if (frame.text != null && frame.rdfa) frame.text.append(markup);
+            }
+        }
+
+        final Frame parent = this.stack.isEmpty() ? null : this.stack.get(this.stack.size() - 1);
+        String vocab = parent == null ? null : parent.vocab;
+        Map<String, String> prefixes = parent == null ? defaultPrefixes : parent.prefixes;
+
+        final String vocabAttr = opts.getProperty("vocab");
+        if (vocabAttr != null && vocabAttr.length() > 0) {vocab = vocabAttr; this.markers++;}
+        final String prefixAttr = opts.getProperty("prefix");
+        if (prefixAttr != null && prefixAttr.length() > 0) prefixes = parsePrefixes(prefixes, prefixAttr);
+
+        // the type of a new item
+        JSONObject item = null;
+        final String itemtype = opts.getProperty("itemtype");
+        final String typeof = opts.getProperty("typeof");
+        if (opts.containsKey("itemscope") || typeof != null) {
+            this.markers++;
+            item = new JSONObject(true);
+            String type = null;
+            if (itemtype != null && itemtype.length() > 0) {
+                type = CommonPattern.SPACES.split(itemtype.trim())[0];
+                vocab = vocabOf(type);
+            } else if (typeof != null && typeof.length() > 0) {
+                type = expand(CommonPattern.SPACES.split(typeof.trim())[0], vocab, prefixes);
+                if (vocab == null) vocab = vocabOf(type);
+            }
+            if (type != null) item.put("@type", type);
+            final String id = opts.getProperty("itemid", opts.getProperty("resource", opts.getProperty("about")));
+            if (id != null && id.length() > 0) item.put("@id", id);
+        }
+
+        // the properties this element assigns to the enclosing item
+        String[] props = null;
+        final String itemprop = opts.getProperty("itemprop");
+        final String prop = itemprop == null ? opts.getProperty("property") : itemprop;
+        if (prop != null && prop.trim().length() > 0) {
+            this.markers++;
+            props = CommonPattern.SPACES.split(prop.trim());
+            for (int i = 0; i < props.length; i++) props[i] = expand(props[i], vocab, prefixes);
+            // the enclosing properties are not leaf properties any more
+            for (final Frame frame: this.stack) frame.nested = true;
+        }
+        final String value = props == null || item != null ? null : explicitValue(tagname, opts);
+
+        final boolean ldjson = "script".equals(tagname) && LDJSON_MIME.equals(opts.getProperty("type", "").trim().toLowerCase());
+        if (ldjson) this.markers++;
+
+        final boolean collectText = ldjson || (props != null && item == null && value == null);
+        final Frame frame = new Frame(tagname, vocab, prefixes, props, value, item, collectText, itemprop == null, ldjson);
+        if (collectText) this.collecting++;
+        if (singleton) {
+            finish(frame);
+        } else {
+            this.stack.add(frame);
+        }
+    }
+
+    /**
+     * called for every closing tag. Tags which had not been closed in between are closed here as well.
+     * @param tagname the lowercase tag name
+     */
+    public void close(final String tagname) {
+        for (int i = this.stack.size() - 1; i >= 0; i--) {
+            if (this.stack.get(i).name.equals(tagname)) {
+                // the markup of the closed tag belongs to the values of all enclosing properties
+                if (this.collecting > 0 && safeTags.contains(tagname)) {
+                    for (int j = 0; j < i; j++) {
+                        final Frame frame = this.stack.get(j);
+                        if (frame.text != null && frame.rdfa) frame.text.append("</").append(tagname).append('>');
+                    }
+                }
+                while (this.stack.size() > i) finish(this.stack.remove(this.stack.size() - 1));
+                return;
+            }
+        }
+        // the closing tag has no opening tag: ignore it
+    }
+
+    /**
+     * called for all text between tags
+     * @param text the text as it appears in the document, html entities are not decoded yet
+     */
+    public void text(final char[] text) {
+        text(text, 0, text.length);
+    }
+
+    public void text(final char[] text, final int offset, final int length) {
+        if (this.collecting == 0) return;
+        final Frame top = this.stack.isEmpty() ? null : this.stack.get(this.stack.size() - 1);
+        if (top != null && top.ldjson) {
+            top.text.append(text, offset, length);
+            return;
+        }
+        if (top != null && ("script".equals(top.name) || "style".equals(top.name))) return;
+        for (final Frame frame: this.stack) {
+            if (frame.text != null) frame.text.append(text, offset, length);
+        }
+    }
+
+    /**
+     * all unclosed tags are finished at the end of the document
+     */
+    public void finish() {
+        while (!this.stack.isEmpty()) finish(this.stack.remove(this.stack.size() - 1));
+    }
+
+    /**
+     * @return true if the page contains linked data markup of any kind
+     */
+    public boolean hasMarkup() {
+        return this.markers > 0;
+    }
+
+    /**
+     * @return true if the result of this scraper can be used; if false the caller should fall back to a full RDFa parser
+     */
+    public boolean isComplete() {
+        return !this.failed && (this.markers == 0 || this.graph.length() > 0);
+    }
+
+    /**
+     * compute the linked data tree in the same form as htmlParser.compact2tree
+     * @param id the document url
+     * @return a json object containing @id, @context (if any) and @graph
+     */
+    public JSONObject getTree(final String id) {
+        final JSONObject tree = new JSONObject(true);
+        tree.put("@id", id);
+        if (!this.context.isEmpty()) {
+            final JSONObject c = new JSONObject(true);
+            this.context.forEach((k, v) -> c.put(k, v));
+            tree.put("@context", c);
+        }
+        tree.put("@graph", this.graph);
+        return tree;
+    }
+
+    private void finish(final Frame frame) {
+        if (frame.text != null) this.collecting--;
+
+        if (frame.ldjson) {
+            scriptBlock(frame.text.toString());
+            return;
+        }
+
+        if (frame.props == null) {
+            // not a property of an enclosing item: a new top-level item
+            if (frame.item != null) this.graph.put(frame.item);
+            return;
+        }
+
+        Object value = frame.item;
+        if (value == null) value = frame.value;
+        if (value == null) {
+            if (frame.rdfa && !frame.nested) {
+                // leaf RDFa properties carry their markup, see RDFaRefiner
+                value = CommonPattern.SPACES.matcher(frame.text).replaceAll(" ").trim();
+            } else {
+                value = CharacterCoding.html2unicode(Tag.stripAllTags(frame.text.toString().toCharArray()));
+            }
+        }
+        final JSONObject target = enclosingItem();
+        for (final String p: frame.props) {
+            final String key = localName(p);
+            if (!key.equals(p)) this.context.put(key, p);
+            addValue(target, key, value);
+        }
+    }
+
+    private JSONObject enclosingItem() {
+        for (int i = this.stack.size() - 1; i >= 0; i--) {
+            final JSONObject item = this.stack.get(i).item;
+            if (item != null) return item;
+        }
+        // properties without an item refer to the document itself
+        if (this.subject == null) {
+            this.subject = new JSONObject(true);
+            this.graph.put(this.subject);
+        }
+        return this.subject;
+    }
+
+    private void scriptBlock(final String script) {
+        final String s = script.trim();
+        if (s.length() == 0) return;
+        try {
+            final Object json = new JSONTokener(s).nextValue();
+            if (json instanceof JSONArray) {
+                final JSONArray a = (JSONArray) json;
+                for (int i = 0; i < a.length(); i++) {
+                    final Object o = a.get(i);
+                    if (o instanceof JSONObject) ldNode((JSONObject) o, null);
+                }
+            } else if (json instanceof JSONObject) {
+                final JSONObject o = (JSONObject) json;
+                if (o.has("@graph") && o.get("@graph") instanceof JSONArray) {
+                    final Object context = o.opt("@context");
+                    final JSONArray a = o.getJSONArray("@graph");
+                    for (int i = 0; i < a.length(); i++) {
+                        final Object n = a.get(i);
+                        if (n instanceof JSONObject) ldNode((JSONObject) n, context);
+                    }
+                } else {
+                    ldNode(o, null);
+                }
+            } else {
+                this.failed = true;
+            }
+        } catch (final JSONException e) {
+            // the Tokenizer may have split the script at a '<'; a complete parser must do this
+            this.failed = true;
+        }
+    }
+
+    private void ldNode(final JSONObject node, Object context) {
+        final Object c = node.remove("@context");
+        if (c != null) context = c;
+        if (context != null) {
+            // remote contexts are read from the context store
+            final Map<String, String> terms = new HashMap<>();
+            String vocab = LinkedDataContexts.terms(context, terms);
+            if (vocab != null && !vocab.endsWith("/") && !vocab.endsWith("#")) vocab = vocab + "/";
+            for (final String key: node.keySet()) {
+                if (key.length() == 0 || key.charAt(0) == '@') continue;
+                final String iri = iri(key, vocab, terms);
+                if (iri != null) this.context.put(key, iri);
+            }
+            final Object type = node.opt("@type");
+            if (type instanceof String) {
+                final String iri = iri((String) type, vocab, terms);
+                if (iri != null) node.put("@type", iri);
+            }
+        }
+        this.graph.put(node);
+    }
+
+    private static String iri(final String term, final String vocab, final Map<String, String> terms) {
+        final String t = terms.get(term);
+        if (t != null) return t.indexOf(':') < 0 && vocab != null ? vocab + t : t;
+        final int p = term.indexOf(':');
+        if (p >= 0) {
+            // a compact IRI with a prefix of the context; absolute IRIs stay as they are
+            final String ns = p > 0 && !term.startsWith("//", p + 1) ? terms.get(term.substring(0, p)) : null;
+            return ns == null ? null : ns + term.substring(p + 1);
+        }
+        return vocab == null ? null : vocab + term;
+    }
+
+    private static void addValue(final JSONObject target, final String key, final Object value) {
+        if (!target.has(key)) {
+            target.put(key, value);
+            return;
+        }
+        // prevent overwriting by creation or extension of an array
+        final Object o0 = target.get(key);
+        if (o0 instanceof JSONArray) {
+            ((JSONArray) o0).put(value);
+        } else {
+            final JSONArray a = new JSONArray();
+            a.put(o0);
+            a.put(value);
+            target.put(key, a);
+        }
+    }
+
+    private static String explicitValue(final String tagname, final Properties opts) {
+        String v = opts.getProperty("content");
+        if (v != null) return CharacterCoding.html2unicode(v);
+        switch (tagname) {
+            case "a": case "area": case "link":
+                v = opts.getProperty("href"); break;
+            case "img": case "audio": case "video": case "source": case "embed": case "iframe": case "track":
+                v = opts.getProperty("src"); break;
+            case "object":
+                v = opts.getProperty("data"); break;
+            case "time":
+                v = opts.getProperty("datetime"); break;
+            case "data": case "meter":
+                v = opts.getProperty("value"); break;
+            case "meta":
+                v = ""; break;
+        }
+        return v == null ? null : CharacterCoding.html2unicode(v);
+    }
+
+    private static Map<String, String> parsePrefixes(final Map<String, String> inherited, final String prefixAttr) {
+        final Map<String, String> prefixes = new HashMap<>(inherited);
+        final String[] t = CommonPattern.SPACES.split(prefixAttr.trim());
+        for (int i = 0; i + 1 < t.length; i += 2) {
+            if (t[i].endsWith(":")) prefixes.put(t[i].substring(0, t[i].length() - 1), t[i + 1]);
+        }
+        return prefixes;
+    }
+
+    private static String expand(final String t, final String vocab, final Map<String, String> prefixes) {
+        if (t.indexOf("://") > 0) return t;
+        final int p = t.indexOf(':');
+        if (p > 0) {
+            final String ns = prefixes.get(t.substring(0, p));
+            if (ns != null) return ns + t.substring(p + 1);
+            return t;
+        }
+        if (vocab == null) return t;
+        return (vocab.endsWith("/") || vocab.endsWith("#")) ? vocab + t : vocab + "/" + t;
+    }
+
+    private static String vocabOf(final String type) {
+        final int p = Math.max(type.lastIndexOf('/'), type.lastIndexOf('#'));
+        return p < 0 ? null : type.substring(0, p + 1);
+    }
+
+    private static String localName(final String iri) {
+        final int p = Math.max(iri.lastIndexOf('/'), iri.lastIndexOf('#'));
+        if (p >= 0) return iri.substring(p + 1);
+        final int q = iri.indexOf(':');
+        return q < 0 ? iri : iri.substring(q + 1);
+    }
+
+}
@@ -31,12 +31,14 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -49,6 +51,7 @@ import net.yacy.cora.storage.CaseInsensitiveMap;
 import net.yacy.cora.storage.SizeLimitedMap;
 import net.yacy.cora.storage.SizeLimitedSet;
 import net.yacy.cora.util.NumberTools;
+import net.yacy.document.LinkClassifier;
 import net.yacy.document.SentenceReader;
 import net.yacy.document.VocabularyScraper;
 import net.yacy.document.parser.html.Evaluation.Element;
@@ -75,6 +78,7 @@ public class Scraper {
 
     // class variables: collectors for links
     private final List<AnchorURL> anchors;
+    private final Map<AnchorURL, LinkClassifier.Link> linkClassification; // the classification of each anchor object
     private final LinkedHashMap<MultiProtocolURL, String> rss, css;
     private final LinkedHashMap<AnchorURL, EmbedEntry> embeds; // urlhash/embed relation
     private final List<ImageEntry> images;
@@ -97,6 +101,7 @@ public class Scraper {
     private int breadcrumbs;
     //private JsonLD ld;
     private JSONObject ld;
+    private final LinkedDataScraper linkedData;
     private boolean googleoff;
 
     /** links to icons that belongs to the document (mapped by absolute URL)*/
@@ -133,6 +138,7 @@ public class Scraper {
         this.rss = new SizeLimitedMap<MultiProtocolURL, String>(maxLinks);
         this.css = new SizeLimitedMap<MultiProtocolURL, String>(maxLinks);
         this.anchors = new ArrayList<AnchorURL>();
+        this.linkClassification = new IdentityHashMap<AnchorURL, LinkClassifier.Link>();
         this.images = new ArrayList<ImageEntry>();
         this.icons = new HashMap<>();
         this.embeds = new SizeLimitedMap<AnchorURL, EmbedEntry>(maxLinks);
@@ -162,6 +168,7 @@ public class Scraper {
         this.publisher = null;
         this.breadcrumbs = 0;
         this.ld = null;
+        this.linkedData = new LinkedDataScraper();
         this.googleoff = false; // if this is false, it means that we are outside of an googleoff event. If it is true, we are just between googleoff and googleon
     }
 
@@ -173,11 +180,26 @@ public class Scraper {
         return this.ld;
     }
 
+    /**
+     * @return the linked data which was collected from the tag events of the tokenizer
+     */
+    public LinkedDataScraper getLinkedData() {
+        return this.linkedData;
+    }
+
     public void finish() {
         this.content.trimToSize();
     }
 
     public void scrapeText(final char[] newtext0, final String insideTag) {
+        scrapeText(newtext0, 0, newtext0.length, insideTag);
+    }
+
+    /**
+     * scrape a text token which is a part of a char array; the array is not kept after the call
+     */
+    public void scrapeText(final char[] newtext0, final int offset, final int length, final String insideTag) {
+        this.linkedData.text(newtext0, offset, length);
         if (this.googleoff) {
             //System.out.println("SKIPPING TEXT:" + new String(newtext0));
             return; // skip this
@@ -185,7 +207,7 @@ public class Scraper {
         // System.out.println("SCRAPE: " + UTF8.String(newtext));
         if (insideTag != null && (TagName.script.name().equals(insideTag) || TagName.style.name().equals(insideTag))) return;
         int p, pl, q, s = 0;
-        final char[] newtext = CharacterCoding.html2unicode(new String(newtext0)).toCharArray();
+        final char[] newtext = CharacterCoding.html2unicode(new String(newtext0, offset, length)).toCharArray();
 
         // match evaluation pattern
         this.evaluationScores.match(Element.text, newtext);
@@ -407,6 +429,24 @@ public class Scraper {
         return iconRels;
     }
 
+    /**
+     * called for every opening tag, also for those which are not scraped with scrapeTag0 or scrapeTag1
+     * @param tagname the lowercase name of the tag
+     * @param opts the tag properties
+     * @param selfclosing true if the tag was closed within the opening tag
+     */
+    public void scrapeTagOpening(final String tagname, final Properties opts, final boolean selfclosing) {
+        this.linkedData.open(tagname, opts, selfclosing);
+    }
+
+    /**
+     * called for every closing tag
+     * @param tagname the lowercase name of the tag
+     */
+    public void scrapeTagClosing(final String tagname) {
+        this.linkedData.close(tagname);
+    }
+
     public void scrapeTag0(final Tag tag) {
         checkOpts(tag);
         if (tag.hasName("img")) {
@@ -675,7 +715,12 @@ public class Scraper {
      * @param anchor anchor to add. Must not be null.
      */
     private void addAnchor(final AnchorURL anchor) {
+        this.addAnchor(anchor, null);
+    }
+
+    private void addAnchor(final AnchorURL anchor, final LinkClassifier.Link link) {
         this.anchors.add(anchor);
+        this.linkClassification.put(anchor, link == null ? LinkClassifier.classify(anchor) : link);
     }
 
     public void scrapeComment(final char[] comment) {
@@ -709,7 +754,7 @@ public class Scraper {
             }
         }
         for (final AnchorURL entry: scraper.getAnchors()) {
-            this.addAnchor(entry);
+            this.addAnchor(entry, scraper.linkClassification.get(entry));
         }
         final String line = cleanLine(CharacterCoding.html2unicode(Tag.stripAllTags(scraper.content.getChars())));
         final StringBuilder altakk = new StringBuilder();
@@ -869,6 +914,13 @@ public class Scraper {
         return this.anchors;
     }
 
+    /**
+     * @return the classification of the anchors, computed when they had been found (mapped by anchor object identity)
+     */
+    public Map<AnchorURL, LinkClassifier.Link> getLinkClassification() {
+        return this.linkClassification;
+    }
+
     public LinkedHashMap<MultiProtocolURL, String> getRSS() {
         // returns a url (String) / name (String) relation
         return this.rss;
@@ -1169,6 +1221,7 @@ public class Scraper {
     public void close() {
         // free resources
         this.anchors.clear();
+        this.linkClassification.clear();
         this.rss.clear();
         this.css.clear();
         this.script.clear();
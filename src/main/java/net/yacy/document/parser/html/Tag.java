@@ -213,6 +213,10 @@ public class Tag {
     public void appendToContent(char[] chars) {
         this.content.append(chars);
     }
+
+    public void appendToContent(char[] chars, int offset, int length) {
+        this.content.append(chars, offset, length);
+    }
     
     public void addFlatToParent(Tag peer) {
         peer.learnLdFromProperties();
@@ -384,18 +388,21 @@ public class Tag {
     }
 
     public static char[] toChars(final String tagname, final boolean opening, final char[] tagopts) {
-        final CharBuffer bb = new CharBuffer(Scraper.MAX_DOCSIZE, tagname.length() + tagopts.length + 3);
-        bb.append('<');
+        return toChars(tagname, opening, tagopts, 0, tagopts.length);
+    }
+
+    public static char[] toChars(final String tagname, final boolean opening, final char[] tagopts, final int offset, final int length) {
+        final char[] result = new char[tagname.length() + length + (opening ? 2 : 3)];
+        int p = 0;
+        result[p++] = '<';
         if (!opening) {
-            bb.append('/');
+            result[p++] = '/';
         }
-        bb.append(tagname);
-        if (tagopts.length > 0) {
-            bb.append(tagopts);
-        }
-        bb.append('>');
-        final char[] result = bb.getChars();
-        bb.close();
+        tagname.getChars(0, tagname.length(), result, p);
+        p += tagname.length();
+        System.arraycopy(tagopts, offset, result, p, length);
+        p += length;
+        result[p] = '>';
         return result;
     }
 
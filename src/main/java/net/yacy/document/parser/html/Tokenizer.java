@@ -33,6 +33,9 @@ package net.yacy.document.parser.html;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Stack;
 
 import ai.susi.json.JsonLD;
@@ -49,7 +52,18 @@ public final class Tokenizer extends Writer {
 	private static final char singlequote = '\'';
 	private static final char doublequote = '"';
 
-    private CharBuffer buffer;
+    // tag names of known tags, grouped by their first character; used to find tag names without allocation
+    private static final String[][] knownTagNames = new String[26][];
+    static {
+        final List<List<String>> names = new ArrayList<>();
+        for (int i = 0; i < knownTagNames.length; i++) names.add(new ArrayList<String>());
+        for (final TagName t: TagName.values()) names.get(t.name().charAt(0) - 'a').add(t.name());
+        for (int i = 0; i < knownTagNames.length; i++) knownTagNames[i] = names.get(i).toArray(new String[names.get(i).size()]);
+    }
+
+    // the token buffer: all tokens are scanned and processed within this array without copying
+    private char[] buffer;
+    private int length;
     private Stack<Tag> tagStack;
     private final Scraper scraper;
     private boolean inSingleQuote;
@@ -60,7 +74,8 @@ public final class Tokenizer extends Writer {
     
     public Tokenizer(final Scraper scraper) {
         this.scraper       = scraper;
-        this.buffer        = new CharBuffer(Scraper.MAX_DOCSIZE, 64);
+        this.buffer        = new char[64];
+        this.length        = 0;
         this.tagStack      = new Stack<Tag>();
         this.inSingleQuote = false;
         this.inDoubleQuote = false;
@@ -83,90 +98,94 @@ public final class Tokenizer extends Writer {
      */
     @Override
     public void write(final int c) throws IOException {
+        process((char) c);
+    }
+
+    private void process(final char c) {
         //System.out.println((char) c);
         if ((this.binaryUnsuspect) && (binaryHint((char)c))) {
             this.binaryUnsuspect = false;
         }
 
         if (this.inSingleQuote) {
-            this.buffer.append(c);
+            put(c);
             if (c == singlequote) this.inSingleQuote = false;
             // check error cases
-            if ((c == rb) && (this.buffer.length() > 0 && this.buffer.charAt(0) == lb)) {
+            if ((c == rb) && (this.length > 0 && this.buffer[0] == lb)) {
                 this.inSingleQuote = false;
                 // the tag ends here. after filtering: pass on
-                tokenProcessor(this.buffer.getChars(), singlequote);
+                tokenProcessor(singlequote);
                 // this.buffer = new serverByteBuffer();
-                this.buffer.reset();
+                this.length = 0;
             }
         } else if (this.inDoubleQuote) {
-            this.buffer.append(c);
+            put(c);
             if (c == doublequote) this.inDoubleQuote = false;
             // check error cases
-            if (c == rb && this.buffer.length() > 0 && this.buffer.charAt(0) == lb) {
+            if (c == rb && this.length > 0 && this.buffer[0] == lb) {
                 this.inDoubleQuote = false;
                 // the tag ends here. after filtering: pass on
-                tokenProcessor(this.buffer.getChars(), doublequote);
+                tokenProcessor(doublequote);
                 // this.buffer = new serverByteBuffer();
-                this.buffer.reset();
+                this.length = 0;
             }
         } else if (this.inComment) {
-            this.buffer.append(c);
+            put(c);
             if (c == rb &&
-                this.buffer.length() > 6 &&
-                this.buffer.charAt(this.buffer.length() - 3) == dash) {
+                this.length > 6 &&
+                this.buffer[this.length - 3] == dash) {
                 // comment is at end
                 this.inComment = false;
-                final char[] comment = this.buffer.getChars();
+                final char[] comment = Arrays.copyOf(this.buffer, this.length);
                 this.scraper.scrapeComment(comment);
                 // this.buffer = new serverByteBuffer();
-                this.buffer.reset();
+                this.length = 0;
             }
         } else {
-            if (this.buffer.isEmpty()) {
+            if (this.length == 0) {
                 if (c != rb) {
-                    this.buffer.append(c);
+                    put(c);
                 }
-            } else if (this.buffer.length() > 0 && this.buffer.charAt(0) == lb) {
+            } else if (this.length > 0 && this.buffer[0] == lb) {
                 if (c == singlequote) this.inSingleQuote = true;
                 if (c == doublequote) this.inDoubleQuote = true;
                 // fill in tag text
-                if ((this.buffer.length() >= 3) && (this.buffer.charAt(1) == excl) &&
-                    (this.buffer.charAt(2) == dash) && (c == dash)) {
+                if ((this.length >= 3) && (this.buffer[1] == excl) &&
+                    (this.buffer[2] == dash) && (c == dash)) {
                     // this is the start of a comment
                     this.inComment = true;
-                    this.buffer.append(c);
+                    put(c);
                 } else if (c == rb) {
-                    this.buffer.append(c);
+                    put(c);
                     // the tag ends here. after filtering: pass on
-                    tokenProcessor(this.buffer.getChars(), doublequote);
+                    tokenProcessor(doublequote);
                     // this.buffer = new serverByteBuffer();
-                    this.buffer.reset();
+                    this.length = 0;
                 } else if (c == lb) {
                     // this is an error case
                     // we consider that there is one rb missing
-                    if (this.buffer.length() > 0) {
-                        tokenProcessor(this.buffer.getChars(), doublequote);
+                    if (this.length > 0) {
+                        tokenProcessor(doublequote);
                     }
                     // this.buffer = new serverByteBuffer();
-                    this.buffer.reset();
-                    this.buffer.append(c);
+                    this.length = 0;
+                    put(c);
                 } else {
-                    this.buffer.append(c);
+                    put(c);
                 }
             } else {
                 // fill in plain text
                 if (c == lb) {
                     // the text ends here
-                    if (this.buffer.length() > 0) {
-                        tokenProcessor(this.buffer.getChars(), doublequote);
+                    if (this.length > 0) {
+                        tokenProcessor(doublequote);
                     }
                     // this.buffer = new serverByteBuffer();
-                    this.buffer.reset();
-                    this.buffer.append(c);
+                    this.length = 0;
+                    put(c);
                 } else {
                     // simply append
-                    this.buffer.append(c);
+                    put(c);
                 }
             }
         }
@@ -180,7 +199,16 @@ public final class Tokenizer extends Writer {
     @Override
     public void write(final char b[], final int off, final int len) throws IOException {
         if ((off | len | (b.length - (len + off)) | (off + len)) < 0) throw new IndexOutOfBoundsException();
-        for (int i = off ; i < (len - off) ; i++) this.write(b[i]);
+        final int end = off + len;
+        for (int i = off; i < end; i++) process(b[i]);
+    }
+
+    private void put(final char c) {
+        if (this.length == this.buffer.length) {
+            if (this.buffer.length > Scraper.MAX_DOCSIZE) return; // the token is too large, the rest is omitted
+            this.buffer = Arrays.copyOf(this.buffer, 12 * this.buffer.length / 10 + 1); // grow by 20%
+        }
+        this.buffer[this.length++] = c;
     }
 
     @Override
@@ -199,9 +227,9 @@ public final class Tokenizer extends Writer {
         flush();
         final char quotechar = (this.inSingleQuote) ? singlequote : doublequote;
         if (this.buffer != null) {
-            if (this.buffer.length() > 0) tokenProcessor(this.buffer.getChars(), quotechar);
-            this.buffer.close();
+            if (this.length > 0) tokenProcessor(quotechar);
             this.buffer = null;
+            this.length = 0;
         }
         processFinalize(quotechar);
         this.tagStack.clear();
@@ -237,17 +265,18 @@ public final class Tokenizer extends Writer {
     
     /**
      * the token processor distinguishes three different types of input: opening tag, closing tag, text content
-     * @param in - the token to be processed
+     * The token is the content of the token buffer; it is processed in place, the buffer is re-used afterwards.
      * @param quotechar
-     * @return a processed version of the token
      */
-    private void tokenProcessor(final char[] in, final char quotechar) {
-        
-        if (in.length == 0) return;
-        
+    private void tokenProcessor(final char quotechar) {
+        final char[] in = this.buffer;
+        final int len = this.length;
+
+        if (len == 0) return;
+
         // scan the string and parse structure
-        if (in.length <= 2 || in[0] != lb) {
-            processTag(in); // this is a text
+        if (len <= 2 || in[0] != lb) {
+            processTag(in, 0, len); // this is a text
             return;
         }
 
@@ -256,11 +285,10 @@ public final class Tokenizer extends Writer {
         int tagend;
         if (in[1] == '/') {
             // a closing tag
-            tagend = findTagEnd(in, 2);
-            tag = new String(in, 2, tagend - 2).toLowerCase();
-            final char[] text = new char[in.length - tagend - 1];
-            System.arraycopy(in, tagend, text, 0, in.length - tagend - 1);
-            processTag(text, quotechar, tag, false);
+            tagend = findTagEnd(in, 2, len);
+            tag = tagName(in, 2, tagend - 2);
+            this.scraper.scrapeTagClosing(tag);
+            processTag(in, tagend, len - tagend - 1, quotechar, tag, false);
             return;
         }
 
@@ -270,16 +298,14 @@ public final class Tokenizer extends Writer {
         }
 
         // an opening tag
-        tagend = findTagEnd(in, 1);
-        tag = new String(in, 1, tagend - 1).toLowerCase();
-        final char[] text = new char[in.length - tagend - 1];
-        System.arraycopy(in, tagend, text, 0, in.length - tagend - 1);
-        processTag(text, quotechar, tag, true);
+        tagend = findTagEnd(in, 1, len);
+        tag = tagName(in, 1, tagend - 1);
+        processTag(in, tagend, len - tagend - 1, quotechar, tag, true);
     }
 
-    private static int findTagEnd(final char[] tag, final int start) {
+    private static int findTagEnd(final char[] tag, final int start, final int length) {
         char c;
-        for (int i = start; i < tag.length; i++) {
+        for (int i = start; i < length; i++) {
             c = tag[i];
             if (c != '!' && c != '-' &&
                 (c < '0' || c > '9') &&
@@ -287,7 +313,33 @@ public final class Tokenizer extends Writer {
                 (c < 'A' || c > 'Z')
             ) return i;
         }
-        return tag.length - 1;
+        return length - 1;
+    }
+
+    /**
+     * get the lower-case name of a tag. Names of known tags are taken from the TagName enum
+     * so no new string is created for them.
+     * @param b the token
+     * @param off start of the name
+     * @param len length of the name
+     * @return the tag name
+     */
+    private static String tagName(final char[] b, final int off, final int len) {
+        if (len > 0) {
+            final char c0 = lower(b[off]);
+            if (c0 >= 'a' && c0 <= 'z') {
+                known: for (final String name: knownTagNames[c0 - 'a']) {
+                    if (name.length() != len) continue;
+                    for (int i = 1; i < len; i++) if (lower(b[off + i]) != name.charAt(i)) continue known;
+                    return name;
+                }
+            }
+        }
+        return new String(b, off, len).toLowerCase();
+    }
+
+    private static char lower(final char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
     }
 
     // distinguish the following cases:
@@ -301,31 +353,35 @@ public final class Tokenizer extends Writer {
     
     /**
      * We are collecting text (simply)
-     * @param content the text
+     * @param content the buffer containing the text
+     * @param off start of the text
+     * @param len length of the text
      */
-    private void processTag(final char[] content) {
+    private void processTag(final char[] content, final int off, final int len) {
         if (this.tagStack.size() == 0) {
             // we are not collection tag text -> case (1) - (3)
             // case (1): this is not a tag opener/closer
-            if (content.length > 0) this.scraper.scrapeText(content, null);
+            if (len > 0) this.scraper.scrapeText(content, off, len, null);
             return;
         }
 
         // we are collection tag text for the tag 'filterTag' -> case (4) - (7)
         // case (4): getting no tag, go on collecting content
         Tag peerTag = this.tagStack.lastElement();
-        this.scraper.scrapeText(content, peerTag.getName());
-        peerTag.appendToContent(content);
+        this.scraper.scrapeText(content, off, len, peerTag.getName());
+        peerTag.appendToContent(content, off, len);
     }
     
     /**
      * we are collecting a tag, either an opener or closer
-     * @param content everything which is inside the tag properties
+     * @param content the buffer with everything which is inside the tag properties
+     * @param off start of the properties
+     * @param len length of the properties
      * @param quotechar a quote character which is used
      * @param tagname the name of the tag
      * @param opening true if the tag is an opener tag, false if it is a closing tag
      */
-    private void processTag(final char[] content, final char quotechar, final String tagname, final boolean opening) {
+    private void processTag(final char[] content, final int off, final int len, final char quotechar, final String tagname, final boolean opening) {
         assert tagname != null;
         
         if (this.tagStack.size() == 0) {
@@ -334,7 +390,7 @@ public final class Tokenizer extends Writer {
             // we have a new tag
             if (opening) {
                 // case (2):
-                processTagOpening(tagname, content, quotechar);
+                processTagOpening(tagname, content, off, len, quotechar, false);
                 return;
             }
 
@@ -345,13 +401,13 @@ public final class Tokenizer extends Writer {
         }
 
         // we are collection tag text for the tag 'filterTag' -> case (4) - (7)
-        if (tagname.equals("!")) processTag(content);
+        if (tagname.equals("!")) processTag(content, off, len);
 
         // it's an opening tag:
         if (opening) {
             // case (5): this opening is right after a previous one. Its a branch in a tree.
             Tag parentTag = this.tagStack.lastElement();
-            parentTag.appendToContent(processTagOpening(tagname, content, quotechar));
+            parentTag.appendToContent(processTagOpening(tagname, content, off, len, quotechar, true));
             return;
         }
 
@@ -359,7 +415,7 @@ public final class Tokenizer extends Writer {
         Tag peerTag = this.tagStack.lastElement();
         if (!tagname.equalsIgnoreCase(peerTag.getName())) {
             // case (6): its a closing tag, but the wrong one. just add it.
-            peerTag.appendToContent(Tag.toChars(tagname, false, content));
+            peerTag.appendToContent(Tag.toChars(tagname, false, content, off, len));
             return;
         }
 
@@ -369,10 +425,19 @@ public final class Tokenizer extends Writer {
         processTagCloseing(quotechar);
     }
 
-    private char[] processTagOpening(final String tagname, final char[] content, final char quotechar) {
-        final CharBuffer charBuffer = new CharBuffer(Scraper.MAX_DOCSIZE, content);
-        Tag tag = new Tag(tagname, charBuffer.propParser());
-        charBuffer.close();
+    /**
+     * process an opening tag
+     * @param tagname the name of the tag
+     * @param content the buffer with the tag properties
+     * @param off start of the properties
+     * @param len length of the properties
+     * @param quotechar a quote character which is used
+     * @param text if true, return the text which has to be appended to the parent tag
+     * @return the text for the parent tag or null if text is false
+     */
+    private char[] processTagOpening(final String tagname, final char[] content, final int off, final int len, final char quotechar, final boolean text) {
+        Tag tag = new Tag(tagname, CharBuffer.propParser(content, off, off + len));
+        this.scraper.scrapeTagOpening(tagname, tag.getProperties(), tag.hasProperty("/") && tag.getProperty("/").isEmpty());
         if (Tag.isTag0(tagname) || (tag.hasProperty("/") && tag.getProperty("/").isEmpty())) {
             // This tag might not be allowed to ba a singleton tag, but as we are a search engine rather than a
             // validator, we will overlook this and parse it as well. Otherwise we will end up with an opening tag on
@@ -390,11 +455,11 @@ public final class Tokenizer extends Writer {
         } else if (Tag.isTag1(tagname)) {
             // ok, start collecting; we don't push this here to the scraper or transformer; we do that when the tag is closed.
             this.tagStack.push(tag);
-            return new char[0];
+            return text ? new char[0] : null;
         }
 
          // we ignore that thing and return it again
-        return Tag.toChars(tagname, true, content);
+        return text ? Tag.toChars(tagname, true, content, off, len) : null;
     }
 
     /**
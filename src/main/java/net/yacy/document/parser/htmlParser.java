@@ -35,6 +35,7 @@ import java.nio.charset.IllegalCharsetNameException;
 import java.nio.charset.StandardCharsets;
 import java.nio.charset.UnsupportedCharsetException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -68,8 +69,11 @@ import net.yacy.document.Document;
 import net.yacy.document.Parser;
 import net.yacy.document.VocabularyScraper;
 import net.yacy.document.parser.html.ImageEntry;
+import net.yacy.document.parser.html.LinkedDataContexts;
+import net.yacy.document.parser.html.LinkedDataScraper;
 import net.yacy.document.parser.html.Scraper;
 import net.yacy.document.parser.html.Tokenizer;
+import net.yacy.document.parser.rdfa.LinkedDataGraph;
 import net.yacy.document.parser.rdfa.RDFaRefiner;
 import net.yacy.grid.http.ClientConnection;
 import net.yacy.grid.tools.CommonPattern;
@@ -81,6 +85,30 @@ public class htmlParser extends AbstractParser implements Parser {
 
     private static final int maxLinks = 10000;
 
+    /**
+     * Linked data can be extracted either from the tag events of the Tokenizer in the same pass as the
+     * html scraping (tokenizer) or with a second, complete parse of the document using Any23 (any23).
+     * In tokenizer mode, Any23 is used as fallback for markup which the tokenizer cannot handle, if the
+     * document can be read a second time (it is given as array or ByteArrayInputStream or is a local file).
+     */
+    public enum LdExtraction {
+        tokenizer, any23;
+    }
+
+    private static LdExtraction ldExtraction = LdExtraction.tokenizer;
+
+    public static void setLdExtraction(final String mode) {
+        try {
+            ldExtraction = LdExtraction.valueOf(mode.trim().toLowerCase());
+        } catch (final IllegalArgumentException e) {
+            Logger.warn("unknown linked data extraction mode '" + mode + "', using " + ldExtraction.name());
+        }
+    }
+
+    public static LdExtraction getLdExtraction() {
+        return ldExtraction;
+    }
+
     public htmlParser() {
         super("Streaming HTML Parser");
         this.SUPPORTED_EXTENSIONS.add("htm");
@@ -122,11 +150,30 @@ public class htmlParser extends AbstractParser implements Parser {
             final VocabularyScraper vocscraper,
             final int timezoneOffset,
             final InputStream sourceStream) throws Parser.Failure, InterruptedException {
+        return parse(location, mimeType, documentCharset, vocscraper, timezoneOffset, sourceStream, null, 0);
+    }
+
+    /**
+     * parse a document which is also available as byte array; the linked data fallback reads the
+     * array again, so the document is not buffered a second time
+     * @param sourceStream the document
+     * @param source the same document as array, the first sourceLength bytes are used; null if not available
+     * @param sourceLength the length of the document in the array
+     */
+    public Document[] parse(
+            final MultiProtocolURL location,
+            final String mimeType,
+            final String documentCharset,
+            final VocabularyScraper vocscraper,
+            final int timezoneOffset,
+            final InputStream sourceStream,
+            final byte[] source,
+            final int sourceLength) throws Parser.Failure, InterruptedException {
 
         try {
             // first get a document from the parsed html
             final Charset[] detectedcharsetcontainer = new Charset[]{null};
-            final Scraper scraper = parseToScraper(location, documentCharset, vocscraper, detectedcharsetcontainer, timezoneOffset, sourceStream, maxLinks);
+            final Scraper scraper = parseToScraper(location, documentCharset, vocscraper, detectedcharsetcontainer, timezoneOffset, sourceStream, source, sourceLength, maxLinks);
             // parseToScraper also detects/corrects/sets charset from html content tag
             final Document document = transformScraper(location, mimeType, detectedcharsetcontainer[0].name(), scraper);
             return new Document[]{document};
@@ -180,7 +227,8 @@ public class htmlParser extends AbstractParser implements Parser {
                 scraper.getDate());
         ppd.setScraperObject(scraper);
         ppd.setIcons(scraper.getIcons());
-        if (scraper.getLd() != null) ppd.ld().putAll(scraper.getLd());
+        ppd.setLinkClassification(scraper.getLinkClassification());
+        if (scraper.getLd() != null) ppd.setLd(scraper.getLd());
         return ppd;
     }
 
@@ -201,6 +249,22 @@ public class htmlParser extends AbstractParser implements Parser {
         return scraper;
     }
 
+    public static Scraper parseToScraper(
+            final MultiProtocolURL location,
+            final String documentCharset,
+            final VocabularyScraper vocabularyScraper,
+            final Charset[] detectedcharsetcontainer,
+            final int timezoneOffset,
+            final InputStream sourceStream,
+            final int maxLinks) throws Parser.Failure, IOException {
+        return parseToScraper(location, documentCharset, vocabularyScraper, detectedcharsetcontainer, timezoneOffset, sourceStream, null, 0, maxLinks);
+    }
+
+    /**
+     * @param sourceStream the document
+     * @param source the same document as array, the first sourceLength bytes are used; null if not available
+     * @param sourceLength the length of the document in the array
+     */
     public static Scraper parseToScraper(
             final MultiProtocolURL location,
             final String documentCharset,
@@ -208,6 +272,8 @@ public class htmlParser extends AbstractParser implements Parser {
             final Charset[] detectedcharsetcontainer,
             final int timezoneOffset,
             InputStream sourceStream,
+            byte[] source,
+            int sourceLength,
             final int maxLinks) throws Parser.Failure, IOException {
 
         // make a scraper
@@ -222,7 +288,7 @@ public class htmlParser extends AbstractParser implements Parser {
         if (charset == null) {
             final CharsetDetector det = new CharsetDetector();
             det.enableInputFilter(true);
-            final InputStream detStream = new BufferedInputStream(sourceStream);
+            final InputStream detStream = sourceStream.markSupported() ? sourceStream : new BufferedInputStream(sourceStream);
             det.setText(detStream);
             charset = det.detect().getName();
             sourceStream = detStream;
@@ -241,14 +307,19 @@ public class htmlParser extends AbstractParser implements Parser {
             }
         }
 
-        // read the complete source stream into a buffer because we need a copy
-        // for the microformat parser
-        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        final byte[] buffer = new byte[8096];
-        int n = 0;
-        while ((n = sourceStream.read(buffer)) >= 0) baos.write(buffer, 0, n);
-        final byte[] bytes = baos.toByteArray();
-        sourceStream = new ByteArrayInputStream(bytes);
+        // the microformat parser fallback needs to read the source a second time: a given array is read again
+        // and a ByteArrayInputStream is reset (marking it does not buffer anything). Other streams are tokenized
+        // directly and never marked because they would buffer the whole document; only if the fallback is always
+        // taken (Any23 extraction) they are copied into an array first.
+        if (source == null) {
+            if (sourceStream instanceof ByteArrayInputStream) {
+                sourceStream.mark(0);
+            } else if (ldExtraction == LdExtraction.any23) {
+                source = FileUtils.read(sourceStream, -1);
+                sourceLength = source.length;
+                sourceStream = new ByteArrayInputStream(source);
+            }
+        }
 
         // parsing the content
         // for this static methode no need to init local this.scraperObject here
@@ -274,13 +345,30 @@ public class htmlParser extends AbstractParser implements Parser {
         // parse linked data (microformats etc)
         //scraper.setLd(tokenizer.ld());
         final String url = location.toNormalform(true);
+        final LinkedDataScraper linkedData = scraper.getLinkedData();
+        linkedData.finish();
+        if (ldExtraction == LdExtraction.tokenizer && linkedData.isComplete()) {
+            scraper.setLd(linkedData.getTree(url));
+            return scraper;
+        }
         try {
-            final String s = RDFa2JSONLDExpandString(url, bytes); // read first into EXPAND mode, this is the default (and cannot be changed?)
-            //Logger.info("RDFa2JSONLDExpandString\n" + s);
-            final JSONObject jaCompact = new JSONObject(JSONLDExpand2Mode(url, s, JSONLDMode.COMPACT)); // transcode EXPAND into COMPACT
-            //Logger.info("JSONLDExpand2Mode\n" + jaCompact.toString(2));
-            final JSONObject jaTree = compact2tree(jaCompact); // transcode COMPACT into TREE
-            //Logger.info("compact2tree\n" + jaTree.toString(2));
+            final byte[] bytes;
+            if (source != null) {
+                bytes = sourceLength == source.length ? source : Arrays.copyOf(source, sourceLength);
+            } else if (sourceStream instanceof ByteArrayInputStream) {
+                sourceStream.reset();
+                bytes = FileUtils.read(sourceStream, -1);
+            } else if (location.isFile()) {
+                // the stream is consumed, the document is read again only now that the fallback is required
+                bytes = FileUtils.read(location.getFSFile());
+            } else {
+                // the stream cannot be read again, the linked data of the tokenizer is the best we have
+                Logger.info("linked data of " + url + " is incomplete and the document cannot be read again, using the tokenizer result");
+                scraper.setLd(linkedData.getTree(url));
+                return scraper;
+            }
+            final JSONObject jaTree = RDFa2Tree(url, bytes, detectedcharsetcontainer[0]); // the extracted triples are collected directly into the TREE
+            //Logger.info("RDFa2Tree\n" + jaTree.toString(2));
             scraper.setLd(jaTree);
         } catch (final IOException e) {
             Logger.error("setting LD failed", e);
@@ -395,9 +483,10 @@ public class htmlParser extends AbstractParser implements Parser {
     }
 
     public static String JSONLDExpand2Mode(final String url, String jsons, final JSONLDMode mode) throws IOException {
-        byte[] jsonb = jsons.getBytes(StandardCharsets.UTF_8);
-        final ByteArrayInputStream bais = new ByteArrayInputStream(jsonb);
         try {
+            jsons = LinkedDataContexts.expand(url, jsons); // remote contexts are loaded from the context store, not from the network
+            byte[] jsonb = jsons.getBytes(StandardCharsets.UTF_8);
+            final ByteArrayInputStream bais = new ByteArrayInputStream(jsonb);
             final Model model = Rio.parse(bais, url, RDFFormat.JSONLD);
             final ByteArrayOutputStream baos = new ByteArrayOutputStream();
             final RDFWriter writer = Rio.createWriter(RDFFormat.JSONLD, baos);
@@ -416,7 +505,11 @@ public class htmlParser extends AbstractParser implements Parser {
     }
 
     public static String RDFa2JSONLDExpandString(final String url, final byte[] bytesHtmlInput) throws IOException {
-        final byte[] bytesHtmlInputRefined = RDFaRefiner.refine(bytesHtmlInput);
+        return RDFa2JSONLDExpandString(url, bytesHtmlInput, StandardCharsets.UTF_8);
+    }
+
+    public static String RDFa2JSONLDExpandString(final String url, final byte[] bytesHtmlInput, final Charset charset) throws IOException {
+        final byte[] bytesHtmlInputRefined = RDFaRefiner.refine(LinkedDataContexts.resolveScripts(bytesHtmlInput, charset), charset);
         final Any23 any23 = new Any23();
         final ByteArrayDocumentSource ds = new ByteArrayDocumentSource(bytesHtmlInputRefined, url, "text/html"); // text/html; application/xhtml+xml
         final ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -433,13 +526,49 @@ public class htmlParser extends AbstractParser implements Parser {
         return jsons;
     }
 
+    /**
+     * extract the linked data from a html document into a tree, without a JSON-LD serialization in between
+     * @param url the document url
+     * @param bytesHtmlInput the html document
+     * @param charset the charset of the document
+     * @return the tree, the same structure as compact2tree produces
+     * @throws IOException
+     */
+    public static JSONObject RDFa2Tree(final String url, final byte[] bytesHtmlInput, final Charset charset) throws IOException {
+        final byte[] bytesHtmlInputRefined = RDFaRefiner.refine(LinkedDataContexts.resolveScripts(bytesHtmlInput, charset), charset);
+        final Any23 any23 = new Any23();
+        final ByteArrayDocumentSource ds = new ByteArrayDocumentSource(bytesHtmlInputRefined, url, "text/html");
+        final LinkedDataGraph th = new LinkedDataGraph();
+        try {
+            any23.extract(ds, th);
+            th.close();
+        } catch (IOException | ExtractionException | TripleHandlerException e) {
+            throw new IOException(e.getCause());
+        }
+        return graph2tree(th.getId(), th.getGraph());
+    }
+
     public static JSONObject compact2tree(final JSONObject compact) {
+        final Object graph = compact.opt("@graph");
+        if (graph instanceof JSONArray) return graph2tree(compact.optString("@id", ""), (JSONArray) graph);
+        // a compacted document with a single node has no graph
+        final JSONArray single = new JSONArray();
+        if (graph instanceof JSONObject) single.put(graph); else single.put(compact);
+        return graph2tree(graph instanceof JSONObject ? compact.optString("@id", "") : "", single);
+    }
+
+    /**
+     * transform the nodes of a graph into a tree: nodes which are referenced by other nodes are embedded
+     * into the referencing node and property urls are shortened with a context. This is destructive for the graph.
+     * @param id the id of the graph
+     * @param graph the nodes of the graph, each with an @id
+     * @return the tree
+     */
+    public static JSONObject graph2tree(final String id, final JSONArray graph) {
         final Map<String, Set<String>> contextcollector = new LinkedHashMap<>();
         final LinkedHashMap<String, JSONObject> nodes = new LinkedHashMap<>();
-        final String id = compact.optString("@id", "");
 
         // first create a node index to look up tree nodes
-        final JSONArray graph = compact.getJSONArray("@graph");
         for (int i = 0; i < graph.length(); i++) {
             final JSONObject node = graph.getJSONObject(i);
             assert node.has("@id");
@@ -0,0 +1,218 @@
+/**
+ *  ImageHeader
+ *  Copyright 2026 by the YaCy Grid contributors
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document.parser.images;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+
+/**
+ * The dimensions of an image, read from the header of the image container without decoding the pixels.
+ * Supported are jpeg (the SOF segment), png (the IHDR chunk), gif, webp (VP8, VP8L and VP8X), bmp and ico.
+ * Only the bytes up to the dimensions are read from the stream; for jpeg all segments up to the start of
+ * the scan are read, so the header also contains the EXIF, IPTC and XMP segments.
+ */
+public class ImageHeader {
+
+    private static final int MAX_HEADER = 1024 * 1024; // a header which is larger than this is not scanned to the end
+
+    public static final String JPEG = "jpeg", PNG = "png", GIF = "gif", WEBP = "webp", BMP = "bmp", ICO = "ico";
+
+    private byte[] buf;
+    private int size;
+    private final InputStream source;
+    private String format; // one of the format constants or null if the format is unknown
+    private int width, height; // -1 if unknown
+
+    private ImageHeader(final InputStream source) {
+        this.source = source;
+        this.buf = new byte[256];
+        this.size = 0;
+        this.format = null;
+        this.width = -1;
+        this.height = -1;
+    }
+
+    /**
+     * read the header of an image
+     * @param source the image; only the header is read from the stream
+     * @return the header; the dimensions are -1 if the format is unknown or the header is damaged
+     * @throws IOException
+     */
+    public static ImageHeader read(final InputStream source) throws IOException {
+        final ImageHeader h = new ImageHeader(source);
+        h.scan();
+        return h;
+    }
+
+    /**
+     * @return the format of the image, one of the format constants or null if the format is unknown
+     */
+    public String getFormat() {
+        return this.format;
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * @return true if the width and height of the image are known
+     */
+    public boolean hasDimensions() {
+        return this.width > 0 && this.height > 0;
+    }
+
+    /**
+     * @return the bytes which were read from the stream
+     */
+    public InputStream getHeaderStream() {
+        return new ByteArrayInputStream(this.buf, 0, this.size);
+    }
+
+    /**
+     * @return the complete image: the bytes which were read and the remaining bytes of the stream
+     */
+    public InputStream getImageStream() {
+        return new SequenceInputStream(getHeaderStream(), this.source);
+    }
+
+    private void scan() throws IOException {
+        if (!fill(12)) return;
+        if (u8(0) == 0xFF && u8(1) == 0xD8 && u8(2) == 0xFF) {
+            this.format = JPEG;
+            scanJPEG();
+        } else if (u8(0) == 0x89 && u8(1) == 'P' && u8(2) == 'N' && u8(3) == 'G') {
+            this.format = PNG;
+            if (fill(24) && u8(12) == 'I' && u8(13) == 'H' && u8(14) == 'D' && u8(15) == 'R') dimensions(s32be(16), s32be(20));
+        } else if (u8(0) == 'G' && u8(1) == 'I' && u8(2) == 'F' && u8(3) == '8') {
+            this.format = GIF;
+            dimensions(u16le(6), u16le(8));
+        } else if (u8(0) == 'R' && u8(1) == 'I' && u8(2) == 'F' && u8(3) == 'F' && u8(8) == 'W' && u8(9) == 'E' && u8(10) == 'B' && u8(11) == 'P') {
+            this.format = WEBP;
+            scanWEBP();
+        } else if (u8(0) == 'B' && u8(1) == 'M') {
+            this.format = BMP;
+            if (!fill(26)) return;
+            if (s32le(14) == 12) {
+                dimensions(u16le(18), u16le(20)); // OS/2 bitmap core header
+            } else {
+                dimensions(s32le(18), Math.abs(s32le(22))); // a negative height is a top-down bitmap
+            }
+        } else if (u8(0) == 0 && u8(1) == 0 && u8(2) == 1 && u8(3) == 0 && u16le(4) > 0) {
+            this.format = ICO;
+            // the first image of the icon, as read by ImageIO; 0 means 256
+            dimensions(u8(6) == 0 ? 256 : u8(6), u8(7) == 0 ? 256 : u8(7));
+        }
+    }
+
+    private void scanJPEG() throws IOException {
+        int p = 2;
+        while (p < MAX_HEADER) {
+            if (!fill(p + 2)) return;
+            if (u8(p) != 0xFF) return; // damaged
+            final int marker = u8(p + 1);
+            if (marker == 0xFF) {p++; continue;} // fill byte
+            if (marker == 0xDA || marker == 0xD9) return; // start of scan or end of image
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD8)) {p += 2; continue;} // markers without length
+            if (!fill(p + 4)) return;
+            final int length = u16be(p + 2);
+            if (length < 2) return;
+            if (marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC) {
+                // start of frame: precision, height, width
+                if (!fill(p + 9)) return;
+                dimensions(u16be(p + 7), u16be(p + 5));
+            }
+            p += 2 + length;
+        }
+    }
+
+    private void scanWEBP() throws IOException {
+        if (!fill(30)) return;
+        if (u8(12) == 'V' && u8(13) == 'P' && u8(14) == '8') {
+            if (u8(15) == ' ') {
+                // lossy: frame tag, start code 9D 01 2A, 14 bit width and height
+                if (u8(23) == 0x9D && u8(24) == 0x01 && u8(25) == 0x2A) dimensions(u16le(26) & 0x3FFF, u16le(28) & 0x3FFF);
+            } else if (u8(15) == 'L') {
+                // lossless: signature 2F, 14 bit width - 1 and height - 1
+                if (u8(20) == 0x2F) {
+                    final int b = s32le(21);
+                    dimensions((b & 0x3FFF) + 1, ((b >> 14) & 0x3FFF) + 1);
+                }
+            } else if (u8(15) == 'X') {
+                // extended: 24 bit canvas width - 1 and height - 1
+                dimensions(u24le(24) + 1, u24le(27) + 1);
+            }
+        }
+    }
+
+    private void dimensions(final int w, final int h) {
+        this.width = w > 0 ? w : -1;
+        this.height = h > 0 ? h : -1;
+    }
+
+    /**
+     * read from the stream until the buffer contains at least n bytes
+     * @return false if the stream ended before
+     */
+    private boolean fill(final int n) throws IOException {
+        if (n > this.buf.length) {
+            final byte[] b = new byte[Math.max(n, Math.min(MAX_HEADER + 0x10000, this.buf.length * 2))];
+            System.arraycopy(this.buf, 0, b, 0, this.size);
+            this.buf = b;
+        }
+        while (this.size < n) {
+            final int r = this.source.read(this.buf, this.size, this.buf.length - this.size);
+            if (r < 0) return false;
+            this.size += r;
+        }
+        return true;
+    }
+
+    private int u8(final int p) {
+        return this.buf[p] & 0xFF;
+    }
+
+    private int u16be(final int p) {
+        return (u8(p) << 8) | u8(p + 1);
+    }
+
+    private int u16le(final int p) {
+        return u8(p) | (u8(p + 1) << 8);
+    }
+
+    private int u24le(final int p) {
+        return u16le(p) | (u8(p + 2) << 16);
+    }
+
+    private int s32be(final int p) {
+        return (u16be(p) << 16) | u16be(p + 2);
+    }
+
+    private int s32le(final int p) {
+        return u16le(p) | (u16le(p + 2) << 16);
+    }
+
+}
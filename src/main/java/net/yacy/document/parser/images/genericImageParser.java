@@ -67,9 +67,20 @@ import net.yacy.kelondro.util.FileUtils;
  * Parser for images, bmp and jpeg and all supported by the Java Image I/O API
  * by default java ImageIO supports bmp, gif, jpg, jpeg, png, wbmp (tif if jai-imageio is in classpath/registered)
  * http://download.java.net/media/jai-imageio/javadoc/1.1/overview-summary.html
+ * The width and height of jpeg, png, gif, webp, bmp and ico images are read from the image header without
+ * decoding the pixels, unless decoding is switched on with setDecodePixels; other formats are decoded.
  */
 public class genericImageParser extends AbstractParser implements Parser {
 
+    private static volatile boolean decodePixels = false;
+
+    /**
+     * @param decode true if images shall be decoded to get their dimensions, false to read the dimensions from the image header
+     */
+    public static void setDecodePixels(final boolean decode) {
+        decodePixels = decode;
+    }
+
     public genericImageParser() {
         super("Generic Image Parser");
 
@@ -98,30 +109,38 @@ public class genericImageParser extends AbstractParser implements Parser {
         String ext = MultiProtocolURL.getFileExtension(filename);
         double gpslat = 0;
         double gpslon = 0;
+        final ImageHeader header;
+        try {
+            header = ImageHeader.read(source);
+        } catch (final IOException e) {
+            throw new Parser.Failure(e.getMessage(), location);
+        }
+        final boolean decode = decodePixels || !header.hasDimensions();
         if (mimeType.equals("image/jpeg") || ext.equals("jpg") || ext.equals("jpeg") || ext.equals("jpe")) {
             // use the exif parser from
             // http://www.drewnoakes.com/drewnoakes.com/code/exif/
             // javadoc is at: http://www.drewnoakes.com/drewnoakes.com/code/exif/javadoc/
             // a tutorial is at: http://www.drewnoakes.com/drewnoakes.com/code/exif/sampleUsage.html
-            byte[] b;
-            try {
-                b = FileUtils.read(source);
-                // check jpeg file signature (magic number FF D8 FF)
-                if (b.length < 3
-                        || (b[0] != (byte) 0xFF) // cast to signed byte (-1)
-                        || (b[1] != (byte) 0xD8) //cast to signed byte (-40)
-                        || (b[2] != (byte) 0xFF)) {
-                    throw new Parser.Failure("File has no jpeg signature", location);
+            // check jpeg file signature (magic number FF D8 FF)
+            if (!ImageHeader.JPEG.equals(header.getFormat())) throw new Parser.Failure("File has no jpeg signature", location);
+            final InputStream metadataSource;
+            if (decode) {
+                byte[] b;
+                try {
+                    b = FileUtils.read(header.getImageStream());
+                } catch (final IOException e) {
+                    Logger.error("Catched Exception", e);
+                    throw new Parser.Failure(e.getMessage(), location);
                 }
-            } catch (final IOException e) {
-                Logger.error("Catched Exception", e);
-                throw new Parser.Failure(e.getMessage(), location);
+                ii = parseJavaImage(location, new ByteArrayInputStream(b));
+                metadataSource = new ByteArrayInputStream(b);
+            } else {
+                ii = parseImageHeader(location, header);
+                metadataSource = header.getImageStream(); // the metadata reader stops at the start of the scan
             }
 
-            ii = parseJavaImage(location, new ByteArrayInputStream(b));
-
             try {
-                final Metadata metadata = JpegMetadataReader.readMetadata(new ByteArrayInputStream(b));
+                final Metadata metadata = JpegMetadataReader.readMetadata(metadataSource);
                 final Iterator<Directory> directories = metadata.getDirectories().iterator();
                 final HashMap<String, String> props = new HashMap<String, String>();
                 while (directories.hasNext()) {
@@ -168,7 +187,7 @@ public class genericImageParser extends AbstractParser implements Parser {
                 // just ignore
             }
         } else {
-            ii = parseJavaImage(location, source);
+            ii = decode ? parseJavaImage(location, header.getImageStream()) : parseImageHeader(location, header);
         }
 
         final HashSet<String> languages = new HashSet<String>();
@@ -225,6 +244,18 @@ public class genericImageParser extends AbstractParser implements Parser {
         return parseJavaImage(location, image);
     }
 
+    private ImageInfo parseImageHeader(
+                            final MultiProtocolURL location,
+                            final ImageHeader header) {
+        final ImageInfo ii = new ImageInfo(location);
+        ii.height = header.getHeight();
+        ii.width = header.getWidth();
+        ii.info.append("\n");
+        ii.info.append("width").append(": ").append(Integer.toString(ii.width)).append(" .\n");
+        ii.info.append("height").append(": ").append(Integer.toString(ii.height)).append(" .\n");
+        return ii;
+    }
+
     private ImageInfo parseJavaImage(
                             final MultiProtocolURL location,
                             final BufferedImage image) {
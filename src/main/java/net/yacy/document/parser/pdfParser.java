@@ -50,11 +50,13 @@ import org.apache.pdfbox.pdmodel.interactive.action.PDActionURI;
 import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
 import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationLink;
 import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
 
 import net.yacy.cora.document.encoding.UTF8;
 import net.yacy.document.AbstractParser;
 import net.yacy.document.Document;
 import net.yacy.document.Parser;
+import net.yacy.document.TaskQueue;
 import net.yacy.document.VocabularyScraper;
 import net.yacy.grid.tools.AnchorURL;
 import net.yacy.grid.tools.Logger;
@@ -68,6 +70,28 @@ public class pdfParser extends AbstractParser implements Parser {
     public static boolean individualPages = false;
     public static String individualPagePropertyname = "page";
 
+    // page-parallel text extraction; with less than 2 threads or without a queue the text is extracted in the parsing thread
+    private static volatile int pageThreads = 4;
+    private static volatile int pagesPerTask = 8;
+    private static volatile long pageTimeout = 10000;
+    private static volatile TaskQueue pageQueue = null;
+
+    /**
+     * set up page-parallel text extraction: the pages of a document are split into ranges which are
+     * extracted by the parsing thread and by helpers which are offered to the task queue (the parser pool).
+     * Each helper loads one document instance and uses it for all ranges it takes.
+     * @param threads maximum number of threads which extract the text of one document, including the parsing thread; 0 or 1 to switch parallel extraction off
+     * @param pages number of pages in one range
+     * @param timeout time budget for one page in milliseconds, for ranges of helpers and of the parsing thread
+     * @param queue the queue for helpers, null to switch parallel extraction off
+     */
+    public static void configurePageExtraction(final int threads, final int pages, final long timeout, final TaskQueue queue) {
+        pageThreads = Math.max(0, threads);
+        pagesPerTask = Math.max(1, pages);
+        pageTimeout = Math.max(1, timeout);
+        pageQueue = queue;
+    }
+
     public pdfParser() {
         super("Acrobat Portable Document Parser");
         this.SUPPORTED_EXTENSIONS.add("pdf");
@@ -94,10 +118,17 @@ public class pdfParser extends AbstractParser implements Parser {
 
         // create a pdf parser
         PDDocument pdfDoc;
+        final TaskQueue pool = pageThreads > 1 ? pageQueue : null;
+        byte[] pdfBytes = null; // the source is kept for parallel extraction, each helper needs its own document instance
         try {
             Thread.currentThread().setPriority(Thread.MIN_PRIORITY); // the pdfparser is a big pain
             MemoryUsageSetting mus = MemoryUsageSetting.setupMixed(200*1024*1024);
-            pdfDoc = PDDocument.load(source, mus);
+            if (pool == null) {
+                pdfDoc = PDDocument.load(source, mus);
+            } else {
+                pdfBytes = FileUtils.read(source);
+                pdfDoc = PDDocument.load(pdfBytes, "", null, null, mus);
+            }
         } catch (final IOException e) {
             throw new Parser.Failure(e.getMessage(), location);
         } finally {
@@ -155,12 +186,17 @@ public class pdfParser extends AbstractParser implements Parser {
 
                 // collect text
                 int pagecount = pdfDoc.getNumberOfPages();
-                String[] pages = new String[pagecount];
-                for (int page = 1; page <= pagecount; page++) {
-                    stripper.setStartPage(page);
-                    stripper.setEndPage(page);
-                    pages[page - 1] = stripper.getText(pdfDoc);
-                    //System.out.println("PAGE " + page + ": " + pages[page - 1]);
+                String[] pages;
+                if (pool == null) {
+                    pages = new String[pagecount];
+                    for (int page = 1; page <= pagecount; page++) {
+                        stripper.setStartPage(page);
+                        stripper.setEndPage(page);
+                        pages[page - 1] = stripper.getText(pdfDoc);
+                        //System.out.println("PAGE " + page + ": " + pages[page - 1]);
+                    }
+                } else {
+                    pages = extractPages(pool, pdfDoc, pdfBytes, true, location);
                 }
 
                 // create individual documents for each page
@@ -188,6 +224,13 @@ public class pdfParser extends AbstractParser implements Parser {
                             false,
                             docDate);
                 }
+            } else if (pool != null) {
+                // collect the text of page ranges concurrently and merge them in page order
+                final CharBuffer writer = new CharBuffer(odtParser.MAX_DOCSIZE);
+                for (final String text: extractPages(pool, pdfDoc, pdfBytes, false, location)) writer.append(text);
+                final byte[] contentBytes = writer.getBytes();
+                writer.close();
+                result = new Document[]{newDocument(location, mimeType, docKeywords, docTitle, docAuthor, docPublisher, contentBytes, pdflinks, docDate)};
             } else {
                 // collect the whole text at once
                 final CharBuffer writer = new CharBuffer(odtParser.MAX_DOCSIZE);
@@ -212,32 +255,15 @@ public class pdfParser extends AbstractParser implements Parser {
                     };
                     t.start();
                     t.join(10000); // pdfbox likes to forget to terminate ... (quite often)
-                    if (t.isAlive()) t.interrupt();
+                    if (t.isAlive()) {
+                        t.interrupt();
+                        Logger.warn("pdfParser text extraction of " + location + " timed out after page 3, the remaining text may be lost");
+                    }
                     contentBytes = writer.getBytes(); // get final text before closing writer
                     writer.close(); // free writer resources
                 }
 
-                Collection<AnchorURL> pdflinksCombined = new HashSet<>();
-                for (Collection<AnchorURL> pdflinksx: pdflinks) if (pdflinksx != null) pdflinksCombined.addAll(pdflinksx);
-                result = new Document[]{new Document(
-                        location,
-                        mimeType,
-                        StandardCharsets.UTF_8.name(),
-                        this,
-                        null,
-                        docKeywords,
-                        singleList(docTitle),
-                        docAuthor,
-                        docPublisher,
-                        null,
-                        null,
-                        0.0d, 0.0d,
-                        contentBytes,
-                        pdflinksCombined,
-                        null,
-                        null,
-                        false,
-                        docDate)};
+                result = new Document[]{newDocument(location, mimeType, docKeywords, docTitle, docAuthor, docPublisher, contentBytes, pdflinks, docDate)};
             }
         } catch (final Throwable e) {
             //throw new Parser.Failure(e.getMessage(), location);
@@ -260,6 +286,271 @@ public class pdfParser extends AbstractParser implements Parser {
         return result;
     }
 
+    private Document newDocument(
+            final MultiProtocolURL location, final String mimeType, final String[] docKeywords, final String docTitle,
+            final String docAuthor, final String docPublisher, final byte[] contentBytes, final Collection<AnchorURL>[] pdflinks, final Date docDate) {
+        Collection<AnchorURL> pdflinksCombined = new HashSet<>();
+        for (Collection<AnchorURL> pdflinksx: pdflinks) if (pdflinksx != null) pdflinksCombined.addAll(pdflinksx);
+        return new Document(
+                location,
+                mimeType,
+                StandardCharsets.UTF_8.name(),
+                this,
+                null,
+                docKeywords,
+                singleList(docTitle),
+                docAuthor,
+                docPublisher,
+                null,
+                null,
+                0.0d, 0.0d,
+                contentBytes,
+                pdflinksCombined,
+                null,
+                null,
+                false,
+                docDate);
+    }
+
+    /**
+     * A range of pages. The fields are guarded by the PageExtraction of the range.
+     */
+    private static class PageRange {
+        private final int first, last; // page numbers, counting from 1
+        private Thread worker; // the thread which extracts the range, null if it is not claimed or done
+        private PDDocument doc; // the document instance of the worker
+        private long started;
+        private String[] text;
+        private Throwable failure;
+        private boolean done, abandoned;
+
+        private PageRange(final int first, final int last) {
+            this.first = first;
+            this.last = last;
+            this.worker = null;
+            this.doc = null;
+            this.started = 0;
+            this.text = null;
+            this.failure = null;
+            this.done = false;
+            this.abandoned = false;
+        }
+    }
+
+    /**
+     * The page-parallel text extraction of one document. Page ranges are claimed one after another by the
+     * parsing thread, which uses its own document, and by helpers, which load one document instance each and
+     * use it for all ranges they claim, because PDDocument is not thread-safe. The parsing thread never waits
+     * for a helper which has not started: it takes all ranges which are left. All ranges have a time budget of
+     * pageTimeout milliseconds for each page which is checked by the stripper at each page and line of text.
+     * Ranges of helpers which exceed it are also abandoned, then the helper is interrupted and its document is
+     * closed, which also stops a stripper which is stuck within a page. The document of the parsing thread cannot
+     * be closed because it is used after the extraction, so for its ranges only the check of the stripper applies.
+     */
+    private static class PageExtraction {
+        private final PDDocument pdfDoc;
+        private final byte[] pdfBytes;
+        private final boolean individual;
+        private final PageRange[] ranges;
+        private int next; // the first range which is not claimed, guarded by this
+        private boolean closed; // no more ranges are claimed, guarded by this
+
+        private PageExtraction(final PDDocument pdfDoc, final byte[] pdfBytes, final boolean individual) {
+            this.pdfDoc = pdfDoc;
+            this.pdfBytes = pdfBytes;
+            this.individual = individual;
+            final int pagecount = pdfDoc.getNumberOfPages();
+            final int pages = pagesPerTask;
+            this.ranges = new PageRange[(pagecount + pages - 1) / pages];
+            for (int r = 0; r < this.ranges.length; r++) this.ranges[r] = new PageRange(r * pages + 1, Math.min(pagecount, (r + 1) * pages));
+            this.next = 0;
+            this.closed = false;
+        }
+
+        private synchronized PageRange claim(final PDDocument doc) {
+            if (this.closed || this.next >= this.ranges.length) return null;
+            final PageRange range = this.ranges[this.next++];
+            range.worker = Thread.currentThread();
+            range.doc = doc;
+            range.started = System.currentTimeMillis();
+            return range;
+        }
+
+        /**
+         * store the result of a range
+         * @return false if the range had been abandoned, then the document of the worker must not be used any more
+         */
+        private synchronized boolean finish(final PageRange range, final String[] text, final Throwable failure) {
+            if (range.abandoned) return false;
+            range.text = text;
+            range.failure = failure;
+            range.done = true;
+            range.worker = null;
+            this.notifyAll();
+            return true;
+        }
+
+        private boolean extract(final PageRange range, final PDDocument doc) {
+            try {
+                final long deadline = range.started + pageTimeout * (range.last - range.first + 1);
+                return finish(range, extractText(doc, range.first, range.last, this.individual, deadline), null);
+            } catch (final Throwable e) {
+                return finish(range, null, e);
+            }
+        }
+
+        /**
+         * a helper: it runs in a thread of the task queue and extracts ranges until all ranges are claimed
+         */
+        private void help() {
+            PDDocument doc = null;
+            try {
+                final PageRange range = claim(null);
+                if (range == null) return; // the parsing thread was faster
+                try {
+                    doc = PDDocument.load(this.pdfBytes, "", null, null, MemoryUsageSetting.setupMixed(200*1024*1024));
+                } catch (final Throwable e) {
+                    finish(range, null, e);
+                    return;
+                }
+                synchronized (this) {
+                    if (range.abandoned) return;
+                    range.doc = doc;
+                }
+                for (PageRange r = range; r != null && extract(r, doc); r = claim(doc)) {}
+            } finally {
+                if (doc != null) try {doc.close();} catch (final IOException e) {}
+                Thread.interrupted(); // an interrupt of an abandoned range must not reach the next task of the thread
+            }
+        }
+
+        private synchronized void abandon(final PageRange range) {
+            range.abandoned = true;
+            if (range.worker != null) range.worker.interrupt();
+            if (range.doc != null && range.doc != this.pdfDoc) try {range.doc.close();} catch (final IOException e) {}
+        }
+
+        /**
+         * extract the text with the parsing thread and the helpers
+         * @param queue the queue for helpers
+         * @param location the document url, for logging
+         * @return the texts in page order, one for each page if individual, otherwise one for each range
+         * @throws InterruptedException
+         */
+        private String[] run(final TaskQueue queue, final MultiProtocolURL location) throws InterruptedException {
+            final int helpers = Math.min(pageThreads, this.ranges.length) - 1;
+            for (int i = 0; i < helpers; i++) if (!queue.offer(this::help)) break;
+            final List<String> timedOut = new ArrayList<>();
+            try {
+                PageRange range;
+                while ((range = claim(this.pdfDoc)) != null) {
+                    if (Thread.currentThread().isInterrupted()) throw new InterruptedException();
+                    extract(range, this.pdfDoc);
+                }
+                // all ranges are claimed; wait for the ranges of the helpers
+                synchronized (this) {
+                    for (final PageRange r: this.ranges) {
+                        final long budget = pageTimeout * (r.last - r.first + 1);
+                        while (!r.done) {
+                            final long wait = r.started + budget - System.currentTimeMillis();
+                            if (wait <= 0) {
+                                abandon(r);
+                                timedOut.add(r.first + "-" + r.last);
+                                break;
+                            }
+                            this.wait(wait);
+                        }
+                    }
+                }
+            } finally {
+                synchronized (this) {
+                    this.closed = true;
+                    for (final PageRange r: this.ranges) if (r.started > 0 && !r.done && !r.abandoned) abandon(r);
+                }
+            }
+            for (final PageRange r: this.ranges) if (r.failure instanceof PageTimeout) timedOut.add(r.first + "-" + r.last);
+            if (!timedOut.isEmpty()) Logger.warn("pdfParser text extraction of " + location + " timed out for pages " + timedOut + " of " + this.pdfDoc.getNumberOfPages());
+
+            final List<String> texts = new ArrayList<>();
+            for (final PageRange r: this.ranges) {
+                if (r.failure != null && !(r.failure instanceof PageTimeout)) Logger.warn("pdfParser could not extract pages " + r.first + "-" + r.last + " of " + location, r.failure);
+                final String[] text = r.text == null ? new String[this.individual ? r.last - r.first + 1 : 1] : r.text;
+                for (final String t: text) texts.add(t == null ? "" : t);
+            }
+            return texts.toArray(new String[texts.size()]);
+        }
+    }
+
+    /**
+     * the time budget of a page range is exceeded
+     */
+    private static class PageTimeout extends IOException {
+        private static final long serialVersionUID = 1L;
+        private PageTimeout() {
+            super("page time budget exceeded");
+        }
+    }
+
+    /**
+     * a text stripper which stops at the deadline of its page range or when the thread is interrupted
+     */
+    private static class BudgetedTextStripper extends PDFTextStripper {
+        private final long deadline;
+
+        private BudgetedTextStripper(final long deadline) throws IOException {
+            super();
+            this.deadline = deadline;
+        }
+
+        private void check() throws IOException {
+            if (Thread.currentThread().isInterrupted()) throw new IOException("interrupted");
+            if (System.currentTimeMillis() > this.deadline) throw new PageTimeout();
+        }
+
+        @Override
+        protected void startPage(final PDPage page) throws IOException {
+            check();
+            super.startPage(page);
+        }
+
+        @Override
+        protected void writeString(final String text, final List<TextPosition> textPositions) throws IOException {
+            check();
+            super.writeString(text, textPositions);
+        }
+    }
+
+    private static String[] extractText(final PDDocument doc, final int first, final int last, final boolean individual, final long deadline) throws IOException {
+        final PDFTextStripper stripper = new BudgetedTextStripper(deadline);
+        final String[] text = new String[individual ? last - first + 1 : 1];
+        if (individual) {
+            for (int page = first; page <= last; page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                text[page - first] = stripper.getText(doc);
+            }
+        } else {
+            stripper.setStartPage(first);
+            stripper.setEndPage(last);
+            text[0] = stripper.getText(doc);
+        }
+        return text;
+    }
+
+    /**
+     * extract the text of a document in page ranges with the parsing thread and helpers in the task queue
+     * @param queue the queue for helpers
+     * @param pdfDoc the document of the parsing thread
+     * @param pdfBytes the source of the document, used by the helpers to load their own document instance
+     * @param individual if true, one text for each page is returned, otherwise one text for each range
+     * @param location the document url, for logging
+     * @return the texts in page order
+     * @throws InterruptedException
+     */
+    private static String[] extractPages(final TaskQueue queue, final PDDocument pdfDoc, final byte[] pdfBytes, final boolean individual, final MultiProtocolURL location) throws InterruptedException {
+        return new PageExtraction(pdfDoc, pdfBytes, individual).run(queue, location);
+    }
+
     /**
      * extract clickable links from pdf
      * @param pdf the document to parse
@@ -0,0 +1,206 @@
+/**
+ *  LinkedDataGraph
+ *  Copyright 2026 by the YaCy Grid contributors
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document.parser.rdfa;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.any23.extractor.ExtractionContext;
+import org.apache.any23.writer.TripleHandler;
+import org.apache.any23.writer.TripleHandlerException;
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.XSD;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * A TripleHandler for Any23 which collects the extracted triples directly into JSON-LD nodes, in the same
+ * shape as a compacted JSON-LD graph without context: each subject is a node with an @id, rdf:type is
+ * written as @type and references to other resources are objects with an @id. Literals are written as in
+ * compacted JSON-LD: xsd:string literals as plain strings, literals with a language as objects with
+ * @language and @value, and other typed literals as objects with @type and @value; the text is not changed.
+ * The graph can be given to htmlParser.graph2tree without serializing and parsing it again.
+ */
+public class LinkedDataGraph implements TripleHandler {
+
+    private final Map<String, TreeMap<String, Set<Object>>> subjects; // properties of each subject, sorted as in compacted JSON-LD
+    private String graphId;
+
+    public LinkedDataGraph() {
+        this.subjects = new LinkedHashMap<>();
+        this.graphId = null;
+    }
+
+    /**
+     * @return the id of the graph, the document url; the empty string if no graph name was given
+     */
+    public String getId() {
+        return this.graphId == null ? "" : this.graphId;
+    }
+
+    /**
+     * @return the nodes of the graph
+     */
+    public JSONArray getGraph() {
+        final JSONArray graph = new JSONArray();
+        for (final Map.Entry<String, TreeMap<String, Set<Object>>> subject: this.subjects.entrySet()) {
+            final JSONObject node = new JSONObject(true);
+            node.put("@id", subject.getKey());
+            for (final Map.Entry<String, Set<Object>> property: subject.getValue().entrySet()) {
+                final Set<Object> values = property.getValue();
+                if (values.size() == 1) {
+                    node.put(property.getKey(), reference(values.iterator().next()));
+                } else {
+                    final JSONArray a = new JSONArray();
+                    for (final Object v: values) a.put(reference(v));
+                    node.put(property.getKey(), a);
+                }
+            }
+            graph.put(node);
+        }
+        return graph;
+    }
+
+    private static Object reference(final Object value) {
+        // resources are stored as Id to distinguish them from literals with the same text
+        if (value instanceof Id) {
+            final JSONObject ref = new JSONObject(true);
+            ref.put("@id", ((Id) value).id);
+            return ref;
+        }
+        if (value instanceof TypedLiteral) {
+            final TypedLiteral literal = (TypedLiteral) value;
+            final JSONObject v = new JSONObject(true);
+            if (literal.language != null) v.put("@language", literal.language); else v.put("@type", literal.datatype);
+            v.put("@value", literal.value);
+            return v;
+        }
+        return value;
+    }
+
+    private static Object literal(final Literal literal) {
+        final String language = literal.getLanguage().orElse(null);
+        final String datatype = literal.getDatatype() == null ? null : literal.getDatatype().stringValue();
+        if (language == null && (datatype == null || XSD.STRING.stringValue().equals(datatype))) return literal.getLabel();
+        return new TypedLiteral(literal.getLabel(), language, language == null ? datatype : null);
+    }
+
+    private static final class TypedLiteral {
+        private final String value, language, datatype; // either language or datatype is given
+        private TypedLiteral(final String value, final String language, final String datatype) {
+            this.value = value;
+            this.language = language;
+            this.datatype = datatype;
+        }
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof TypedLiteral)) return false;
+            final TypedLiteral t = (TypedLiteral) o;
+            return t.value.equals(this.value) && Objects.equals(t.language, this.language) && Objects.equals(t.datatype, this.datatype);
+        }
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.value, this.language, this.datatype);
+        }
+    }
+
+    private static final class Id {
+        private final String id;
+        private Id(final String id) {
+            this.id = id;
+        }
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof Id && ((Id) o).id.equals(this.id);
+        }
+        @Override
+        public int hashCode() {
+            return this.id.hashCode();
+        }
+    }
+
+    private static String id(final Resource r) {
+        return r instanceof BNode ? "_:" + ((BNode) r).getID() : r.stringValue();
+    }
+
+    @Override
+    public void receiveTriple(final Resource s, final IRI p, final Value o, final IRI g, final ExtractionContext context) throws TripleHandlerException {
+        if (this.graphId == null && g != null) this.graphId = g.stringValue();
+        final String subject = id(s);
+        TreeMap<String, Set<Object>> properties = this.subjects.get(subject);
+        if (properties == null) {
+            properties = new TreeMap<>();
+            this.subjects.put(subject, properties);
+        }
+        final String property;
+        final Object value;
+        if (RDF.TYPE.equals(p) && o instanceof Resource) {
+            property = "@type";
+            value = id((Resource) o);
+        } else {
+            property = p.stringValue();
+            value = o instanceof Literal ? literal((Literal) o) : new Id(id((Resource) o));
+        }
+        Set<Object> values = properties.get(property);
+        if (values == null) {
+            values = new LinkedHashSet<>();
+            properties.put(property, values);
+        }
+        values.add(value);
+    }
+
+    @Override
+    public void startDocument(final IRI documentIRI) throws TripleHandlerException {
+    }
+
+    @Override
+    public void openContext(final ExtractionContext context) throws TripleHandlerException {
+    }
+
+    @Override
+    public void receiveNamespace(final String prefix, final String uri, final ExtractionContext context) throws TripleHandlerException {
+    }
+
+    @Override
+    public void closeContext(final ExtractionContext context) throws TripleHandlerException {
+    }
+
+    @Override
+    public void endDocument(final IRI documentIRI) throws TripleHandlerException {
+    }
+
+    @Override
+    public void setContentLength(final long contentLength) {
+    }
+
+    @Override
+    public void close() throws TripleHandlerException {
+    }
+
+}
@@ -1,46 +1,349 @@
 package net.yacy.document.parser.rdfa;
 
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.safety.Safelist;
-import org.jsoup.select.Elements;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
+/**
+ * Adds a content attribute to RDFa property elements which have no content attribute and no nested
+ * property elements; the value is the inner html of the element, reduced to a small set of markup tags.
+ * The html is processed in one streaming pass over the bytes: everything except the inserted attributes
+ * and the end tags of unclosed elements inside a closed element is passed through unchanged.
+ * Documents without a property attribute are returned as they are.
+ */
 public class RDFaRefiner {
+
+    private static final byte[] PROPERTY = "property".getBytes(StandardCharsets.US_ASCII);
+
+    private static final Set<String> ALLOWED_TAGS = new HashSet<>(Arrays.asList(
+            "a", "b", "br", "em", "h1", "h2", "h3", "h4", "h5", "h6", "i", "li", "ol", "p", "strong", "sub", "sup", "ul"));
+    private static final String[] ALLOWED_PROTOCOLS = new String[]{"ftp:", "http:", "https:", "mailto:"};
+
+    private static final Set<String> VOID_TAGS = new HashSet<>(Arrays.asList(
+            "area", "base", "br", "col", "embed", "hr", "img", "input", "keygen", "link", "meta", "param", "source", "track", "wbr"));
+    // elements with text content which is not parsed for tags; the content of script and style is no text
+    private static final Set<String> RAWTEXT_TAGS = new HashSet<>(Arrays.asList("script", "style", "textarea", "title"));
+    private static final Set<String> DATA_TAGS = new HashSet<>(Arrays.asList("script", "style"));
+    // elements which may be closed implicitly; these are not repaired with an end tag
+    private static final Set<String> OPTIONAL_END_TAGS = new HashSet<>(Arrays.asList(
+            "body", "colgroup", "dd", "dt", "head", "html", "li", "optgroup", "option", "p", "rb", "rp", "rt", "tbody", "td", "tfoot", "th", "thead", "tr"));
+
     public static byte[] refine(byte[] bytesHtmlInput) {
-        Document domDocument = Jsoup.parse(new String(bytesHtmlInput));
+        return refine(bytesHtmlInput, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param bytesHtmlInput the html document
+     * @param charset the charset of the document; documents in charsets which are not ASCII-compatible are converted to UTF-8
+     * @return the refined document or the input if there is nothing to refine
+     */
+    public static byte[] refine(byte[] bytesHtmlInput, final Charset charset) {
+        if (!isAsciiCompatible(charset)) bytesHtmlInput = new String(bytesHtmlInput, charset).getBytes(StandardCharsets.UTF_8);
+        if (indexOfIgnoreCase(bytesHtmlInput, PROPERTY, 0) < 0) return bytesHtmlInput;
+        return new Refinement(bytesHtmlInput).run();
+    }
+
+    private static boolean isAsciiCompatible(final Charset charset) {
+        return Arrays.equals("<a =\"'/>".getBytes(charset), "<a =\"'/>".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static class Element {
+        private final String name;
+        private final int attributeEnd; // position in the input where a content attribute can be inserted
+        private ByteArrayOutputStream content; // the cleaned inner html if this is a candidate for a content attribute
+
+        private Element(final String name, final int attributeEnd) {
+            this.name = name;
+            this.attributeEnd = attributeEnd;
+            this.content = null;
+        }
+    }
+
+    private static class Insertion {
+        private final int position;
+        private final byte[] bytes;
+        private Insertion(final int position, final byte[] bytes) {
+            this.position = position;
+            this.bytes = bytes;
+        }
+    }
+
+    private static class Refinement {
+        private final byte[] b;
+        private final List<Element> stack;
+        private final List<Insertion> insertions;
+        private Element candidate; // the innermost open property element which may get a content attribute
+
+        private Refinement(final byte[] b) {
+            this.b = b;
+            this.stack = new ArrayList<>();
+            this.insertions = new ArrayList<>();
+            this.candidate = null;
+        }
+
+        private byte[] run() {
+            final int n = this.b.length;
+            int p = 0, text = 0;
+            while (p < n) {
+                if (this.b[p] != '<' || p + 1 >= n) {p++; continue;}
+                final byte c = this.b[p + 1];
+                if (c == '!' || c == '?') {
+                    text(text, p);
+                    if (startsWith(p, "<!--")) {
+                        final int e = indexOf(this.b, "-->".getBytes(StandardCharsets.US_ASCII), p + 4);
+                        p = e < 0 ? n : e + 3;
+                    } else {
+                        final int e = indexOf(this.b, new byte[]{'>'}, p + 2);
+                        p = e < 0 ? n : e + 1;
+                    }
+                    text = p;
+                } else if (c == '/' && p + 2 < n && isLetter(this.b[p + 2])) {
+                    text(text, p);
+                    final int e = nameEnd(p + 2);
+                    endTag(lower(p + 2, e), p);
+                    final int gt = indexOf(this.b, new byte[]{'>'}, e);
+                    p = gt < 0 ? n : gt + 1;
+                    text = p;
+                } else if (isLetter(c)) {
+                    text(text, p);
+                    p = startTag(p);
+                    text = p;
+                } else {
+                    p++;
+                }
+            }
+            text(text, n);
+            while (!this.stack.isEmpty()) close(this.stack.remove(this.stack.size() - 1));
+            return assemble();
+        }
+
+        /**
+         * parse a start tag
+         * @param start the position of '<'
+         * @return the position after the tag (and after the content of raw text elements)
+         */
+        private int startTag(final int start) {
+            final int n = this.b.length;
+            final int e = nameEnd(start + 1);
+            final String name = lower(start + 1, e);
+            boolean property = false, content = false, selfClosing = false;
+            String href = null;
+            int p = e, attributeEnd = n;
+            while (p < n) {
+                while (p < n && isSpace(this.b[p])) p++;
+                if (p >= n) break;
+                if (this.b[p] == '>') {attributeEnd = p; p++; break;}
+                if (this.b[p] == '/' && p + 1 < n && this.b[p + 1] == '>') {attributeEnd = p; selfClosing = true; p += 2; break;}
+                final int ns = p;
+                while (p < n && !isSpace(this.b[p]) && this.b[p] != '=' && this.b[p] != '>' && !(this.b[p] == '/' && p + 1 < n && this.b[p + 1] == '>')) p++;
+                if (p == ns) p++; // a stray '/'
+                final String attr = lower(ns, p);
+                while (p < n && isSpace(this.b[p])) p++;
+                String value = null;
+                if (p < n && this.b[p] == '=') {
+                    p++;
+                    while (p < n && isSpace(this.b[p])) p++;
+                    int vs, ve;
+                    if (p < n && (this.b[p] == '"' || this.b[p] == '\'')) {
+                        final byte q = this.b[p];
+                        vs = p + 1;
+                        ve = vs;
+                        while (ve < n && this.b[ve] != q) ve++;
+                        p = Math.min(n, ve + 1);
+                    } else {
+                        vs = p;
+                        while (p < n && !isSpace(this.b[p]) && this.b[p] != '>') p++;
+                        ve = p;
+                    }
+                    value = new String(this.b, vs, ve - vs, StandardCharsets.ISO_8859_1);
+                }
+                if (attr.equals("property")) property = true;
+                else if (attr.equals("content")) content = true;
+                else if (attr.equals("href")) href = value;
+            }
+            if (p >= n && attributeEnd == n) return n; // unterminated tag
+
+            // implicitly close a sibling
+            if (!this.stack.isEmpty() && closesSibling(this.stack.get(this.stack.size() - 1).name, name)) {
+                close(this.stack.remove(this.stack.size() - 1));
+            }
+
+            // an open candidate which gets a property descendant does not get a content attribute
+            if (property) this.candidate = null;
+
+            // write the tag into the content of the current candidate
+            if (this.candidate != null && ALLOWED_TAGS.contains(name)) {
+                final StringBuilder sb = new StringBuilder().append('<').append(name);
+                if (name.equals("a") && href != null && hasAllowedProtocol(href)) sb.append(" href=\"").append(href.replace("\"", "&quot;")).append('"');
+                sb.append('>');
+                write(this.candidate.content, sb.toString().getBytes(StandardCharsets.ISO_8859_1));
+            }
+
+            final boolean isVoid = selfClosing || VOID_TAGS.contains(name);
+            if (isVoid) {
+                if (property && !content) insertContent(attributeEnd, new byte[0]);
+                return p;
+            }
 
-        Elements rdfaPropertyHtmlTags = domDocument.getElementsByAttribute("property");
+            final Element element = new Element(name, attributeEnd);
+            if (property && !content) {
+                element.content = new ByteArrayOutputStream();
+                this.candidate = element;
+            }
+            this.stack.add(element);
+
+            if (RAWTEXT_TAGS.contains(name)) {
+                // the content of raw text elements is not parsed, find the end tag
+                int end = p;
+                while ((end = indexOfIgnoreCase(this.b, ("</" + name).getBytes(StandardCharsets.US_ASCII), end)) >= 0) {
+                    final int after = end + 2 + name.length();
+                    if (after >= n || isSpace(this.b[after]) || this.b[after] == '>' || this.b[after] == '/') break;
+                    end = after;
+                }
+                if (end < 0) end = n;
+                if (!DATA_TAGS.contains(name)) text(p, end);
+                return end;
+            }
+            return p;
+        }
+
+        private void endTag(final String name, final int position) {
+            int i = this.stack.size() - 1;
+            while (i >= 0 && !this.stack.get(i).name.equals(name)) i--;
+            if (i < 0) return; // a stray end tag
+            // close all elements which are still open inside the element
+            while (this.stack.size() - 1 > i) {
+                final Element e = this.stack.remove(this.stack.size() - 1);
+                if (!OPTIONAL_END_TAGS.contains(e.name)) {
+                    final byte[] endTag = ("</" + e.name + ">").getBytes(StandardCharsets.US_ASCII);
+                    this.insertions.add(new Insertion(position, endTag));
+                }
+                close(e);
+            }
+            final Element e = this.stack.remove(i);
+            close(e);
+        }
+
+        private void close(final Element e) {
+            if (this.candidate != null && this.candidate != e && ALLOWED_TAGS.contains(e.name) && !VOID_TAGS.contains(e.name)) {
+                write(this.candidate.content, ("</" + e.name + ">").getBytes(StandardCharsets.US_ASCII));
+            }
+            if (e == this.candidate) {
+                insertContent(e.attributeEnd, trim(e.content.toByteArray()));
+                this.candidate = null;
+            }
+            e.content = null;
+        }
 
-        for (Element rdfaPropertyHtmlTag: rdfaPropertyHtmlTags) {
+        private void text(final int start, final int end) {
+            if (this.candidate != null && end > start) this.candidate.content.write(this.b, start, end - start);
+        }
 
-            if (hasRDFaChildrenOnInfiniteLevel(rdfaPropertyHtmlTag)) {
-                continue;
+        private void insertContent(final int position, final byte[] content) {
+            final ByteArrayOutputStream attr = new ByteArrayOutputStream(content.length + 12);
+            write(attr, " content=\"".getBytes(StandardCharsets.US_ASCII));
+            for (final byte c: content) {
+                if (c == '&') write(attr, "&amp;".getBytes(StandardCharsets.US_ASCII));
+                else if (c == '"') write(attr, "&quot;".getBytes(StandardCharsets.US_ASCII));
+                else attr.write(c);
             }
+            attr.write('"');
+            this.insertions.add(new Insertion(position, attr.toByteArray()));
+        }
 
-            if (rdfaPropertyHtmlTag.hasAttr("content")) {
-                continue;
+        private byte[] assemble() {
+            if (this.insertions.isEmpty()) return this.b;
+            // insertions are created in closing order; keep that order for equal positions
+            this.insertions.sort((x, y) -> Integer.compare(x.position, y.position));
+            int size = this.b.length;
+            for (final Insertion i: this.insertions) size += i.bytes.length;
+            final byte[] out = new byte[size];
+            int p = 0, q = 0;
+            for (final Insertion i: this.insertions) {
+                System.arraycopy(this.b, p, out, q, i.position - p);
+                q += i.position - p;
+                p = i.position;
+                System.arraycopy(i.bytes, 0, out, q, i.bytes.length);
+                q += i.bytes.length;
             }
+            System.arraycopy(this.b, p, out, q, this.b.length - p);
+            return out;
+        }
 
-            rdfaPropertyHtmlTag.attr("content", Jsoup.clean(rdfaPropertyHtmlTag.html(), createSafelist()));
+        private int nameEnd(int p) {
+            while (p < this.b.length && !isSpace(this.b[p]) && this.b[p] != '>' && this.b[p] != '/') p++;
+            return p;
         }
 
-        String refinedHtml = domDocument.outerHtml();
+        private String lower(final int start, final int end) {
+            final char[] c = new char[end - start];
+            for (int i = 0; i < c.length; i++) {
+                final int x = this.b[start + i] & 0xff;
+                c[i] = (char) (x >= 'A' && x <= 'Z' ? x + 32 : x);
+            }
+            return new String(c);
+        }
 
-        return refinedHtml.getBytes();
+        private boolean startsWith(final int p, final String s) {
+            if (p + s.length() > this.b.length) return false;
+            for (int i = 0; i < s.length(); i++) if (this.b[p + i] != s.charAt(i)) return false;
+            return true;
+        }
+    }
+
+    private static boolean closesSibling(final String open, final String name) {
+        if (open.equals(name)) return open.equals("p") || open.equals("li") || open.equals("option") || open.equals("tr") || open.equals("td") || open.equals("th") || open.equals("dt") || open.equals("dd");
+        return (open.equals("dt") && name.equals("dd")) || (open.equals("dd") && name.equals("dt")) ||
+               (open.equals("td") && name.equals("th")) || (open.equals("th") && name.equals("td"));
+    }
+
+    private static boolean hasAllowedProtocol(final String href) {
+        final String h = href.trim().toLowerCase();
+        for (final String protocol: ALLOWED_PROTOCOLS) if (h.startsWith(protocol)) return true;
+        return false;
+    }
+
+    private static void write(final ByteArrayOutputStream out, final byte[] b) {
+        out.write(b, 0, b.length);
     }
 
-    private static boolean hasRDFaChildrenOnInfiniteLevel(Element rdfaPropertyHtmlTag) {
-        int countAllLevelChildrenWithoutItself = rdfaPropertyHtmlTag.getElementsByAttribute("property").size() - 1;
+    private static byte[] trim(final byte[] b) {
+        int s = 0, e = b.length;
+        while (s < e && isSpace(b[s])) s++;
+        while (e > s && isSpace(b[e - 1])) e--;
+        return s == 0 && e == b.length ? b : Arrays.copyOfRange(b, s, e);
+    }
 
-        return countAllLevelChildrenWithoutItself > 0;
+    private static boolean isLetter(final byte c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
     }
 
-    private static Safelist createSafelist() {
-        return new Safelist()
-            .addTags("a", "b", "br", "em", "h1", "h2", "h3", "h4", "h5", "h6", "i", "li", "ol", "p", "strong", "sub",
-                "sup", "ul")
-            .addAttributes("a", "href")
-            .addProtocols("a", "href", "ftp", "http", "https", "mailto");
+    private static boolean isSpace(final byte c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+
+    private static int indexOf(final byte[] b, final byte[] pattern, final int from) {
+        outer: for (int i = from; i <= b.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) if (b[i + j] != pattern[j]) continue outer;
+            return i;
+        }
+        return -1;
+    }
+
+    private static int indexOfIgnoreCase(final byte[] b, final byte[] pattern, final int from) {
+        // the pattern must be lower case
+        outer: for (int i = from; i <= b.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                final byte c = b[i + j];
+                if ((c >= 'A' && c <= 'Z' ? c + 32 : c) != pattern[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
     }
 }
@@ -37,6 +37,7 @@ import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 
 import net.yacy.cora.document.encoding.UTF8;
 import net.yacy.document.AbstractParser;
+import net.yacy.document.ArchiveEntries;
 import net.yacy.document.Document;
 import net.yacy.document.Parser;
 import net.yacy.document.TextParser;
@@ -44,7 +45,6 @@ import net.yacy.document.VocabularyScraper;
 import net.yacy.grid.tools.AnchorURL;
 import net.yacy.grid.tools.Logger;
 import net.yacy.grid.tools.MultiProtocolURL;
-import net.yacy.kelondro.util.FileUtils;
 
 // this is a new implementation of this parser idiom using multiple documents as result set
 /**
@@ -105,32 +105,28 @@ public class tarParser extends AbstractParser implements Parser {
                     null,
                     false,
                     new Date());
-        // loop through the elements in the tar file and parse every single file inside
+        // loop through the elements in the tar file and parse every single file inside;
+        // the entries are read into memory and parsed concurrently
+        final ArchiveEntries.Batch entries = new ArchiveEntries.Batch(scraper, timezoneOffset);
         while (true) {
             try {
-                File tmp = null;
                 entry = tis.getNextTarEntry();
                 if (entry == null) break;
                 if (entry.isDirectory() || entry.getSize() <= 0) continue;
                 final String name = entry.getName();
                 final int idx = name.lastIndexOf('.');
                 final String mime = TextParser.mimeOf((idx > -1) ? name.substring(idx+1) : "");
-                try {
-                    tmp = FileUtils.createTempFile(this.getClass(), name);
-                    FileUtils.copy(tis, tmp, entry.getSize());
-                    final Document[] subDocs = TextParser.parseSource(new AnchorURL(location, "#" + name), mime, null, scraper, timezoneOffset, 999, tmp);
-                    if (subDocs == null) continue;
-                    maindoc.addSubDocuments(subDocs);
-                } catch (final Parser.Failure e) {
-                    Logger.warn("tar parser entry " + name + ": " + e.getMessage());
-                } finally {
-                    if (tmp != null) FileUtils.deletedelete(tmp);
-                }
+                entries.add(new AnchorURL(location, "#" + name), mime, tis, entry.getSize());
             } catch (final IOException e) {
                 Logger.warn("tar parser:" + e.getMessage());
                 break;
             }
         }
+        try {
+            entries.addTo(maindoc);
+        } catch (final IOException e) {
+            Logger.warn("tar parser:" + e.getMessage());
+        }
         return new Document[]{maindoc};
     }
 
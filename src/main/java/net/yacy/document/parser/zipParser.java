@@ -24,7 +24,6 @@
 
 package net.yacy.document.parser;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Date;
@@ -32,13 +31,13 @@ import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 import net.yacy.document.AbstractParser;
+import net.yacy.document.ArchiveEntries;
 import net.yacy.document.Document;
 import net.yacy.document.Parser;
 import net.yacy.document.TextParser;
 import net.yacy.document.VocabularyScraper;
 import net.yacy.grid.tools.Logger;
 import net.yacy.grid.tools.MultiProtocolURL;
-import net.yacy.kelondro.util.FileUtils;
 
 // this is a new implementation of this parser idiom using multiple documents as result set
 /**
@@ -97,10 +96,11 @@ public class zipParser extends AbstractParser implements Parser {
                 false,
                 new Date());
 
-        // loop through the elements in the zip file and parse every single file inside
+        // loop through the elements in the zip file and parse every single file inside;
+        // the entries are read into memory and parsed concurrently
+        final ArchiveEntries.Batch entries = new ArchiveEntries.Batch(scraper, timezoneOffset);
         while (true) {
             try {
-                File tmp = null;
                 if (zis.available() <= 0) break;
                 entry = zis.getNextEntry();
                 if (entry == null) break;
@@ -108,24 +108,18 @@ public class zipParser extends AbstractParser implements Parser {
                 final String name = entry.getName();
                 final int idx = name.lastIndexOf('.');
                 final String mime = TextParser.mimeOf((idx >= 0) ? name.substring(idx + 1) : "");
-                try {
-                    tmp = FileUtils.createTempFile(this.getClass(), name);
-                    FileUtils.copy(zis, tmp, entry.getSize());
-                    final MultiProtocolURL virtualURL = new MultiProtocolURL(location, "#" + name);
-                    //this.log.logInfo("ZIP file parser: " + virtualURL.toNormalform(false, false));
-                    final Document[] docs = TextParser.parseSource(virtualURL, mime, null, scraper, timezoneOffset, 999, tmp);
-                    if (docs == null) continue;
-                    maindoc.addSubDocuments(docs);
-                } catch (final Parser.Failure e) {
-                    Logger.warn("ZIP parser entry " + name + ": " + e.getMessage());
-                } finally {
-                    if (tmp != null) FileUtils.deletedelete(tmp);
-                }
+                final MultiProtocolURL virtualURL = new MultiProtocolURL(location, "#" + name);
+                entries.add(virtualURL, mime, zis, entry.getSize());
             } catch (final IOException e) {
                 Logger.warn("ZIP parser:" + e.getMessage());
                 break;
             }
         }
+        try {
+            entries.addTo(maindoc);
+        } catch (final IOException e) {
+            Logger.warn("ZIP parser:" + e.getMessage());
+        }
         return new Document[]{maindoc};
     }
 }
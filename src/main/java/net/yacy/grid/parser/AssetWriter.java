@@ -0,0 +1,234 @@
+/**
+ *  AssetWriter
+ *  Copyright 2026 by the YaCy Grid contributors
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.grid.parser;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.json.JSONObject;
+
+import net.yacy.grid.mcp.Configuration;
+import net.yacy.grid.tools.JSONList;
+import net.yacy.grid.tools.Logger;
+
+/**
+ * Writes a JSON list asset incrementally into the grid storage. Lines are collected in a chunk buffer
+ * and each chunk is stored as soon as it reaches the chunk size, so memory usage is bounded by the chunk
+ * size and not by the number of documents. The first chunk is stored with the given path, all following
+ * chunks with the path and a chunk number suffix; if compression is switched on, ".gz" is appended.
+ * Storing a chunk is tried again a few times; chunks which still cannot be stored are kept, they can be
+ * carried within the next message as fallback.
+ */
+public class AssetWriter {
+
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024 * 1024;
+    private static final int MAX_CHUNK_SIZE = 1024 * 1024 * 1024;
+    private static final int STORE_ATTEMPTS = 3;
+    private static final long STORE_RETRY_DELAY = 1000; // milliseconds, multiplied with the number of the attempt
+
+    /**
+     * the storage of the chunks
+     */
+    public interface Storage {
+        public void store(String path, byte[] asset) throws IOException;
+    }
+
+    private final Storage storage;
+    private final String path;
+    private final int chunkSize;
+    private final boolean gzip;
+    private final List<String> stored;
+    private final List<byte[]> failed;
+    private ByteArrayOutputStream chunk;
+    private OutputStream out;
+    private int lines;
+
+    /**
+     * @param config the configuration which contains the grid storage
+     * @param path the path of the asset
+     * @param chunkSize the maximum size of one stored chunk in bytes, 0 for the default size
+     * @param gzip if true, chunks are stored gzip-compressed
+     */
+    public AssetWriter(final Configuration config, final String path, final int chunkSize, final boolean gzip) {
+        this((p, asset) -> config.gridStorage.store(p, asset), path, chunkSize, gzip);
+    }
+
+    /**
+     * @param storage the storage of the chunks
+     * @param path the path of the asset
+     * @param chunkSize the maximum size of one stored chunk in bytes, 0 for the default size
+     * @param gzip if true, chunks are stored gzip-compressed
+     */
+    public AssetWriter(final Storage storage, final String path, final int chunkSize, final boolean gzip) {
+        this.storage = storage;
+        this.path = path;
+        this.chunkSize = chunkSize <= 0 ? DEFAULT_CHUNK_SIZE : Math.min(chunkSize, MAX_CHUNK_SIZE);
+        this.gzip = gzip;
+        this.stored = new ArrayList<>();
+        this.failed = new ArrayList<>();
+        this.chunk = null;
+        this.out = null;
+        this.lines = 0;
+    }
+
+    /**
+     * write objects as lines into the asset; all objects of one call are stored within the same chunk,
+     * i.e. an elasticsearch bulk action line together with its document
+     * @param json
+     * @throws IOException
+     */
+    public synchronized void write(final JSONObject... json) throws IOException {
+        if (this.out == null) open();
+        for (final JSONObject j: json) {
+            this.out.write(j.toString().getBytes(StandardCharsets.UTF_8));
+            this.out.write('\n');
+            this.lines++;
+        }
+        if (this.chunk.size() >= this.chunkSize) flush();
+    }
+
+    /**
+     * write serialized json objects as lines into the asset; all lines of one call are stored within the same chunk
+     * @param lines UTF-8 json objects without line terminator
+     * @throws IOException
+     */
+    public synchronized void write(final byte[]... lines) throws IOException {
+        if (this.out == null) open();
+        for (final byte[] b: lines) {
+            this.out.write(b);
+            this.out.write('\n');
+            this.lines++;
+        }
+        if (this.chunk.size() >= this.chunkSize) flush();
+    }
+
+    /**
+     * store the current chunk; this must be called once all objects are written
+     * @throws IOException if the chunk cannot be completed
+     */
+    public synchronized void close() throws IOException {
+        // an empty asset is stored as well, so the next actions find it
+        if (this.out == null && this.stored.isEmpty() && this.failed.isEmpty()) open();
+        if (this.out != null) flush();
+    }
+
+    /**
+     * discard the current chunk without storing it; this is called if the asset cannot be completed.
+     * Chunks which had been stored already are kept. This does nothing after close.
+     */
+    public synchronized void abort() {
+        if (this.out == null) return;
+        try {
+            this.out.close();
+        } catch (final IOException e) {
+        } finally {
+            this.out = null;
+            this.chunk = null;
+        }
+        Logger.warn("AssetWriter discarded " + this.lines + " lines of " + this.path + ", " + this.stored.size() + " chunks had been stored");
+        this.lines = 0;
+    }
+
+    /**
+     * @return the storage paths of all chunks which had been stored successfully, in the order of the chunks
+     */
+    public synchronized List<String> getStoredPaths() {
+        return this.stored;
+    }
+
+    /**
+     * @return true if all chunks had been stored
+     */
+    public synchronized boolean isComplete() {
+        return this.failed.isEmpty();
+    }
+
+    /**
+     * get the content of all chunks which could not be stored
+     * @return the lines of the failed chunks as list of objects
+     * @throws IOException
+     */
+    public synchronized JSONList getFailed() throws IOException {
+        final JSONList list = new JSONList();
+        for (final byte[] b: this.failed) {
+            InputStream is = new ByteArrayInputStream(b);
+            if (this.gzip) is = new GZIPInputStream(is);
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.length() > 0) list.add(new JSONObject(line));
+            }
+        }
+        return list;
+    }
+
+    private void open() throws IOException {
+        this.chunk = new ByteArrayOutputStream(Math.min(this.chunkSize, 1024 * 1024));
+        this.out = this.gzip ? new GZIPOutputStream(this.chunk, 65536) : this.chunk;
+    }
+
+    /**
+     * store the current chunk; if the chunk cannot be stored, it is kept as failed chunk
+     * @throws IOException if the chunk cannot be completed; then the chunk is lost and the asset is incomplete
+     */
+    private void flush() throws IOException {
+        final int n = this.stored.size() + this.failed.size();
+        final String chunkPath = (n == 0 ? this.path : this.path + "." + n) + (this.gzip ? ".gz" : "");
+        final byte[] b;
+        try {
+            this.out.close();
+            b = this.chunk.toByteArray();
+        } finally {
+            this.out = null;
+            this.chunk = null;
+        }
+        final int lines = this.lines;
+        this.lines = 0;
+        for (int attempt = 1; attempt <= STORE_ATTEMPTS; attempt++) {
+            try {
+                this.storage.store(chunkPath, b);
+                this.stored.add(chunkPath);
+                Logger.info("AssetWriter stored " + lines + " lines in " + chunkPath);
+                return;
+            } catch (final Throwable e) {
+                Logger.warn("AssetWriter could not store " + chunkPath + " (attempt " + attempt + " of " + STORE_ATTEMPTS + ")", e);
+            }
+            if (attempt < STORE_ATTEMPTS) try {
+                Thread.sleep(STORE_RETRY_DELAY * attempt);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        this.failed.add(b);
+        Logger.warn("AssetWriter keeps " + lines + " lines of " + chunkPath + " as failed chunk");
+    }
+
+}
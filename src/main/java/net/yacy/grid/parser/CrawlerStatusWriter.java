@@ -0,0 +1,266 @@
+/**
+ *  CrawlerStatusWriter
+ *  Copyright 2026 by the YaCy Grid contributors
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.grid.parser;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+
+import org.json.JSONObject;
+
+import net.yacy.grid.io.index.CrawlerDocument;
+import net.yacy.grid.mcp.Configuration;
+import net.yacy.grid.tools.Logger;
+import net.yacy.kelondro.util.NamePrefixThreadFactory;
+
+/**
+ * The CrawlerStatusWriter collects status updates for the crawler index and writes them with background writes,
+ * so parser threads do not wait for the index. The writer threads are woken up when batchSize updates are pending
+ * or when the flush interval is over and pass one batch to the index in one call. Several updates for the same
+ * document are merged into one. If a batch fails, all its updates are re-scheduled with an increasing delay until
+ * the maximum number of attempts is reached. The number of pending updates is bounded: if the index cannot keep up,
+ * update() blocks until there is space again, so the parser is slowed down to the speed of the index.
+ */
+public class CrawlerStatusWriter {
+
+    private static CrawlerStatusWriter instance = null;
+    private static int defaultBatchSize = 100;
+    private static long defaultInterval = 1000;
+    private static int defaultRetries = 3;
+    private static int defaultThreads = 4;
+    private static int defaultMaxPending = 100000;
+    private static final long FULL_WARN = 10000; // time in milliseconds between two warnings while updates wait for space in the queue
+
+    /**
+     * set the writer properties. This must be called before the writer is used the first time.
+     * @param batchSize number of pending updates which wake up the writer threads
+     * @param interval maximum time in milliseconds until a pending update is written
+     * @param retries number of attempts to write an update after a failure
+     * @param threads number of writer threads
+     * @param maxPending maximum number of pending updates
+     */
+    public static synchronized void configure(final int batchSize, final long interval, final int retries, final int threads, final int maxPending) {
+        if (instance != null) {
+            Logger.warn("CrawlerStatusWriter is already running, configuration ignored");
+            return;
+        }
+        defaultBatchSize = Math.max(1, batchSize);
+        defaultInterval = Math.max(1, interval);
+        defaultRetries = Math.max(0, retries);
+        defaultThreads = Math.max(1, threads);
+        defaultMaxPending = Math.max(defaultBatchSize, maxPending);
+    }
+
+    public static synchronized CrawlerStatusWriter getInstance(final Configuration config) {
+        if (instance == null) {
+            // the grid index has no bulk request for partial updates (its bulk write replaces whole documents),
+            // so the updates of a batch are sent one after another; the batch is still re-scheduled as a whole
+            instance = new CrawlerStatusWriter(batch -> {
+                        for (final Map.Entry<String, JSONObject> e: batch.entrySet()) CrawlerDocument.update(config, config.gridIndex, e.getKey(), e.getValue());
+                    },
+                    defaultBatchSize, defaultInterval, defaultRetries, defaultThreads, defaultMaxPending, FULL_WARN);
+            final CrawlerStatusWriter writer = instance;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> writer.flush(10000)));
+        }
+        return instance;
+    }
+
+    /**
+     * the index which receives the updates
+     */
+    interface Index {
+        /**
+         * write a batch of updates
+         * @param batch the changes for each document id
+         * @throws IOException if the batch could not be written; then the whole batch is written again
+         */
+        public void update(Map<String, JSONObject> batch) throws IOException;
+    }
+
+    private static class Update {
+        private final JSONObject changes;
+        private int attempts;
+        private long notBefore;
+        private Update(final JSONObject changes) {
+            this.changes = changes;
+            this.attempts = 0;
+            this.notBefore = 0;
+        }
+    }
+
+    private final Index index;
+    private final int batchSize, retries, maxPending;
+    private final long interval, fullWarn;
+    private final LinkedHashMap<String, Update> pending; // guarded by this
+    private int inFlight; // guarded by this
+    private long dropped; // guarded by this
+
+    CrawlerStatusWriter(final Index index, final int batchSize, final long interval, final int retries, final int threadCount, final int maxPending, final long fullWarn) {
+        this.index = index;
+        this.batchSize = batchSize;
+        this.interval = interval;
+        this.retries = retries;
+        this.maxPending = maxPending;
+        this.fullWarn = fullWarn;
+        this.pending = new LinkedHashMap<>();
+        this.inFlight = 0;
+        this.dropped = 0;
+        final ThreadFactory factory = new NamePrefixThreadFactory("CrawlerStatusWriter");
+        for (int i = 0; i < threadCount; i++) {
+            final Thread t = factory.newThread(() -> {
+                try {
+                    while (true) write(nextBatch());
+                } catch (final InterruptedException e) {
+                    // writer shut down
+                }
+            });
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    /**
+     * schedule an update of a crawler document. This blocks while the maximum number of pending updates
+     * is reached; a warning is logged each time the update waited for another few seconds.
+     * @param id the document id
+     * @param changes the fields to be changed
+     * @return true if the update was scheduled, false if it was dropped because the thread was interrupted while waiting
+     */
+    public synchronized boolean update(final String id, final JSONObject changes) {
+        Update u = this.pending.get(id);
+        if (u == null && this.pending.size() >= this.maxPending) {
+            this.notifyAll();
+            final long start = System.currentTimeMillis();
+            long warn = start + this.fullWarn;
+            try {
+                while ((u = this.pending.get(id)) == null && this.pending.size() >= this.maxPending) {
+                    final long now = System.currentTimeMillis();
+                    if (now >= warn) {
+                        Logger.warn("CrawlerStatusWriter queue is full, an update waits for " + (now - start) + " ms; " + this.inFlight + " updates are written");
+                        warn = now + this.fullWarn;
+                    }
+                    this.wait(warn - now);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                this.dropped++;
+                Logger.warn("CrawlerStatusWriter interrupted while the queue is full, dropped " + this.dropped + " updates");
+                return false;
+            }
+        }
+        if (u == null) {
+            this.pending.put(id, new Update(changes));
+        } else {
+            for (final String key: changes.keySet()) u.changes.put(key, changes.get(key));
+        }
+        if (this.pending.size() >= this.batchSize) this.notifyAll();
+        return true;
+    }
+
+    /**
+     * @return the number of updates which had been dropped because the thread was interrupted while the queue was full
+     */
+    public synchronized long getDropped() {
+        return this.dropped;
+    }
+
+    /**
+     * wait until all pending updates are written
+     * @param timeout maximum waiting time in milliseconds
+     * @return true if all updates had been written
+     */
+    public synchronized boolean flush(final long timeout) {
+        final long end = System.currentTimeMillis() + timeout;
+        this.notifyAll();
+        try {
+            while (!this.pending.isEmpty() || this.inFlight > 0) {
+                final long wait = end - System.currentTimeMillis();
+                if (wait <= 0) return false;
+                this.wait(Math.min(wait, this.interval));
+            }
+        } catch (final InterruptedException e) {
+            return false;
+        }
+        return true;
+    }
+
+    private synchronized Map<String, Update> nextBatch() throws InterruptedException {
+        long waitingSince = System.currentTimeMillis();
+        while (true) {
+            final long now = System.currentTimeMillis();
+            if (this.pending.size() >= this.batchSize || (!this.pending.isEmpty() && now - waitingSince >= this.interval)) {
+                final Map<String, Update> batch = new LinkedHashMap<>();
+                final Iterator<Map.Entry<String, Update>> i = this.pending.entrySet().iterator();
+                while (i.hasNext() && batch.size() < this.batchSize) {
+                    final Map.Entry<String, Update> e = i.next();
+                    if (e.getValue().notBefore > now) continue; // waiting for a retry
+                    batch.put(e.getKey(), e.getValue());
+                    i.remove();
+                }
+                if (!batch.isEmpty()) {
+                    this.inFlight += batch.size();
+                    this.notifyAll(); // wake up blocked updates
+                    return batch;
+                }
+                waitingSince = now; // all pending updates wait for a retry
+            }
+            this.wait(this.interval);
+        }
+    }
+
+    private void write(final Map<String, Update> batch) {
+        final Map<String, JSONObject> changes = new LinkedHashMap<>();
+        batch.forEach((id, u) -> changes.put(id, u.changes));
+        try {
+            this.index.update(changes);
+        } catch (final Throwable ex) {
+            reschedule(batch, ex);
+        }
+        synchronized (this) {
+            this.inFlight -= batch.size();
+            this.notifyAll();
+        }
+    }
+
+    private synchronized void reschedule(final Map<String, Update> batch, final Throwable cause) {
+        int lost = 0;
+        for (final Map.Entry<String, Update> e: batch.entrySet()) {
+            final String id = e.getKey();
+            final Update u = e.getValue();
+            u.attempts++;
+            if (u.attempts > this.retries) {
+                lost++;
+                continue;
+            }
+            // a re-scheduled update may exceed maxPending; this is bounded by the number of updates in flight
+            final Update newer = this.pending.get(id);
+            if (newer != null) {
+                // merge: the newer update overwrites fields of the failed update
+                for (final String key: newer.changes.keySet()) u.changes.put(key, newer.changes.get(key));
+            }
+            u.notBefore = System.currentTimeMillis() + this.interval * (1L << Math.min(u.attempts, 6));
+            this.pending.put(id, u);
+        }
+        if (lost > 0) Logger.warn("CrawlerStatusWriter could not write crawler index for " + lost + " of " + batch.size() + " documents after " + (this.retries + 1) + " attempts", cause);
+    }
+
+}
@@ -0,0 +1,156 @@
+/**
+ *  GzipMemberReader
+ *  Copyright 2026 by the YaCy Grid contributors
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.grid.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Splits a compressed WARC.gz stream into its gzip members without decompressing it, so that the
+ * members can be inflated concurrently. WARC.gz files usually contain one gzip member for each record.
+ * A member boundary is a gzip header which inflates to the start of a WARC record ("WARC/");
+ * a gzip header byte sequence within compressed data practically never passes that test.
+ * If a member grows beyond a size limit (i.e. the file is one single gzip member), splitting stops
+ * and the rest of the stream can be read sequentially with remaining().
+ */
+public class GzipMemberReader {
+
+    public static final int PROBE_VALID = 0, PROBE_INVALID = 1, PROBE_INCOMPLETE = 2;
+
+    private static final int CHUNK = 64 * 1024;
+    private static final byte[] WARC_MAGIC = "WARC/".getBytes(StandardCharsets.US_ASCII);
+
+    private final InputStream in;
+    private final int maxMemberSize;
+    private byte[] buf;
+    private int len;      // number of valid bytes in buf
+    private int scanPos;  // next position to test for a member start
+    private boolean eof, oversized;
+
+    /**
+     * @param in the compressed stream, must start with a gzip header
+     * @param maxMemberSize the maximum size of a compressed member which is buffered
+     */
+    public GzipMemberReader(final InputStream in, final int maxMemberSize) {
+        this.in = in;
+        this.maxMemberSize = maxMemberSize;
+        this.buf = new byte[CHUNK];
+        this.len = 0;
+        this.scanPos = 1; // the first member starts at 0
+        this.eof = false;
+        this.oversized = false;
+    }
+
+    /**
+     * test if the given bytes are a gzip header (deflate method, no reserved flags)
+     */
+    public static boolean isHeader(final byte[] b, final int p) {
+        return (b[p] & 0xff) == 0x1f && (b[p + 1] & 0xff) == 0x8b && b[p + 2] == 8 && (b[p + 3] & 0xe0) == 0;
+    }
+
+    /**
+     * test if a stream starting with a gzip header decompresses to a WARC record
+     * @param is a stream starting with a gzip header
+     * @param complete true if the stream contains all data which is available
+     * @return PROBE_VALID, PROBE_INVALID or PROBE_INCOMPLETE if more data is needed to decide
+     */
+    public static int probe(final InputStream is, final boolean complete) {
+        try (GZIPInputStream gis = new GZIPInputStream(is, 512)) {
+            final byte[] b = new byte[WARC_MAGIC.length];
+            int n = 0, r;
+            while (n < b.length && (r = gis.read(b, n, b.length - n)) > 0) n += r;
+            if (n == b.length) return Arrays.equals(b, WARC_MAGIC) ? PROBE_VALID : PROBE_INVALID;
+            return complete ? PROBE_INVALID : PROBE_INCOMPLETE;
+        } catch (final EOFException e) {
+            return complete ? PROBE_INVALID : PROBE_INCOMPLETE;
+        } catch (final IOException e) {
+            return PROBE_INVALID;
+        }
+    }
+
+    /**
+     * get the next compressed member
+     * @return the bytes of the next gzip member or null if the stream is exhausted or the member is too large
+     * @throws IOException
+     */
+    public byte[] next() throws IOException {
+        if (this.oversized) return null;
+        while (true) {
+            // look for the start of the next member
+            while (this.scanPos <= this.len - 4) {
+                if (isHeader(this.buf, this.scanPos)) {
+                    final int p = probe(new ByteArrayInputStream(this.buf, this.scanPos, this.len - this.scanPos), this.eof);
+                    if (p == PROBE_INCOMPLETE) break; // read more data and test again
+                    if (p == PROBE_VALID) return cut(this.scanPos);
+                }
+                this.scanPos++;
+            }
+            if (this.eof) {
+                if (this.len == 0) return null;
+                return cut(this.len);
+            }
+            if (this.len >= this.maxMemberSize) {
+                this.oversized = true;
+                return null;
+            }
+            fill();
+        }
+    }
+
+    /**
+     * @return true if next() stopped because a member was larger than the size limit
+     */
+    public boolean isOversized() {
+        return this.oversized;
+    }
+
+    /**
+     * @return the compressed stream starting at the current member; use this to read the remaining data if isOversized()
+     */
+    public InputStream remaining() {
+        return new SequenceInputStream(new ByteArrayInputStream(this.buf, 0, this.len), this.in);
+    }
+
+    private byte[] cut(final int end) {
+        final byte[] member = Arrays.copyOf(this.buf, end);
+        System.arraycopy(this.buf, end, this.buf, 0, this.len - end);
+        this.len -= end;
+        this.scanPos = 1;
+        return member;
+    }
+
+    private void fill() throws IOException {
+        if (this.buf.length - this.len < CHUNK) this.buf = Arrays.copyOf(this.buf, Math.max(this.buf.length * 2, this.len + CHUNK));
+        int n = 0;
+        while (n < CHUNK) {
+            final int r = this.in.read(this.buf, this.len + n, CHUNK - n);
+            if (r < 0) {this.eof = true; break;}
+            n += r;
+        }
+        this.len += n;
+    }
+
+}
@@ -0,0 +1,304 @@
+/**
+ *  MappedWarcFile
+ *  Copyright 2026 by the YaCy Grid contributors
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.grid.parser;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import net.yacy.grid.tools.Logger;
+import net.yacy.kelondro.util.ByteBufferInputStream;
+
+/**
+ * A WARC or WARC.gz file which is memory-mapped and indexed, so that its parts can be read
+ * independently and concurrently. For WARC.gz files the index contains the start offsets of the
+ * gzip members (usually one member for each record), for plain WARC files the start offsets of
+ * the records. If a file cannot be split (i.e. a WARC.gz which is compressed as one single member),
+ * the index has only one entry and the file is read as a whole.
+ * The file is not mapped for each part: consecutive parts are grouped into a few large windows which
+ * are mapped once, and a part is a slice of its window. This keeps the number of mappings low, which
+ * is limited by the operating system (vm.max_map_count). Parts which are larger than a window are read
+ * with positional reads from the file channel.
+ */
+public class MappedWarcFile implements Closeable {
+
+    private static final int SCAN_WINDOW = 4 * 1024 * 1024;
+    private static final int PROBE_SIZE = 64 * 1024;
+    private static final long MAX_WINDOW = 1L << 30; // a mapping is limited to 2GB
+    private static final byte[] WARC_MAGIC = "WARC/".getBytes(StandardCharsets.US_ASCII);
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final long size;
+    private final boolean gzip;
+    private final long[] offsets;
+    private final int[] partWindow; // the window of each part, -1 if the part is too large for a window
+    private final long[] windowStart, windowEnd;
+    private final ByteBuffer[] windows; // mapped on first use, guarded by this
+
+    public MappedWarcFile(final File file) throws IOException {
+        this(file, MAX_WINDOW);
+    }
+
+    /**
+     * @param file the WARC file
+     * @param maxWindow the maximum size of a mapped window
+     */
+    MappedWarcFile(final File file, final long maxWindow) throws IOException {
+        this.file = file;
+        this.raf = new RandomAccessFile(file, "r");
+        this.channel = this.raf.getChannel();
+        this.size = this.channel.size();
+        final byte[] head = new byte[2];
+        this.gzip = read(0, head) == 2 && (head[0] & 0xff) == 0x1f && (head[1] & 0xff) == 0x8b;
+        final long start = System.currentTimeMillis();
+        this.offsets = this.gzip ? indexMembers() : indexRecords();
+
+        // group the parts into windows
+        this.partWindow = new int[this.offsets.length];
+        long[] ws = new long[16], we = new long[16];
+        int w = -1;
+        for (int i = 0; i < this.offsets.length; i++) {
+            final long ps = this.offsets[i], pe = partEnd(i);
+            if (pe - ps > maxWindow) {
+                this.partWindow[i] = -1;
+                continue;
+            }
+            if (w < 0 || pe - ws[w] > maxWindow || we[w] != ps) {
+                if (++w == ws.length) {ws = Arrays.copyOf(ws, w * 2); we = Arrays.copyOf(we, w * 2);}
+                ws[w] = ps;
+            }
+            we[w] = pe;
+            this.partWindow[i] = w;
+        }
+        this.windowStart = Arrays.copyOf(ws, w + 1);
+        this.windowEnd = Arrays.copyOf(we, w + 1);
+        this.windows = new ByteBuffer[w + 1];
+        Logger.info("MappedWarcFile indexed " + this.offsets.length + (this.gzip ? " gzip members" : " records") + " in " + file + " in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    public File getFile() {
+        return this.file;
+    }
+
+    public boolean isGzip() {
+        return this.gzip;
+    }
+
+    /**
+     * @return the number of independently readable parts of the file
+     */
+    public int size() {
+        return this.offsets.length;
+    }
+
+    /**
+     * get a stream of the (decompressed) WARC data of one part of the file.
+     * This can be called concurrently for different parts.
+     * @param i the index of the part, 0 <= i < size()
+     * @return a stream of WARC records
+     * @throws IOException
+     */
+    public InputStream part(final int i) throws IOException {
+        final long start = this.offsets[i];
+        final long end = partEnd(i);
+        final int w = this.partWindow[i];
+        InputStream is;
+        if (w >= 0) {
+            final ByteBuffer slice = window(w).duplicate();
+            slice.position((int) (start - this.windowStart[w]));
+            slice.limit((int) (end - this.windowStart[w]));
+            is = new ByteBufferInputStream(slice.slice());
+        } else {
+            is = new BufferedInputStream(new ChannelInputStream(start, end), PROBE_SIZE);
+        }
+        return this.gzip ? new GZIPInputStream(is, PROBE_SIZE) : is;
+    }
+
+    /**
+     * @return the number of windows which are mapped when all parts are read
+     */
+    int windows() {
+        return this.windows.length;
+    }
+
+    private long partEnd(final int i) {
+        return i + 1 < this.offsets.length ? this.offsets[i + 1] : this.size;
+    }
+
+    private synchronized ByteBuffer window(final int w) throws IOException {
+        if (this.windows[w] == null) {
+            this.windows[w] = this.channel.map(FileChannel.MapMode.READ_ONLY, this.windowStart[w], this.windowEnd[w] - this.windowStart[w]);
+        }
+        return this.windows[w];
+    }
+
+    /**
+     * a stream of a range of the file which uses positional reads, so it can be used concurrently with other parts
+     */
+    private class ChannelInputStream extends InputStream {
+
+        private long pos;
+        private final long end;
+
+        private ChannelInputStream(final long start, final long end) {
+            this.pos = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) return 0;
+            if (this.pos >= this.end) return -1;
+            final int n = MappedWarcFile.this.channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, this.end - this.pos)), this.pos);
+            if (n < 0) return -1;
+            this.pos += n;
+            return n;
+        }
+
+        @Override
+        public long skip(final long n) {
+            final long s = Math.max(0, Math.min(n, this.end - this.pos));
+            this.pos += s;
+            return s;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, this.end - this.pos);
+        }
+    }
+
+    /**
+     * find gzip member offsets: all positions with a gzip header are candidates and a candidate is accepted
+     * if it decompresses to the start of a WARC record. A false header within compressed data
+     * practically never inflates to "WARC/", so this does not need a sequential decompression of the file.
+     * The file is read in windows into one array; candidates are only tested up to PROBE_SIZE before the
+     * end of a window, so a candidate is probed from the window and the next window starts at that position.
+     */
+    private long[] indexMembers() throws IOException {
+        long[] index = new long[1024];
+        int count = 0;
+        final byte[] window = new byte[SCAN_WINDOW + PROBE_SIZE];
+        long pos = 0;
+        while (pos < this.size - 3) {
+            final int len = read(pos, window);
+            final boolean last = pos + len >= this.size;
+            final int scanEnd = last ? len - 3 : len - PROBE_SIZE;
+            for (int p = 0; p < scanEnd; p++) {
+                if (window[p] != 0x1f || !GzipMemberReader.isHeader(window, p)) continue;
+                if (GzipMemberReader.probe(new ByteArrayInputStream(window, p, Math.min(PROBE_SIZE, len - p)), true) != GzipMemberReader.PROBE_VALID) continue;
+                if (count == index.length) index = Arrays.copyOf(index, count * 2);
+                index[count++] = pos + p;
+            }
+            if (last) break;
+            pos += scanEnd;
+        }
+        if (count == 0 || index[0] != 0) {
+            Logger.warn("MappedWarcFile " + this.file + " does not start with a WARC gzip member, reading it as one part");
+            return new long[]{0};
+        }
+        return Arrays.copyOf(index, count);
+    }
+
+    /**
+     * read from the file into an array
+     * @param pos the offset in the file
+     * @param b the target, it is filled unless the end of the file is reached
+     * @return the number of bytes which were read
+     */
+    private int read(final long pos, final byte[] b) throws IOException {
+        if (pos >= this.size) return 0;
+        final ByteBuffer bb = ByteBuffer.wrap(b, 0, (int) Math.min(b.length, this.size - pos));
+        while (bb.hasRemaining()) {
+            if (this.channel.read(bb, pos + bb.position()) < 0) break;
+        }
+        return bb.position();
+    }
+
+    /**
+     * find record offsets in a plain WARC file by reading only the record headers:
+     * each record starts with "WARC/", the header ends with an empty line and the header contains
+     * the Content-Length of the block which is followed by two line breaks.
+     */
+    private long[] indexRecords() throws IOException {
+        long[] index = new long[1024];
+        int count = 0;
+        long pos = 0;
+        final byte[] header = new byte[PROBE_SIZE];
+        final byte[] separator = new byte[4];
+        scan: while (pos < this.size) {
+            final int len = read(pos, header);
+            if (len < WARC_MAGIC.length) break;
+            for (int i = 0; i < WARC_MAGIC.length; i++) if (header[i] != WARC_MAGIC[i]) break scan;
+            long contentLength = -1;
+            int lineStart = 0, headerEnd = -1;
+            for (int p = 0; p < len - 1; p++) {
+                if (header[p] != '\r' || header[p + 1] != '\n') continue;
+                if (p == lineStart) {headerEnd = p + 2; break;}
+                final String l = new String(header, lineStart, p - lineStart, StandardCharsets.ISO_8859_1);
+                final int c = l.indexOf(':');
+                if (c > 0 && l.substring(0, c).trim().equalsIgnoreCase("Content-Length")) try {
+                    contentLength = Long.parseLong(l.substring(c + 1).trim());
+                } catch (final NumberFormatException e) {}
+                lineStart = p + 2;
+            }
+            if (headerEnd < 0 || contentLength < 0) break;
+            if (count == index.length) index = Arrays.copyOf(index, count * 2);
+            index[count++] = pos;
+            pos += headerEnd + contentLength;
+            // skip the record separator
+            final int n = read(pos, separator);
+            for (int i = 0; i < n; i++) {
+                if (separator[i] != '\r' && separator[i] != '\n') break;
+                pos++;
+            }
+        }
+        if (count == 0) {
+            Logger.warn("MappedWarcFile " + this.file + " could not be indexed, reading it as one part");
+            return new long[]{0};
+        }
+        if (pos < this.size) Logger.warn("MappedWarcFile " + this.file + " index stopped at offset " + pos + ", the remaining data is read with the last record");
+        return Arrays.copyOf(index, count);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+        this.raf.close();
+    }
+
+}
@@ -27,7 +27,14 @@ import java.util.Properties;
 
 import javax.servlet.Servlet;
 
+import net.yacy.cora.federate.index.MappingPlan;
+import net.yacy.document.ArchiveEntries;
 import net.yacy.document.LibraryProvider;
+import net.yacy.document.ParseBudget;
+import net.yacy.document.parser.htmlParser;
+import net.yacy.document.parser.html.LinkedDataContexts;
+import net.yacy.document.parser.images.genericImageParser;
+import net.yacy.document.parser.pdfParser;
 import net.yacy.grid.YaCyServices;
 import net.yacy.grid.mcp.BrokerListener;
 import net.yacy.grid.mcp.Configuration;
@@ -60,6 +67,7 @@ public class Parser {
         final Service service;
         final BrokerListener brokerApplication;
         final CronBox.Application serviceApplication;
+        final long librariesWait;
 
         public Application() {
             Logger.info("Starting Parser Application...");
@@ -70,6 +78,42 @@ public class Parser {
             services.addAll(Arrays.asList(MCP.MCP_SERVLETS));
             services.addAll(Arrays.asList(PARSER_SERVICES));
             this.config =  new Configuration(DATA_PATH, true, PARSER_SERVICE, services.toArray(new Class[services.size()]));
+            ParserPool.configure(
+                    Integer.parseInt(this.config.properties.getOrDefault("parser.pool.threads", "0")),
+                    Integer.parseInt(this.config.properties.getOrDefault("parser.pool.queue", "0")));
+            CrawlerStatusWriter.configure(
+                    Integer.parseInt(this.config.properties.getOrDefault("parser.crawlerstatus.batchsize", "100")),
+                    Long.parseLong(this.config.properties.getOrDefault("parser.crawlerstatus.interval", "1000")),
+                    Integer.parseInt(this.config.properties.getOrDefault("parser.crawlerstatus.retries", "3")),
+                    Integer.parseInt(this.config.properties.getOrDefault("parser.crawlerstatus.threads", "4")),
+                    Integer.parseInt(this.config.properties.getOrDefault("parser.crawlerstatus.pending", "100000")));
+            ParserService.setOrderedOutput(Boolean.parseBoolean(this.config.properties.getOrDefault("parser.warc.ordered", "false")));
+            ParserService.setLibrariesWait(Long.parseLong(this.config.properties.getOrDefault("parser.libraries.servicewait", "10000")));
+            htmlParser.setLdExtraction(this.config.properties.getOrDefault("parser.html.ld_extraction", htmlParser.LdExtraction.tokenizer.name()));
+            genericImageParser.setDecodePixels(Boolean.parseBoolean(this.config.properties.getOrDefault("parser.image.decode", "false")));
+            final ParserPool.Job pdfPages = ParserPool.getInstance().newJob("pdf pages");
+            pdfParser.configurePageExtraction(
+                    Integer.parseInt(this.config.properties.getOrDefault("parser.pdf.threads", "4")),
+                    Integer.parseInt(this.config.properties.getOrDefault("parser.pdf.pages", "8")),
+                    Long.parseLong(this.config.properties.getOrDefault("parser.pdf.pagetimeout", "10000")),
+                    pdfPages::offer);
+            LinkedDataContexts.configure(
+                    new File(this.config.properties.getOrDefault("parser.jsonld.contexts", "conf/jsonld/contexts.json")),
+                    new File(DATA_PATH, "jsonld-contexts"),
+                    Integer.parseInt(this.config.properties.getOrDefault("parser.jsonld.cachesize", "1000")),
+                    Boolean.parseBoolean(this.config.properties.getOrDefault("parser.jsonld.fetch", "false")) ? LinkedDataContexts.HTTP_LOADER : null);
+            final ParserPool.Job archiveEntries = ParserPool.getInstance().newJob("archive entries");
+            ArchiveEntries.configure(
+                    Boolean.parseBoolean(this.config.properties.getOrDefault("parser.archive.concurrent", "true")) ? archiveEntries::offer : null,
+                    Integer.parseInt(this.config.properties.getOrDefault("parser.archive.memory", "16777216")));
+            ParseBudget.configure(
+                    Long.parseLong(this.config.properties.getOrDefault("parser.budget.time", "60000")),
+                    Long.parseLong(this.config.properties.getOrDefault("parser.budget.allocation", "8589934592")));
+            MappingPlan.configure(
+                    Boolean.parseBoolean(this.config.properties.getOrDefault("parser.html.enable_ld_o", "false")),
+                    Arrays.asList(this.config.properties.getOrDefault("parser.index.disabled", "").split(",")));
+
+            this.librariesWait = Long.parseLong(this.config.properties.getOrDefault("parser.libraries.wait", "600000"));
 
             // initialize REST server with services
             this.service = new Service(this.config);
@@ -89,8 +133,25 @@ public class Parser {
 
             Logger.info("Grid Name: " + this.config.properties.get("grid.name"));
 
-            // starting threads
-            new Thread(this.brokerApplication).start();
+            // starting threads; the broker is started when the libraries are loaded,
+            // so no message is consumed while the dictionaries and vocabularies are still empty
+            new Thread("ParserListener") {
+                @Override
+                public void run() {
+                    // loading releases the libraries also if it failed, so the broker waits without a time limit
+                    final long interval = Math.max(1000, Application.this.librariesWait);
+                    try {
+                        long waited = 0;
+                        while (!LibraryProvider.awaitReady(interval)) {
+                            waited += interval;
+                            Logger.warn("Parser: libraries not loaded after " + waited + " ms, the broker is not started yet");
+                        }
+                    } catch (final InterruptedException e) {
+                        return;
+                    }
+                    Application.this.brokerApplication.run();
+                }
+            }.start();
             this.serviceApplication.run(); // SIC! the service application is running as the core element of this run() process. If we run it concurrently, this runnable will be "dead".
         }
 
@@ -20,24 +20,22 @@
 package net.yacy.grid.parser;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
-import java.util.Map;
-import java.util.regex.Pattern;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.ZipException;
+import java.util.List;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 import ai.susi.mind.SusiAction;
 import ai.susi.mind.SusiThought;
+import net.yacy.cora.federate.index.MappingPlan;
 import net.yacy.document.parser.pdfParser;
 import net.yacy.grid.YaCyServices;
 import net.yacy.grid.io.assets.Asset;
-import net.yacy.grid.io.index.CrawlerDocument;
 import net.yacy.grid.io.index.CrawlerDocument.Status;
 import net.yacy.grid.io.index.CrawlerMapping;
 import net.yacy.grid.io.index.WebMapping;
@@ -86,6 +84,8 @@ import net.yacy.grid.tools.Memory;
  */
 public class ParserListener extends AbstractBrokerListener implements BrokerListener {
 
+    public static final String OUTPUT_STORAGE = "storage", OUTPUT_MESSAGE = "message";
+
     public ParserListener(final Configuration config, final YaCyServices service) {
          super(config, service, Runtime.getRuntime().availableProcessors());
     }
@@ -104,11 +104,23 @@ public class ParserListener extends AbstractBrokerListener implements BrokerList
         if (targetasset_path == null || targetasset_path.length() == 0 ||
             sourceasset_path == null || sourceasset_path.length() == 0) return ActionResult.FAIL_IRREVERSIBLE;
 
+        // in case that the grid storage is a file system which is mounted locally, we map the asset file
+        MappedWarcFile mappedSource = null;
+        final String localpath = super.config.properties.getOrDefault("parser.sourceasset.localpath", "");
+        if (!action.hasAsset(sourceasset_path) && localpath.length() > 0) {
+            final File f = new File(localpath, sourceasset_path);
+            if (f.exists()) try {
+                mappedSource = new MappedWarcFile(f);
+            } catch (final IOException e) {
+                Logger.warn("Parser.processAction could not map asset " + f + ", loading it from storage", e);
+            }
+        }
+
         byte[] source = null;
         if (action.hasAsset(sourceasset_path)) {
             source = action.getBinaryAsset(sourceasset_path);
         }
-        if (source == null) try {
+        if (source == null && mappedSource == null) try {
             final Asset<byte[]> asset = super.config.gridStorage.load(sourceasset_path);
             source = asset.getPayload();
         } catch (final Throwable e) {
@@ -117,99 +129,90 @@ public class ParserListener extends AbstractBrokerListener implements BrokerList
             Logger.warn("Parser.processAction could not load asset: " + sourceasset_path, e);
             return ActionResult.FAIL_IRREVERSIBLE;
         }
+        // the parsed documents are either streamed into the storage or collected to be carried within the next message
+        final boolean storeToMessage = OUTPUT_MESSAGE.equals(super.config.properties.getOrDefault("parser.output", OUTPUT_STORAGE));
+        final boolean graph = targetgraph_path != null && targetgraph_path.length() > 0; // actions without targetgraph get no graph asset
+        final AssetWriter targetasset_writer = storeToMessage ? null : newAssetWriter(targetasset_path);
+        final AssetWriter targetgraph_writer = storeToMessage || !graph ? null : newAssetWriter(targetgraph_path);
         try{
-            InputStream sourceStream = null;
-            sourceStream = new ByteArrayInputStream(source);
-            if (sourceasset_path.endsWith(".gz")) try {
-                sourceStream = new GZIPInputStream(sourceStream);
-            } catch (final ZipException e) {
-                // This may actually not be in gzip format in case that a http process unzipped it already.
-                // In that case we simply ignore the exception and the sourcestream stays as it is
-            }
+            // the source may actually not be in gzip format in case that a http process unzipped it already,
+            // so we do not rely on the file extension: indexWarcRecords detects and inflates gzip content
+            final InputStream sourceStream = source == null ? null : new ByteArrayInputStream(source);
 
             // compute parsed documents
             final String crawlid = action.getStringAttr("id");
             final JSONObject crawl = SusiThought.selectData(data, "id", crawlid);
-            final Map<String, Pattern> collections = WebMapping.collectionParser(crawl.optString("collection"));
-            final JSONArray parsedDocuments = ParserService.indexWarcRecords(sourceStream, collections);
-            final JSONList targetasset_object = new JSONList();
-            final JSONList targetgraph_object = new JSONList();
-            for (int i = 0; i < parsedDocuments.length(); i++) {
-                final JSONObject docjson = parsedDocuments.getJSONObject(i);
-                final String url = docjson.getString(WebMapping.url_s.name());
+            final MappingPlan plan = MappingPlan.get(crawl.optString("collection")); // computed once for each collection configuration
+            final JSONList targetasset_object = storeToMessage ? new JSONList() : null;
+            final JSONList targetgraph_object = storeToMessage && graph ? new JSONList() : null;
+            final ParserService.DocumentSink sink = webdoc -> {
+                final String url = webdoc.optString(WebMapping.url_s);
 
                 // create elasticsearch index line
                 final String urlid = Digest.encodeMD5Hex(url);
-                final JSONObject bulkjson = new JSONObject().put("index", new JSONObject().put("_id", urlid));
+                final byte[] bulkline = ParserService.bulkLine(url);
 
                 // omit documents which have a canonical tag and are not self-addressed canonical documents
                 boolean is_canonical = true;
-                final String canonical_url = docjson.optString(WebMapping.canonical_s.name());
+                final String canonical_url = webdoc.optString(WebMapping.canonical_s);
                 if (canonical_url.length() > 0 && !url.equals(canonical_url)) is_canonical = false;
 
                 final JSONObject updater = new JSONObject();
-                updater.put(CrawlerMapping.status_date_dt.getMapping().name(), DateParser.iso8601MillisFormat.format(new Date()));
+                synchronized (DateParser.iso8601MillisFormat) { // documents arrive concurrently, the date format is shared
+                    updater.put(CrawlerMapping.status_date_dt.getMapping().name(), DateParser.iso8601MillisFormat.format(new Date()));
+                }
                 if (is_canonical) {
                     // write web index document for canonical documents
-                    targetasset_object.add(bulkjson);
-                    //docjson.put("_id", id);
-                    targetasset_object.add(docjson);
+                    // the document is written as json line, only messages need it as object
+                    if (storeToMessage) synchronized (targetasset_object) {
+                        targetasset_object.add(new JSONObject(new String(bulkline, StandardCharsets.UTF_8)));
+                        targetasset_object.add(webdoc.toJSON());
+                    } else {
+                        targetasset_writer.write(bulkline, webdoc.getDocument());
+                    }
                     // put success into crawler index
                     updater
                         .put(CrawlerMapping.status_s.getMapping().name(), Status.parsed.name())
-                        .put(CrawlerMapping.comment_t.getMapping().name(), docjson.optString(WebMapping.title.getMapping().name()));
+                        .put(CrawlerMapping.comment_t.getMapping().name(), webdoc.optString(WebMapping.title));
                 } else {
                     // for non-canonical documents we suppress indexing and write to crawler index only
                     updater
                         .put(CrawlerMapping.status_s.getMapping().name(), Status.noncanonical.name())
-                        .put(CrawlerMapping.comment_t.getMapping().name(), docjson.optString("omitted, canonical: " + canonical_url));
+                        .put(CrawlerMapping.comment_t.getMapping().name(), "omitted, canonical: " + canonical_url);
                 }
 
-                // write crawler index
-                try {
-                    CrawlerDocument.update(super.config, super.config.gridIndex, urlid, updater);
-                    // check with http://localhost:9200/crawler/_search?q=status_s:parsed
-                } catch (final IOException e) {
-                    // well that should not happen
-                    Logger.warn("could not write crawler index", e);
-                }
+                // write crawler index; this is done with background writes
+                CrawlerStatusWriter.getInstance(super.config).update(urlid, updater);
+                // check with http://localhost:9200/crawler/_search?q=status_s:parsed
 
-                // write graph document
-                if (targetgraph_object != null) {
-                    targetgraph_object.add(bulkjson);
-                    final JSONObject graphjson = ParserService.extractGraph(docjson);
-                    //graphjson.put("_id", id);
-                    targetgraph_object.add(graphjson);
+                // write graph document; the graph projection was written together with the document
+                if (targetgraph_object != null) synchronized (targetgraph_object) {
+                    targetgraph_object.add(new JSONObject(new String(bulkline, StandardCharsets.UTF_8)));
+                    targetgraph_object.add(webdoc.graphToJSON());
+                } else if (targetgraph_writer != null) {
+                    targetgraph_writer.write(bulkline, webdoc.getGraph());
                 }
+            };
+            if (mappedSource == null) {
+                ParserService.indexWarcRecords(sourceStream, plan, sink);
+            } else try {
+                ParserService.indexWarcRecords(mappedSource, plan, sink);
+            } finally {
+                mappedSource.close();
             }
 
-            boolean storeToMessage = true; // debug version for now: always true TODO: set to false later
-            if (!storeToMessage) {
-                try {
-                    final String targetasset = targetasset_object.toString();
-                    super.config.gridStorage.store(targetasset_path, targetasset.getBytes(StandardCharsets.UTF_8));
-                    Logger.info("Parser.processAction stored asset " + targetasset_path);
-                } catch (final Throwable ee) {
-                    Logger.warn("Parser.processAction asset " + targetasset_path + " could not be stored, carrying the asset within the next action", ee);
-                    storeToMessage = true;
-                }
-                try {
-                    final String targetgraph = targetgraph_object.toString();
-                    super.config.gridStorage.store(targetgraph_path, targetgraph.getBytes(StandardCharsets.UTF_8));
-                    Logger.info("Parser.processAction stored graph " + targetgraph_path);
-                } catch (final Throwable ee) {
-                    Logger.warn("Parser.processAction asset " + targetgraph_path + " could not be stored, carrying the asset within the next action", ee);
-                    storeToMessage = true;
-                }
-            }
-            // emergency storage to message
+            final JSONArray actions = action.getEmbeddedActions();
             if (storeToMessage) {
-                final JSONArray actions = action.getEmbeddedActions();
                 actions.forEach(a -> {
                     new SusiAction((JSONObject) a).setJSONListAsset(targetasset_path, targetasset_object);
-                    new SusiAction((JSONObject) a).setJSONListAsset(targetgraph_path, targetgraph_object);
-                    Logger.info("Parser.processAction stored assets " + targetasset_path + ", " + targetgraph_path + " into message");
+                    if (graph) new SusiAction((JSONObject) a).setJSONListAsset(targetgraph_path, targetgraph_object);
+                    Logger.info("Parser.processAction stored assets " + targetasset_path + (graph ? ", " + targetgraph_path : "") + " into message");
                 });
+            } else {
+                targetasset_writer.close();
+                if (graph) targetgraph_writer.close();
+                referenceAssets(actions, targetasset_path, targetasset_writer);
+                if (graph) referenceAssets(actions, targetgraph_path, targetgraph_writer);
             }
             Logger.info("Parser.processAction processed message from queue and stored asset " + targetasset_path);
 
@@ -217,7 +220,48 @@ public class ParserListener extends AbstractBrokerListener implements BrokerList
         } catch (final Throwable e) {
             Logger.warn("", e);
             return ActionResult.FAIL_IRREVERSIBLE;
+        } finally {
+            // a failed action must not leave the buffered chunks of its assets behind
+            if (targetasset_writer != null) targetasset_writer.abort();
+            if (targetgraph_writer != null) targetgraph_writer.abort();
+        }
+    }
+
+    private AssetWriter newAssetWriter(final String path) {
+        return new AssetWriter(
+                super.config, path,
+                Integer.parseInt(super.config.properties.getOrDefault("parser.output.chunksize", Integer.toString(AssetWriter.DEFAULT_CHUNK_SIZE))),
+                Boolean.parseBoolean(super.config.properties.getOrDefault("parser.output.gzip", "false")));
+    }
+
+    /**
+     * let the next actions read the stored chunks of an asset: an action which reads the asset gets the path
+     * of the first chunk and for each further chunk a copy of the action is appended. Chunks which could not
+     * be stored are carried within the message (emergency storage).
+     * @param actions the embedded actions of the message
+     * @param path the asset path as given in the actions
+     * @param writer the writer of the asset
+     * @throws IOException
+     */
+    private static void referenceAssets(final JSONArray actions, final String path, final AssetWriter writer) throws IOException {
+        if (!writer.isComplete()) {
+            final JSONList failed = writer.getFailed();
+            actions.forEach(a -> new SusiAction((JSONObject) a).setJSONListAsset(path, failed));
+            Logger.warn("Parser.processAction asset " + path + " could not be stored completely, carrying the remaining lines within the next action");
+        }
+        final List<String> stored = writer.getStoredPaths();
+        if (stored.size() == 1 && stored.get(0).equals(path)) return; // the next actions already know that path
+        final int n = actions.length();
+        for (int i = 0; i < n; i++) {
+            final JSONObject a = actions.getJSONObject(i);
+            if (!path.equals(a.optString("sourceasset"))) continue;
+            for (int c = 0; c < stored.size(); c++) {
+                final JSONObject chunkAction = c == 0 ? a : new JSONObject(a.toString());
+                chunkAction.put("sourceasset", stored.get(c));
+                if (c > 0) actions.put(chunkAction);
+            }
         }
+        Logger.info("Parser.processAction stored asset " + path + " in " + stored.size() + " chunks");
     }
 
     @Override
@@ -0,0 +1,225 @@
+/**
+ *  ParserPool
+ *  Copyright 2026 by the YaCy Grid contributors
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.grid.parser;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+
+import net.yacy.grid.tools.Logger;
+import net.yacy.kelondro.util.NamePrefixThreadFactory;
+
+/**
+ * The ParserPool is the one process-wide set of parser threads. All parse requests, those
+ * from the broker listener and those from the REST api, submit their work into this pool.
+ * Each request opens a Job which has its own bounded task queue: submitting blocks if the queue
+ * is full (back-pressure to the WARC reader) and the worker threads take tasks from all open jobs
+ * in round-robin order, so a large WARC file cannot starve a small one.
+ */
+public class ParserPool {
+
+    private static ParserPool instance = null;
+    private static int defaultThreads = Runtime.getRuntime().availableProcessors();
+    private static int defaultQueueSize = 2 * Runtime.getRuntime().availableProcessors();
+
+    /**
+     * set the size of the pool. This must be called before the pool is used the first time.
+     * @param threads number of worker threads, if <= 0 the number of available processors is used
+     * @param queueSize maximum number of waiting tasks for each job, if <= 0 twice the number of threads is used
+     */
+    public static synchronized void configure(final int threads, final int queueSize) {
+        if (instance != null) {
+            Logger.warn("ParserPool is already running with " + instance.threads.length + " threads, configuration ignored");
+            return;
+        }
+        defaultThreads = threads <= 0 ? Runtime.getRuntime().availableProcessors() : threads;
+        defaultQueueSize = queueSize <= 0 ? 2 * defaultThreads : queueSize;
+    }
+
+    public static synchronized ParserPool getInstance() {
+        if (instance == null) instance = new ParserPool(defaultThreads, defaultQueueSize);
+        return instance;
+    }
+
+    private final Thread[] threads;
+    private final BlockingQueue<Job> ready;
+    private final int queueSize;
+
+    /**
+     * create a pool; only one pool is used in the process, see getInstance()
+     * @param threadCount number of worker threads
+     * @param queueSize maximum number of waiting tasks for each job
+     */
+    ParserPool(final int threadCount, final int queueSize) {
+        this.queueSize = queueSize;
+        this.ready = new LinkedBlockingQueue<>();
+        this.threads = new Thread[threadCount];
+        final ThreadFactory factory = new NamePrefixThreadFactory("ParserPool");
+        final Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        final Job job = ParserPool.this.ready.take();
+                        final Runnable task = job.next();
+                        if (task == null) continue;
+                        try {
+                            task.run();
+                        } catch (final Throwable e) {
+                            Logger.warn("ParserPool task failed in job " + job.name, e);
+                        } finally {
+                            job.done();
+                        }
+                    }
+                } catch (final InterruptedException e) {
+                    // pool shut down
+                }
+            }
+        };
+        for (int i = 0; i < this.threads.length; i++) {
+            this.threads[i] = factory.newThread(worker);
+            this.threads[i].setDaemon(true);
+            this.threads[i].start();
+        }
+        Logger.info("ParserPool started with " + threadCount + " threads, queue size " + queueSize + " per job");
+    }
+
+    public int size() {
+        return this.threads.length;
+    }
+
+    /**
+     * open a new job; all tasks of one parse request should be submitted into the same job
+     * @param name a name for logging
+     * @return the job
+     */
+    public Job newJob(final String name) {
+        return new Job(name, this.queueSize);
+    }
+
+    public class Job {
+
+        private final String name;
+        private final BlockingQueue<Runnable> tasks;
+        private boolean scheduled;
+        private int pending;
+
+        private Job(final String name, final int queueSize) {
+            this.name = name;
+            this.tasks = new ArrayBlockingQueue<>(queueSize);
+            this.scheduled = false;
+            this.pending = 0;
+        }
+
+        /**
+         * submit a task; this blocks if the job queue is full
+         * @param task
+         * @throws InterruptedException
+         */
+        public void submit(final Runnable task) throws InterruptedException {
+            synchronized (this) {
+                this.pending++;
+            }
+            try {
+                this.tasks.put(task);
+            } catch (final InterruptedException e) {
+                done();
+                throw e;
+            }
+            schedule();
+        }
+
+        /**
+         * submit a task if the job queue is not full; this does not block
+         * @param task
+         * @return true if the task was accepted
+         */
+        public boolean offer(final Runnable task) {
+            synchronized (this) {
+                this.pending++;
+            }
+            if (!this.tasks.offer(task)) {
+                done();
+                return false;
+            }
+            try {
+                schedule();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        }
+
+        /**
+         * wait until all submitted tasks have been processed
+         * @throws InterruptedException
+         */
+        public synchronized void await() throws InterruptedException {
+            while (this.pending > 0) this.wait();
+        }
+
+        /**
+         * wait until all submitted tasks have been processed, also if the thread is interrupted:
+         * the tasks may write into objects of the caller which must not be closed before.
+         * The interrupt flag is set again when the tasks are done.
+         * @return true if the thread was interrupted while waiting
+         */
+        public synchronized boolean awaitUninterruptibly() {
+            boolean interrupted = false;
+            while (this.pending > 0) {
+                try {
+                    this.wait();
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+            return interrupted;
+        }
+
+        private void schedule() throws InterruptedException {
+            synchronized (this) {
+                if (this.scheduled || this.tasks.isEmpty()) return;
+                this.scheduled = true;
+            }
+            ParserPool.this.ready.put(this);
+        }
+
+        /**
+         * get the next task of this job and put the job at the end of the ready queue
+         * if there are more tasks, so all jobs get their turn
+         */
+        private Runnable next() throws InterruptedException {
+            final Runnable task;
+            synchronized (this) {
+                task = this.tasks.poll();
+                this.scheduled = false;
+            }
+            schedule();
+            return task;
+        }
+
+        private synchronized void done() {
+            this.pending--;
+            if (this.pending <= 0) this.notifyAll();
+        }
+    }
+}
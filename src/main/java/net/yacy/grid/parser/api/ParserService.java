@@ -19,16 +19,20 @@
 
 package net.yacy.grid.parser.api;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
-import java.util.AbstractMap;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.GZIPInputStream;
 
 import javax.servlet.http.HttpServletResponse;
@@ -45,12 +49,16 @@ import org.jwat.warc.WarcRecord;
 import ai.susi.mind.SusiAction;
 import ai.susi.mind.SusiAction.RenderType;
 import ai.susi.mind.SusiThought;
+import net.yacy.cora.federate.index.MappingPlan;
 import net.yacy.cora.federate.index.WebConfiguration;
+import net.yacy.cora.federate.index.WebDocument;
 import net.yacy.cora.protocol.RequestHeader;
 import net.yacy.cora.protocol.ResponseHeader;
 import net.yacy.crawler.retrieval.Request;
 import net.yacy.crawler.retrieval.Response;
 import net.yacy.document.Document;
+import net.yacy.document.LibraryProvider;
+import net.yacy.document.Parser;
 import net.yacy.document.Parser.Failure;
 import net.yacy.document.TextParser;
 import net.yacy.grid.http.APIHandler;
@@ -61,10 +69,14 @@ import net.yacy.grid.http.ServiceResponse;
 import net.yacy.grid.io.assets.Asset;
 import net.yacy.grid.io.index.WebMapping;
 import net.yacy.grid.mcp.Service;
+import net.yacy.grid.parser.GzipMemberReader;
+import net.yacy.grid.parser.MappedWarcFile;
+import net.yacy.grid.parser.ParserPool;
 import net.yacy.grid.tools.AnchorURL;
 import net.yacy.grid.tools.Digest;
 import net.yacy.grid.tools.Logger;
 import net.yacy.grid.tools.MultiProtocolURL;
+import net.yacy.kelondro.util.ByteArrayPool;
 
 /**
  * The parser transforms a given source file into a YaCy JSON
@@ -124,6 +136,30 @@ public class ParserService extends ObjectAPIHandler implements APIHandler {
     private static final long serialVersionUID = 8578474303031749879L;
     public static final String NAME = "parser";
 
+    // compressed WARC members larger than this are not split off, the rest of the file is inflated sequentially
+    private static final int MAX_GZIP_MEMBER_SIZE = 64 * 1024 * 1024;
+    private static boolean orderedOutput = false;
+    private static long librariesWait = 0;
+
+    /**
+     * set if documents are written in the order of the WARC file. Otherwise documents are written
+     * as soon as they are parsed, which needs less memory when many records are parsed concurrently.
+     * @param ordered
+     */
+    public static void setOrderedOutput(final boolean ordered) {
+        orderedOutput = ordered;
+    }
+
+    /**
+     * set how long a request waits for the dictionaries and vocabularies while they are loaded.
+     * Requests are rejected if the libraries are not loaded after that time, so a document is never
+     * parsed with empty libraries.
+     * @param wait the maximum time to wait in milliseconds
+     */
+    public static void setLibrariesWait(final long wait) {
+        librariesWait = wait;
+    }
+
     @Override
     public String getAPIPath() {
         return "/yacy/grid/parser/" + NAME + ".json";
@@ -136,12 +172,28 @@ public class ParserService extends ObjectAPIHandler implements APIHandler {
      * - sourceasset: a name of a MCP asset containing a WARC file
      * - sourceurl: an url with a path of a hosted WARC file
      */
+    private static boolean librariesReady() {
+        try {
+            return LibraryProvider.awaitReady(librariesWait);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
     @Override
     public ServiceResponse serviceImpl(final Query call, final HttpServletResponse response) {
 
         final boolean flat = call.get("flatfile", false); // if true, the result is a text file with one json object per line each
         final boolean elastic = flat && call.get("bulk", false); // if true, the result has per line a index prefix object which is required to feed the result into elasticsearch
 
+        if (!librariesReady()) {
+            final JSONObject json = new JSONObject(true);
+            json.put(ObjectAPIHandler.SUCCESS_KEY, false);
+            json.put(ObjectAPIHandler.COMMENT_KEY, "the dictionaries and vocabularies are not loaded yet, try again later");
+            return new ServiceResponse(json);
+        }
+
         InputStream sourceStream = null;
 
         // read the source asset. We have four options:
@@ -158,8 +210,7 @@ public class ParserService extends ObjectAPIHandler implements APIHandler {
                 try {
                     final Asset<byte[]> asset = Service.instance.config.gridStorage.load(sourceasset_path);
                     source = asset.getPayload();
-                    sourceStream = new ByteArrayInputStream(source);
-                    if (sourceasset_path.endsWith(".gz")) sourceStream = new GZIPInputStream(sourceStream);
+                    sourceStream = new ByteArrayInputStream(source); // gzip-compressed assets are detected and inflated in indexWarcRecords
                 } catch (final IOException e) {
                     Logger.error(e.getMessage(), e);
                 }
@@ -173,7 +224,6 @@ public class ParserService extends ObjectAPIHandler implements APIHandler {
             if (sourceurl.length() > 0) try {
                 final MultiProtocolURL url = new MultiProtocolURL(sourceurl);
                 sourceStream = url.getInputStream(ClientIdentification.browserAgent, "anonymous", "", true);
-                if (sourceurl.endsWith(".gz")) sourceStream = new GZIPInputStream(sourceStream);
             } catch (final IOException e) {
                 Logger.error(e.getMessage(), e);
             }
@@ -186,6 +236,23 @@ public class ParserService extends ObjectAPIHandler implements APIHandler {
             return new ServiceResponse(json);
         }
 
+        // flat files are streamed into the result buffer without collecting a JSONArray first;
+        // the buffer is returned as UTF-8 bytes, so the result is not copied into a String
+        if (flat) {
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream(2048);
+            try {
+                indexWarcRecords(sourceStream, null, new JSONLineSink(baos, elastic));
+            } catch (final IOException e) {
+                Logger.warn("", e);
+            } finally {
+                try {
+                    sourceStream.close();
+                } catch (final IOException e) {
+                }
+            }
+            return new ServiceResponse(baos.toByteArray());
+        }
+
         // compute parsed documents
         JSONArray parsedDocuments;
         try {
@@ -200,21 +267,6 @@ public class ParserService extends ObjectAPIHandler implements APIHandler {
             }
         }
 
-        if (flat) {
-            final StringBuffer sb = new StringBuffer(2048);
-            for (int i = 0; i < parsedDocuments.length(); i++) {
-            	final JSONObject docjson = parsedDocuments.getJSONObject(i);
-            	if (elastic) {
-            	    final String url = docjson.getString(WebMapping.url_s.name());
-            	    final String id = Digest.encodeMD5Hex(url);
-            		final JSONObject bulkjson = new JSONObject().put("index", new JSONObject().put("_id", id));
-            		sb.append(bulkjson.toString(0)).append("\n");
-            	}
-                sb.append(docjson.toString(0)).append("\n");
-            }
-            return new ServiceResponse(sb.toString());
-        }
-
         // store result and return success
         final SusiThought json = new SusiThought();
         json.setProcess(NAME);
@@ -243,223 +295,418 @@ public class ParserService extends ObjectAPIHandler implements APIHandler {
         return new ServiceResponse(json);
     }
 
+    /**
+     * A DocumentSink receives each parsed document as soon as it was produced by yacy2solr.
+     * The sink is called concurrently from all document worker threads, implementations must be thread-safe.
+     */
+    public static interface DocumentSink {
+        public void accept(WebDocument doc) throws IOException;
+    }
+
+    /**
+     * A sink which writes one json object per line to an output stream. If bulk is set,
+     * each document line is preceded by an elasticsearch index line.
+     */
+    public static class JSONLineSink implements DocumentSink {
+
+        private final OutputStream os;
+        private final boolean bulk;
+
+        public JSONLineSink(final OutputStream os, final boolean bulk) {
+            this.os = os;
+            this.bulk = bulk;
+        }
+
+        @Override
+        public void accept(final WebDocument doc) throws IOException {
+            final byte[] d = doc.getDocument();
+            synchronized (this.os) {
+                if (this.bulk) {
+                    this.os.write(bulkLine(doc.optString(WebMapping.url_s)));
+                    this.os.write('\n');
+                }
+                this.os.write(d);
+                this.os.write('\n');
+            }
+        }
+    }
+
+    /**
+     * the elasticsearch bulk action line for a document
+     * @param url the url of the document
+     * @return the index action with the document id, as UTF-8 json
+     */
+    public static byte[] bulkLine(final String url) {
+        return ("{\"index\":{\"_id\":\"" + Digest.encodeMD5Hex(url) + "\"}}").getBytes(StandardCharsets.UTF_8);
+    }
+
     /**
      * WARC importer code, original from net.yacy.document.importer.WarcImporter.java
-     * TODO: use original WARC request header instead of generated headers
+     * This collects all parsed documents into one JSONArray; for large WARC files use
+     * the streaming method with a DocumentSink instead.
      * @param f
      * @throws IOException
      */
-    public static JSONArray indexWarcRecords(final InputStream f, final Map<String, Pattern> collections) throws IOException {
-
-        // create worker stacks
-        final BlockingQueue<Response> responseQueue = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
-        final BlockingQueue<Map.Entry<Response, Document>> bundleQueue = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
-        final BlockingQueue<JSONObject> objectQueue = new LinkedBlockingQueue<>();
-
-        // create POISON objects
-        final Response responsePoison = new Response(null, null, null, false, null);
-        final Map.Entry<Response, Document> bundlePoison = new AbstractMap.SimpleEntry<>(null, null);
+    public static JSONArray indexWarcRecords(final InputStream f, final MappingPlan plan) throws IOException {
+        final JSONArray parsedDocuments = new JSONArray();
+        indexWarcRecords(f, plan, doc -> {
+            final JSONObject json = doc.toJSON();
+            synchronized (parsedDocuments) {
+                parsedDocuments.put(json);
+            }
+        });
+        return parsedDocuments;
+    }
 
-        // create concurrent worker
-        final Runnable parserWorker = new Runnable() {
-            @Override
-            public void run() {
-                Response response;
-                try {
-                    while ((response = responseQueue.take()) != responsePoison) {
-                        // parse the source to get a YaCy document
-                        Document[] documents;
-                        try {
-                            documents = TextParser.parseSource(
-                                new AnchorURL(response.url()), // or just use "location"?
-                                response.getMimeType(),
-                                response.getCharacterEncoding(),
-                                null, // no vocabulary scraper
-                                0, // no timezone offset
-                                response.depth(),
-                                response.getContent());
-                            for (final Document d: documents) {
-                                bundleQueue.put(new AbstractMap.SimpleEntry<>(response, d));
-                            }
-                        } catch (final Failure e) {
-                            e.printStackTrace();
-                        }
+    /**
+     * WARC importer code, streaming version: every document is handed over to the sink as soon as it is computed.
+     * Memory usage is therefore bounded by the queue sizes and not by the size of the WARC file.
+     * If the stream is gzip-compressed, the gzip members are inflated concurrently.
+     * TODO: use original WARC request header instead of generated headers
+     * @param f the WARC input stream, either plain or gzip-compressed
+     * @param plan the mapping plan of the documents, null for the default plan
+     * @param sink the target for each computed document
+     * @return the number of documents which had been passed to the sink
+     * @throws IOException
+     * @throws InterruptedIOException if the thread was interrupted; the submitted documents are processed before
+     */
+    public static int indexWarcRecords(final InputStream f, final MappingPlan plan, final DocumentSink sink) throws IOException {
+
+        // all documents are parsed within the shared parser pool; the job queue is bounded so
+        // reading of the WARC file is paused if the parser threads cannot keep up
+        final ParserPool.Job job = ParserPool.getInstance().newJob("indexWarcRecords");
+        final Delivery delivery = new Delivery(sink);
+        final AtomicInteger cnt = new AtomicInteger(0);
+
+        // find out if the stream is compressed
+        final BufferedInputStream bis = new BufferedInputStream(f, 65536);
+        final byte[] magic = new byte[4];
+        bis.mark(magic.length);
+        final boolean gzip = bis.read(magic) == magic.length && GzipMemberReader.isHeader(magic, 0);
+        bis.reset();
+
+        boolean interrupted = false;
+        try {
+            InputStream plain = bis;
+            if (gzip) {
+                // split the compressed stream into gzip members which are inflated and parsed within the pool
+                final GzipMemberReader members = new GzipMemberReader(bis, MAX_GZIP_MEMBER_SIZE);
+                byte[] member;
+                while ((member = members.next()) != null) {
+                    final byte[] m = member;
+                    if (!submitPart(job, delivery, () -> new GZIPInputStream(new ByteArrayInputStream(m)), plan, cnt)) {
+                        interrupted = true;
+                        break;
                     }
-                } catch (final InterruptedException e) {
-                    e.printStackTrace();
                 }
+                // if the file is not compressed record-by-record, it is inflated here sequentially
+                plain = !interrupted && members.isOversized() ? new GZIPInputStream(members.remaining(), 65536) : null;
             }
-        };
-        final Runnable documentCreator = new Runnable() {
-            @Override
-            public void run() {
-                Map.Entry<Response, Document> bundle;
+
+            if (plain != null) {
+                // read out WARC file
+                final WarcReader localwarcReader = WarcReaderFactory.getReaderUncompressed(plain);
                 try {
-                    while ((bundle = bundleQueue.take()) != bundlePoison) {
-                        final JSONObject json = WebConfiguration.yacy2solr(
-                                collections, bundle.getKey().getResponseHeader(),
-                                bundle.getValue(), bundle.getKey().getRequestHeader().referer(), null /* language */, false,
-                                0 /* timezoneOffset */);
-                        objectQueue.put(json);
+                    WarcRecord wrec = localwarcReader.getNextRecord();
+                    while (wrec != null) {
+                        final Response response = readResponse(wrec);
+                        if (response != null) {
+                            final Delivery.Part part = delivery.newPart();
+                            try {
+                                job.submit(() -> {
+                                    try {
+                                        parseResponse(response, plan, part);
+                                    } finally {
+                                        ByteArrayPool.release(response.getContent());
+                                        part.complete();
+                                    }
+                                });
+                                cnt.incrementAndGet();
+                            } catch (final InterruptedException e1) {
+                                ByteArrayPool.release(response.getContent());
+                                part.complete();
+                                interrupted = true;
+                            }
+                        }
+                        try {wrec.close();} catch (final IOException e1) {}
+                        if (interrupted) break;
+                        wrec = localwarcReader.getNextRecord();
                     }
-                } catch (final InterruptedException e) {
-                    e.printStackTrace();
+                } finally {
+                    localwarcReader.close();
                 }
             }
-        };
-
-        // start worker
-        final Thread[] parserThreads = new Thread[Runtime.getRuntime().availableProcessors()];
-        final Thread[] documentThreads = new Thread[Runtime.getRuntime().availableProcessors()];
-        for (int i = 0; i < parserThreads.length; i++) {
-            parserThreads[i] = new Thread(parserWorker);
-            parserThreads[i].start();
+        } finally {
+            // wait until all submitted documents of this WARC file are processed, also if reading failed:
+            // the tasks write into the sink which is closed by the caller when this returns
+            if (job.awaitUninterruptibly()) interrupted = true;
         }
-        for (int i = 0; i < documentThreads.length; i++) {
-            documentThreads[i] = new Thread(documentCreator);
-            documentThreads[i].start();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted after " + cnt.get() + " WARC documents");
         }
 
-        // read out WARC file
-        byte[] content;
-        int cnt = 0;
+        Logger.info("Created " + delivery.count() + " JSON objects from " + cnt.get() + " WARC documents");
 
-        final WarcReader localwarcReader = WarcReaderFactory.getReader(f);
-        WarcRecord wrec = localwarcReader.getNextRecord();
-        while (wrec != null) {
+        return delivery.count();
+    }
 
-            HeaderLine hl = wrec.getHeader(WarcConstants.FN_WARC_TYPE);
-            if (hl != null && hl.value.equals(WarcConstants.RT_RESPONSE)) { // filter responses
+    /**
+     * WARC importer code, memory-mapped version: the parts of the file are read concurrently,
+     * each part is decompressed and parsed within one task of the shared parser pool.
+     * @param warc the indexed WARC file
+     * @param plan the mapping plan of the documents, null for the default plan
+     * @param sink the target for each computed document
+     * @return the number of documents which had been passed to the sink
+     * @throws IOException
+     * @throws InterruptedIOException if the thread was interrupted; the submitted parts are processed before
+     */
+    public static int indexWarcRecords(final MappedWarcFile warc, final MappingPlan plan, final DocumentSink sink) throws IOException {
+        final ParserPool.Job job = ParserPool.getInstance().newJob("indexWarcRecords " + warc.getFile().getName());
+        final Delivery delivery = new Delivery(sink);
+        final AtomicInteger cnt = new AtomicInteger(0);
+        boolean interrupted = false;
+        for (int i = 0; i < warc.size(); i++) {
+            final int part = i;
+            if (!submitPart(job, delivery, () -> warc.part(part), plan, cnt)) {
+                interrupted = true;
+                break;
+            }
+        }
+        // the tasks write into the sink which is closed by the caller when this returns
+        if (job.awaitUninterruptibly() || interrupted) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted after " + cnt.get() + " WARC documents of " + warc.getFile());
+        }
+        Logger.info("Created " + delivery.count() + " JSON objects from " + cnt.get() + " WARC documents in " + warc.size() + " parts of " + warc.getFile());
+        return delivery.count();
+    }
 
-                hl = wrec.getHeader(WarcConstants.FN_WARC_TARGET_URI);
-                String uri = hl.value;
-                MultiProtocolURL location = new MultiProtocolURL("http://127.0.0.1");
-                if (uri != null) {
-                    if (uri.startsWith("<") && (uri.endsWith(">"))) {
-                        uri = uri.substring(1, uri.length() - 1);
-                    }
-                    try {
-                        location = new MultiProtocolURL(uri);
-                    } catch (final MalformedURLException e) {
-                        // ignore this
+    /**
+     * a source of plain WARC records which is opened within a parser task
+     */
+    private static interface PartSource {
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * submit a task which reads and parses all WARC records of one part
+     * @return false if the submission was interrupted
+     */
+    private static boolean submitPart(final ParserPool.Job job, final Delivery delivery, final PartSource source, final MappingPlan plan, final AtomicInteger cnt) {
+        final Delivery.Part part = delivery.newPart();
+        try {
+            job.submit(() -> {
+                try (InputStream is = source.open()) {
+                    final WarcReader reader = WarcReaderFactory.getReaderUncompressed(is);
+                    WarcRecord wrec = reader.getNextRecord();
+                    while (wrec != null) {
+                        final Response response = readResponse(wrec);
+                        if (response != null) {
+                            try {
+                                parseResponse(response, plan, part);
+                                cnt.incrementAndGet();
+                            } finally {
+                                ByteArrayPool.release(response.getContent());
+                            }
+                        }
+                        try {wrec.close();} catch (final IOException e1) {}
+                        wrec = reader.getNextRecord();
                     }
+                    reader.close();
+                } catch (final IOException e) {
+                    Logger.warn("could not read WARC part " + part.index, e);
+                } finally {
+                    part.complete();
                 }
+            });
+            return true;
+        } catch (final InterruptedException e) {
+            part.complete();
+            return false;
+        }
+    }
 
-                final HttpHeader http = wrec.getHttpHeader();
+    /**
+     * The delivery passes the documents of all parts of one WARC file to the sink.
+     * Parts are processed concurrently; if the output is ordered, the documents of a part
+     * are buffered until all previous parts are complete.
+     */
+    private static class Delivery {
+
+        private final DocumentSink sink;
+        private final boolean ordered;
+        private final AtomicInteger count;
+        private final Map<Integer, List<WebDocument>> completed;
+        private int nextPart, nextDelivery;
+
+        private Delivery(final DocumentSink sink) {
+            this.sink = sink;
+            this.ordered = orderedOutput;
+            this.count = new AtomicInteger(0);
+            this.completed = new HashMap<>();
+            this.nextPart = 0;
+            this.nextDelivery = 0;
+        }
 
-                if (http != null && http.statusCode == 200) { // process http response header OK (status 200)
+        private int count() {
+            return this.count.get();
+        }
 
-                    if (TextParser.supportsMime(http.contentType) == null) { // check availability of parser
+        /**
+         * create the next part; parts must be created in the order of the WARC file
+         */
+        private Part newPart() {
+            return new Part(this.nextPart++);
+        }
 
-                        final InputStream istream = wrec.getPayloadContent();
-                        /*
-                        hl = http.getHeader(HeaderFramework.TRANSFER_ENCODING);
-                        if (hl != null && hl.value.contains("chunked")) {
-                            // because chunked stream.read doesn't read source fully, make sure all chunks are read
-                            istream = new ChunkedInputStream(istream);
-                            final ByteBuffer bbuffer = new ByteBuffer();
-                            int c;
-                            try {while ((c = istream.read()) >= 0) {
-                                bbuffer.append(c);
-                            }} catch (IOException e) {
-                                Logger.warn("", e);
-                            }
-                            content = bbuffer.getBytes();
-                        } else {*/
-                            content = new byte[(int) http.getPayloadLength()];
-                            istream.read(content, 0, content.length);
-                        //}
-                        istream.close();
-
-                        final RequestHeader requestHeader = new RequestHeader();
-
-                        final ResponseHeader responseHeader = new ResponseHeader(http.statusCode);
-                        for (final HeaderLine hx : http.getHeaderList()) { // include all original response headers for parser
-                            responseHeader.put(hx.name, hx.value);
-                        }
+        private void deliver(final WebDocument doc) {
+            try {
+                this.sink.accept(doc);
+                this.count.incrementAndGet();
+            } catch (final IOException e) {
+                Logger.warn("could not write document to sink", e);
+            }
+        }
 
-                        final Request request = new Request(
-                                null,
-                                location,
-                                requestHeader.referer() == null ? null : requestHeader.referer(),
-                                "warc",
-                                responseHeader.lastModified(),
-                                0);
-
-                        final Response response = new Response(
-                                request,
-                                requestHeader,
-                                responseHeader,
-                                false,
-                                content
-                        );
-
-                        try {
-                            responseQueue.put(response);
-                        } catch (final InterruptedException e1) {
-                            e1.printStackTrace();
-                        }
-                        cnt++;
+        private class Part implements DocumentSink {
+
+            private final int index;
+            private final List<WebDocument> docs;
+
+            private Part(final int index) {
+                this.index = index;
+                this.docs = Delivery.this.ordered ? new ArrayList<>() : null;
+            }
+
+            @Override
+            public void accept(final WebDocument doc) {
+                if (this.docs == null) deliver(doc); else this.docs.add(doc);
+            }
+
+            /**
+             * must be called once when the part is processed, also in case of failures
+             */
+            private void complete() {
+                if (this.docs == null) return;
+                synchronized (Delivery.this) {
+                    Delivery.this.completed.put(this.index, this.docs);
+                    List<WebDocument> next;
+                    while ((next = Delivery.this.completed.remove(Delivery.this.nextDelivery)) != null) {
+                        for (final WebDocument doc: next) deliver(doc);
+                        Delivery.this.nextDelivery++;
                     }
                 }
             }
-            try {wrec.close();} catch (final IOException e1) {}
-            wrec = localwarcReader.getNextRecord();
         }
-        localwarcReader.close();
-        Logger.info("Processed " + cnt + " WARC documents");
-
-        // put poison into parser queues and wait for parser thread termination
-        for (int i = 0; i < parserThreads.length; i++) try {
-            responseQueue.put(responsePoison);
-        } catch (final InterruptedException e) {}
-        for (int i = 0; i < parserThreads.length; i++) try {
-            parserThreads[i].join();
-        } catch (final InterruptedException e) {}
-
-        // put poison into document queues and wait for document thread termination
-        for (int i = 0; i < documentThreads.length; i++) try {
-            bundleQueue.put(bundlePoison);
-        } catch (final InterruptedException e) {}
-        for (int i = 0; i < documentThreads.length; i++) try {
-            documentThreads[i].join();
-        } catch (final InterruptedException e) {}
-
-        // collect documents
-        final JSONArray parsedDocuments = new JSONArray();
-        for (final JSONObject object: objectQueue) parsedDocuments.put(object);
+    }
+
+    /**
+     * read a WARC record into a Response. The content of the response is a pooled buffer
+     * which must be released with ByteArrayPool.release after parsing.
+     * @param wrec the WARC record
+     * @return the response or null if the record is not a parseable http response
+     * @throws IOException
+     */
+    private static Response readResponse(final WarcRecord wrec) throws IOException {
+        HeaderLine hl = wrec.getHeader(WarcConstants.FN_WARC_TYPE);
+        if (hl == null || !hl.value.equals(WarcConstants.RT_RESPONSE)) return null; // filter responses
+
+        hl = wrec.getHeader(WarcConstants.FN_WARC_TARGET_URI);
+        String uri = hl.value;
+        MultiProtocolURL location = new MultiProtocolURL("http://127.0.0.1");
+        if (uri != null) {
+            if (uri.startsWith("<") && (uri.endsWith(">"))) {
+                uri = uri.substring(1, uri.length() - 1);
+            }
+            try {
+                location = new MultiProtocolURL(uri);
+            } catch (final MalformedURLException e) {
+                // ignore this
+            }
+        }
 
-        Logger.info("Created " + cnt + " JSON objects from " + cnt + " WARC documents");
+        final HttpHeader http = wrec.getHttpHeader();
+        if (http == null || http.statusCode != 200) return null; // process http response header OK (status 200)
+        if (TextParser.supportsMime(http.contentType) != null) return null; // check availability of parser
 
-        return parsedDocuments;
+        final InputStream istream = wrec.getPayloadContent();
+        // read the payload into a pooled buffer which is released after parsing
+        int contentLength = (int) http.getPayloadLength();
+        final byte[] content = ByteArrayPool.acquire(contentLength);
+        int p = 0, n;
+        while (p < contentLength && (n = istream.read(content, p, contentLength - p)) > 0) p += n;
+        contentLength = p;
+        istream.close();
+
+        final RequestHeader requestHeader = new RequestHeader();
+
+        final ResponseHeader responseHeader = new ResponseHeader(http.statusCode);
+        for (final HeaderLine hx : http.getHeaderList()) { // include all original response headers for parser
+            responseHeader.put(hx.name, hx.value);
+        }
+
+        final Request request = new Request(
+                null,
+                location,
+                requestHeader.referer() == null ? null : requestHeader.referer(),
+                "warc",
+                responseHeader.lastModified(),
+                0);
+
+        return new Response(
+                request,
+                requestHeader,
+                responseHeader,
+                false,
+                content,
+                contentLength
+        );
+    }
+
+    /**
+     * parse one WARC response and pass the resulting documents to the sink.
+     * The content buffer may be released when this returns, also if the parse budget was exceeded: the parser runs
+     * in the calling thread and the Parser.Timeout is thrown only after it returned, and the helpers of pdf pages
+     * and archive entries work on their own copies of the content.
+     * @param response the WARC response record
+     * @param plan the mapping plan of the documents, null for the default plan
+     * @param sink the target for each computed document
+     */
+    private static void parseResponse(final Response response, final MappingPlan plan, final DocumentSink sink) {
+        // parse the source to get a YaCy document
+        Document[] documents;
+        try {
+            documents = TextParser.parseSource(
+                new AnchorURL(response.url()), // or just use "location"?
+                response.getMimeType(),
+                response.getCharacterEncoding(),
+                null, // no vocabulary scraper
+                0, // no timezone offset
+                response.depth(),
+                response.getContent(),
+                response.getContentLength());
+        } catch (final Parser.Timeout e) {
+            Logger.warn("ParserService: " + e.getMessage());
+            return;
+        } catch (final Failure e) {
+            e.printStackTrace();
+            return;
+        }
+        for (final Document d: documents) {
+            final WebDocument json = WebConfiguration.yacy2solr(
+                    plan == null ? MappingPlan.getDefault() : plan, response.getResponseHeader(),
+                    d, response.getRequestHeader().referer(), null /* language */, false,
+                    0 /* timezoneOffset */);
+            try {
+                sink.accept(json);
+            } catch (final IOException e) {
+                Logger.warn("could not write document to sink", e);
+            }
+        }
     }
 
-    public final static WebMapping[] graph_attributes = new WebMapping[]{
-        WebMapping.url_s,
-        WebMapping.url_protocol_s,
-        WebMapping.url_file_name_s,
-        WebMapping.url_file_ext_s,
-        WebMapping.inboundlinkscount_i,
-        WebMapping.inboundlinks_sxt,
-        WebMapping.inboundlinks_anchortext_txt,
-        WebMapping.inboundlinksnofollowcount_i,
-        WebMapping.outboundlinkscount_i,
-        WebMapping.outboundlinks_sxt,
-        WebMapping.outboundlinks_anchortext_txt,
-        WebMapping.outboundlinksnofollowcount_i,
-        WebMapping.imagescount_i,
-        WebMapping.images_sxt,
-        WebMapping.images_text_t,
-        WebMapping.images_alt_sxt,
-        WebMapping.images_height_val,
-        WebMapping.images_width_val,
-        WebMapping.images_pixel_val,
-        WebMapping.canonical_s,
-        WebMapping.frames_sxt,
-        WebMapping.framesscount_i,
-        WebMapping.iframes_sxt,
-        WebMapping.iframesscount_i
-    };
+    public final static WebMapping[] graph_attributes = WebDocument.GRAPH_ATTRIBUTES;
 
     public static JSONObject extractGraph(final JSONObject doc) {
         final JSONObject graph = new JSONObject(true);
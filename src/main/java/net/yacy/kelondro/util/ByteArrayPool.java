@@ -0,0 +1,77 @@
+/**
+ *  ByteArrayPool
+ *  Copyright 2026 by the YaCy Grid contributors
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.kelondro.util;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of reusable byte arrays for payload buffers. Arrays are organized in size classes
+ * of powers of two, so an acquired array may be larger than requested; the caller must
+ * keep track of the number of valid bytes. Arrays above MAX_POOLED_SIZE are not pooled
+ * and the total size of all idle arrays is limited by MAX_IDLE_BYTES.
+ */
+public class ByteArrayPool {
+
+    private static final int MIN_CLASS = 16; // 64 KB
+    private static final int MAX_CLASS = 24; // 16 MB
+    public  static final int MAX_POOLED_SIZE = 1 << MAX_CLASS;
+    private static final long MAX_IDLE_BYTES = 256L * 1024L * 1024L;
+
+    @SuppressWarnings("unchecked")
+    private static final ConcurrentLinkedQueue<byte[]>[] pool = new ConcurrentLinkedQueue[MAX_CLASS + 1];
+    private static final AtomicLong idleBytes = new AtomicLong(0);
+    static {
+        for (int i = MIN_CLASS; i <= MAX_CLASS; i++) pool[i] = new ConcurrentLinkedQueue<>();
+    }
+
+    private static int sizeClass(final int size) {
+        if (size <= (1 << MIN_CLASS)) return MIN_CLASS;
+        return 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    /**
+     * get an array with at least the given size
+     * @param size the minimum size of the array
+     * @return a pooled array or a new array
+     */
+    public static byte[] acquire(final int size) {
+        if (size > MAX_POOLED_SIZE) return new byte[size];
+        final int c = sizeClass(size);
+        final byte[] b = pool[c].poll();
+        if (b == null) return new byte[1 << c];
+        idleBytes.addAndGet(-b.length);
+        return b;
+    }
+
+    /**
+     * return an array to the pool. The array must not be used by the caller afterwards.
+     * @param b an array from acquire(), may be null
+     */
+    public static void release(final byte[] b) {
+        if (b == null || b.length > MAX_POOLED_SIZE || b.length < (1 << MIN_CLASS) || Integer.bitCount(b.length) != 1) return;
+        if (idleBytes.addAndGet(b.length) > MAX_IDLE_BYTES) {
+            idleBytes.addAndGet(-b.length);
+            return; // let the garbage collector have it
+        }
+        pool[sizeClass(b.length)].offer(b);
+    }
+
+}
@@ -0,0 +1,185 @@
+package net.yacy.cora.geo;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GazetteerTest {
+
+    private static final int NAMES = 0, CODES = 1;
+
+    @Test
+    void locations_and_keys_are_read_back() throws IOException {
+        File target = target();
+        Gazetteer g = Gazetteer.load(target, 1, GazetteerTest::cities, true, false);
+        assertTrue(target.exists());
+        assertCities(g);
+    }
+
+    @Test
+    void mapped_file_is_used_without_loading() throws IOException {
+        File target = target();
+        Gazetteer.load(target, 1, GazetteerTest::cities, true, false);
+        Gazetteer g = Gazetteer.load(target, 1, builder -> {throw new IOException("must not be loaded");}, true, false);
+        assertCities(g);
+    }
+
+    @Test
+    void stale_stamp_builds_again() throws IOException {
+        File target = target();
+        AtomicInteger loads = new AtomicInteger();
+        Gazetteer.load(target, 1, builder -> {loads.incrementAndGet(); cities(builder);}, true, false);
+        Gazetteer g = Gazetteer.load(target, 2, builder -> {
+            loads.incrementAndGet();
+            builder.addLocation(7, 48.14f, 11.58f, "München", 1500000);
+            builder.addKey(NAMES, "München", 7);
+        }, true, false);
+        assertEquals(2, loads.get());
+        assertEquals(1, g.size());
+        assertEquals(0, g.indexOf(NAMES, "münchen"));
+        assertEquals(-1, g.indexOf(NAMES, "Berlin"));
+
+        // the new stamp is stored with the new gazetteer
+        g = Gazetteer.load(target, 2, builder -> {throw new IOException("must not be loaded");}, true, false);
+        assertEquals(1, g.size());
+    }
+
+    @Test
+    void damaged_file_builds_again() throws IOException {
+        File target = target();
+        try (FileOutputStream os = new FileOutputStream(target)) {
+            os.write("not a gazetteer".getBytes(StandardCharsets.UTF_8));
+        }
+        assertCities(Gazetteer.load(target, 1, GazetteerTest::cities, true, false));
+
+        // a gazetteer with other dictionaries is not used
+        Gazetteer g = Gazetteer.load(target, 1, builder -> builder.addLocation(1, 0, 0, null, 0), true);
+        assertEquals(1, g.size());
+        assertNull(g.location(0).getName());
+    }
+
+    @Test
+    void case_insensitive_keys_are_merged_and_found_in_any_case() throws IOException {
+        Gazetteer g = Gazetteer.load(target(), 1, builder -> {
+            builder.addLocation(1, 0, 0, "a", 0);
+            builder.addLocation(2, 0, 0, "b", 0);
+            builder.addLocation(3, 0, 0, "c", 0);
+            builder.addKey(NAMES, "Berlin", 1);
+            builder.addKey(NAMES, "BERLIN", 2);
+            builder.addKey(NAMES, "aachen", 3);
+            builder.addKey(NAMES, "Zwickau", 3);
+            builder.addKey(CODES, "Berlin", 1);
+            builder.addKey(CODES, "aachen", 3);
+            builder.addKey(CODES, "Zwickau", 3);
+        }, true, false);
+
+        // case-insensitive order: aachen < Berlin < Zwickau
+        assertEquals(3, g.keys(NAMES));
+        assertEquals("aachen", g.key(NAMES, 0));
+        assertEquals("Berlin", g.key(NAMES, 1));
+        assertEquals("Zwickau", g.key(NAMES, 2));
+        assertEquals(1, g.indexOf(NAMES, "bErLiN"));
+        assertArrayEquals(new int[]{0, 1}, g.locations(NAMES, 1));
+        assertEquals(1, g.lowerBound(NAMES, "b"));
+        assertEquals(2, g.lowerBound(NAMES, "C"));
+        assertEquals(3, g.lowerBound(NAMES, "zz"));
+        assertEquals(-1, g.indexOf(NAMES, "Bonn"));
+
+        // case-sensitive order: Berlin < Zwickau < aachen
+        assertEquals("Berlin", g.key(CODES, 0));
+        assertEquals("Zwickau", g.key(CODES, 1));
+        assertEquals("aachen", g.key(CODES, 2));
+        assertEquals(0, g.indexOf(CODES, "Berlin"));
+        assertEquals(-1, g.indexOf(CODES, "berlin"));
+        assertEquals(2, g.lowerBound(CODES, "a"));
+        assertEquals(2, g.indexOf(CODES, "aachen"));
+    }
+
+    @Test
+    void keys_without_location_are_kept() throws IOException {
+        Gazetteer g = Gazetteer.load(target(), 1, builder -> {
+            builder.addKey(NAMES, "Atlantis", 99);
+            builder.addLocation(1, 10, 20, "Berlin", 0);
+            builder.putKey(NAMES, "Berlin", 1);
+            builder.setName(2, "Nowhere");
+        }, true, false);
+        assertEquals(1, g.size());
+        int k = g.indexOf(NAMES, "atlantis");
+        assertEquals(0, k);
+        assertEquals(0, g.locations(NAMES, k).length);
+        assertArrayEquals(new int[]{0}, g.locations(NAMES, g.indexOf(NAMES, "Berlin")));
+        assertEquals(0, g.keys(CODES));
+        assertEquals(0, g.lowerBound(CODES, "x"));
+    }
+
+    @Test
+    void empty_gazetteer() {
+        Gazetteer g = Gazetteer.empty(true, false);
+        assertEquals(0, g.size());
+        assertEquals(0, g.keys(NAMES));
+        assertEquals(-1, g.indexOf(NAMES, "Berlin"));
+    }
+
+    @Test
+    void stamp_depends_on_the_parameters() throws IOException {
+        File source = target();
+        try (FileOutputStream os = new FileOutputStream(source)) {
+            os.write(1);
+        }
+        assertEquals(Gazetteer.stamp(source, 1, 2), Gazetteer.stamp(source, 1, 2));
+        assertTrue(Gazetteer.stamp(source, 1, 2) != Gazetteer.stamp(source, 1, 3));
+        assertTrue(Gazetteer.stamp(source, 1, 2) != Gazetteer.stamp(source, 2, 1));
+    }
+
+    private static void cities(Gazetteer.Builder builder) {
+        builder.addLocation(10, 52.52f, 13.40f, "Berlin", 3600000);
+        builder.addLocation(20, 53.55f, 9.99f, "Hamburg", 1800000);
+        builder.addLocation(30, 50.94f, 6.96f, null, 1000000);
+        builder.setName(30, "Köln");
+        builder.addLocation(20, 53.55f, 10.00f, "Hamburg", 1900000); // replaces the first location with this id
+        builder.addKey(NAMES, "Berlin", 10);
+        builder.addKey(NAMES, "Hamburg", 20);
+        builder.addKey(NAMES, "Köln", 30);
+        builder.addKey(NAMES, "Cologne", 30);
+        builder.addKey(CODES, "DE-BE", 10);
+        builder.addKey(CODES, "DE-HH", 20);
+        builder.addKey(CODES, "DE-NW", 30);
+    }
+
+    private static void assertCities(Gazetteer g) {
+        assertEquals(3, g.size());
+        GeoLocation berlin = g.location(0);
+        assertEquals("Berlin", berlin.getName());
+        assertEquals(52.52, berlin.lat(), 0.001);
+        assertEquals(13.40, berlin.lon(), 0.001);
+        assertEquals(3600000, berlin.getPopulation());
+        GeoLocation hamburg = g.location(1);
+        assertEquals(10.00, hamburg.lon(), 0.001);
+        assertEquals(1900000, hamburg.getPopulation());
+        assertEquals("Köln", g.location(2).getName());
+
+        assertEquals(4, g.keys(NAMES));
+        assertEquals("Berlin", g.key(NAMES, 0));
+        assertEquals("Cologne", g.key(NAMES, 1));
+        assertArrayEquals(new int[]{2}, g.locations(NAMES, g.indexOf(NAMES, "köln")));
+        assertArrayEquals(new int[]{2}, g.locations(NAMES, g.indexOf(NAMES, "COLOGNE")));
+        assertArrayEquals(new int[]{1}, g.locations(CODES, g.indexOf(CODES, "DE-HH")));
+        assertEquals(-1, g.indexOf(CODES, "de-hh"));
+    }
+
+    private static File target() throws IOException {
+        File f = File.createTempFile("GazetteerTest", ".gazetteer");
+        f.deleteOnExit();
+        new File(f.getPath() + ".tmp").deleteOnExit();
+        return f;
+    }
+}
@@ -0,0 +1,73 @@
+package net.yacy.cora.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AhoCorasickTest {
+
+    @Test
+    void finds_all_overlapping_occurrences() {
+        AhoCorasick ac = new AhoCorasick(new String[]{"he", "she", "his", "hers"}, false);
+        assertEquals(Arrays.asList("1:1-4", "0:2-4", "3:2-6"), hits(ac, "ushers"));
+        assertEquals(Arrays.asList("2:0-3"), hits(ac, "his"));
+        assertTrue(hits(ac, "nothing").isEmpty());
+    }
+
+    @Test
+    void words_ending_on_the_fail_chain_are_reported() {
+        AhoCorasick ac = new AhoCorasick(new String[]{"abcd", "bc", "c"}, false);
+        assertEquals(Arrays.asList("1:1-3", "2:2-3", "0:0-4"), hits(ac, "abcd"));
+        assertEquals(Arrays.asList("1:1-3", "2:2-3"), hits(ac, "abce"));
+    }
+
+    @Test
+    void repeated_and_duplicate_words() {
+        AhoCorasick ac = new AhoCorasick(new String[]{"aa", "aa", ""}, false);
+        assertEquals(Arrays.asList("0:0-2", "1:0-2", "0:1-3", "1:1-3"), hits(ac, "aaa"));
+    }
+
+    @Test
+    void ignore_case() {
+        AhoCorasick ac = new AhoCorasick(new String[]{"Tracker"}, true);
+        assertEquals(Arrays.asList("0:4-11", "0:12-19"), hits(ac, "the TRACKER tracker"));
+        AhoCorasick exact = new AhoCorasick(new String[]{"Tracker"}, false);
+        assertTrue(hits(exact, "the TRACKER tracker").isEmpty());
+    }
+
+    @Test
+    void search_in_a_part_and_stop() {
+        AhoCorasick ac = new AhoCorasick(new String[]{"ab"}, false);
+        List<String> found = new ArrayList<>();
+        ac.find("ab ab ab", 2, 8, (word, start, end) -> found.add(start + "-" + end) && false);
+        assertEquals(Arrays.asList("3-5"), found);
+    }
+
+    @Test
+    void matches_a_naive_search() {
+        String[] words = {"ana", "nan", "banana", "a", "xyz", "nab"};
+        AhoCorasick ac = new AhoCorasick(words, false);
+        String text = "bananabanana nab ana";
+        List<String> expected = new ArrayList<>();
+        for (int end = 1; end <= text.length(); end++) {
+            for (int w = 0; w < words.length; w++) {
+                if (end >= words[w].length() && text.startsWith(words[w], end - words[w].length())) expected.add(w + ":" + (end - words[w].length()) + "-" + end);
+            }
+        }
+        List<String> actual = hits(ac, text);
+        actual.sort(null);
+        expected.sort(null);
+        assertEquals(expected, actual);
+    }
+
+    private static List<String> hits(AhoCorasick ac, String text) {
+        List<String> hits = new ArrayList<>();
+        ac.find(text, (word, start, end) -> hits.add(word + ":" + start + "-" + end));
+        return hits;
+    }
+}
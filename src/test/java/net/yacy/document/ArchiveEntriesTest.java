@@ -0,0 +1,110 @@
+package net.yacy.document;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+import net.yacy.grid.tools.MultiProtocolURL;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArchiveEntriesTest {
+
+    @Test
+    void nested_archives_on_a_saturated_pool_do_not_deadlock() throws Exception {
+        // the only worker is blocked and its queue takes one task, so nearly all entries are parsed inline
+        CountDownLatch blocked = new CountDownLatch(1);
+        BlockingQueue<Runnable> tasks = new ArrayBlockingQueue<>(1);
+        Thread worker = new Thread(() -> {
+            try {
+                blocked.await();
+                while (true) tasks.take().run();
+            } catch (InterruptedException e) {
+                // the test is finished
+            }
+        });
+        worker.setDaemon(true);
+        worker.start();
+        ArchiveEntries.configure(tasks::offer, 1024 * 1024);
+        try {
+            String text = parseInThread(nested());
+            assertTrue(text.contains("inner text 0 0"));
+            assertTrue(text.contains("inner text 2 2"));
+        } finally {
+            blocked.countDown();
+            worker.interrupt();
+            ArchiveEntries.configure(null, 16 * 1024 * 1024);
+        }
+    }
+
+    @Test
+    void nested_archives_are_parsed_without_a_pool() throws Exception {
+        ArchiveEntries.configure(null, 16 * 1024 * 1024);
+        String text = parseInThread(nested());
+        assertTrue(text.contains("inner text 1 2"));
+        assertFalse(text.contains("inner text 3"));
+    }
+
+    private static String parseInThread(byte[] zip) throws Exception {
+        AtomicReference<String> text = new AtomicReference<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread t = new Thread(() -> {
+            try {
+                Document[] docs = TextParser.parseSource(
+                        new MultiProtocolURL("http://example.com/outer.zip"), "application/zip", null, null, 0, 0, zip);
+                StringBuilder sb = new StringBuilder();
+                for (Document doc: docs) sb.append(doc.getTextString()).append('\n');
+                text.set(sb.toString());
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        t.setDaemon(true);
+        t.start();
+        t.join(30000);
+        assertFalse(t.isAlive(), "parsing the archive did not finish");
+        assertNull(failure.get());
+        return text.get();
+    }
+
+    private static byte[] nested() throws IOException {
+        ByteArrayOutputStream outer = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(outer)) {
+            for (int i = 0; i < 3; i++) {
+                ByteArrayOutputStream inner = new ByteArrayOutputStream();
+                try (ZipOutputStream izos = new ZipOutputStream(inner)) {
+                    for (int j = 0; j < 3; j++) {
+                        stored(izos, "text" + j + ".txt", ("inner text " + i + " " + j).getBytes(StandardCharsets.UTF_8));
+                    }
+                }
+                stored(zos, "inner" + i + ".zip", inner.toByteArray());
+            }
+        }
+        return outer.toByteArray();
+    }
+
+    private static void stored(ZipOutputStream zos, String name, byte[] content) throws IOException {
+        // stored entries have their size in the local header, so the zip parser knows it while streaming
+        ZipEntry entry = new ZipEntry(name);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(content.length);
+        entry.setCompressedSize(content.length);
+        entry.setCrc(crc.getValue());
+        zos.putNextEntry(entry);
+        zos.write(content);
+        zos.closeEntry();
+    }
+}
@@ -0,0 +1,135 @@
+package net.yacy.document;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentSnifferTest {
+
+    @Test
+    void magic_bytes() {
+        assertEquals(ContentSniffer.Type.PDF, sniff("%PDF-1.7\n"));
+        assertEquals(ContentSniffer.Type.POSTSCRIPT, sniff("%!PS-Adobe-3.0\n"));
+        assertEquals(ContentSniffer.Type.RTF, sniff("{\\rtf1\\ansi"));
+        assertEquals(ContentSniffer.Type.ZIP, sniff(bytes('P', 'K', 3, 4, 20, 0)));
+        assertEquals(ContentSniffer.Type.ZIP, sniff(bytes('P', 'K', 5, 6, 0, 0))); // empty zip archive
+        assertEquals(ContentSniffer.Type.OLE2, sniff(bytes(0xd0, 0xcf, 0x11, 0xe0, 0xa1, 0xb1)));
+        assertEquals(ContentSniffer.Type.GZIP, sniff(bytes(0x1f, 0x8b, 8, 0)));
+        assertEquals(ContentSniffer.Type.BZIP2, sniff("BZh91AY"));
+        assertEquals(ContentSniffer.Type.PNG, sniff(bytes(0x89, 'P', 'N', 'G', '\r', '\n')));
+        assertEquals(ContentSniffer.Type.JPEG, sniff(bytes(0xff, 0xd8, 0xff, 0xe0)));
+        assertEquals(ContentSniffer.Type.GIF, sniff("GIF89a"));
+    }
+
+    @Test
+    void near_misses_are_not_detected() {
+        assertNull(sniff(bytes('P', 'K', 1, 2)));
+        assertNull(sniff(bytes(0x1f, 0x8b, 7, 0))); // not deflate
+        assertNull(sniff("BZh0"));
+        assertNull(sniff("%PD"));
+        assertNull(sniff("plain text"));
+        assertNull(sniff(""));
+    }
+
+    @Test
+    void html_doctype_and_tags_in_any_case() {
+        assertEquals(ContentSniffer.Type.HTML, sniff("<!DOCTYPE html><p>x"));
+        assertEquals(ContentSniffer.Type.HTML, sniff("<!doctype HTML PUBLIC \"-//W3C//DTD HTML 4.01//EN\">"));
+        assertEquals(ContentSniffer.Type.HTML, sniff("<HTML lang=\"en\">"));
+        assertEquals(ContentSniffer.Type.HTML, sniff("<head>\n<title>x</title>"));
+        assertEquals(ContentSniffer.Type.HTML, sniff("<body/>"));
+        assertEquals(ContentSniffer.Type.HTML, sniff("<html\n>"));
+    }
+
+    @Test
+    void other_markup_is_not_html() {
+        assertNull(sniff("<header>x</header>"));
+        assertNull(sniff("<htmlx>"));
+        assertNull(sniff("<rss version=\"2.0\">"));
+        assertNull(sniff("<!DOCTYPE svg>"));
+        assertNull(sniff("text <html>"));
+        assertNull(sniff("<html")); // the tag is not complete within the content
+    }
+
+    @Test
+    void bom_white_space_comments_and_xml_declaration_are_skipped() {
+        byte[] bom = bytes(0xef, 0xbb, 0xbf);
+        assertEquals(ContentSniffer.Type.HTML, sniff(concat(bom, "<!DOCTYPE html>".getBytes(StandardCharsets.US_ASCII))));
+        assertEquals(ContentSniffer.Type.HTML, sniff(" \t\r\n\f<html>"));
+        assertEquals(ContentSniffer.Type.HTML, sniff("<!-- a -- comment --><!--second--><html>"));
+        assertEquals(ContentSniffer.Type.HTML, sniff("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<!DOCTYPE html>"));
+        assertEquals(ContentSniffer.Type.HTML, sniff(concat(bom, "<?xml version=\"1.0\"?><!-- x -->\n<html>".getBytes(StandardCharsets.US_ASCII))));
+        // a byte order mark is only skipped at the start
+        assertNull(sniff(concat(" ".getBytes(StandardCharsets.US_ASCII), bom, "<html>".getBytes(StandardCharsets.US_ASCII))));
+    }
+
+    @Test
+    void unterminated_prefixes_are_not_html() {
+        assertNull(sniff("<!-- comment without end <html>"));
+        assertNull(sniff("<?xml version=\"1.0\" <html>"));
+    }
+
+    @Test
+    void markup_after_the_prefix_is_not_searched() {
+        char[] spaces = new char[5000];
+        Arrays.fill(spaces, ' ');
+        assertNull(sniff(new String(spaces) + "<html>"));
+        assertEquals(ContentSniffer.Type.HTML, sniff(new String(spaces, 0, 4000) + "<html>"));
+    }
+
+    @Test
+    void only_the_given_length_is_read() {
+        byte[] b = "<html>".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(ContentSniffer.Type.HTML, ContentSniffer.sniff(b, b.length));
+        assertNull(ContentSniffer.sniff(b, 5));
+        byte[] pdf = Arrays.copyOf("%PDF".getBytes(StandardCharsets.US_ASCII), 100); // a pooled buffer
+        assertEquals(ContentSniffer.Type.PDF, ContentSniffer.sniff(pdf, 4));
+        assertNull(ContentSniffer.sniff(pdf, 3));
+    }
+
+    @Test
+    void types_match_their_mime_family() {
+        assertTrue(ContentSniffer.Type.PDF.matches("application/pdf"));
+        assertTrue(ContentSniffer.Type.PDF.matches("text/x-pdf"));
+        assertTrue(ContentSniffer.Type.ZIP.matches("application/vnd.openxmlformats-officedocument.wordprocessingml.document"));
+        assertTrue(ContentSniffer.Type.ZIP.matches("application/epub+zip"));
+        assertTrue(ContentSniffer.Type.OLE2.matches("application/vnd.ms-excel"));
+        assertTrue(ContentSniffer.Type.GZIP.matches("application/x-tar"));
+        assertTrue(ContentSniffer.Type.HTML.matches("application/xhtml+xml"));
+        assertFalse(ContentSniffer.Type.HTML.matches("text/plain"));
+        assertFalse(ContentSniffer.Type.PDF.matches("application/octet-stream"));
+        assertFalse(ContentSniffer.Type.PNG.matches(null));
+    }
+
+    private static ContentSniffer.Type sniff(String s) {
+        return sniff(s.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static ContentSniffer.Type sniff(byte[] b) {
+        return ContentSniffer.sniff(b, b.length);
+    }
+
+    private static byte[] bytes(int... v) {
+        byte[] b = new byte[v.length];
+        for (int i = 0; i < v.length; i++) b[i] = (byte) v[i];
+        return b;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        int n = 0;
+        for (byte[] p: parts) n += p.length;
+        byte[] b = new byte[n];
+        n = 0;
+        for (byte[] p: parts) {
+            System.arraycopy(p, 0, b, n, p.length);
+            n += p.length;
+        }
+        return b;
+    }
+}
@@ -0,0 +1,130 @@
+package net.yacy.document;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashSet;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DateDetectionTest {
+
+    private static final int YEAR = LocalDate.now(ZoneOffset.UTC).getYear();
+
+    @Test
+    void day_month_year() {
+        assertDates("heute 12. Dezember 2014. ", date(2014, 12, 12));
+        assertDates("Donnerstag, 18.12.2014 xyz", date(2014, 12, 18));
+        assertDates("Montag, 8.12.14 xyz", date(2014, 12, 8));
+        assertDates("11 fevereiro 2001", date(2001, 2, 11));
+        assertDates("1 May 2020 and 2 June 2020", date(2020, 5, 1), date(2020, 6, 2));
+    }
+
+    @Test
+    void month_day_year() {
+        assertDates("since April 22, 1996 xyz", date(1996, 4, 22));
+        assertDates("since 04/22/16 xyz", date(2016, 4, 22));
+    }
+
+    @Test
+    void year_month_day() {
+        assertDates("since 1996-04-22 xyz", date(1996, 4, 22));
+        assertDates("1996/04/22", date(1996, 4, 22));
+    }
+
+    @Test
+    void day_month_year_wins_over_month_day_year() {
+        // 03/04/2014 is a valid date in both styles, the day comes first
+        assertDates("am 03/04/2014 und am 05/06/2014.", date(2014, 4, 3), date(2014, 6, 5));
+    }
+
+    @Test
+    void invalid_days_are_no_dates() {
+        assertDates("31.02.2014 xyz");
+        assertDates("32.01.2014 xyz");
+        assertDates("13.13.2014 xyz");
+    }
+
+    @Test
+    void dates_must_stand_alone() {
+        assertDates("x12.12.2014");
+        assertDates("12.12.2014x");
+        assertDates("(12.12.2014)");
+        assertDates("12.12.2014) ", date(2014, 12, 12));
+    }
+
+    @Test
+    void month_day_in_english() {
+        assertDates("on october 20 every year", date(YEAR, 10, 20), date(YEAR + 1, 10, 20));
+        assertDates("only on Oct 20.", date(YEAR, 10, 20), date(YEAR + 1, 10, 20));
+    }
+
+    @Test
+    void day_month_in_german() {
+        assertDates("immer am 1. Dezember abends", date(YEAR, 12, 1), date(YEAR + 1, 12, 1));
+        assertDates("immer am 31. dezember abends", date(YEAR, 12, 31), date(YEAR + 1, 12, 31));
+        assertDates("immer am 31. April abends");
+    }
+
+    @Test
+    void day_month_in_french() {
+        assertDates("et le 29 septembre.", date(YEAR, 9, 29), date(YEAR + 1, 9, 29));
+    }
+
+    @Test
+    void day_month_in_italian_and_spanish() {
+        // both styles use the french names of months, so only the RFC 822 abbreviations are shared
+        assertDates("il 29 sep.", date(YEAR, 9, 29), date(YEAR + 1, 9, 29));
+        assertDates("el 29 de sep.", date(YEAR, 9, 29), date(YEAR + 1, 9, 29));
+    }
+
+    @Test
+    void holidays_are_found() {
+        assertHoliday("am Karfreitag um 15:00 Uhr", "Karfreitag");
+        assertHoliday("Karfreitag", "Karfreitag");
+        assertHoliday("bis Karfreitag.", "Karfreitag");
+        assertHoliday("(bis Karfreitag)", "Karfreitag");
+        assertHoliday("am\nTag der Deutschen Einheit!", "Tag der Deutschen Einheit");
+        assertHoliday("\n X am Rosenmontag und am \n Faschingsdienstag zur Disko", "Rosenmontag", "Faschingsdienstag");
+        assertHoliday("Christmas Eve; Christmas Day", "Christmas Eve", "Christmas Day");
+    }
+
+    @Test
+    void holidays_must_stand_alone() {
+        assertDates("xKarfreitag");
+        assertDates("(Karfreitag)");
+        assertDates("Karfreitags");
+        assertDates("Karfreitag, ");
+        assertDates("karfreitag");
+    }
+
+    @Test
+    void st_martin_is_matched_literally() {
+        assertHoliday("Laternen an St. Martin.", "St. Martin");
+        assertHoliday("Laternen an St. Martin.", "Martinstag");
+        assertDates("Laternen an StX Martin.");
+        assertDates("Laternen an St  Martin.");
+        assertDates("Laternen an St. Martins Tag.");
+    }
+
+    private static void assertDates(String text, Date... expected) {
+        LinkedHashSet<Date> dates = DateDetection.parse(text, 0);
+        assertEquals(new LinkedHashSet<>(Arrays.asList(expected)), dates, text);
+    }
+
+    private static void assertHoliday(String text, String... names) {
+        LinkedHashSet<Date> dates = DateDetection.parse(text, 0);
+        LinkedHashSet<Date> expected = new LinkedHashSet<>();
+        for (String name: names) expected.addAll(Arrays.asList(DateDetection.Holidays.get(name)));
+        assertTrue(expected.size() > 0, text);
+        assertEquals(expected, dates, text);
+    }
+
+    private static Date date(int year, int month, int day) {
+        return new Date(LocalDate.of(year, month, day).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli());
+    }
+}
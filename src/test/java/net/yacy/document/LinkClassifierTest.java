@@ -0,0 +1,87 @@
+package net.yacy.document;
+
+import org.junit.jupiter.api.Test;
+
+import net.yacy.grid.tools.Classification;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LinkClassifierTest {
+
+    private static final String[] URLS = {
+            "http://example.com/",
+            "http://example.com/about-us",
+            "http://example.com/index.html",
+            "http://example.com/img/logo.png",
+            "http://example.com/img/LOGO.JPG",
+            "http://example.com/img/photo.jpeg?size=large",
+            "http://example.com/music/song.mp3",
+            "http://example.com/music/song.MP3?download",
+            "http://example.com/video/clip.mp4",
+            "http://example.com/video/clip.avi",
+            "http://example.com/files/setup.exe",
+            "http://example.com/files/archive.zip",
+            "http://example.com/files/archive.tar.gz",
+            "http://example.com/docs/paper.pdf",
+            "http://example.com/script.php?id=1",
+            "http://example.com/path.with.dots/file",
+            "http://example.com/file.",
+            "http://example.com/file.verylongextensionname",
+            "http://example.mp3/",
+            "http://www.example.png/about",
+            "mailto:someone@example.com"
+    };
+
+    @Test
+    void same_type_as_the_extension_of_resort_links() {
+        for (String u: URLS) {
+            assertEquals(resortLinksType(u), LinkClassifier.extensionType(u), u);
+            assertEquals(resortLinksType(u), LinkClassifier.extensionType(u), u + " from the table");
+        }
+    }
+
+    @Test
+    void dots_in_the_query_are_not_an_extension() {
+        // resortLinks took the chars after the last dot of the query as extension
+        assertEquals(LinkClassifier.TYPE_NONE, LinkClassifier.extensionType("http://example.com/view?file=song.mp3"));
+        assertEquals(LinkClassifier.TYPE_IMAGE, LinkClassifier.extensionType("http://example.com/logo.png?v=1.2"));
+    }
+
+    @Test
+    void only_plain_extensions_are_stored() {
+        LinkClassifier.extensionType("http://example.com/a.png");
+        int size = LinkClassifier.size();
+        for (int i = 0; i < 100; i++) {
+            LinkClassifier.extensionType("http://example" + i + ".com/about-us");
+            LinkClassifier.extensionType("http://example.com/page." + i + "-" + i);
+            LinkClassifier.extensionType("http://example.com/page.x_" + i);
+        }
+        LinkClassifier.extensionType("http://example.com/b.png");
+        assertEquals(size, LinkClassifier.size());
+    }
+
+    @Test
+    void table_grows_with_new_extensions() {
+        int size = LinkClassifier.size();
+        for (int i = 0; i < 1000; i++) LinkClassifier.extensionType("http://example.com/file.x" + i);
+        assertTrue(LinkClassifier.size() >= size + 1000 || LinkClassifier.size() == 4096);
+        for (int i = 0; i < 1000; i++) assertEquals(LinkClassifier.TYPE_NONE, LinkClassifier.extensionType("http://example.com/FILE.X" + i));
+    }
+
+    /**
+     * the extension classification of Document.resortLinks before the LinkClassifier
+     */
+    private static byte resortLinksType(String u) {
+        int extpos = u.lastIndexOf('.');
+        if (extpos <= 0) return LinkClassifier.TYPE_NONE;
+        int qpos = u.indexOf('?');
+        String ext = qpos >= 0 && qpos > extpos ? u.substring(extpos + 1, qpos).toLowerCase() : u.substring(extpos + 1).toLowerCase();
+        if (!Classification.isMediaExtension(ext)) return LinkClassifier.TYPE_NONE;
+        if (Classification.isImageExtension(ext)) return LinkClassifier.TYPE_IMAGE;
+        if (Classification.isAudioExtension(ext)) return LinkClassifier.TYPE_AUDIO;
+        if (Classification.isVideoExtension(ext)) return LinkClassifier.TYPE_VIDEO;
+        if (Classification.isApplicationExtension(ext)) return LinkClassifier.TYPE_APP;
+        return LinkClassifier.TYPE_MEDIA;
+    }
+}
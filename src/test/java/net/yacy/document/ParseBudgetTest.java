@@ -0,0 +1,143 @@
+package net.yacy.document;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import net.yacy.grid.tools.MultiProtocolURL;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParseBudgetTest {
+
+    private static final Document[] NONE = new Document[0];
+
+    @Test
+    void exceeded_time_interrupts_the_parser() throws Exception {
+        ParseBudget.configure(100, 0);
+        try {
+            long start = System.currentTimeMillis();
+            assertThrows(Parser.Timeout.class, () -> ParseBudget.run(url(), () -> {
+                Thread.sleep(10000);
+                return NONE;
+            }));
+            assertTrue(System.currentTimeMillis() - start < 5000);
+        } finally {
+            ParseBudget.configure(0, 0);
+        }
+    }
+
+    @Test
+    void interrupt_does_not_reach_the_next_task() throws Exception {
+        ParseBudget.configure(100, 0);
+        try {
+            assertThrows(Parser.Timeout.class, () -> ParseBudget.run(url(), () -> {
+                Thread.sleep(10000);
+                return NONE;
+            }));
+            assertFalse(Thread.currentThread().isInterrupted());
+            // the next document of the same thread gets a new budget
+            assertSame(NONE, ParseBudget.run(url(), () -> {
+                Thread.sleep(20);
+                return NONE;
+            }));
+            assertFalse(Thread.currentThread().isInterrupted());
+        } finally {
+            ParseBudget.configure(0, 0);
+        }
+    }
+
+    @Test
+    void parser_which_ignores_the_interrupt_is_stopped_by_its_stream() throws Exception {
+        ParseBudget.configure(100, 0);
+        MultiProtocolURL location = url();
+        try {
+            assertThrows(Parser.Timeout.class, () -> ParseBudget.run(location, () -> {
+                InputStream endless = ParseBudget.observe(new InputStream() {
+                    @Override
+                    public int read() {
+                        Thread.interrupted(); // a parser which swallows the interrupt
+                        return 0;
+                    }
+                });
+                try {
+                    while (true) endless.read();
+                } catch (IOException e) {
+                    throw new Parser.Failure(e.getMessage(), location);
+                }
+            }));
+            assertFalse(Thread.currentThread().isInterrupted());
+        } finally {
+            ParseBudget.configure(0, 0);
+        }
+    }
+
+    @Test
+    void exceeded_allocation_cancels_the_parser() throws Exception {
+        ParseBudget.configure(0, 16 * 1024 * 1024);
+        try {
+            List<byte[]> kept = new ArrayList<>();
+            assertThrows(Parser.Timeout.class, () -> ParseBudget.run(url(), () -> {
+                // allocate far more than the budget, slowly enough for the watchdog
+                for (int i = 0; i < 10000; i++) {
+                    kept.add(new byte[1024 * 1024]);
+                    if (kept.size() > 8) kept.remove(0);
+                    Thread.sleep(2);
+                }
+                return NONE;
+            }));
+            assertFalse(Thread.currentThread().isInterrupted());
+        } finally {
+            ParseBudget.configure(0, 0);
+        }
+    }
+
+    @Test
+    void nested_parse_counts_to_the_outer_budget() throws Exception {
+        ParseBudget.configure(100, 0);
+        MultiProtocolURL location = url();
+        try {
+            int[] nested = new int[1];
+            assertThrows(Parser.Timeout.class, () -> ParseBudget.run(location, () -> {
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    // an archive parser which goes on with the next entry
+                }
+                nested[0]++;
+                return ParseBudget.run(location, () -> {
+                    nested[0]++;
+                    return NONE;
+                });
+            }));
+            assertEquals(1, nested[0]); // the inner parse is not started
+        } finally {
+            ParseBudget.configure(0, 0);
+        }
+    }
+
+    @Test
+    void without_budget_the_task_runs_unchanged() throws Exception {
+        ParseBudget.configure(0, 0);
+        assertSame(NONE, ParseBudget.run(url(), () -> NONE));
+        InputStream is = new InputStream() {
+            @Override
+            public int read() {
+                return -1;
+            }
+        };
+        assertSame(is, ParseBudget.observe(is));
+    }
+
+    private static MultiProtocolURL url() throws MalformedURLException {
+        return new MultiProtocolURL("http://example.com/document");
+    }
+}
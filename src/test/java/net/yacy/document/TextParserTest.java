@@ -0,0 +1,65 @@
+package net.yacy.document;
+
+import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import net.yacy.grid.tools.MultiProtocolURL;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TextParserTest {
+
+    private static final byte[] PDF = "%PDF-1.4\n%âã\n1 0 obj".getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] HTML = "<!DOCTYPE html>\n<html><body>x</body></html>".getBytes(StandardCharsets.ISO_8859_1);
+
+    @Test
+    void content_of_another_type_overrides_the_mime_type() throws MalformedURLException {
+        assertEquals("application/pdf", sniff("http://example.com/download", "text/html", PDF));
+        assertEquals("application/pdf", sniff("http://example.com/page.html", "text/html", PDF));
+        assertEquals("application/pdf", sniff("http://example.com/download", "application/octet-stream", PDF));
+        assertEquals("text/html", sniff("http://example.com/download", "application/pdf", HTML));
+    }
+
+    @Test
+    void fitting_or_unknown_content_keeps_the_mime_type() throws MalformedURLException {
+        assertEquals("application/pdf", sniff("http://example.com/download", "application/pdf", PDF));
+        assertEquals("application/x-pdf", sniff("http://example.com/download", "application/x-pdf", PDF)); // a mime type of the same family
+        assertEquals("application/xhtml+xml", sniff("http://example.com/download", "application/xhtml+xml", HTML));
+        assertEquals("text/plain", sniff("http://example.com/download", "text/plain", "just text".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals("text/html", sniff("http://example.com/download", "text/html", new byte[]{'%', 'P'}));
+    }
+
+    @Test
+    void fitting_extension_keeps_the_mime_type() throws MalformedURLException {
+        // the parsers of the extension are tried anyway, so the given type is kept
+        assertEquals("text/html", sniff("http://example.com/doc.pdf", "text/html", PDF));
+        assertEquals("text/html", sniff("http://example.com/DOC.PDF", "text/html", PDF));
+        assertEquals("text/plain", sniff("http://example.com/index.html", "text/plain", HTML));
+    }
+
+    @Test
+    void denied_content_type_keeps_the_mime_type() throws MalformedURLException {
+        final String deny = TextParser.getDenyMime();
+        try {
+            TextParser.grantMime("application/pdf", false);
+            assertEquals("text/html", sniff("http://example.com/download", "text/html", PDF));
+        } finally {
+            TextParser.setDenyMime(deny);
+        }
+        assertEquals("application/pdf", sniff("http://example.com/download", "text/html", PDF));
+    }
+
+    @Test
+    void only_the_given_length_is_sniffed() throws MalformedURLException {
+        byte[] pooled = new byte[1024];
+        System.arraycopy(PDF, 0, pooled, 0, PDF.length);
+        assertEquals("application/pdf", TextParser.sniffMimeType(new MultiProtocolURL("http://example.com/download"), "text/html", pooled, PDF.length));
+        assertEquals("text/html", TextParser.sniffMimeType(new MultiProtocolURL("http://example.com/download"), "text/html", pooled, 3));
+    }
+
+    private static String sniff(String url, String mimeType, byte[] content) throws MalformedURLException {
+        return TextParser.sniffMimeType(new MultiProtocolURL(url), mimeType, content, content.length);
+    }
+}
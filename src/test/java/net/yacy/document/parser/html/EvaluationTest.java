@@ -0,0 +1,94 @@
+package net.yacy.document.parser.html;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EvaluationTest {
+
+    @Test
+    void longest_literal_of_each_alternative() {
+        assertEquals(Arrays.asList("www.google-analytics.com/ga.js"), literals("www\\.google-analytics\\.com/ga\\.js"));
+        assertEquals(Arrays.asList("urchin.js", "analytics.js"), literals("urchin\\.js|analytics\\.js"));
+        assertEquals(Arrays.asList("tracker"), literals(".*tracker.*"));
+        assertEquals(Arrays.asList("facebook.com"), literals("(?:www\\.)?facebook\\.com"));
+    }
+
+    @Test
+    void optional_chars_are_not_required() {
+        assertEquals(Arrays.asList("http"), literals("https?://"));
+        assertEquals(Arrays.asList("abc"), literals("abcd*e"));
+        assertEquals(Arrays.asList("abc"), literals("abcd{0,2}e"));
+    }
+
+    @Test
+    void simple_escapes_split_literals() {
+        assertEquals(Arrays.asList("counter"), literals("counter\\d+\\.gif"));
+        assertEquals(Arrays.asList("widget"), literals("\\bwidget\\s"));
+        assertEquals(Arrays.asList("break"), literals("line\\nbreak"));
+    }
+
+    @Test
+    void character_classes_split_literals() {
+        assertEquals(Arrays.asList("stats"), literals("stats[0-9]+\\.js"));
+        assertEquals(Arrays.asList("banner"), literals("ad[^]x]banner"));
+        assertEquals(Arrays.asList("banner"), literals("ad[\\]x]banner"));
+    }
+
+    @Test
+    void escapes_with_arguments_give_no_literals() {
+        assertNull(literals("ad\\x41banner"));
+        assertNull(literals("ad\\u00e4banner"));
+        assertNull(literals("ad\\0101banner"));
+        assertNull(literals("ad\\cXbanner"));
+        assertNull(literals("(?<n>ad)\\k<n>banner"));
+        assertNull(literals("ad\\x{41}banner"));
+        assertNull(literals("ad\\pLbanner"));
+        assertNull(literals("(ad)\\1banner"));
+        assertNull(literals("\\Qad.banner\\E"));
+    }
+
+    @Test
+    void nested_and_intersected_classes_give_no_literals() {
+        assertNull(literals("ad[a-z&&[^b]]banner"));
+        assertNull(literals("ad[a[bc]]banner"));
+        assertNull(literals("ad[\\p{L}&&\\p{Lu}]banner"));
+    }
+
+    @Test
+    void patterns_without_literals_give_no_literals() {
+        assertNull(literals(".*"));
+        assertNull(literals("tracker|.*"));
+        assertNull(literals("(?i)tracker"));
+        assertNull(Evaluation.requiredLiterals(Pattern.compile("tracker", Pattern.CASE_INSENSITIVE)));
+    }
+
+    @Test
+    void literals_are_contained_in_every_match() {
+        String[][] cases = {
+                {"www\\.google-analytics\\.com/ga\\.js", "http://www.google-analytics.com/ga.js"},
+                {"urchin\\.js|analytics\\.js", "/analytics.js"},
+                {"https?://counter\\d+\\.example", "http://counter7.example"},
+                {"stats[0-9]+\\.js", "stats42.js"},
+                {"ad[\\]x]banner", "ad]banner"},
+                {"abcd*e", "abce"}};
+        for (String[] c: cases) {
+            Pattern p = Pattern.compile(c[0]);
+            assertTrue(p.matcher(c[1]).find(), c[0]);
+            List<String> required = Evaluation.requiredLiterals(p);
+            boolean contained = false;
+            for (String l: required) contained |= c[1].contains(l);
+            assertTrue(contained, c[0] + " " + required);
+        }
+    }
+
+    private static List<String> literals(String regex) {
+        return Evaluation.requiredLiterals(Pattern.compile(regex));
+    }
+}
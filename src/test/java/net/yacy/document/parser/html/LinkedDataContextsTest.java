@@ -0,0 +1,195 @@
+package net.yacy.document.parser.html;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LinkedDataContextsTest {
+
+    private static final String BUNDLE = "{"
+            + "\"http://example.org/ctx\": {\"@vocab\": \"http://example.org/\", \"ex\": \"http://example.org/\", \"label\": \"ex:name\"},"
+            + "\"http://example.org/nested\": [\"http://example.org/ctx\", {\"date\": {\"@id\": \"http://purl.org/dc/terms/date\"}}]"
+            + "}";
+
+    @Test
+    void keys_ignore_scheme_fragment_and_trailing_slashes() {
+        assertEquals("schema.org", LinkedDataContexts.key("http://schema.org"));
+        assertEquals("schema.org", LinkedDataContexts.key("https://schema.org/"));
+        assertEquals("schema.org", LinkedDataContexts.key(" https://schema.org//#top "));
+        assertEquals("schema.org/docs/jsonldcontext.json", LinkedDataContexts.key("https://schema.org/docs/jsonldcontext.json"));
+    }
+
+    @Test
+    void remote_contexts_are_replaced_by_the_bundled_context() throws IOException {
+        LinkedDataContexts.configure(bundle(), null, 10, null);
+        try {
+            JSONObject doc = new JSONObject(LinkedDataContexts.resolve("{\"@context\": \"https://example.org/ctx/\", \"label\": \"x\"}"));
+            assertEquals("http://example.org/", doc.getJSONObject("@context").getString("@vocab"));
+
+            // contexts which reference other contexts are resolved as well
+            doc = new JSONObject(LinkedDataContexts.resolve("{\"@context\": \"http://example.org/nested\"}"));
+            JSONArray nested = doc.getJSONArray("@context");
+            assertEquals("ex:name", nested.getJSONObject(0).getString("label"));
+            assertEquals("http://purl.org/dc/terms/date", nested.getJSONObject(1).getJSONObject("date").getString("@id"));
+
+            // unknown contexts are empty, documents without contexts are not changed
+            doc = new JSONObject(LinkedDataContexts.resolve("{\"@context\": \"http://unknown.example.org/\", \"label\": \"x\"}"));
+            assertEquals(0, doc.getJSONObject("@context").length());
+            String expanded = "[{\"http://example.org/name\": [{\"@value\": \"x\"}]}]";
+            assertSame(expanded, LinkedDataContexts.resolve(expanded));
+        } finally {
+            LinkedDataContexts.configure(null, null, 1000, null);
+        }
+    }
+
+    @Test
+    void terms_of_remote_and_local_contexts() throws IOException {
+        LinkedDataContexts.configure(bundle(), null, 10, null);
+        try {
+            Map<String, String> terms = new HashMap<>();
+            assertEquals("http://example.org/", LinkedDataContexts.terms("http://example.org/nested", terms));
+            assertEquals("http://example.org/name", terms.get("label"));
+            assertEquals("http://purl.org/dc/terms/date", terms.get("date"));
+
+            // a context which is not in the store is a vocabulary
+            terms.clear();
+            assertEquals("https://vocab.example.org", LinkedDataContexts.terms("https://vocab.example.org", terms));
+            assertTrue(terms.isEmpty());
+            assertEquals("http://local.example.org/", LinkedDataContexts.terms(new JSONObject("{\"@vocab\": \"http://local.example.org/\"}"), terms));
+        } finally {
+            LinkedDataContexts.configure(null, null, 1000, null);
+        }
+    }
+
+    @Test
+    void json_ld_scripts_in_html_are_resolved() throws IOException {
+        LinkedDataContexts.configure(bundle(), null, 10, null);
+        try {
+            byte[] html = ("<html><head><title>ä</title><script type=\"application/ld+json\">"
+                    + "{\"@context\": \"http://example.org/ctx\", \"label\": \"ö\"}</script>"
+                    + "<script>var context = {\"@context\": 1};</script></head></html>").getBytes(StandardCharsets.UTF_8);
+            String resolved = new String(LinkedDataContexts.resolveScripts(html, StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+            assertTrue(resolved.startsWith("<html><head><title>ä</title><script type=\"application/ld+json\">{"));
+            assertTrue(resolved.contains("\"@vocab\":\"http://example.org/\""));
+            assertTrue(resolved.contains("\"label\":\"ö\""));
+            assertTrue(resolved.endsWith("</script><script>var context = {\"@context\": 1};</script></head></html>"));
+
+            byte[] plain = "<html><script type=\"application/ld+json\">{\"name\": \"x\"}</script></html>".getBytes(StandardCharsets.UTF_8);
+            assertSame(plain, LinkedDataContexts.resolveScripts(plain, StandardCharsets.UTF_8));
+        } finally {
+            LinkedDataContexts.configure(null, null, 1000, null);
+        }
+    }
+
+    @Test
+    void document_loader_and_expansion_use_the_store() throws Exception {
+        LinkedDataContexts.configure(bundle(), null, 10, null);
+        try {
+            Object doc = LinkedDataContexts.documentLoader().loadDocument("https://example.org/ctx").getDocument();
+            assertTrue(doc instanceof Map);
+            assertNotNull(((Map<?, ?>) doc).get("@context"));
+
+            String expanded = LinkedDataContexts.expand("http://test.local/", "{\"@context\": \"https://example.org/ctx\", \"label\": \"x\", \"title\": \"y\"}");
+            assertTrue(expanded.contains("http://example.org/name"));
+            assertTrue(expanded.contains("http://example.org/title"));
+
+            // an unknown context does not fail the document
+            expanded = LinkedDataContexts.expand("http://test.local/", "{\"@context\": \"https://unknown.example.org\", \"http://example.org/p\": \"z\"}");
+            assertTrue(expanded.contains("http://example.org/p"));
+        } finally {
+            LinkedDataContexts.configure(null, null, 1000, null);
+        }
+    }
+
+    @Test
+    void memory_cache_evicts_the_least_recently_used_context() {
+        AtomicInteger loads = new AtomicInteger();
+        LinkedDataContexts.configure(null, null, 2, url -> {
+            loads.incrementAndGet();
+            return new JSONObject().put("@context", new JSONObject().put("@vocab", url + "/"));
+        });
+        try {
+            assertNull(LinkedDataContexts.get("http://a.example.org"));
+            assertEquals("http://a.example.org/", awaitContext("http://a.example.org").getString("@vocab"));
+            assertNull(LinkedDataContexts.get("http://b.example.org"));
+            awaitContext("http://b.example.org");
+            assertNull(LinkedDataContexts.get("http://c.example.org"));
+            awaitContext("http://c.example.org");
+            assertEquals(3, loads.get());
+
+            // a is evicted and loaded again, c is still in memory
+            assertNull(LinkedDataContexts.get("http://a.example.org"));
+            awaitContext("http://a.example.org");
+            assertEquals(4, loads.get());
+            assertNotNull(LinkedDataContexts.get("https://c.example.org/"));
+            assertEquals(4, loads.get());
+        } finally {
+            LinkedDataContexts.configure(null, null, 1000, null);
+        }
+    }
+
+    @Test
+    void loaded_contexts_are_kept_in_the_disk_cache() throws IOException {
+        File cache = Files.createTempDirectory("LinkedDataContextsTest").toFile();
+        cache.deleteOnExit();
+        AtomicInteger loads = new AtomicInteger();
+        LinkedDataContexts.configure(null, cache, 10, url -> {
+            loads.incrementAndGet();
+            return new JSONObject().put("@context", new JSONObject().put("@vocab", "http://d.example.org/"));
+        });
+        try {
+            assertNull(LinkedDataContexts.get("http://d.example.org/context.jsonld"));
+            awaitContext("http://d.example.org/context.jsonld");
+            File[] files = cache.listFiles();
+            assertEquals(1, files.length);
+            files[0].deleteOnExit();
+
+            // without memory cache and without loader the context is read from disk
+            LinkedDataContexts.configure(null, cache, 10, null);
+            JSONObject context = (JSONObject) LinkedDataContexts.get("https://d.example.org/context.jsonld");
+            assertEquals("http://d.example.org/", context.getString("@vocab"));
+            assertEquals(1, loads.get());
+        } finally {
+            LinkedDataContexts.configure(null, null, 1000, null);
+        }
+    }
+
+    private static JSONObject awaitContext(String url) {
+        // contexts are loaded in the background
+        long timeout = System.currentTimeMillis() + 10000;
+        Object context;
+        while ((context = LinkedDataContexts.get(url)) == null && System.currentTimeMillis() < timeout) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        assertNotNull(context, "context " + url + " was not loaded");
+        return (JSONObject) context;
+    }
+
+    private static File bundle() throws IOException {
+        File f = File.createTempFile("LinkedDataContextsTest", ".json");
+        f.deleteOnExit();
+        try (FileOutputStream os = new FileOutputStream(f)) {
+            os.write(BUNDLE.getBytes(StandardCharsets.UTF_8));
+        }
+        return f;
+    }
+}
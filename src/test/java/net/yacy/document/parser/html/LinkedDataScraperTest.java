@@ -0,0 +1,112 @@
+package net.yacy.document.parser.html;
+
+import java.util.Properties;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LinkedDataScraperTest {
+
+    @Test
+    void no_markup_needs_no_fallback() {
+        LinkedDataScraper lds = new LinkedDataScraper();
+        lds.open("p", new Properties(), false);
+        lds.text("plain text".toCharArray());
+        lds.close("p");
+        lds.finish();
+
+        assertFalse(lds.hasMarkup());
+        assertTrue(lds.isComplete());
+        assertEquals(0, lds.getTree("http://test.local").getJSONArray("@graph").length());
+    }
+
+    @Test
+    void microdata_item_with_properties() {
+        LinkedDataScraper lds = new LinkedDataScraper();
+        lds.open("div", props("itemscope", "", "itemtype", "http://schema.org/Person"), false);
+        lds.open("span", props("itemprop", "name"), false);
+        lds.text("Jane &amp; John".toCharArray());
+        lds.close("span");
+        lds.open("meta", props("itemprop", "birthDate", "content", "1970-01-01"), false);
+        lds.close("div");
+        lds.finish();
+
+        JSONObject tree = lds.getTree("http://test.local");
+        JSONObject person = tree.getJSONArray("@graph").getJSONObject(0);
+        assertEquals("http://schema.org/Person", person.getString("@type"));
+        assertEquals("Jane & John", person.getString("name"));
+        assertEquals("1970-01-01", person.getString("birthDate"));
+        assertEquals("http://schema.org/name", tree.getJSONObject("@context").getString("name"));
+    }
+
+    @Test
+    void rdfa_leaf_property_keeps_allowed_markup() {
+        LinkedDataScraper lds = new LinkedDataScraper();
+        lds.open("div", props("vocab", "http://xzufi.de/", "typeof", "Leistung"), false);
+        lds.open("h2", props("property", "leistungsbezeichnung"), false);
+        lds.open("b", new Properties(), false);
+        lds.text("Kfz-Schein Änderung".toCharArray());
+        lds.close("b");
+        lds.open("script", new Properties(), false);
+        lds.text("alert('I\'m malicious code')".toCharArray());
+        lds.close("script");
+        lds.close("h2");
+        lds.close("div");
+        lds.finish();
+
+        JSONObject leistung = lds.getTree("http://test.local").getJSONArray("@graph").getJSONObject(0);
+        assertEquals("<b>Kfz-Schein Änderung</b>", leistung.getString("leistungsbezeichnung"));
+    }
+
+    @Test
+    void json_ld_script_block() {
+        LinkedDataScraper lds = new LinkedDataScraper();
+        lds.open("script", props("type", "application/ld+json"), false);
+        lds.text("{\"@context\": \"https://schema.org\", \"@type\": \"Organization\", \"name\": \"publicplan\"}".toCharArray());
+        lds.close("script");
+        lds.finish();
+
+        JSONObject organization = lds.getTree("http://test.local").getJSONArray("@graph").getJSONObject(0);
+        assertEquals("https://schema.org/Organization", organization.getString("@type"));
+        assertEquals("publicplan", organization.getString("name"));
+    }
+
+    @Test
+    void json_ld_script_block_with_term_definitions() {
+        LinkedDataScraper lds = new LinkedDataScraper();
+        lds.open("script", props("type", "application/ld+json"), false);
+        lds.text(("{\"@context\": {\"@vocab\": \"http://schema.org/\", \"dc\": \"http://purl.org/dc/terms/\", \"headline\": \"dc:title\"},"
+                + " \"@type\": \"Article\", \"headline\": \"news\", \"author\": \"Jane\"}").toCharArray());
+        lds.close("script");
+        lds.finish();
+
+        JSONObject tree = lds.getTree("http://test.local");
+        JSONObject article = tree.getJSONArray("@graph").getJSONObject(0);
+        assertEquals("http://schema.org/Article", article.getString("@type"));
+        assertFalse(article.has("@context"));
+        assertEquals("http://purl.org/dc/terms/title", tree.getJSONObject("@context").getString("headline"));
+        assertEquals("http://schema.org/author", tree.getJSONObject("@context").getString("author"));
+    }
+
+    @Test
+    void broken_json_ld_requires_fallback() {
+        LinkedDataScraper lds = new LinkedDataScraper();
+        lds.open("script", props("type", "application/ld+json"), false);
+        lds.text("{\"@type\": ".toCharArray());
+        lds.close("script");
+        lds.finish();
+
+        assertTrue(lds.hasMarkup());
+        assertFalse(lds.isComplete());
+    }
+
+    private static Properties props(String... kv) {
+        Properties p = new Properties();
+        for (int i = 0; i < kv.length; i += 2) p.setProperty(kv[i], kv[i + 1]);
+        return p;
+    }
+}
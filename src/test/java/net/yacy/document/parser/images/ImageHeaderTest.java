@@ -0,0 +1,231 @@
+package net.yacy.document.parser.images;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageHeaderTest {
+
+    @Test
+    void imageio_formats_have_the_dimensions_of_imageio() throws IOException {
+        for (String format: new String[]{"jpeg", "png", "gif", "bmp"}) {
+            byte[] image = write(image(37, 21, BufferedImage.TYPE_INT_RGB), format);
+            ImageHeader h = ImageHeader.read(new ByteArrayInputStream(image));
+            assertEquals(format, h.getFormat());
+            assertDimensions(image, h);
+            assertEquals(37, h.getWidth(), format);
+            assertEquals(21, h.getHeight(), format);
+        }
+    }
+
+    @Test
+    void progressive_jpeg() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(baos)) {
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image(300, 17, BufferedImage.TYPE_INT_RGB), null, null), param);
+        }
+        writer.dispose();
+        byte[] image = baos.toByteArray();
+
+        ImageHeader h = ImageHeader.read(new ByteArrayInputStream(image));
+        assertDimensions(image, h);
+        assertEquals(300, h.getWidth());
+    }
+
+    @Test
+    void jpeg_segments_before_the_frame_are_skipped() throws IOException {
+        byte[] jpeg = write(image(45, 67, BufferedImage.TYPE_INT_RGB), "jpeg");
+        // a large APP1 segment and fill bytes between the start of image and the segments written by ImageIO
+        byte[] exif = new byte[2 + 2 + 1000];
+        exif[0] = (byte) 0xFF; exif[1] = (byte) 0xE1;
+        exif[2] = (byte) (1002 >> 8); exif[3] = (byte) (1002 & 0xFF);
+        System.arraycopy("Exif\0\0".getBytes("US-ASCII"), 0, exif, 4, 6);
+        for (int i = 10; i < exif.length; i++) exif[i] = (byte) 0xC0; // looks like a frame marker, but it is inside the segment
+        byte[] image = concat(slice(jpeg, 0, 2), exif, new byte[]{(byte) 0xFF, (byte) 0xFF}, slice(jpeg, 2, jpeg.length));
+
+        ImageHeader h = ImageHeader.read(new ByteArrayInputStream(image));
+        assertEquals(ImageHeader.JPEG, h.getFormat());
+        assertDimensions(image, h);
+        assertEquals(45, h.getWidth());
+        assertEquals(67, h.getHeight());
+    }
+
+    @Test
+    void jpeg_header_is_read_up_to_the_scan() throws IOException {
+        byte[] image = write(image(64, 64, BufferedImage.TYPE_INT_RGB), "jpeg");
+        ImageHeader h = ImageHeader.read(new ByteArrayInputStream(image));
+        byte[] header = readAll(h.getHeaderStream());
+        assertTrue(header.length < image.length);
+        assertArrayEquals(image, readAll(h.getImageStream()));
+    }
+
+    @Test
+    void bmp_variants() throws IOException {
+        byte[] bmp = write(image(11, 7, BufferedImage.TYPE_INT_RGB), "bmp");
+        // a negative height is a top-down bitmap
+        byte[] topDown = bmp.clone();
+        int height = -7;
+        for (int i = 0; i < 4; i++) topDown[22 + i] = (byte) (height >> (8 * i));
+        ImageHeader h = ImageHeader.read(new ByteArrayInputStream(topDown));
+        assertEquals(ImageHeader.BMP, h.getFormat());
+        assertEquals(11, h.getWidth());
+        assertEquals(7, h.getHeight());
+
+        // OS/2 bitmap core header with 16 bit dimensions
+        byte[] core = new byte[26];
+        core[0] = 'B'; core[1] = 'M';
+        core[14] = 12;
+        core[18] = 0x2C; core[19] = 0x01; // 300
+        core[20] = 0x05; core[21] = 0x00; // 5
+        h = ImageHeader.read(new ByteArrayInputStream(core));
+        assertEquals(300, h.getWidth());
+        assertEquals(5, h.getHeight());
+    }
+
+    @Test
+    void ico_first_image() throws IOException {
+        byte[] ico = new byte[22];
+        ico[2] = 1; ico[4] = 2; // type icon, two images
+        ico[6] = 48; ico[7] = 32;
+        ImageHeader h = ImageHeader.read(new ByteArrayInputStream(ico));
+        assertEquals(ImageHeader.ICO, h.getFormat());
+        assertEquals(48, h.getWidth());
+        assertEquals(32, h.getHeight());
+
+        ico[6] = 0; ico[7] = 0; // 0 stands for 256
+        h = ImageHeader.read(new ByteArrayInputStream(ico));
+        assertEquals(256, h.getWidth());
+        assertEquals(256, h.getHeight());
+    }
+
+    @Test
+    void webp_lossy() throws IOException {
+        byte[] chunk = new byte[10];
+        chunk[0] = 0x10; chunk[1] = 0x02; chunk[2] = 0x00; // frame tag
+        chunk[3] = (byte) 0x9D; chunk[4] = 0x01; chunk[5] = 0x2A; // start code
+        chunk[6] = (byte) 0x90; chunk[7] = (byte) (0x01 | 0x40); // width 400 with scale bits
+        chunk[8] = (byte) 0x2C; chunk[9] = 0x01; // height 300
+        ImageHeader h = ImageHeader.read(new ByteArrayInputStream(webp("VP8 ", chunk)));
+        assertEquals(ImageHeader.WEBP, h.getFormat());
+        assertEquals(400, h.getWidth());
+        assertEquals(300, h.getHeight());
+    }
+
+    @Test
+    void webp_lossless() throws IOException {
+        int w = 1000, hgt = 750;
+        int bits = (w - 1) | ((hgt - 1) << 14);
+        byte[] chunk = new byte[10];
+        chunk[0] = 0x2F;
+        for (int i = 0; i < 4; i++) chunk[1 + i] = (byte) (bits >> (8 * i));
+        ImageHeader h = ImageHeader.read(new ByteArrayInputStream(webp("VP8L", chunk)));
+        assertEquals(1000, h.getWidth());
+        assertEquals(750, h.getHeight());
+    }
+
+    @Test
+    void webp_extended() throws IOException {
+        int w = 70000, hgt = 3;
+        byte[] chunk = new byte[10];
+        chunk[0] = 0x10; // alpha flag
+        for (int i = 0; i < 3; i++) chunk[4 + i] = (byte) ((w - 1) >> (8 * i));
+        for (int i = 0; i < 3; i++) chunk[7 + i] = (byte) ((hgt - 1) >> (8 * i));
+        ImageHeader h = ImageHeader.read(new ByteArrayInputStream(webp("VP8X", chunk)));
+        assertEquals(70000, h.getWidth());
+        assertEquals(3, h.getHeight());
+    }
+
+    @Test
+    void unknown_and_damaged_images() throws IOException {
+        ImageHeader h = ImageHeader.read(new ByteArrayInputStream("not an image at all".getBytes("US-ASCII")));
+        assertNull(h.getFormat());
+        assertFalse(h.hasDimensions());
+
+        byte[] png = write(image(5, 5, BufferedImage.TYPE_INT_RGB), "png");
+        h = ImageHeader.read(new ByteArrayInputStream(slice(png, 0, 16)));
+        assertEquals(ImageHeader.PNG, h.getFormat());
+        assertFalse(h.hasDimensions());
+
+        byte[] jpeg = write(image(5, 5, BufferedImage.TYPE_INT_RGB), "jpeg");
+        h = ImageHeader.read(new ByteArrayInputStream(slice(jpeg, 0, 30)));
+        assertEquals(ImageHeader.JPEG, h.getFormat());
+        assertFalse(h.hasDimensions());
+    }
+
+    private static void assertDimensions(byte[] image, ImageHeader h) throws IOException {
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(image));
+        assertEquals(decoded.getWidth(), h.getWidth());
+        assertEquals(decoded.getHeight(), h.getHeight());
+        assertTrue(h.hasDimensions());
+    }
+
+    private static BufferedImage image(int width, int height, int type) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        for (int x = 0; x < width; x++) for (int y = 0; y < height; y++) image.setRGB(x, y, (x * 7) << 16 | (y * 11) << 8 | (x + y));
+        return image;
+    }
+
+    private static byte[] write(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        assertTrue(writers.hasNext(), format);
+        assertTrue(ImageIO.write(image, format, baos), format);
+        return baos.toByteArray();
+    }
+
+    private static byte[] webp(String fourcc, byte[] chunk) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        baos.write("RIFF".getBytes("US-ASCII"));
+        baos.write(le32(4 + 8 + chunk.length));
+        baos.write("WEBP".getBytes("US-ASCII"));
+        baos.write(fourcc.getBytes("US-ASCII"));
+        baos.write(le32(chunk.length));
+        baos.write(chunk);
+        return baos.toByteArray();
+    }
+
+    private static byte[] le32(int v) {
+        return new byte[]{(byte) v, (byte) (v >> 8), (byte) (v >> 16), (byte) (v >> 24)};
+    }
+
+    private static byte[] slice(byte[] b, int from, int to) {
+        byte[] s = new byte[to - from];
+        System.arraycopy(b, from, s, 0, s.length);
+        return s;
+    }
+
+    private static byte[] concat(byte[]... parts) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        for (byte[] p: parts) baos.write(p);
+        return baos.toByteArray();
+    }
+
+    private static byte[] readAll(InputStream is) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] b = new byte[4096];
+        int n;
+        while ((n = is.read(b)) > 0) baos.write(b, 0, n);
+        return baos.toByteArray();
+    }
+}
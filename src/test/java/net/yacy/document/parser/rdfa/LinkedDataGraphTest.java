@@ -0,0 +1,116 @@
+package net.yacy.document.parser.rdfa;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.XSD;
+import org.eclipse.rdf4j.rio.helpers.JSONLDMode;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import net.yacy.document.parser.htmlParser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LinkedDataGraphTest {
+
+    private static final ValueFactory vf = SimpleValueFactory.getInstance();
+
+    @Test
+    void literals_are_written_as_in_compacted_json_ld() throws Exception {
+        IRI me = vf.createIRI("http://test.local/#me");
+        LinkedDataGraph graph = new LinkedDataGraph();
+        graph.receiveTriple(me, RDF.TYPE, vf.createIRI("http://schema.org/Person"), vf.createIRI("http://test.local/"), null);
+        graph.receiveTriple(me, vf.createIRI("http://schema.org/name"), vf.createLiteral("  Alice "), null, null);
+        graph.receiveTriple(me, vf.createIRI("http://schema.org/alternateName"), vf.createLiteral("Alicia", "de"), null, null);
+        graph.receiveTriple(me, vf.createIRI("http://schema.org/birthDate"), vf.createLiteral("1980-01-01", XSD.DATE), null, null);
+        graph.receiveTriple(me, vf.createIRI("http://schema.org/knows"), vf.createIRI("http://test.local/#bob"), null, null);
+
+        assertEquals("http://test.local/", graph.getId());
+        JSONArray nodes = graph.getGraph();
+        assertEquals(1, nodes.length());
+        JSONObject node = nodes.getJSONObject(0);
+        assertEquals("http://test.local/#me", node.getString("@id"));
+        assertEquals("http://schema.org/Person", node.getString("@type"));
+        assertEquals("  Alice ", node.getString("http://schema.org/name"));
+        JSONObject alternateName = node.getJSONObject("http://schema.org/alternateName");
+        assertEquals("de", alternateName.getString("@language"));
+        assertEquals("Alicia", alternateName.getString("@value"));
+        JSONObject birthDate = node.getJSONObject("http://schema.org/birthDate");
+        assertEquals(XSD.DATE.stringValue(), birthDate.getString("@type"));
+        assertEquals("1980-01-01", birthDate.getString("@value"));
+        assertEquals("http://test.local/#bob", node.getJSONObject("http://schema.org/knows").getString("@id"));
+    }
+
+    @Test
+    void literals_with_the_same_text_are_distinct() throws Exception {
+        IRI me = vf.createIRI("http://test.local/#me");
+        IRI name = vf.createIRI("http://schema.org/name");
+        LinkedDataGraph graph = new LinkedDataGraph();
+        graph.receiveTriple(me, name, vf.createLiteral("Alice"), null, null);
+        graph.receiveTriple(me, name, vf.createLiteral("Alice", "en"), null, null);
+        graph.receiveTriple(me, name, vf.createLiteral("Alice", "en"), null, null);
+        graph.receiveTriple(me, name, vf.createIRI("Alice"), null, null);
+
+        JSONArray names = graph.getGraph().getJSONObject(0).getJSONArray("http://schema.org/name");
+        assertEquals(3, names.length());
+        assertEquals("Alice", names.getString(0));
+        assertEquals("en", names.getJSONObject(1).getString("@language"));
+        assertEquals("Alice", names.getJSONObject(2).getString("@id"));
+    }
+
+    @Test
+    void tree_is_the_same_as_from_compacted_json_ld() throws IOException {
+        String url = "http://test.local/person.html";
+        byte[] html = (
+                "<!DOCTYPE html><html lang=\"en\"><head><title>Person</title></head><body vocab=\"http://schema.org/\">" +
+                "<div typeof=\"Person\" resource=\"#me\">" +
+                "<span property=\"name\">  Alice  </span>" +
+                "<span property=\"alternateName\" lang=\"de\">Alicia</span>" +
+                "<span property=\"description\" lang=\"\">  a text with spaces </span>" +
+                "<span property=\"birthDate\" datatype=\"http://www.w3.org/2001/XMLSchema#date\">1980-01-01</span>" +
+                "<div property=\"address\" typeof=\"PostalAddress\"><span property=\"addressLocality\">Berlin</span></div>" +
+                "<a property=\"knows\" href=\"#bob\">Bob</a>" +
+                "</div>" +
+                "<div typeof=\"Person\" resource=\"#bob\"><span property=\"name\">Bob</span></div>" +
+                "</body></html>").getBytes(StandardCharsets.UTF_8);
+
+        JSONObject tree = htmlParser.RDFa2Tree(url, html, StandardCharsets.UTF_8);
+
+        String expand = htmlParser.RDFa2JSONLDExpandString(url, html, StandardCharsets.UTF_8);
+        JSONObject compact = new JSONObject(htmlParser.JSONLDExpand2Mode(url, expand, JSONLDMode.COMPACT));
+        JSONObject compactTree = htmlParser.compact2tree(compact);
+
+        assertEquals(canonical(compactTree), canonical(tree));
+    }
+
+    /**
+     * a string representation which does not depend on the order of keys and array elements
+     */
+    private static String canonical(Object o) {
+        if (o instanceof JSONObject) {
+            JSONObject j = (JSONObject) o;
+            List<String> keys = new ArrayList<>(j.keySet());
+            Collections.sort(keys);
+            StringBuilder sb = new StringBuilder("{");
+            for (String k: keys) sb.append(JSONObject.quote(k)).append(':').append(canonical(j.get(k))).append(',');
+            return sb.append('}').toString();
+        }
+        if (o instanceof JSONArray) {
+            JSONArray a = (JSONArray) o;
+            List<String> elements = new ArrayList<>();
+            for (int i = 0; i < a.length(); i++) elements.add(canonical(a.get(i)));
+            Collections.sort(elements);
+            return elements.toString();
+        }
+        return o instanceof String ? JSONObject.quote((String) o) : String.valueOf(o);
+    }
+}
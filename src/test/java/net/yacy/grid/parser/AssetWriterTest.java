@@ -0,0 +1,141 @@
+package net.yacy.grid.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AssetWriterTest {
+
+    @Test
+    void chunks_roll_over_at_the_chunk_size() throws IOException {
+        Map<String, byte[]> storage = new LinkedHashMap<>();
+        AssetWriter writer = new AssetWriter(storage::put, "test/asset.jsonlist", 100, false);
+
+        for (int i = 0; i < 10; i++) writer.write(line(i), line(i + 100)); // two lines of 20 bytes each per call
+        writer.close();
+
+        assertTrue(writer.isComplete());
+        assertEquals(Arrays.asList("test/asset.jsonlist", "test/asset.jsonlist.1", "test/asset.jsonlist.2", "test/asset.jsonlist.3"), writer.getStoredPaths());
+        assertEquals(new ArrayList<>(storage.keySet()), writer.getStoredPaths());
+        // the lines of one call stay within one chunk and no line is lost
+        List<String> lines = new ArrayList<>();
+        for (byte[] chunk: storage.values()) {
+            assertTrue(chunk.length <= 100 + 2 * 20);
+            lines.addAll(lines(chunk));
+        }
+        assertEquals(20, lines.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(new String(line(i), StandardCharsets.UTF_8), lines.get(2 * i));
+            assertEquals(new String(line(i + 100), StandardCharsets.UTF_8), lines.get(2 * i + 1));
+        }
+    }
+
+    @Test
+    void gzip_chunks_get_a_suffix() throws IOException {
+        Map<String, byte[]> storage = new LinkedHashMap<>();
+        AssetWriter writer = new AssetWriter(storage::put, "test/asset.jsonlist", 0, true);
+
+        writer.write(line(1));
+        writer.close();
+
+        assertEquals(Arrays.asList("test/asset.jsonlist.gz"), writer.getStoredPaths());
+        InputStream is = new GZIPInputStream(new ByteArrayInputStream(storage.get("test/asset.jsonlist.gz")));
+        assertEquals(Arrays.asList(new String(line(1), StandardCharsets.UTF_8)), lines(readAll(is)));
+    }
+
+    @Test
+    void empty_asset_is_stored() throws IOException {
+        Map<String, byte[]> storage = new LinkedHashMap<>();
+        AssetWriter writer = new AssetWriter(storage::put, "test/empty.jsonlist", 0, false);
+
+        writer.close();
+
+        assertEquals(Arrays.asList("test/empty.jsonlist"), writer.getStoredPaths());
+        assertEquals(0, storage.get("test/empty.jsonlist").length);
+    }
+
+    @Test
+    void storing_is_tried_again() throws IOException {
+        Map<String, byte[]> storage = new LinkedHashMap<>();
+        int[] calls = new int[1];
+        AssetWriter writer = new AssetWriter((path, asset) -> {
+            if (calls[0]++ == 0) throw new IOException("storage not available");
+            storage.put(path, asset);
+        }, "test/asset.jsonlist", 0, false);
+
+        writer.write(line(1));
+        writer.close();
+
+        assertEquals(2, calls[0]);
+        assertTrue(writer.isComplete());
+        assertEquals(Arrays.asList("test/asset.jsonlist"), writer.getStoredPaths());
+    }
+
+    @Test
+    void chunks_which_cannot_be_stored_are_kept() throws IOException {
+        AssetWriter writer = new AssetWriter((path, asset) -> {
+            throw new IOException("storage not available");
+        }, "test/asset.jsonlist", 0, false);
+
+        writer.write(line(1));
+        writer.close();
+
+        assertFalse(writer.isComplete());
+        assertTrue(writer.getStoredPaths().isEmpty());
+    }
+
+    @Test
+    void abort_discards_the_current_chunk() throws IOException {
+        Map<String, byte[]> storage = new LinkedHashMap<>();
+        AssetWriter writer = new AssetWriter(storage::put, "test/asset.jsonlist", 30, false);
+
+        writer.write(line(1), line(2)); // stored, the chunk is full
+        writer.write(line(3));
+        writer.abort();
+        writer.abort();
+
+        assertEquals(Arrays.asList("test/asset.jsonlist"), writer.getStoredPaths());
+        assertEquals(2, lines(storage.get("test/asset.jsonlist")).size());
+        assertTrue(writer.isComplete());
+
+        // abort after close does not change the asset
+        AssetWriter closed = new AssetWriter(storage::put, "test/closed.jsonlist", 0, false);
+        closed.write(line(1));
+        closed.close();
+        closed.abort();
+        assertEquals(Arrays.asList("test/closed.jsonlist"), closed.getStoredPaths());
+    }
+
+    private static byte[] line(int i) {
+        // 19 bytes, 20 with the line terminator
+        return String.format("{\"n\":%013d}", i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> lines(byte[] chunk) {
+        List<String> lines = new ArrayList<>();
+        for (String l: new String(chunk, StandardCharsets.UTF_8).split("\n")) if (l.length() > 0) lines.add(l);
+        return lines;
+    }
+
+    private static byte[] readAll(InputStream is) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] b = new byte[4096];
+        int n;
+        while ((n = is.read(b)) > 0) baos.write(b, 0, n);
+        return baos.toByteArray();
+    }
+}
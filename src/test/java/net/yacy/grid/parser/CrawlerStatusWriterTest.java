@@ -0,0 +1,144 @@
+package net.yacy.grid.parser;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CrawlerStatusWriterTest {
+
+    @Test
+    void updates_of_one_document_are_merged() {
+        Map<String, JSONObject> index = new ConcurrentHashMap<>();
+        AtomicInteger requests = new AtomicInteger();
+        CrawlerStatusWriter writer = new CrawlerStatusWriter(batch -> {
+            requests.incrementAndGet();
+            index.putAll(batch);
+        }, 100, 200, 0, 1, 1000, 1000);
+
+        assertTrue(writer.update("a", new JSONObject().put("status_s", "loaded").put("size_i", 1)));
+        assertTrue(writer.update("a", new JSONObject().put("status_s", "parsed")));
+        assertTrue(writer.update("b", new JSONObject().put("status_s", "parsed")));
+        assertTrue(writer.flush(5000));
+
+        // both documents are written with one request
+        assertEquals(1, requests.get());
+        assertEquals("parsed", index.get("a").get("status_s"));
+        assertEquals(1, index.get("a").get("size_i"));
+        assertEquals("parsed", index.get("b").get("status_s"));
+    }
+
+    @Test
+    void failed_batches_are_written_again() {
+        Map<String, JSONObject> index = new ConcurrentHashMap<>();
+        AtomicInteger requests = new AtomicInteger();
+        CrawlerStatusWriter writer = new CrawlerStatusWriter(batch -> {
+            if (requests.incrementAndGet() == 1) throw new IOException("index not available");
+            index.putAll(batch);
+        }, 2, 10, 3, 1, 1000, 1000);
+
+        writer.update("a", new JSONObject().put("status_s", "parsed"));
+        writer.update("b", new JSONObject().put("status_s", "parsed"));
+        assertTrue(writer.flush(5000));
+
+        assertEquals(2, requests.get());
+        assertEquals("parsed", index.get("a").get("status_s"));
+        assertEquals("parsed", index.get("b").get("status_s"));
+    }
+
+    @Test
+    void batches_are_given_up_after_the_retries() {
+        AtomicInteger requests = new AtomicInteger();
+        CrawlerStatusWriter writer = new CrawlerStatusWriter(batch -> {
+            requests.incrementAndGet();
+            throw new IOException("index not available");
+        }, 1, 1, 2, 1, 1000, 1000);
+
+        writer.update("a", new JSONObject().put("status_s", "parsed"));
+        assertTrue(writer.flush(5000));
+
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    void full_queue_drops_updates_only_on_interrupt() throws InterruptedException {
+        Map<String, JSONObject> index = new ConcurrentHashMap<>();
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CrawlerStatusWriter writer = new CrawlerStatusWriter(batch -> {
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            index.putAll(batch);
+        }, 1, 10, 0, 1, 2, 50);
+
+        // the only writer thread is blocked by the first update, the next two fill the queue
+        assertTrue(writer.update("a", new JSONObject().put("status_s", "parsed")));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        assertTrue(writer.update("b", new JSONObject().put("status_s", "parsed")));
+        assertTrue(writer.update("c", new JSONObject().put("status_s", "parsed")));
+        // pending documents can still be merged, new documents wait until the waiting thread is interrupted
+        assertTrue(writer.update("b", new JSONObject().put("size_i", 2)));
+        Thread waiting = Thread.currentThread();
+        new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+            }
+            waiting.interrupt();
+        }).start();
+        assertFalse(writer.update("d", new JSONObject().put("status_s", "parsed")));
+        assertTrue(Thread.interrupted());
+        assertEquals(1, writer.getDropped());
+
+        release.countDown();
+        assertTrue(writer.flush(5000));
+        assertEquals(3, index.size());
+        assertEquals(2, index.get("b").get("size_i"));
+        assertFalse(index.containsKey("d"));
+    }
+
+    @Test
+    void full_queue_blocks_until_there_is_space() throws InterruptedException {
+        Map<String, JSONObject> index = new ConcurrentHashMap<>();
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CrawlerStatusWriter writer = new CrawlerStatusWriter(batch -> {
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            index.putAll(batch);
+        }, 1, 10, 0, 1, 1, 20);
+
+        writer.update("a", new JSONObject().put("status_s", "parsed"));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        writer.update("b", new JSONObject().put("status_s", "parsed"));
+        new Thread(() -> {
+            try {
+                Thread.sleep(200); // longer than the warning interval
+            } catch (InterruptedException e) {
+            }
+            release.countDown();
+        }).start();
+        assertTrue(writer.update("c", new JSONObject().put("status_s", "parsed")));
+
+        assertTrue(writer.flush(5000));
+        assertEquals(3, index.size());
+        assertEquals(0, writer.getDropped());
+    }
+}
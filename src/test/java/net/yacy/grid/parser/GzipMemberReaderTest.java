@@ -0,0 +1,147 @@
+package net.yacy.grid.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GzipMemberReaderTest {
+
+    private static final String TRAP = "payload \u001f\u008b\u0008\u0000 gzip magic inside the payload";
+
+    @Test
+    void members_are_split_at_warc_records() throws IOException {
+        byte[] m1 = gzip(record(1, "first"), Deflater.DEFAULT_COMPRESSION);
+        byte[] m2 = gzip(record(2, TRAP), Deflater.NO_COMPRESSION); // the gzip magic is stored uncompressed
+        byte[] m3 = gzip(record(3, "third"), Deflater.DEFAULT_COMPRESSION);
+
+        GzipMemberReader reader = new GzipMemberReader(stream(m1, m2, m3), 1024 * 1024);
+
+        assertArrayEquals(m1, reader.next());
+        assertArrayEquals(m2, reader.next());
+        assertArrayEquals(m3, reader.next());
+        assertNull(reader.next());
+        assertFalse(reader.isOversized());
+    }
+
+    @Test
+    void false_header_at_the_end_of_the_buffer_is_probed_again() throws IOException {
+        // place the gzip magic of the payload a few bytes before the end of the first read chunk,
+        // so the first probe has not enough data to decide
+        byte[] m1 = trapMemberAt(64 * 1024 - 6);
+        byte[] m2 = gzip(record(2, "second"), Deflater.DEFAULT_COMPRESSION);
+
+        GzipMemberReader reader = new GzipMemberReader(stream(m1, m2), 1024 * 1024);
+
+        assertArrayEquals(m1, reader.next());
+        assertArrayEquals(m2, reader.next());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void probe_decides_on_warc_magic() throws IOException {
+        byte[] warc = gzip(record(1, "first"), Deflater.DEFAULT_COMPRESSION);
+        byte[] other = gzip("not a warc record".getBytes(StandardCharsets.US_ASCII), Deflater.DEFAULT_COMPRESSION);
+
+        assertEquals(GzipMemberReader.PROBE_VALID, GzipMemberReader.probe(new ByteArrayInputStream(warc), true));
+        assertEquals(GzipMemberReader.PROBE_INVALID, GzipMemberReader.probe(new ByteArrayInputStream(other), true));
+        assertEquals(GzipMemberReader.PROBE_INCOMPLETE, GzipMemberReader.probe(new ByteArrayInputStream(warc, 0, 12), false));
+        assertEquals(GzipMemberReader.PROBE_INVALID, GzipMemberReader.probe(new ByteArrayInputStream(warc, 0, 12), true));
+        assertTrue(GzipMemberReader.isHeader(warc, 0));
+        assertFalse(GzipMemberReader.isHeader(record(1, "first"), 0));
+    }
+
+    @Test
+    void oversized_member_is_read_with_remaining() throws IOException {
+        StringBuilder large = new StringBuilder();
+        while (large.length() < 200000) large.append("0123456789");
+        byte[] m1 = gzip(record(1, "first"), Deflater.DEFAULT_COMPRESSION);
+        byte[] m2 = gzip(record(2, large.toString()), Deflater.NO_COMPRESSION);
+        byte[] m3 = gzip(record(3, "third"), Deflater.DEFAULT_COMPRESSION);
+
+        GzipMemberReader reader = new GzipMemberReader(stream(m1, m2, m3), 100000);
+
+        assertArrayEquals(m1, reader.next());
+        assertNull(reader.next());
+        assertTrue(reader.isOversized());
+        assertNull(reader.next());
+        assertArrayEquals(concat(m2, m3), readAll(reader.remaining()));
+    }
+
+    @Test
+    void empty_stream_has_no_members() throws IOException {
+        GzipMemberReader reader = new GzipMemberReader(new ByteArrayInputStream(new byte[0]), 1024);
+        assertNull(reader.next());
+        assertFalse(reader.isOversized());
+    }
+
+    private static byte[] trapMemberAt(int position) throws IOException {
+        int padding = 0;
+        for (int i = 0; i < 3; i++) {
+            byte[] m = gzip(record(1, repeat('x', padding) + TRAP), Deflater.NO_COMPRESSION);
+            int p = indexOfMagic(m);
+            if (p == position) return m;
+            padding += position - p;
+        }
+        throw new IllegalStateException("could not place the gzip magic at " + position);
+    }
+
+    private static int indexOfMagic(byte[] b) {
+        for (int i = 1; i < b.length - 3; i++) if (GzipMemberReader.isHeader(b, i)) return i;
+        return -1;
+    }
+
+    private static String repeat(char c, int n) {
+        StringBuilder sb = new StringBuilder(n);
+        for (int i = 0; i < n; i++) sb.append(c);
+        return sb.toString();
+    }
+
+    private static byte[] record(int id, String block) {
+        byte[] b = block.getBytes(StandardCharsets.ISO_8859_1);
+        String header =
+                "WARC/1.0\r\n" +
+                "WARC-Type: resource\r\n" +
+                "WARC-Record-ID: <urn:uuid:" + id + ">\r\n" +
+                "Content-Length: " + b.length + "\r\n" +
+                "\r\n";
+        return (header + block + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] gzip(byte[] b, int level) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (GZIPOutputStream gos = new GZIPOutputStream(baos) {{ this.def.setLevel(level); }}) {
+            gos.write(b);
+        }
+        return baos.toByteArray();
+    }
+
+    private static byte[] concat(byte[]... parts) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        for (byte[] p: parts) baos.write(p);
+        return baos.toByteArray();
+    }
+
+    private static InputStream stream(byte[]... parts) throws IOException {
+        return new ByteArrayInputStream(concat(parts));
+    }
+
+    private static byte[] readAll(InputStream is) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] b = new byte[4096];
+        int n;
+        while ((n = is.read(b)) > 0) baos.write(b, 0, n);
+        return baos.toByteArray();
+    }
+}
@@ -0,0 +1,149 @@
+package net.yacy.grid.parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedWarcFileTest {
+
+    @Test
+    void plain_warc_is_indexed_by_record() throws IOException {
+        File f = writeFile(record(1, "first"), record(2, "second\r\n\r\nwith an empty line"), record(3, "third"));
+
+        try (MappedWarcFile warc = new MappedWarcFile(f)) {
+            assertFalse(warc.isGzip());
+            assertEquals(3, warc.size());
+            assertEquals(new String(record(1, "first"), StandardCharsets.ISO_8859_1), readPart(warc, 0));
+            assertEquals(new String(record(2, "second\r\n\r\nwith an empty line"), StandardCharsets.ISO_8859_1), readPart(warc, 1));
+            assertEquals(new String(record(3, "third"), StandardCharsets.ISO_8859_1), readPart(warc, 2));
+        }
+    }
+
+    @Test
+    void gzip_members_are_indexed_and_false_headers_are_skipped() throws IOException {
+        // the stored (uncompressed) member contains a gzip header within its payload
+        String trap = "payload \u001f\u008b\u0008\u0000 gzip magic inside the payload";
+        File f = writeFile(
+                gzip(record(1, "first"), Deflater.DEFAULT_COMPRESSION),
+                gzip(record(2, trap), Deflater.NO_COMPRESSION),
+                gzip(record(3, "third"), Deflater.DEFAULT_COMPRESSION));
+
+        try (MappedWarcFile warc = new MappedWarcFile(f)) {
+            assertTrue(warc.isGzip());
+            assertEquals(3, warc.size());
+            assertEquals(new String(record(1, "first"), StandardCharsets.ISO_8859_1), readPart(warc, 0));
+            assertEquals(new String(record(2, trap), StandardCharsets.ISO_8859_1), readPart(warc, 1));
+            assertEquals(new String(record(3, "third"), StandardCharsets.ISO_8859_1), readPart(warc, 2));
+        }
+    }
+
+    @Test
+    void gzip_members_across_scan_windows_are_all_found() throws IOException {
+        // stored members of 10kb make a file which is larger than one scan window
+        StringBuilder filler = new StringBuilder();
+        while (filler.length() < 10000) filler.append("0123456789");
+        byte[][] members = new byte[600][];
+        for (int i = 0; i < members.length; i++) members[i] = gzip(record(i, i + filler.toString()), Deflater.NO_COMPRESSION);
+        File f = writeFile(members);
+
+        try (MappedWarcFile warc = new MappedWarcFile(f)) {
+            assertTrue(f.length() > 5 * 1024 * 1024);
+            assertEquals(members.length, warc.size());
+            for (int i = 0; i < members.length; i++) {
+                assertEquals(new String(record(i, i + filler.toString()), StandardCharsets.ISO_8859_1), readPart(warc, i));
+            }
+        }
+    }
+
+    @Test
+    void single_gzip_member_is_one_part() throws IOException {
+        ByteArrayOutputStream all = new ByteArrayOutputStream();
+        all.write(record(1, "first"));
+        all.write(record(2, "second"));
+        File f = writeFile(gzip(all.toByteArray(), Deflater.DEFAULT_COMPRESSION));
+
+        try (MappedWarcFile warc = new MappedWarcFile(f)) {
+            assertEquals(1, warc.size());
+            assertEquals(new String(all.toByteArray(), StandardCharsets.ISO_8859_1), readPart(warc, 0));
+        }
+    }
+
+    @Test
+    void gzip_without_warc_is_one_part() throws IOException {
+        File f = writeFile(gzip("no warc".getBytes(StandardCharsets.US_ASCII), Deflater.DEFAULT_COMPRESSION));
+
+        try (MappedWarcFile warc = new MappedWarcFile(f)) {
+            assertEquals(1, warc.size());
+            assertEquals("no warc", readPart(warc, 0));
+        }
+    }
+
+    @Test
+    void parts_share_windows_and_large_parts_are_read_from_the_channel() throws IOException {
+        byte[][] records = new byte[7][];
+        for (int i = 0; i < records.length; i++) records[i] = record(i, i == 3 ? new String(new char[1000]).replace('\0', 'x') : "record " + i);
+        File f = writeFile(records);
+
+        // three small records fit into one window, the large record in the middle does not fit into any window
+        try (MappedWarcFile warc = new MappedWarcFile(f, 3 * records[0].length)) {
+            assertEquals(records.length, warc.size());
+            assertEquals(2, warc.windows());
+            for (int i = records.length - 1; i >= 0; i--) {
+                assertEquals(new String(records[i], StandardCharsets.ISO_8859_1), readPart(warc, i));
+            }
+        }
+        try (MappedWarcFile warc = new MappedWarcFile(f)) {
+            assertEquals(1, warc.windows());
+        }
+    }
+
+    static byte[] record(int id, String block) {
+        byte[] b = block.getBytes(StandardCharsets.ISO_8859_1);
+        String header =
+                "WARC/1.0\r\n" +
+                "WARC-Type: resource\r\n" +
+                "WARC-Record-ID: <urn:uuid:" + id + ">\r\n" +
+                "Content-Length: " + b.length + "\r\n" +
+                "\r\n";
+        return (header + block + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    static byte[] gzip(byte[] b, int level) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (GZIPOutputStream gos = new GZIPOutputStream(baos) {{ this.def.setLevel(level); }}) {
+            gos.write(b);
+        }
+        return baos.toByteArray();
+    }
+
+    private static File writeFile(byte[]... parts) throws IOException {
+        File f = File.createTempFile("MappedWarcFileTest", ".warc");
+        f.deleteOnExit();
+        try (OutputStream os = new FileOutputStream(f)) {
+            for (byte[] p: parts) os.write(p);
+        }
+        return f;
+    }
+
+    private static String readPart(MappedWarcFile warc, int i) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (InputStream is = warc.part(i)) {
+            byte[] b = new byte[4096];
+            int n;
+            while ((n = is.read(b)) > 0) baos.write(b, 0, n);
+        }
+        return new String(baos.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+}
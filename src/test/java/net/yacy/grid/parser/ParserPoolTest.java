@@ -0,0 +1,111 @@
+package net.yacy.grid.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParserPoolTest {
+
+    @Test
+    void jobs_take_turns() throws InterruptedException {
+        ParserPool pool = new ParserPool(1, 10);
+        ParserPool.Job a = pool.newJob("a");
+        ParserPool.Job b = pool.newJob("b");
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch release = block(a);
+
+        // while the only worker is blocked, a large job and a small job queue up
+        for (int i = 1; i <= 5; i++) {
+            String name = "a" + i;
+            a.submit(() -> order.add(name));
+        }
+        for (int i = 1; i <= 2; i++) {
+            String name = "b" + i;
+            b.submit(() -> order.add(name));
+        }
+        release.countDown();
+        a.await();
+        b.await();
+
+        assertEquals(Arrays.asList("a1", "b1", "a2", "b2", "a3", "a4", "a5"), order);
+    }
+
+    @Test
+    void offer_does_not_block_if_the_queue_is_full() throws InterruptedException {
+        ParserPool pool = new ParserPool(1, 1);
+        ParserPool.Job job = pool.newJob("offer");
+        AtomicInteger done = new AtomicInteger();
+        CountDownLatch release = block(job);
+
+        assertTrue(job.offer(done::incrementAndGet));
+        assertFalse(job.offer(done::incrementAndGet)); // the caller runs such a task itself
+        release.countDown();
+        job.await(); // a refused task is not waited for
+
+        assertEquals(1, done.get());
+    }
+
+    @Test
+    void failing_task_does_not_stop_the_worker() throws InterruptedException {
+        ParserPool pool = new ParserPool(1, 4);
+        ParserPool.Job job = pool.newJob("fail");
+        AtomicBoolean done = new AtomicBoolean();
+        job.submit(() -> {throw new IllegalStateException("task failed");});
+        job.submit(() -> done.set(true));
+        job.await();
+
+        assertTrue(done.get());
+    }
+
+    @Test
+    void await_uninterruptibly_waits_for_all_tasks() throws InterruptedException {
+        ParserPool pool = new ParserPool(2, 4);
+        ParserPool.Job job = pool.newJob("await");
+        AtomicBoolean done = new AtomicBoolean();
+        CountDownLatch release = block(job);
+        job.submit(() -> done.set(true));
+
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+            }
+            release.countDown();
+        }).start();
+        Thread.currentThread().interrupt();
+
+        assertTrue(job.awaitUninterruptibly());
+        assertTrue(done.get());
+        assertTrue(Thread.interrupted()); // the interrupt is kept for the caller
+        assertFalse(job.awaitUninterruptibly());
+    }
+
+    /**
+     * block a worker thread of the pool with a task of the given job
+     * @return the latch which releases the worker
+     */
+    private static CountDownLatch block(ParserPool.Job job) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        job.submit(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+}